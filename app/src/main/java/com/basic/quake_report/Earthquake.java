@@ -25,6 +25,45 @@ public class Earthquake {
     // Stores the USGS url showing more info. about this Earthquake.
     private String url;
 
+    // Stores the USGS event id of this Earthquake.
+    private String id;
+
+    // Stores the url of the detail GeoJSON of this Earthquake.
+    private String detailUrl;
+
+    // Stores the Unix-Timestamp when this Earthquake occurred.
+    private long timeMillis;
+
+    // Stores the latitude of the epicentre.
+    private double latitude;
+
+    // Stores the longitude of the epicentre.
+    private double longitude;
+
+    // Stores the depth of the hypocentre in kilometres.
+    private double depth;
+
+    // Stores the name of the agencies reporting this Earthquake e.g. "USGS, EMSC".
+    private String source;
+
+    // Stores whether a tsunami advisory was issued, only known from GeoJSON.
+    private boolean tsunami;
+
+    // Stores the USGS "sig" of the Earthquake, only known from GeoJSON and 0 otherwise.
+    private int significance;
+
+    // Stores the magnitude formatted for display, precomputed off the main thread.
+    private String magnitudeText;
+
+    // Stores the resolved color int of the magnitude badge, precomputed off the main thread.
+    private int magnitudeColor;
+
+    // Stores the upper-cased offset shown in the list, precomputed off the main thread.
+    private String displayOffset;
+
+    // Stores the text laid out for EarthquakeRowView, precomputed off the main thread.
+    private EarthquakeRowView.RowLayouts rowLayouts;
+
     /**
      * Sets the magnitude of the Earthquake.
      */
@@ -108,4 +147,186 @@ public class Earthquake {
     public void setUrl(String url) {
         this.url = url;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return The USGS event id of the Earthquake.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @param id Sets the USGS event id of the Earthquake.
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * @return Url of the detail GeoJSON of the Earthquake.
+     */
+    public String getDetailUrl() {
+        return detailUrl;
+    }
+
+    /**
+     * @param detailUrl Sets the url of the detail GeoJSON of the Earthquake.
+     */
+    public void setDetailUrl(String detailUrl) {
+        this.detailUrl = detailUrl;
+    }
+
+    /**
+     * @return Unix-Timestamp when the Earthquake occurred.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * @param timeMillis Sets the Unix-Timestamp when the Earthquake occurred.
+     */
+    public void setTimeMillis(long timeMillis) {
+        this.timeMillis = timeMillis;
+    }
+
+    /**
+     * @return The latitude of the epicentre.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @param latitude Sets the latitude of the epicentre.
+     */
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    /**
+     * @return The longitude of the epicentre.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @param longitude Sets the longitude of the epicentre.
+     */
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    /**
+     * @return The depth of the hypocentre in kilometres.
+     */
+    public double getDepth() {
+        return depth;
+    }
+
+    /**
+     * @param depth Sets the depth of the hypocentre in kilometres.
+     */
+    public void setDepth(double depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * @return Name of the agencies reporting the Earthquake.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @param source Sets the name of the agencies reporting the Earthquake.
+     */
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    /**
+     * @return Whether a tsunami advisory was issued for the Earthquake.
+     */
+    public boolean isTsunami() {
+        return tsunami;
+    }
+
+    /**
+     * @param tsunami Sets whether a tsunami advisory was issued for the Earthquake.
+     */
+    public void setTsunami(boolean tsunami) {
+        this.tsunami = tsunami;
+    }
+
+    /**
+     * @return The USGS "sig" of the Earthquake, or 0 if it is unknown.
+     */
+    public int getSignificance() {
+        return significance;
+    }
+
+    /**
+     * @param significance Sets the USGS "sig" of the Earthquake.
+     */
+    public void setSignificance(int significance) {
+        this.significance = significance;
+    }
+
+    /**
+     * @return The magnitude formatted for display.
+     */
+    public String getMagnitudeText() {
+        return magnitudeText;
+    }
+
+    /**
+     * @param magnitudeText Sets the magnitude formatted for display.
+     */
+    public void setMagnitudeText(String magnitudeText) {
+        this.magnitudeText = magnitudeText;
+    }
+
+    /**
+     * @return The resolved color int of the magnitude badge.
+     */
+    public int getMagnitudeColor() {
+        return magnitudeColor;
+    }
+
+    /**
+     * @param magnitudeColor Sets the resolved color int of the magnitude badge.
+     */
+    public void setMagnitudeColor(int magnitudeColor) {
+        this.magnitudeColor = magnitudeColor;
+    }
+
+    /**
+     * @return The offset as shown in the list i.e. upper-cased.
+     */
+    public String getDisplayOffset() {
+        return displayOffset;
+    }
+
+    /**
+     * @param displayOffset Sets the offset as shown in the list.
+     */
+    public void setDisplayOffset(String displayOffset) {
+        this.displayOffset = displayOffset;
+    }
+
+    /**
+     * @return The text laid out for {@link EarthquakeRowView}, if prepared.
+     */
+    public EarthquakeRowView.RowLayouts getRowLayouts() {
+        return rowLayouts;
+    }
+
+    /**
+     * @param rowLayouts Sets the text laid out for {@link EarthquakeRowView}.
+     */
+    public void setRowLayouts(EarthquakeRowView.RowLayouts rowLayouts) {
+        this.rowLayouts = rowLayouts;
+    }
+}
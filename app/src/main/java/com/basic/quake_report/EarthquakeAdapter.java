@@ -12,59 +12,255 @@ import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.basic.quake_report.utils.AftershockSequence;
+import com.basic.quake_report.utils.SectionIndex;
+
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Provides {@link EarthquakeViewHolder} to {@link R.id#recycler_earthquake} RecyclerView on demand.
  */
-public class EarthquakeAdapter extends RecyclerView.Adapter<EarthquakeAdapter.EarthquakeViewHolder> {
+public class EarthquakeAdapter
+        extends RecyclerView.Adapter<EarthquakeAdapter.EarthquakeViewHolder> {
+
+    // Background colors of the magnitude badge, indexed by the earthquake's whole magnitude.
+    private static final int[] MAGNITUDE_COLORS = {
+            R.color.magnitude1,
+            R.color.magnitude1,
+            R.color.magnitude2,
+            R.color.magnitude3,
+            R.color.magnitude4,
+            R.color.magnitude5,
+            R.color.magnitude6,
+            R.color.magnitude7,
+            R.color.magnitude8,
+            R.color.magnitude9,
+            R.color.magnitude10plus
+    };
+
+    // View type of rows inflated from "layout_list_item.xml".
+    private static final int VIEW_TYPE_INFLATED = 0;
+
+    // View type of rows drawn by a single EarthquakeRowView.
+    private static final int VIEW_TYPE_FLAT = 1;
+
+    // View type of the mainshock rows heading a sequence of earthquakes.
+    private static final int VIEW_TYPE_SEQUENCE = 2;
 
     // Stores a list of Earthquakes.
-    private ArrayList<Earthquake> mEarthquakeList;
+    private List<Earthquake> mEarthquakeList;
+
+    // Sequence headed by every row of "mEarthquakeList", null for rows not heading one, or
+    // null when the earthquakes are not grouped.
+    private List<AftershockSequence> mRowSequences;
+
+    // Sequences whose earthquakes are shown below their mainshock, with the number of rows
+    // inserted for them.
+    private final Map<AftershockSequence, Integer> mExpanded = new IdentityHashMap<>();
+
+    // Whether rows are sectioned by day or by magnitude.
+    private int mSectionMode = SectionIndex.BY_DAY;
+
+    // Sections of "mEarthquakeList", built once per list, or null when there is none.
+    private SectionIndex mSectionIndex;
 
     // Used to provide click facility to Adapter's contents.
     private final EarthquakeListItemClickListener mListItemClickListener;
 
+    // Whether rows are drawn by EarthquakeRowView.
+    private final boolean mFlatRows;
+
     // Interface provides click facility to RecyclerView.
     public interface EarthquakeListItemClickListener {
 
         /**
          * This method gets invoked when user clicks any item in the {@link EarthquakeAdapter}.
          *
-         * @param clickedEarthquakeUrl It is the USGS url of the clicked Earthquake.
+         * @param clickedEarthquake It is the clicked Earthquake.
          */
-        void onListItemClick(String clickedEarthquakeUrl);
+        void onListItemClick(Earthquake clickedEarthquake);
     }
 
     /**
-     * Initializes Adapter to provide contents of an ArrayList of type {@link Earthquake} to
+     * Initializes Adapter to provide contents of a List of type {@link Earthquake} to
      * a RecyclerView.
      *
      * @param listItemClickListener Interface provides click facility to list items.
      */
     public EarthquakeAdapter(EarthquakeListItemClickListener listItemClickListener) {
+        this(listItemClickListener, false);
+    }
+
+    /**
+     * Initializes Adapter to provide contents of a List of type {@link Earthquake} to
+     * a RecyclerView.
+     *
+     * @param listItemClickListener Interface provides click facility to list items.
+     * @param flatRows              Draws every row with a single {@link EarthquakeRowView}
+     *                              instead of inflating {@link R.layout#layout_list_item}.
+     */
+    public EarthquakeAdapter(EarthquakeListItemClickListener listItemClickListener,
+                             boolean flatRows) {
         mListItemClickListener = listItemClickListener;
+        mFlatRows = flatRows;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        if (mRowSequences != null && mRowSequences.get(position) != null) {
+            return VIEW_TYPE_SEQUENCE;
+        }
+        return mFlatRows ? VIEW_TYPE_FLAT : VIEW_TYPE_INFLATED;
     }
 
     @NonNull
     @Override
     public EarthquakeViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == VIEW_TYPE_FLAT) {
+            // Nothing to inflate.
+            EarthquakeRowView rowView = new EarthquakeRowView(parent.getContext());
+            rowView.setLayoutParams(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            return new FlatViewHolder(rowView);
+        }
+
+        LayoutInflater inflater = (LayoutInflater) parent.getContext()
+                .getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        if (viewType == VIEW_TYPE_SEQUENCE) {
+            // Inflates "layout_sequence_item.xml".
+            return new SequenceViewHolder(inflater.inflate(R.layout.layout_sequence_item, parent,
+                    false));
+        }
+
         // Inflates "layout_list_item.xml".
-        return new EarthquakeViewHolder(((LayoutInflater) parent.getContext()
-                .getSystemService(Context.LAYOUT_INFLATER_SERVICE))
-                .inflate(R.layout.layout_list_item, parent, false));
+        return new InflatedViewHolder(inflater.inflate(R.layout.layout_list_item, parent, false));
     }
 
     @Override
     public void onBindViewHolder(@NonNull EarthquakeViewHolder holder, int position) {
-        // Get Earthquake based on adapter set position.
-        Earthquake earthquake = mEarthquakeList.get(position);
+        // Binds the pre-built "earthquake" data to holder at "position".
+        holder.setData(mEarthquakeList.get(position));
+
+        if (holder instanceof SequenceViewHolder) {
+            ((SequenceViewHolder) holder).setSequence(mRowSequences.get(position));
+        }
+    }
+
+    /**
+     * Precomputes everything {@link #onBindViewHolder(EarthquakeViewHolder, int)} needs i.e. the
+     * magnitude text, the resolved magnitude color and the upper-cased offset. It is meant to be
+     * invoked off the main thread, right after the earthquakes are parsed.
+     *
+     * @param context     Used to resolve the magnitude colors.
+     * @param earthquakes List of {@link Earthquake} to be made bind-ready.
+     */
+    public static void prepareEarthquakeData(Context context, List<Earthquake> earthquakes) {
+        if (earthquakes == null) {
+            return;
+        }
+
+        // Resolves every magnitude color only once for the whole list.
+        int[] colors = new int[MAGNITUDE_COLORS.length];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = ContextCompat.getColor(context, MAGNITUDE_COLORS[i]);
+        }
+
+        Locale locale = Locale.getDefault();
+
+        for (Earthquake earthquake : earthquakes) {
+            double magnitude = earthquake.getMagnitude();
+
+            earthquake.setMagnitudeText(String.valueOf(magnitude));
+            earthquake.setMagnitudeColor(colors[getMagnitudeColorIndex(magnitude)]);
+
+            // Replaces "textAllCaps" which transforms the offset on every bind.
+            String offset = earthquake.getOffset();
+            earthquake.setDisplayOffset(offset == null ? null : offset.toUpperCase(locale));
+        }
+    }
+
+    /**
+     * Precomputes the number of earthquakes {@link SequenceViewHolder} shows for every sequence,
+     * so binding a sequence formats nothing. It is meant to be invoked off the main thread, next
+     * to {@link #prepareEarthquakeData(Context, List)}.
+     *
+     * @param context   Used to resolve the plurals of the count.
+     * @param sequences List of {@link AftershockSequence} to be made bind-ready.
+     */
+    public static void prepareSequenceData(Context context, List<AftershockSequence> sequences) {
+        if (sequences == null) {
+            return;
+        }
+
+        for (AftershockSequence sequence : sequences) {
+            sequence.setCountText(context.getResources().getQuantityString(
+                    R.plurals.sequence_count, sequence.size(), sequence.size()));
+        }
+    }
+
+    /**
+     * Finds the index in {@link #MAGNITUDE_COLORS} based on earthquake's magnitude.
+     *
+     * @return Index of the background color.
+     */
+    private static int getMagnitudeColorIndex(double magnitude) {
+        int index = (int) magnitude;
+        if (index < 0) {
+            return 0;
+        }
+        return Math.min(index, MAGNITUDE_COLORS.length - 1);
+    }
+
+    /**
+     * @param position Adapter position of the row.
+     * @return The Earthquake shown at "position".
+     */
+    public Earthquake getEarthquake(int position) {
+        return mEarthquakeList.get(position);
+    }
+
+    /**
+     * @return The Earthquakes shown, or null if there are none.
+     */
+    public List<Earthquake> getEarthquakeData() {
+        return mEarthquakeList;
+    }
+
+    /**
+     * @return Sections of the rows shown, or null if there are none.
+     */
+    public SectionIndex getSectionIndex() {
+        return mSectionIndex;
+    }
 
-        // Binds "earthquake" data to holder at "position".
-        holder.setData(earthquake.getMagnitude(), earthquake.getOffset(),
-                earthquake.getPrimaryLocation(), earthquake.getDate(), earthquake.getTime());
+    /**
+     * Sections the rows by day or by magnitude, matching the order of the list.
+     *
+     * @param mode {@link SectionIndex#BY_DAY} or {@link SectionIndex#BY_MAGNITUDE}.
+     */
+    public void setSectionMode(int mode) {
+        if (mode != mSectionMode) {
+            mSectionMode = mode;
+            buildSectionIndex();
+        }
     }
 
+    /**
+     * Indexes the sections of every row of "mEarthquakeList".
+     */
+    private void buildSectionIndex() {
+        if (mEarthquakeList == null) {
+            mSectionIndex = null;
+        } else {
+            mSectionIndex = new SectionIndex(mSectionMode);
+            mSectionIndex.append(mEarthquakeList);
+        }
+    }
 
     @Override
     public int getItemCount() {
@@ -83,21 +279,116 @@ public class EarthquakeAdapter extends RecyclerView.Adapter<EarthquakeAdapter.Ea
      *                    work.
      */
     @SuppressLint("NotifyDataSetChanged")
-    public void setEarthquakeData(ArrayList<Earthquake> earthquakes) {
-        mEarthquakeList = earthquakes;
+    public void setEarthquakeData(List<Earthquake> earthquakes) {
+        mExpanded.clear();
+        if (earthquakes instanceof AftershockSequence.HeadList) {
+            // Mainshocks head their sequence, rows get inserted below them when expanded.
+            AftershockSequence.HeadList heads = (AftershockSequence.HeadList) earthquakes;
+            mEarthquakeList = new ArrayList<>(heads);
+            mRowSequences = new ArrayList<>(heads.size());
+            for (int i = 0; i < heads.size(); i++) {
+                AftershockSequence sequence = heads.getSequence(i);
+                mRowSequences.add(sequence.size() > 1 ? sequence : null);
+            }
+        } else {
+            mEarthquakeList = earthquakes;
+            mRowSequences = null;
+        }
+
+        // Sections are found once for the whole list, never while it scrolls.
+        buildSectionIndex();
         notifyDataSetChanged();
     }
 
-    // Caches the views.
-    protected class EarthquakeViewHolder extends RecyclerView.ViewHolder implements
+    /**
+     * Appends Earthquakes to the ones shown, e.g. as they are decoded from a download still in
+     * progress. Only the appended rows get bound.
+     *
+     * @param earthquakes It is the Earthquakes to append. The list set last must be modifiable.
+     */
+    public void appendEarthquakeData(List<Earthquake> earthquakes) {
+        int start = mEarthquakeList.size();
+        mEarthquakeList.addAll(earthquakes);
+        if (mRowSequences != null) {
+            mRowSequences.addAll(Collections.<AftershockSequence>nCopies(earthquakes.size(),
+                    null));
+        }
+
+        // Only the appended rows get indexed.
+        mSectionIndex.append(mEarthquakeList);
+        notifyItemRangeInserted(start, earthquakes.size());
+    }
+
+    /**
+     * Shows the earthquakes of the sequence headed by the row at "position" below it, or hides
+     * them when shown already. Only the rows of the sequence get bound.
+     *
+     * @param position Adapter position of the mainshock heading the sequence.
+     */
+    private void toggleSequence(int position) {
+        AftershockSequence sequence = mRowSequences.get(position);
+
+        // Removes the rows inserted on expanding, however many the sequence holds now.
+        Integer inserted = mExpanded.remove(sequence);
+        if (inserted != null) {
+            mEarthquakeList.subList(position + 1, position + 1 + inserted).clear();
+            mRowSequences.subList(position + 1, position + 1 + inserted).clear();
+            notifyItemRangeRemoved(position + 1, inserted);
+        } else {
+            // Every earthquake of the sequence but the mainshock, oldest first.
+            List<Earthquake> members = new ArrayList<>(sequence.getEarthquakes());
+            members.remove(sequence.getMainshock());
+
+            mExpanded.put(sequence, members.size());
+            mEarthquakeList.addAll(position + 1, members);
+            mRowSequences.addAll(position + 1,
+                    Collections.<AftershockSequence>nCopies(members.size(), null));
+            notifyItemRangeInserted(position + 1, members.size());
+        }
+
+        // Rows below the sequence moved.
+        buildSectionIndex();
+    }
+
+    // Binds an Earthquake to a list item.
+    protected abstract class EarthquakeViewHolder extends RecyclerView.ViewHolder implements
             View.OnClickListener {
 
-        // Used to set background color for magnitude.
-        private final Context context;
+        // Initializes the ViewHolder to send it to the RecyclerView.
+        public EarthquakeViewHolder(View itemView) {
+            super(itemView);
+
+            // Attach OnClickListener to "itemView".
+            itemView.setOnClickListener(this);
+        }
+
+        /**
+         * Binds data to the list item. Every value is precomputed by
+         * {@link #prepareEarthquakeData(Context, List)}, so this only sets them.
+         *
+         * @param earthquake It is the bind-ready Earthquake.
+         */
+        public abstract void setData(Earthquake earthquake);
+
+        @Override
+        public void onClick(View v) {
+            // Set clicked Earthquake to ListItemClickListener.
+            mListItemClickListener.onListItemClick(mEarthquakeList.get(getAdapterPosition()));
+        }
+    }
+
+    // Caches the views of "layout_list_item.xml".
+    protected class InflatedViewHolder extends EarthquakeViewHolder {
 
         // Shows the magnitude of the Earthquake.
         private final TextView magnitude;
 
+        // Background of "magnitude", owned by this holder only.
+        private final GradientDrawable magnitudeBackground;
+
+        // Color currently applied to "magnitudeBackground".
+        private int magnitudeColor;
+
         // Shows the location offset of the Earthquake.
         private final TextView offset;
 
@@ -111,92 +402,104 @@ public class EarthquakeAdapter extends RecyclerView.Adapter<EarthquakeAdapter.Ea
         private final TextView time;
 
         // Initializes the ViewHolder to send it to the RecyclerView.
-        public EarthquakeViewHolder(View itemView) {
+        public InflatedViewHolder(View itemView) {
             super(itemView);
 
-            // Initialize Context.
-            context = itemView.getContext();
-
-            // Attach OnClickListener to "itemView".
-            itemView.setOnClickListener(this);
-
             // Initialize all views.
             magnitude = itemView.findViewById(R.id.magnitude);
             offset = itemView.findViewById(R.id.location_offset);
             location = itemView.findViewById(R.id.primary_location);
             date = itemView.findViewById(R.id.date);
             time = itemView.findViewById(R.id.time);
-        }
 
-        /**
-         * Finds the background to {@link R.id#magnitude} TextView based on earthquake's magnitude.
-         *
-         * @return Background color.
-         */
-        public int getMagnitudeBackground(double magnitude) {
-            switch ((int) magnitude) {
-                case 0:
-                case 1:
-                    return R.color.magnitude1;
-                case 2:
-                    return R.color.magnitude2;
-                case 3:
-                    return R.color.magnitude3;
-                case 4:
-                    return R.color.magnitude4;
-                case 5:
-                    return R.color.magnitude5;
-                case 6:
-                    return R.color.magnitude6;
-                case 7:
-                    return R.color.magnitude7;
-                case 8:
-                    return R.color.magnitude8;
-                case 9:
-                    return R.color.magnitude9;
-                default:
-                    return R.color.magnitude10plus;
-            }
+            /*
+             * Drawables inflated from the same resource share their state. Mutating it once here
+             * stops a color set on one row from leaking into every other recycled row.
+             */
+            magnitudeBackground = (GradientDrawable) magnitude.getBackground().mutate();
         }
 
-        /**
-         * Binds data to list item View i.e. contents of {@link R.layout#layout_list_item} layout.
-         *
-         * @param magnitude It is the magnitude of Earthquake.
-         * @param offset    It is the exact distance (if available) where earthquake occurred from
-         *                  the reported location.
-         * @param location  The location where the earthquake occurred.
-         * @param date      Date at when the earthquake occurred.
-         * @param time      Time during the date when earthquake occurred.
-         */
-        public void setData(double magnitude, String offset, String location, String date,
-                            String time) {
+        @Override
+        public void setData(Earthquake earthquake) {
             // Sets magnitude.
-            this.magnitude.setText(String.valueOf(magnitude));
+            magnitude.setText(earthquake.getMagnitudeText());
 
-            // Sets magnitude background.
-            GradientDrawable gradientDrawable = (GradientDrawable) this.magnitude.getBackground();
-            gradientDrawable.setColor(ContextCompat.getColor(context,
-                    getMagnitudeBackground(magnitude)));
+            // Sets magnitude background, only when it differs from the one already shown.
+            int color = earthquake.getMagnitudeColor();
+            if (color != magnitudeColor) {
+                magnitudeColor = color;
+                magnitudeBackground.setColor(color);
+            }
 
             // Sets offset.
-            this.offset.setText(offset);
+            offset.setText(earthquake.getDisplayOffset());
 
             // Sets location.
-            this.location.setText(location);
+            location.setText(earthquake.getPrimaryLocation());
 
             // Sets date.
-            this.date.setText(date);
+            date.setText(earthquake.getDate());
 
             // Sets time.
-            this.time.setText(time);
+            time.setText(earthquake.getTime());
+        }
+    }
+
+    // Caches the views of "layout_sequence_item.xml", a mainshock heading its sequence.
+    protected class SequenceViewHolder extends InflatedViewHolder {
+
+        // Shows the number of earthquakes of the sequence.
+        private final TextView count;
+
+        // Initializes the ViewHolder to send it to the RecyclerView.
+        public SequenceViewHolder(View itemView) {
+            super(itemView);
+            count = itemView.findViewById(R.id.sequence_count);
+
+            // Mainshock details stay one click away.
+            itemView.setOnLongClickListener(new View.OnLongClickListener() {
+                @Override
+                public boolean onLongClick(View v) {
+                    mListItemClickListener.onListItemClick(
+                            mEarthquakeList.get(getAdapterPosition()));
+                    return true;
+                }
+            });
+        }
+
+        /**
+         * Binds the sequence headed by the Earthquake bound, its count being precomputed by
+         * {@link EarthquakeAdapter#prepareSequenceData(Context, List)}.
+         *
+         * @param sequence It is the sequence of the Earthquake.
+         */
+        public void setSequence(AftershockSequence sequence) {
+            // Sets the number of earthquakes of the sequence.
+            count.setText(sequence.getCountText());
         }
 
         @Override
         public void onClick(View v) {
-            // Set clicked Earthquake's url to ListItemClickListener.
-            mListItemClickListener.onListItemClick(
-                    mEarthquakeList.get(getAdapterPosition()).getUrl());
+            // Expands or collapses the sequence.
+            toggleSequence(getAdapterPosition());
+        }
+    }
+
+    // Holds a single EarthquakeRowView drawing the whole list item.
+    protected class FlatViewHolder extends EarthquakeViewHolder {
+
+        // Draws the Earthquake.
+        private final EarthquakeRowView rowView;
+
+        // Initializes the ViewHolder to send it to the RecyclerView.
+        public FlatViewHolder(EarthquakeRowView itemView) {
+            super(itemView);
+            rowView = itemView;
+        }
+
+        @Override
+        public void setData(Earthquake earthquake) {
+            rowView.setEarthquake(earthquake);
         }
     }
 }
\ No newline at end of file
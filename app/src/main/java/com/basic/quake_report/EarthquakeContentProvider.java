@@ -0,0 +1,273 @@
+package com.basic.quake_report;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.basic.quake_report.utils.EarthquakeSnapshot;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Shares the earthquakes the list showed last with other apps and widgets, see
+ * {@link EarthquakeContract}.
+ * <p>
+ * They are read from the memory-mapped snapshot of the list. Earthquakes are selected by the
+ * magnitude, time and position held in their fixed-width records, so none is decoded unless a
+ * row of the cursor returned is read, and rows cross to other processes one page at a time.
+ * The earthquakes are read-only.
+ */
+public class EarthquakeContentProvider extends ContentProvider {
+
+    // Matches the Uri of the earthquakes.
+    private static final int MATCH_EARTHQUAKES = 1;
+
+    // Matches the Uris served.
+    private static final UriMatcher mUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
+
+    static {
+        mUriMatcher.addURI(EarthquakeContract.AUTHORITY, EarthquakeContract.PATH_EARTHQUAKES,
+                MATCH_EARTHQUAKES);
+    }
+
+    @Override
+    public boolean onCreate() {
+        // Snapshot is only mapped when queried.
+        return true;
+    }
+
+    /**
+     * Tells every cursor over the earthquakes they changed, e.g. once the list wrote a new
+     * snapshot.
+     *
+     * @param context It is used to reach the ContentResolver.
+     */
+    public static void notifyChange(Context context) {
+        context.getContentResolver().notifyChange(EarthquakeContract.CONTENT_URI, null);
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection,
+                        @Nullable String selection, @Nullable String[] selectionArgs,
+                        @Nullable String sortOrder) {
+        checkUri(uri);
+        if (selection != null) {
+            throw new IllegalArgumentException("Earthquakes are selected by the query " +
+                    "parameters of " + EarthquakeContract.CONTENT_URI + ", not by a selection");
+        }
+        String[] columns = checkProjection(projection);
+
+        Context context = getContext();
+        EarthquakeSnapshot.SnapshotList snapshot =
+                EarthquakeSnapshot.open(EarthquakeSnapshot.getFile(context));
+
+        Cursor cursor;
+        if (snapshot == null) {
+            // Nothing was listed yet.
+            cursor = new MatrixCursor(columns, 0);
+        } else {
+            int[] rows = select(snapshot, uri);
+            rows = sort(snapshot, rows, sortOrder);
+            rows = page(rows, getLong(uri, EarthquakeContract.PARAM_OFFSET, 0L),
+                    getLong(uri, EarthquakeContract.PARAM_LIMIT, Integer.MAX_VALUE));
+            cursor = new EarthquakeCursor(snapshot, rows, columns);
+        }
+
+        // Consumers requery once the list wrote a new snapshot.
+        cursor.setNotificationUri(context.getContentResolver(), EarthquakeContract.CONTENT_URI);
+        return cursor;
+    }
+
+    /**
+     * @return Position in "snapshot" of the earthquakes matching the query parameters of "uri",
+     * in the order of the list.
+     */
+    private static int[] select(EarthquakeSnapshot.SnapshotList snapshot, Uri uri) {
+        double minMagnitude = getDouble(uri, EarthquakeContract.PARAM_MIN_MAGNITUDE,
+                Double.NEGATIVE_INFINITY);
+        double maxMagnitude = getDouble(uri, EarthquakeContract.PARAM_MAX_MAGNITUDE,
+                Double.POSITIVE_INFINITY);
+        long startTime = getLong(uri, EarthquakeContract.PARAM_START_TIME, Long.MIN_VALUE);
+        long endTime = getLong(uri, EarthquakeContract.PARAM_END_TIME, Long.MAX_VALUE);
+        double minLatitude = getDouble(uri, EarthquakeContract.PARAM_MIN_LATITUDE, -90);
+        double maxLatitude = getDouble(uri, EarthquakeContract.PARAM_MAX_LATITUDE, 90);
+        double minLongitude = getDouble(uri, EarthquakeContract.PARAM_MIN_LONGITUDE, -180);
+        double maxLongitude = getDouble(uri, EarthquakeContract.PARAM_MAX_LONGITUDE, 180);
+
+        // Region crossing the antimeridian.
+        boolean wraps = minLongitude > maxLongitude;
+
+        int[] rows = new int[snapshot.size()];
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            double magnitude = snapshot.getMagnitude(i);
+            long time = snapshot.getTimeMillis(i);
+            if (magnitude < minMagnitude || magnitude > maxMagnitude || time < startTime ||
+                    time >= endTime) {
+                continue;
+            }
+
+            double latitude = snapshot.getLatitude(i);
+            double longitude = snapshot.getLongitude(i);
+            boolean inLongitudes = wraps ?
+                    longitude >= minLongitude || longitude <= maxLongitude :
+                    longitude >= minLongitude && longitude <= maxLongitude;
+            if (latitude >= minLatitude && latitude <= maxLatitude && inLongitudes) {
+                rows[count++] = i;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Orders "rows" as "sortOrder" asks, e.g. "magnitude DESC". Only magnitude and time can be
+     * sorted on.
+     *
+     * @return The rows ordered, or "rows" as they are if "sortOrder" is null.
+     */
+    private static int[] sort(EarthquakeSnapshot.SnapshotList snapshot, int[] rows,
+                              @Nullable String sortOrder) {
+        if (sortOrder == null || sortOrder.trim().isEmpty()) {
+            return rows;
+        }
+
+        String[] terms = sortOrder.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        boolean descending = terms.length == 2 && terms[1].equals("desc");
+        if (terms.length > 2 || (terms.length == 2 && !descending && !terms[1].equals("asc"))) {
+            throw new IllegalArgumentException("Unsupported sort order " + sortOrder);
+        }
+
+        Comparator<Integer> order;
+        if (terms[0].equals(EarthquakeContract.COLUMN_MAGNITUDE)) {
+            order = new Comparator<Integer>() {
+                @Override
+                public int compare(Integer first, Integer second) {
+                    return Double.compare(snapshot.getMagnitude(first),
+                            snapshot.getMagnitude(second));
+                }
+            };
+        } else if (terms[0].equals(EarthquakeContract.COLUMN_TIME)) {
+            order = new Comparator<Integer>() {
+                @Override
+                public int compare(Integer first, Integer second) {
+                    return Long.compare(snapshot.getTimeMillis(first),
+                            snapshot.getTimeMillis(second));
+                }
+            };
+        } else {
+            throw new IllegalArgumentException("Unsupported sort order " + sortOrder);
+        }
+
+        Integer[] boxed = new Integer[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            boxed[i] = rows[i];
+        }
+        List<Integer> sorted = Arrays.asList(boxed);
+        Collections.sort(sorted, descending ? Collections.reverseOrder(order) : order);
+
+        int[] ordered = new int[rows.length];
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = sorted.get(i);
+        }
+        return ordered;
+    }
+
+    /**
+     * @return The "limit" rows of "rows" after the first "offset".
+     */
+    private static int[] page(int[] rows, long offset, long limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Negative offset or limit");
+        }
+        int from = (int) Math.min(rows.length, offset);
+        int to = (int) Math.min(rows.length, from + limit);
+        return from == 0 && to == rows.length ? rows : Arrays.copyOfRange(rows, from, to);
+    }
+
+    /**
+     * @return The columns of "projection", or every column if it is null.
+     */
+    private static String[] checkProjection(@Nullable String[] projection) {
+        if (projection == null) {
+            return EarthquakeContract.COLUMNS;
+        }
+
+        List<String> columns = Arrays.asList(EarthquakeContract.COLUMNS);
+        for (String column : projection) {
+            if (!columns.contains(column)) {
+                throw new IllegalArgumentException("Unknown column " + column);
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * @return The query parameter "name" of "uri" as a double, or "fallback" if absent.
+     */
+    private static double getDouble(Uri uri, String name, double fallback) {
+        String value = uri.getQueryParameter(name);
+        try {
+            return value == null ? fallback : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " " + value);
+        }
+    }
+
+    /**
+     * @return The query parameter "name" of "uri" as a long, or "fallback" if absent.
+     */
+    private static long getLong(Uri uri, String name, long fallback) {
+        String value = uri.getQueryParameter(name);
+        try {
+            return value == null ? fallback : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " " + value);
+        }
+    }
+
+    /**
+     * Throws unless "uri" is the one of the earthquakes.
+     */
+    private static void checkUri(Uri uri) {
+        if (mUriMatcher.match(uri) != MATCH_EARTHQUAKES) {
+            throw new IllegalArgumentException("Unknown Uri " + uri);
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+        checkUri(uri);
+        return EarthquakeContract.CONTENT_TYPE;
+    }
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+        throw new UnsupportedOperationException("Earthquakes are read-only");
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String selection,
+                      @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException("Earthquakes are read-only");
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues values,
+                      @Nullable String selection, @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException("Earthquakes are read-only");
+    }
+}
@@ -0,0 +1,110 @@
+package com.basic.quake_report;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+/**
+ * Uri, columns and query parameters of the earthquakes shared by
+ * {@link EarthquakeContentProvider}, for apps and widgets reading them.
+ * <p>
+ * The earthquakes are the ones the list showed last. They are narrowed down by the query
+ * parameters of the Uri, e.g. {@code content://com.basic.quake_report.earthquakes/earthquakes
+ * ?minmagnitude=5&minlatitude=30&maxlatitude=46&minlongitude=128&maxlongitude=146}, and paged
+ * with {@link #PARAM_LIMIT} and {@link #PARAM_OFFSET}.
+ */
+public class EarthquakeContract implements BaseColumns {
+
+    // Authority of the provider.
+    public static final String AUTHORITY = "com.basic.quake_report.earthquakes";
+
+    // Path of the earthquakes.
+    public static final String PATH_EARTHQUAKES = "earthquakes";
+
+    // Uri of the earthquakes.
+    public static final Uri CONTENT_URI = new Uri.Builder()
+            .scheme(ContentResolver.SCHEME_CONTENT)
+            .authority(AUTHORITY)
+            .appendPath(PATH_EARTHQUAKES)
+            .build();
+
+    // MIME type of the earthquakes.
+    public static final String CONTENT_TYPE = ContentResolver.CURSOR_DIR_BASE_TYPE + "/vnd." +
+            AUTHORITY + "." + PATH_EARTHQUAKES;
+
+    // Id of the event at its event service e.g. "us7000abcd", a String.
+    public static final String COLUMN_EVENT_ID = "event_id";
+
+    // Magnitude, a double.
+    public static final String COLUMN_MAGNITUDE = "magnitude";
+
+    // Time of the event as a Unix-Timestamp in milliseconds, a long.
+    public static final String COLUMN_TIME = "time";
+
+    // Latitude of the epicentre, a double.
+    public static final String COLUMN_LATITUDE = "latitude";
+
+    // Longitude of the epicentre, a double.
+    public static final String COLUMN_LONGITUDE = "longitude";
+
+    // Depth of the hypocentre in kilometres, a double.
+    public static final String COLUMN_DEPTH = "depth";
+
+    // Place as the event services name it e.g. "5 km N of Town", a String.
+    public static final String COLUMN_PLACE = "place";
+
+    // Web page of the event, a String.
+    public static final String COLUMN_URL = "url";
+
+    // Event services which reported the event, a String.
+    public static final String COLUMN_SOURCE = "source";
+
+    // Every column, the default projection.
+    public static final String[] COLUMNS = {
+            _ID,
+            COLUMN_EVENT_ID,
+            COLUMN_MAGNITUDE,
+            COLUMN_TIME,
+            COLUMN_LATITUDE,
+            COLUMN_LONGITUDE,
+            COLUMN_DEPTH,
+            COLUMN_PLACE,
+            COLUMN_URL,
+            COLUMN_SOURCE
+    };
+
+    // Smallest magnitude included.
+    public static final String PARAM_MIN_MAGNITUDE = "minmagnitude";
+
+    // Largest magnitude included.
+    public static final String PARAM_MAX_MAGNITUDE = "maxmagnitude";
+
+    // Earliest time included, as a Unix-Timestamp in milliseconds.
+    public static final String PARAM_START_TIME = "starttime";
+
+    // Time from which events are excluded, as a Unix-Timestamp in milliseconds.
+    public static final String PARAM_END_TIME = "endtime";
+
+    // Southern edge of the region, in degrees.
+    public static final String PARAM_MIN_LATITUDE = "minlatitude";
+
+    // Northern edge of the region, in degrees.
+    public static final String PARAM_MAX_LATITUDE = "maxlatitude";
+
+    // Western edge of the region, in degrees. A region crossing the antimeridian has a western
+    // edge east of its eastern edge.
+    public static final String PARAM_MIN_LONGITUDE = "minlongitude";
+
+    // Eastern edge of the region, in degrees.
+    public static final String PARAM_MAX_LONGITUDE = "maxlongitude";
+
+    // Most earthquakes returned.
+    public static final String PARAM_LIMIT = "limit";
+
+    // Number of matching earthquakes skipped before the ones returned.
+    public static final String PARAM_OFFSET = "offset";
+
+    // Setting constructor private.
+    private EarthquakeContract() {
+    }
+}
@@ -0,0 +1,222 @@
+package com.basic.quake_report;
+
+import android.database.AbstractCursor;
+import android.database.CursorWindow;
+
+import com.basic.quake_report.utils.EarthquakeExporter;
+import com.basic.quake_report.utils.EarthquakeSnapshot;
+
+/**
+ * Cursor over earthquakes of a memory-mapped {@link EarthquakeSnapshot}. A row is decoded only
+ * when the cursor is moved onto it, and none of them is kept.
+ * <p>
+ * Across processes rows are copied into a {@link CursorWindow} one page of {@link #PAGE_ROWS}
+ * rows at a time, and the next page is only copied once the consumer moves past the last one,
+ * so a large result never crosses the binder in full.
+ */
+class EarthquakeCursor extends AbstractCursor {
+
+    // Most rows copied into a window at once.
+    static final int PAGE_ROWS = 256;
+
+    // Earthquakes of the rows.
+    private final EarthquakeSnapshot.SnapshotList mSnapshot;
+
+    // Position in "mSnapshot" of every row.
+    private final int[] mRows;
+
+    // Columns asked for.
+    private final String[] mColumns;
+
+    // Earthquake of the current row, decoded when first read.
+    private Earthquake mEarthquake;
+
+    /**
+     * @param snapshot Earthquakes of the rows.
+     * @param rows     Position in "snapshot" of every row.
+     * @param columns  Columns of {@link EarthquakeContract#COLUMNS} asked for.
+     */
+    EarthquakeCursor(EarthquakeSnapshot.SnapshotList snapshot, int[] rows, String[] columns) {
+        mSnapshot = snapshot;
+        mRows = rows;
+        mColumns = columns;
+    }
+
+    @Override
+    public int getCount() {
+        return mRows.length;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mColumns;
+    }
+
+    @Override
+    public boolean onMove(int oldPosition, int newPosition) {
+        // Decoded again only if a column is read.
+        mEarthquake = null;
+        return true;
+    }
+
+    @Override
+    public String getString(int column) {
+        switch (mColumns[column]) {
+            case EarthquakeContract.COLUMN_EVENT_ID:
+                return getEarthquake().getId();
+            case EarthquakeContract.COLUMN_PLACE:
+                return EarthquakeExporter.getPlace(getEarthquake());
+            case EarthquakeContract.COLUMN_URL:
+                return getEarthquake().getUrl();
+            case EarthquakeContract.COLUMN_SOURCE:
+                return getEarthquake().getSource();
+            case EarthquakeContract.COLUMN_TIME:
+            case EarthquakeContract._ID:
+                return String.valueOf(getLong(column));
+            default:
+                return String.valueOf(getDouble(column));
+        }
+    }
+
+    @Override
+    public short getShort(int column) {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        switch (mColumns[column]) {
+            case EarthquakeContract._ID:
+                return mRows[getPosition()];
+            case EarthquakeContract.COLUMN_TIME:
+                // Read straight from the mapping.
+                return mSnapshot.getTimeMillis(mRows[getPosition()]);
+            default:
+                return (long) getDouble(column);
+        }
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return (float) getDouble(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        int row = mRows[getPosition()];
+        switch (mColumns[column]) {
+            case EarthquakeContract.COLUMN_MAGNITUDE:
+                return mSnapshot.getMagnitude(row);
+            case EarthquakeContract.COLUMN_LATITUDE:
+                return mSnapshot.getLatitude(row);
+            case EarthquakeContract.COLUMN_LONGITUDE:
+                return mSnapshot.getLongitude(row);
+            case EarthquakeContract.COLUMN_DEPTH:
+                return getEarthquake().getDepth();
+            case EarthquakeContract.COLUMN_TIME:
+            case EarthquakeContract._ID:
+                return getLong(column);
+            default:
+                throw new NumberFormatException(mColumns[column] + " is not a number");
+        }
+    }
+
+    @Override
+    public int getType(int column) {
+        switch (mColumns[column]) {
+            case EarthquakeContract._ID:
+            case EarthquakeContract.COLUMN_TIME:
+                return FIELD_TYPE_INTEGER;
+            case EarthquakeContract.COLUMN_MAGNITUDE:
+            case EarthquakeContract.COLUMN_LATITUDE:
+            case EarthquakeContract.COLUMN_LONGITUDE:
+            case EarthquakeContract.COLUMN_DEPTH:
+                return FIELD_TYPE_FLOAT;
+            default:
+                return getString(column) == null ? FIELD_TYPE_NULL : FIELD_TYPE_STRING;
+        }
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return getType(column) == FIELD_TYPE_NULL;
+    }
+
+    /**
+     * Copies the page of rows starting at "position" into "window". The consumer's cursor asks
+     * for the page holding a row only once it is moved onto it.
+     */
+    @Override
+    public void fillWindow(int position, CursorWindow window) {
+        if (position < 0 || position >= getCount()) {
+            return;
+        }
+
+        window.acquireReference();
+        try {
+            int oldPosition = getPosition();
+            window.clear();
+            window.setStartPosition(position);
+            window.setNumColumns(mColumns.length);
+
+            int end = Math.min(getCount(), position + PAGE_ROWS);
+            for (int row = position; row < end && moveToPosition(row); row++) {
+                if (!window.allocRow()) {
+                    break;
+                }
+                if (!putRow(window, row)) {
+                    // Window is full, the rest goes into the next page.
+                    window.freeLastRow();
+                    break;
+                }
+            }
+            moveToPosition(oldPosition);
+        } finally {
+            window.releaseReference();
+        }
+    }
+
+    /**
+     * Copies the current row into the row of "window" allocated last.
+     *
+     * @return Whether the row fit in "window".
+     */
+    private boolean putRow(CursorWindow window, int row) {
+        for (int column = 0; column < mColumns.length; column++) {
+            boolean put;
+            switch (getType(column)) {
+                case FIELD_TYPE_INTEGER:
+                    put = window.putLong(getLong(column), row, column);
+                    break;
+                case FIELD_TYPE_FLOAT:
+                    put = window.putDouble(getDouble(column), row, column);
+                    break;
+                case FIELD_TYPE_STRING:
+                    put = window.putString(getString(column), row, column);
+                    break;
+                default:
+                    put = window.putNull(row, column);
+                    break;
+            }
+            if (!put) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Earthquake of the current row.
+     */
+    private Earthquake getEarthquake() {
+        if (mEarthquake == null) {
+            mEarthquake = mSnapshot.peek(mRows[getPosition()]);
+        }
+        return mEarthquake;
+    }
+}
@@ -0,0 +1,261 @@
+package com.basic.quake_report;
+
+/**
+ * Defines the details of a single Earthquake, as read from its detail GeoJSON.
+ */
+public class EarthquakeDetail {
+    // Stores the title of the Earthquake e.g. "M 5.1 - 30 km S of Town".
+    private String title;
+
+    // Stores the magnitude of the Earthquake.
+    private double magnitude;
+
+    // Stores the method the magnitude was calculated with e.g. "mb" or "ml".
+    private String magnitudeType;
+
+    // Stores the Unix-Timestamp when the Earthquake occurred.
+    private long time;
+
+    // Stores the latitude of the epicentre.
+    private double latitude;
+
+    // Stores the longitude of the epicentre.
+    private double longitude;
+
+    // Stores the depth of the hypocentre in kilometres.
+    private double depth;
+
+    // Stores the number of "Did You Feel It?" reports.
+    private int felt;
+
+    // Stores the maximum reported intensity, NaN if not available.
+    private double cdi;
+
+    // Stores the maximum estimated instrumental intensity, NaN if not available.
+    private double mmi;
+
+    // Stores the PAGER alert level, empty if not available.
+    private String alert;
+
+    // Stores whether a tsunami advisory was issued for oceanic regions.
+    private boolean tsunami;
+
+    // Stores the review status i.e. "automatic" or "reviewed".
+    private String status;
+
+    // Stores the significance of the Earthquake.
+    private int significance;
+
+    // Stores the USGS url showing more info. about this Earthquake.
+    private String url;
+
+    /**
+     * @return The title of the Earthquake.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @param title Sets the title of the Earthquake.
+     */
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /**
+     * @return The magnitude of the Earthquake.
+     */
+    public double getMagnitude() {
+        return magnitude;
+    }
+
+    /**
+     * @param magnitude Sets the magnitude of the Earthquake.
+     */
+    public void setMagnitude(double magnitude) {
+        this.magnitude = magnitude;
+    }
+
+    /**
+     * @return The magnitude type of the Earthquake.
+     */
+    public String getMagnitudeType() {
+        return magnitudeType;
+    }
+
+    /**
+     * @param magnitudeType Sets the magnitude type of the Earthquake.
+     */
+    public void setMagnitudeType(String magnitudeType) {
+        this.magnitudeType = magnitudeType;
+    }
+
+    /**
+     * @return The time of the Earthquake.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @param time Sets the time of the Earthquake.
+     */
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    /**
+     * @return The latitude of the Earthquake.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @param latitude Sets the latitude of the Earthquake.
+     */
+    public void setLatitude(double latitude) {
+        this.latitude = latitude;
+    }
+
+    /**
+     * @return The longitude of the Earthquake.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @param longitude Sets the longitude of the Earthquake.
+     */
+    public void setLongitude(double longitude) {
+        this.longitude = longitude;
+    }
+
+    /**
+     * @return The depth of the Earthquake.
+     */
+    public double getDepth() {
+        return depth;
+    }
+
+    /**
+     * @param depth Sets the depth of the Earthquake.
+     */
+    public void setDepth(double depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * @return The number of felt reports of the Earthquake.
+     */
+    public int getFelt() {
+        return felt;
+    }
+
+    /**
+     * @param felt Sets the number of felt reports of the Earthquake.
+     */
+    public void setFelt(int felt) {
+        this.felt = felt;
+    }
+
+    /**
+     * @return The maximum reported intensity of the Earthquake.
+     */
+    public double getCdi() {
+        return cdi;
+    }
+
+    /**
+     * @param cdi Sets the maximum reported intensity of the Earthquake.
+     */
+    public void setCdi(double cdi) {
+        this.cdi = cdi;
+    }
+
+    /**
+     * @return The maximum estimated intensity of the Earthquake.
+     */
+    public double getMmi() {
+        return mmi;
+    }
+
+    /**
+     * @param mmi Sets the maximum estimated intensity of the Earthquake.
+     */
+    public void setMmi(double mmi) {
+        this.mmi = mmi;
+    }
+
+    /**
+     * @return The alert level of the Earthquake.
+     */
+    public String getAlert() {
+        return alert;
+    }
+
+    /**
+     * @param alert Sets the alert level of the Earthquake.
+     */
+    public void setAlert(String alert) {
+        this.alert = alert;
+    }
+
+    /**
+     * @return Whether a tsunami advisory was issued.
+     */
+    public boolean isTsunami() {
+        return tsunami;
+    }
+
+    /**
+     * @param tsunami Sets the tsunami flag of the Earthquake.
+     */
+    public void setTsunami(boolean tsunami) {
+        this.tsunami = tsunami;
+    }
+
+    /**
+     * @return The review status of the Earthquake.
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @param status Sets the review status of the Earthquake.
+     */
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    /**
+     * @return The significance of the Earthquake.
+     */
+    public int getSignificance() {
+        return significance;
+    }
+
+    /**
+     * @param significance Sets the significance of the Earthquake.
+     */
+    public void setSignificance(int significance) {
+        this.significance = significance;
+    }
+
+    /**
+     * @return The url of the Earthquake.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @param url Sets the url of the Earthquake.
+     */
+    public void setUrl(String url) {
+        this.url = url;
+    }
+}
@@ -0,0 +1,236 @@
+package com.basic.quake_report;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.loader.app.LoaderManager;
+import androidx.loader.content.AsyncTaskLoader;
+import androidx.loader.content.Loader;
+
+import android.content.ActivityNotFoundException;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.drawable.GradientDrawable;
+import android.net.Uri;
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.Toast;
+
+import com.basic.quake_report.databinding.ActivityEarthquakeDetailBinding;
+import com.basic.quake_report.utils.BackgroundScheduler;
+import com.basic.quake_report.utils.EarthquakeDetailCache;
+
+/**
+ * Shows the details of a single Earthquake, read from its detail GeoJSON.
+ * <p>
+ * Details of the rows near the viewport are prefetched by {@link MainActivity}, so they are
+ * usually shown straight from {@link EarthquakeDetailCache}. Otherwise they are downloaded here.
+ */
+public class EarthquakeDetailActivity extends AppCompatActivity implements
+        LoaderManager.LoaderCallbacks<EarthquakeDetail> {
+
+    // Keys of the Intent extras describing the clicked Earthquake.
+    private static final String EXTRA_DETAIL_URL = "detail_url";
+    private static final String EXTRA_URL = "url";
+    private static final String EXTRA_MAGNITUDE_TEXT = "magnitude_text";
+    private static final String EXTRA_MAGNITUDE_COLOR = "magnitude_color";
+    private static final String EXTRA_OFFSET = "offset";
+    private static final String EXTRA_LOCATION = "location";
+    private static final String EXTRA_DATE = "date";
+    private static final String EXTRA_TIME = "time";
+
+    // Represents the Loader ID of the Loader which downloads the details.
+    private static final int LOADER_ID = 23;
+
+    // Shows messages to the user.
+    private Toast mToast;
+
+    // Performs View Binding.
+    private ActivityEarthquakeDetailBinding mBinding;
+
+    // It is the "detail" url of the Earthquake.
+    private String mDetailUrl;
+
+    // It is the USGS url showing more info. about the Earthquake.
+    private String mUrl;
+
+    /**
+     * Forms an Intent starting this Activity for the clicked Earthquake.
+     *
+     * @param context    Context starting this Activity.
+     * @param earthquake The clicked Earthquake.
+     * @return Intent showing the details of "earthquake".
+     */
+    public static Intent newIntent(Context context, Earthquake earthquake) {
+        return new Intent(context, EarthquakeDetailActivity.class)
+                .putExtra(EXTRA_DETAIL_URL, earthquake.getDetailUrl())
+                .putExtra(EXTRA_URL, earthquake.getUrl())
+                .putExtra(EXTRA_MAGNITUDE_TEXT, earthquake.getMagnitudeText())
+                .putExtra(EXTRA_MAGNITUDE_COLOR, earthquake.getMagnitudeColor())
+                .putExtra(EXTRA_OFFSET, earthquake.getDisplayOffset())
+                .putExtra(EXTRA_LOCATION, earthquake.getPrimaryLocation())
+                .putExtra(EXTRA_DATE, earthquake.getDate())
+                .putExtra(EXTRA_TIME, earthquake.getTime());
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        mBinding = ActivityEarthquakeDetailBinding.inflate((LayoutInflater)
+                getSystemService(Context.LAYOUT_INFLATER_SERVICE));
+        setContentView(mBinding.getRoot());
+
+        Intent intent = getIntent();
+        mDetailUrl = intent.getStringExtra(EXTRA_DETAIL_URL);
+        mUrl = intent.getStringExtra(EXTRA_URL);
+
+        // Shows what is already known from the list.
+        mBinding.magnitude.setText(intent.getStringExtra(EXTRA_MAGNITUDE_TEXT));
+        ((GradientDrawable) mBinding.magnitude.getBackground().mutate())
+                .setColor(intent.getIntExtra(EXTRA_MAGNITUDE_COLOR, 0));
+        mBinding.locationOffset.setText(intent.getStringExtra(EXTRA_OFFSET));
+        mBinding.primaryLocation.setText(intent.getStringExtra(EXTRA_LOCATION));
+        mBinding.dateTime.setText(getString(R.string.detail_date_time,
+                intent.getStringExtra(EXTRA_DATE), intent.getStringExtra(EXTRA_TIME)));
+
+        // Opens the USGS event page.
+        mBinding.buttonUsgs.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                openInBrowser();
+            }
+        });
+
+        // Prefetched details are shown instantly.
+        EarthquakeDetail detail = EarthquakeDetailCache.get(mDetailUrl);
+        if (detail != null) {
+            showDetail(detail);
+        } else if (TextUtils.isEmpty(mDetailUrl)) {
+            showDetailUnavailable();
+        } else {
+            mBinding.progressBar.setVisibility(View.VISIBLE);
+            LoaderManager.getInstance(this).initLoader(LOADER_ID, null, this);
+        }
+    }
+
+    /**
+     * Opens the USGS event page of the Earthquake in a Browser.
+     */
+    private void openInBrowser() {
+        try {
+            startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse(mUrl)));
+        } catch (ActivityNotFoundException e) {
+            showBrowserNotAvailable();
+        }
+    }
+
+    /**
+     * Notify user that there is no Browser installed in their device via Toast.
+     */
+    private void showBrowserNotAvailable() {
+        // Removes any previous visible Toasts.
+        if (mToast != null) {
+            mToast.cancel();
+        }
+
+        mToast = Toast.makeText(this, R.string.toast_browser, Toast.LENGTH_SHORT);
+        mToast.show();
+    }
+
+    /**
+     * Shows the details could not be downloaded.
+     */
+    private void showDetailUnavailable() {
+        mBinding.progressBar.setVisibility(View.GONE);
+        mBinding.layoutDetails.setVisibility(View.GONE);
+        mBinding.textDetailUnavailable.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Shows the details of the Earthquake.
+     */
+    private void showDetail(EarthquakeDetail detail) {
+        mBinding.progressBar.setVisibility(View.GONE);
+        mBinding.textDetailUnavailable.setVisibility(View.GONE);
+        mBinding.layoutDetails.setVisibility(View.VISIBLE);
+
+        mBinding.textDetailTitle.setText(detail.getTitle());
+        mBinding.textDetailMagnitude.setText(getString(R.string.detail_magnitude,
+                detail.getMagnitude(), detail.getMagnitudeType()));
+        mBinding.textDetailCoordinates.setText(getString(R.string.detail_coordinates,
+                detail.getLatitude(), detail.getLongitude()));
+        mBinding.textDetailDepth.setText(getString(R.string.detail_depth, detail.getDepth()));
+        mBinding.textDetailFelt.setText(getString(R.string.detail_felt, detail.getFelt()));
+        mBinding.textDetailIntensity.setText(getString(R.string.detail_intensity,
+                formatIntensity(detail.getCdi()), formatIntensity(detail.getMmi())));
+        mBinding.textDetailAlert.setText(getString(R.string.detail_alert,
+                TextUtils.isEmpty(detail.getAlert()) ?
+                        getString(R.string.detail_not_available) : detail.getAlert()));
+        mBinding.textDetailTsunami.setText(detail.isTsunami() ? R.string.detail_tsunami_yes :
+                R.string.detail_tsunami_no);
+        mBinding.textDetailStatus.setText(getString(R.string.detail_status, detail.getStatus()));
+    }
+
+    /**
+     * @return Intensity with one decimal, or "n/a" if not available.
+     */
+    private String formatIntensity(double intensity) {
+        return Double.isNaN(intensity) ? getString(R.string.detail_not_available) :
+                String.valueOf(Math.round(intensity * 10) / 10.0);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        // Make "Up" button behave like Back button.
+        if (item.getItemId() == android.R.id.home) {
+            onBackPressed();
+            return true;
+        }
+
+        return super.onOptionsItemSelected(item);
+    }
+
+    @NonNull
+    @Override
+    public Loader<EarthquakeDetail> onCreateLoader(int id, @Nullable Bundle args) {
+        return new AsyncTaskLoader<EarthquakeDetail>(this) {
+
+            @Override
+            protected void onStartLoading() {
+                forceLoad();
+            }
+
+            @Nullable
+            @Override
+            public EarthquakeDetail loadInBackground() {
+                // Background work of lower lanes makes way while the user waits for these.
+                BackgroundScheduler scheduler = BackgroundScheduler.getDefault();
+                scheduler.beginVisibleWork();
+                try {
+                    // Downloads the details, or takes them from the cache if prefetched meanwhile.
+                    return EarthquakeDetailCache.load(mDetailUrl);
+                } finally {
+                    scheduler.endVisibleWork();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void onLoadFinished(@NonNull Loader<EarthquakeDetail> loader, EarthquakeDetail data) {
+        if (data == null) {
+            showDetailUnavailable();
+        } else {
+            showDetail(data);
+        }
+    }
+
+    @Override
+    public void onLoaderReset(@NonNull Loader<EarthquakeDetail> loader) {
+        // Nothing is held from the Loader.
+    }
+}
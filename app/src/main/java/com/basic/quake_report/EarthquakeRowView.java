@@ -0,0 +1,305 @@
+package com.basic.quake_report;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.List;
+
+/**
+ * Draws a whole list item - magnitude badge, offset, location, date and time - as a single View.
+ * <p>
+ * It is the flattened alternative to {@link R.layout#layout_list_item}: nothing gets inflated, the
+ * row has a fixed height so binding never requests a layout pass, and all text is drawn from
+ * {@link RowLayouts} which are built off the UI thread by {@link #prepareLayouts(Context, List)}.
+ */
+public class EarthquakeRowView extends View {
+
+    // Sizes and paints used to lay out rows on the UI thread.
+    private final Metrics mMetrics;
+
+    // Fills the magnitude badge.
+    private final Paint mBadgePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    // Text of the Earthquake being drawn.
+    private RowLayouts mLayouts;
+
+    // Earthquake being drawn.
+    private Earthquake mEarthquake;
+
+    public EarthquakeRowView(Context context) {
+        this(context, null);
+    }
+
+    public EarthquakeRowView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        mMetrics = new Metrics(context);
+
+        // Same touch feedback as "layout_list_item.xml".
+        TypedValue value = new TypedValue();
+        if (context.getTheme().resolveAttribute(R.attr.selectableItemBackground, value, true)) {
+            setBackgroundResource(value.resourceId);
+        }
+    }
+
+    /**
+     * Builds {@link RowLayouts} for every Earthquake in the list. It is meant to be invoked off
+     * the UI thread, right after {@link EarthquakeAdapter#prepareEarthquakeData(Context, List)}.
+     *
+     * @param context     Used to resolve sizes, colors and the width of the list.
+     * @param earthquakes List of {@link Earthquake} to be laid out.
+     */
+    public static void prepareLayouts(Context context, List<Earthquake> earthquakes) {
+        if (earthquakes == null) {
+            return;
+        }
+
+        // Paints are owned by this data set only, so they are never shared with the UI thread.
+        Metrics metrics = new Metrics(context);
+
+        for (Earthquake earthquake : earthquakes) {
+            earthquake.setRowLayouts(metrics.build(earthquake, metrics.defaultRowWidth));
+        }
+    }
+
+    /**
+     * Binds an Earthquake to this row. Only a redraw is requested, as the size of the row never
+     * depends on its contents.
+     *
+     * @param earthquake It is the bind-ready Earthquake.
+     */
+    public void setEarthquake(Earthquake earthquake) {
+        mEarthquake = earthquake;
+        mLayouts = getLayouts(earthquake, getWidth() > 0 ? getWidth() : mMetrics.defaultRowWidth);
+        mBadgePaint.setColor(earthquake.getMagnitudeColor());
+        invalidate();
+    }
+
+    /**
+     * @return Layouts of the Earthquake laid out for "width", building them only when the
+     * prepared ones are missing or were built for another width.
+     */
+    private RowLayouts getLayouts(Earthquake earthquake, int width) {
+        RowLayouts layouts = earthquake.getRowLayouts();
+        if (layouts == null || layouts.width != width) {
+            layouts = mMetrics.build(earthquake, width);
+            earthquake.setRowLayouts(layouts);
+        }
+        return layouts;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(getDefaultSize(mMetrics.defaultRowWidth, widthMeasureSpec),
+                mMetrics.rowHeight);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+
+        // Happens only when the list is not as wide as the screen e.g. in multi-window mode.
+        if (mEarthquake != null && w > 0) {
+            mLayouts = getLayouts(mEarthquake, w);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        RowLayouts layouts = mLayouts;
+        if (layouts == null) {
+            return;
+        }
+
+        // Draws the magnitude badge.
+        float radius = mMetrics.badgeSize / 2f;
+        canvas.drawCircle(mMetrics.paddingHorizontal + radius, mMetrics.rowHeight / 2f, radius,
+                mBadgePaint);
+
+        drawLayout(canvas, layouts.magnitude, mMetrics.paddingHorizontal, layouts.magnitudeTop);
+        drawLayout(canvas, layouts.offset, layouts.textLeft, layouts.offsetTop);
+        drawLayout(canvas, layouts.location, layouts.textLeft, layouts.locationTop);
+        drawLayout(canvas, layouts.date, layouts.detailsLeft, layouts.dateTop);
+        drawLayout(canvas, layouts.time, layouts.detailsLeft, layouts.timeTop);
+    }
+
+    /**
+     * Draws "layout" with its top left corner at (left, top).
+     */
+    private static void drawLayout(Canvas canvas, Layout layout, float left, float top) {
+        int saveCount = canvas.save();
+        canvas.translate(left, top);
+        layout.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * Text of a single row, laid out for a given row width.
+     */
+    public static final class RowLayouts {
+        // Width of the row these layouts were built for.
+        final int width;
+
+        final Layout magnitude;
+        final Layout offset;
+        final Layout location;
+        final Layout date;
+        final Layout time;
+
+        // Positions of the layouts inside the row.
+        final int textLeft;
+        final int detailsLeft;
+        final int magnitudeTop;
+        final int offsetTop;
+        final int locationTop;
+        final int dateTop;
+        final int timeTop;
+
+        private RowLayouts(int width, Layout magnitude, Layout offset, Layout location,
+                           Layout date, Layout time, int textLeft, int detailsLeft,
+                           int magnitudeTop, int offsetTop, int dateTop) {
+            this.width = width;
+            this.magnitude = magnitude;
+            this.offset = offset;
+            this.location = location;
+            this.date = date;
+            this.time = time;
+            this.textLeft = textLeft;
+            this.detailsLeft = detailsLeft;
+            this.magnitudeTop = magnitudeTop;
+            this.offsetTop = offsetTop;
+            this.locationTop = offsetTop + offset.getHeight();
+            this.dateTop = dateTop;
+            this.timeTop = dateTop + date.getHeight();
+        }
+    }
+
+    /**
+     * Sizes and paints of a row, mirroring the attributes of {@link R.layout#layout_list_item}.
+     */
+    static final class Metrics {
+        final int rowHeight;
+        final int paddingHorizontal;
+        final int badgeSize;
+        final int columnMargin;
+
+        // Width of the row when the list spans the whole screen.
+        final int defaultRowWidth;
+
+        final TextPaint magnitudePaint;
+        final TextPaint offsetPaint;
+        final TextPaint locationPaint;
+        final TextPaint detailsPaint;
+
+        Metrics(Context context) {
+            TypedValue value = new TypedValue();
+            context.getTheme().resolveAttribute(android.R.attr.listPreferredItemHeight, value,
+                    true);
+            rowHeight = (int) value.getDimension(context.getResources().getDisplayMetrics());
+
+            paddingHorizontal = context.getResources()
+                    .getDimensionPixelSize(R.dimen.padding_default);
+            badgeSize = context.getResources().getDimensionPixelSize(R.dimen.mag_view);
+            columnMargin = context.getResources().getDimensionPixelSize(R.dimen.margin_default);
+            defaultRowWidth = context.getResources().getDisplayMetrics().widthPixels;
+
+            float smallText = context.getResources().getDimension(R.dimen.text_size_details);
+            float largeText = context.getResources().getDimension(R.dimen.text_size_location);
+            Typeface medium = Typeface.create("sans-serif-medium", Typeface.NORMAL);
+
+            magnitudePaint = newPaint(largeText,
+                    ContextCompat.getColor(context, android.R.color.white), medium);
+            offsetPaint = newPaint(smallText,
+                    ContextCompat.getColor(context, R.color.textColorEarthquakeDetails), medium);
+            locationPaint = newPaint(largeText,
+                    ContextCompat.getColor(context, R.color.textColorEarthquakeLocation), null);
+            detailsPaint = newPaint(smallText,
+                    ContextCompat.getColor(context, R.color.textColorEarthquakeDetails), null);
+        }
+
+        private static TextPaint newPaint(float textSize, int color, Typeface typeface) {
+            TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+            paint.setTextSize(textSize);
+            paint.setColor(color);
+            if (typeface != null) {
+                paint.setTypeface(typeface);
+            }
+            return paint;
+        }
+
+        /**
+         * Lays out the text of an Earthquake for a row "width" pixels wide.
+         */
+        RowLayouts build(Earthquake earthquake, int width) {
+            // Date and time column is as wide as its widest line, aligned to the end.
+            float detailsWidth = Math.max(
+                    Layout.getDesiredWidth(nonNull(earthquake.getDate()), detailsPaint),
+                    Layout.getDesiredWidth(nonNull(earthquake.getTime()), detailsPaint));
+            int detailsColumn = (int) Math.ceil(detailsWidth);
+            int detailsLeft = width - paddingHorizontal - detailsColumn;
+
+            // Offset and location take the remaining space.
+            int textLeft = paddingHorizontal + badgeSize + columnMargin;
+            int textWidth = detailsLeft - columnMargin - textLeft;
+
+            Layout magnitude = makeLayout(earthquake.getMagnitudeText(), magnitudePaint,
+                    badgeSize, Layout.Alignment.ALIGN_CENTER, 1);
+            Layout offset = makeLayout(earthquake.getDisplayOffset(), offsetPaint, textWidth,
+                    Layout.Alignment.ALIGN_NORMAL, 1);
+            Layout location = makeLayout(earthquake.getPrimaryLocation(), locationPaint,
+                    textWidth, Layout.Alignment.ALIGN_NORMAL, 2);
+            Layout date = makeLayout(earthquake.getDate(), detailsPaint, detailsColumn,
+                    Layout.Alignment.ALIGN_OPPOSITE, 1);
+            Layout time = makeLayout(earthquake.getTime(), detailsPaint, detailsColumn,
+                    Layout.Alignment.ALIGN_OPPOSITE, 1);
+
+            // Every column is centered vertically.
+            int magnitudeTop = (rowHeight - magnitude.getHeight()) / 2;
+            int offsetTop = (rowHeight - offset.getHeight() - location.getHeight()) / 2;
+            int dateTop = (rowHeight - date.getHeight() - time.getHeight()) / 2;
+
+            return new RowLayouts(width, magnitude, offset, location, date, time, textLeft,
+                    detailsLeft, magnitudeTop, offsetTop, dateTop);
+        }
+
+        private static CharSequence nonNull(CharSequence text) {
+            return text == null ? "" : text;
+        }
+
+        /**
+         * @return Text laid out in at most "maxLines" lines, ellipsized at the end.
+         */
+        private static Layout makeLayout(CharSequence text, TextPaint paint, int width,
+                                         Layout.Alignment alignment, int maxLines) {
+            text = nonNull(text);
+            width = Math.max(width, 0);
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+                        .setAlignment(alignment)
+                        .setIncludePad(false)
+                        .setEllipsize(TextUtils.TruncateAt.END)
+                        .setMaxLines(maxLines)
+                        .build();
+            }
+
+            // Older platforms cannot limit the lines, so the text is shortened up front.
+            CharSequence ellipsized = TextUtils.ellipsize(text, paint, (float) width * maxLines,
+                    TextUtils.TruncateAt.END);
+            return new StaticLayout(ellipsized, paint, width, alignment, 1f, 0f, false);
+        }
+    }
+}
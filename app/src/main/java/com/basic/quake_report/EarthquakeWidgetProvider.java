@@ -0,0 +1,176 @@
+package com.basic.quake_report;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.view.View;
+import android.widget.RemoteViews;
+
+import com.basic.quake_report.utils.EarthquakeExporter;
+import com.basic.quake_report.utils.LazyEarthquakeList;
+
+import java.util.List;
+
+/**
+ * Home-screen widget showing the latest and the largest earthquake of the user's query.
+ * <p>
+ * The widget never downloads or decodes anything itself: whenever the list or a profile refresh
+ * loads the earthquakes of the query, {@link #update(Context, List)} stores the few values the
+ * widget shows, and pushes them to the widgets only if they changed. Updates requested by the
+ * system just read those values back, so the widget has no update period of its own.
+ */
+public class EarthquakeWidgetProvider extends AppWidgetProvider {
+
+    // Name of the SharedPreferences file holding what the widget shows.
+    private static final String PREFERENCES_NAME = "earthquake_widget";
+
+    // Key of what the widget shows, its fields separated by tabs.
+    private static final String KEY_SUMMARY = "summary";
+
+    // Separates the fields of the summary.
+    private static final String FIELD_SEPARATOR = "\t";
+
+    // Number of fields of the summary per earthquake shown.
+    private static final int FIELDS_PER_EARTHQUAKE = 4;
+
+    /**
+     * Stores the latest and the largest of "earthquakes" for the widget, and updates the
+     * widgets placed if either changed. It is meant to be invoked off the main thread, as the
+     * earthquakes of the query get loaded.
+     *
+     * @param context     It is used to access SharedPreferences and the AppWidgetManager.
+     * @param earthquakes It is the bind-ready earthquakes of the user's query.
+     */
+    public static void update(Context context, List<Earthquake> earthquakes) {
+        if (earthquakes == null || earthquakes.isEmpty()) {
+            return;
+        }
+
+        // Both are found in one pass, whatever the order of the list.
+        int latest = 0;
+        int largest = 0;
+        for (int i = 1; i < earthquakes.size(); i++) {
+            if (getTimeMillis(earthquakes, i) > getTimeMillis(earthquakes, latest)) {
+                latest = i;
+            }
+            if (getMagnitude(earthquakes, i) > getMagnitude(earthquakes, largest)) {
+                largest = i;
+            }
+        }
+
+        String summary = getSummary(peek(earthquakes, latest)) + FIELD_SEPARATOR +
+                getSummary(peek(earthquakes, largest));
+        SharedPreferences preferences = context.getSharedPreferences(PREFERENCES_NAME,
+                Context.MODE_PRIVATE);
+        if (summary.equals(preferences.getString(KEY_SUMMARY, null))) {
+            // Widgets show these already.
+            return;
+        }
+        preferences.edit().putString(KEY_SUMMARY, summary).apply();
+
+        // Widgets placed get the new values, nothing is built when none is placed.
+        AppWidgetManager manager = AppWidgetManager.getInstance(context);
+        int[] ids = manager.getAppWidgetIds(new ComponentName(context,
+                EarthquakeWidgetProvider.class));
+        if (ids.length > 0) {
+            manager.updateAppWidget(ids, buildViews(context, summary));
+        }
+    }
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        // Shows the values stored last, nothing is downloaded here.
+        String summary = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE)
+                .getString(KEY_SUMMARY, null);
+        appWidgetManager.updateAppWidget(appWidgetIds, buildViews(context, summary));
+    }
+
+    /**
+     * @return Unix-Timestamp of the earthquake at "index", without creating it if the list is
+     * lazy.
+     */
+    private static long getTimeMillis(List<Earthquake> earthquakes, int index) {
+        return earthquakes instanceof LazyEarthquakeList ?
+                ((LazyEarthquakeList) earthquakes).getTimeMillis(index) :
+                earthquakes.get(index).getTimeMillis();
+    }
+
+    /**
+     * @return Magnitude of the earthquake at "index", without creating it if the list is lazy.
+     */
+    private static double getMagnitude(List<Earthquake> earthquakes, int index) {
+        return earthquakes instanceof LazyEarthquakeList ?
+                ((LazyEarthquakeList) earthquakes).getMagnitude(index) :
+                earthquakes.get(index).getMagnitude();
+    }
+
+    /**
+     * @return The earthquake at "index", not kept by the list if it is lazy.
+     */
+    private static Earthquake peek(List<Earthquake> earthquakes, int index) {
+        return earthquakes instanceof LazyEarthquakeList ?
+                ((LazyEarthquakeList) earthquakes).peek(index) : earthquakes.get(index);
+    }
+
+    /**
+     * @return Fields the widget shows of "earthquake".
+     */
+    private static String getSummary(Earthquake earthquake) {
+        String place = EarthquakeExporter.getPlace(earthquake);
+        return earthquake.getMagnitudeText() + FIELD_SEPARATOR +
+                earthquake.getMagnitudeColor() + FIELD_SEPARATOR +
+                (place == null ? "" : place.replace(FIELD_SEPARATOR, " ")) + FIELD_SEPARATOR +
+                earthquake.getDate() + ", " + earthquake.getTime();
+    }
+
+    /**
+     * @param summary What the widget shows, or null if nothing was loaded yet.
+     * @return Views of the widget.
+     */
+    private static RemoteViews buildViews(Context context, String summary) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.layout_widget);
+
+        // Opens the list when clicked.
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            flags |= PendingIntent.FLAG_IMMUTABLE;
+        }
+        views.setOnClickPendingIntent(R.id.widget_root, PendingIntent.getActivity(context, 0,
+                new Intent(context, MainActivity.class), flags));
+
+        String[] fields = summary == null ? new String[0] : summary.split(FIELD_SEPARATOR, -1);
+        if (fields.length != 2 * FIELDS_PER_EARTHQUAKE) {
+            views.setViewVisibility(R.id.widget_earthquakes, View.GONE);
+            views.setViewVisibility(R.id.widget_empty, View.VISIBLE);
+            return views;
+        }
+
+        views.setViewVisibility(R.id.widget_earthquakes, View.VISIBLE);
+        views.setViewVisibility(R.id.widget_empty, View.GONE);
+        setEarthquake(views, fields, 0, R.id.widget_latest_magnitude,
+                R.id.widget_latest_badge, R.id.widget_latest_place, R.id.widget_latest_time);
+        setEarthquake(views, fields, FIELDS_PER_EARTHQUAKE, R.id.widget_largest_magnitude,
+                R.id.widget_largest_badge, R.id.widget_largest_place, R.id.widget_largest_time);
+        return views;
+    }
+
+    /**
+     * Sets the earthquake whose fields start at "start" of "fields" into the given views.
+     */
+    private static void setEarthquake(RemoteViews views, String[] fields, int start,
+                                      int magnitudeId, int badgeId, int placeId, int timeId) {
+        views.setTextViewText(magnitudeId, fields[start]);
+        try {
+            views.setInt(badgeId, "setColorFilter", Integer.parseInt(fields[start + 1]));
+        } catch (NumberFormatException e) {
+            // Badge keeps the color of its drawable.
+        }
+        views.setTextViewText(placeId, fields[start + 2]);
+        views.setTextViewText(timeId, fields[start + 3]);
+    }
+}
@@ -0,0 +1,38 @@
+package com.basic.quake_report;
+
+import androidx.lifecycle.ViewModel;
+
+import com.basic.quake_report.utils.EarthquakeExporter;
+
+/**
+ * Keeps the export of {@link MainActivity} across configuration changes, which recreate the
+ * Activity but leave the export running, so only leaving the Activity cancels it.
+ */
+public class ExportViewModel extends ViewModel {
+
+    // Export in progress, or null.
+    private EarthquakeExporter.Export mExport;
+
+    /**
+     * @return The export in progress, or null.
+     */
+    public EarthquakeExporter.Export getExport() {
+        return mExport;
+    }
+
+    /**
+     * @param export It is the export in progress, or null once it finished.
+     */
+    public void setExport(EarthquakeExporter.Export export) {
+        mExport = export;
+    }
+
+    @Override
+    protected void onCleared() {
+        // Activity is finishing, nothing is left to show the export.
+        if (mExport != null) {
+            mExport.cancel();
+            mExport = null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.basic.quake_report;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+
+import com.basic.quake_report.utils.BackgroundScheduler;
+import com.basic.quake_report.utils.HistoryBackfill;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the {@link HistoryBackfill} whenever a network is available, rescheduling itself while
+ * it throttles and backing off while requests fail. The job is persisted, so the backfill
+ * carries on after the device restarts.
+ */
+public class HistoryBackfillJobService extends JobService {
+
+    // Id of the backfill job.
+    private static final int JOB_ID = 0x48495354;
+
+    // First delay of a backfill retried after a failed request.
+    private static final long BACKOFF_MILLIS = 60 * 1000L;
+
+    // Tag of the backfill, run in the backfill lane.
+    private static final String TAG_BACKFILL = "HistoryBackfill";
+
+    // Set when the system stops the job.
+    private final AtomicBoolean mStopped = new AtomicBoolean();
+
+    // Backfill in progress.
+    private Future<?> mRun;
+
+    /**
+     * Schedules the backfill to run once a network is available.
+     *
+     * @param context     It is used to access the JobScheduler.
+     * @param delayMillis Least milliseconds to wait before it runs.
+     */
+    public static void schedule(Context context, long delayMillis) {
+        JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, HistoryBackfillJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setMinimumLatency(delayMillis)
+                .setBackoffCriteria(BACKOFF_MILLIS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build();
+        ((JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE)).schedule(job);
+    }
+
+    /**
+     * Cancels the scheduled backfill.
+     *
+     * @param context It is used to access the JobScheduler.
+     */
+    public static void cancel(Context context) {
+        ((JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE)).cancel(JOB_ID);
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        mStopped.set(false);
+        mRun = BackgroundScheduler.getDefault().submit(BackgroundScheduler.LANE_BACKFILL,
+                TAG_BACKFILL, new Runnable() {
+            @Override
+            public void run() {
+                long result = HistoryBackfill.run(getApplicationContext(), mStopped);
+                if (mStopped.get()) {
+                    // System reschedules a stopped job itself.
+                    return;
+                }
+
+                if (result == HistoryBackfill.RETRY) {
+                    jobFinished(params, true);
+                } else {
+                    jobFinished(params, false);
+                    if (result != HistoryBackfill.FINISHED) {
+                        // Throttled, runs again once the wait is over.
+                        schedule(getApplicationContext(), result);
+                    }
+                }
+            }
+        });
+
+        // Work goes on in the background.
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        mStopped.set(true);
+        if (mRun != null) {
+            // Wakes a backfill sleeping for the request rate.
+            mRun.cancel(true);
+        }
+
+        // Resumes from the checkpoint once conditions are met again.
+        return true;
+    }
+
+    @Override
+    public void onDestroy() {
+        if (mRun != null) {
+            mRun.cancel(true);
+        }
+        super.onDestroy();
+    }
+}
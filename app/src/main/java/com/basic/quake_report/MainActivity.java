@@ -1,44 +1,88 @@
 package com.basic.quake_report;
 
+import androidx.activity.result.ActivityResultCallback;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.loader.app.LoaderManager;
 import androidx.loader.content.AsyncTaskLoader;
 import androidx.loader.content.Loader;
 import androidx.preference.PreferenceManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import android.content.ActivityNotFoundException;
+import android.app.ActivityManager;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.EditText;
+import android.widget.ProgressBar;
 import android.widget.Toast;
 
 import com.basic.quake_report.databinding.ActivityMainBinding;
-import com.basic.quake_report.utils.JSONUtils;
+import com.basic.quake_report.databinding.DialogAlertRuleBinding;
+import com.basic.quake_report.databinding.DialogBackfillBinding;
+import com.basic.quake_report.utils.AftershockSequence;
+import com.basic.quake_report.utils.AlertRule;
+import com.basic.quake_report.utils.AlertRules;
+import com.basic.quake_report.utils.BackfillPlan;
+import com.basic.quake_report.utils.BackgroundScheduler;
+import com.basic.quake_report.utils.EarthquakeChunkListener;
+import com.basic.quake_report.utils.EarthquakeDetailCache;
+import com.basic.quake_report.utils.EarthquakeExporter;
+import com.basic.quake_report.utils.EarthquakeFederation;
+import com.basic.quake_report.utils.EarthquakeProvider;
+import com.basic.quake_report.utils.EarthquakeQuery;
+import com.basic.quake_report.utils.EarthquakeQueryEngine;
+import com.basic.quake_report.utils.EarthquakeRepository;
+import com.basic.quake_report.utils.EarthquakeResultCache;
+import com.basic.quake_report.utils.EarthquakeSnapshot;
+import com.basic.quake_report.utils.FdsnProvider;
+import com.basic.quake_report.utils.HistoryBackfill;
 import com.basic.quake_report.utils.NetworkUtils;
+import com.basic.quake_report.utils.NetworkUtilsConstants;
+import com.basic.quake_report.utils.QueryProfile;
+import com.basic.quake_report.utils.QueryProfiles;
+import com.basic.quake_report.utils.SectionIndex;
+import com.basic.quake_report.utils.SpeculativePrefetch;
 import com.basic.quake_report.utils.Variables;
 
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
 
 public class MainActivity extends AppCompatActivity implements
         EarthquakeAdapter.EarthquakeListItemClickListener,
-        LoaderManager.LoaderCallbacks<ArrayList<Earthquake>>,
+        LoaderManager.LoaderCallbacks<List<Earthquake>>,
         SharedPreferences.OnSharedPreferenceChangeListener {
 
-    // Shows messages to the user.
-    private Toast mToast;
-
     // Represents the Loader ID of the Loader which performs background network operations.
     private static final int LOADER_ID = 19;
 
+    // ID of the Loader selecting the most significant earthquakes.
+    private static final int SIGNIFICANT_LOADER_ID = 23;
+
+    // Number of the most significant earthquakes shown.
+    private static final int SIGNIFICANT_COUNT = 50;
+
+    // Number of rows above and below the viewport whose details are prefetched.
+    private static final int DETAIL_PREFETCH_MARGIN = 5;
+
+    // Tag of the writes of a loaded list, run one at a time in the persistence lane.
+    private static final String TAG_PERSIST = "EarthquakeListPersist";
+
     /**
      * Provides {@link com.basic.quake_report.EarthquakeAdapter.EarthquakeViewHolder} to
      * RecyclerView on demand.
@@ -48,6 +92,116 @@ public class MainActivity extends AppCompatActivity implements
     // Performs View Binding.
     private ActivityMainBinding mBinding;
 
+    // Whether list items are drawn by EarthquakeRowView.
+    private boolean mFlatRows;
+
+    // Whether the list shows the snapshot of the last launch, until the Loader delivers.
+    private boolean mShowingSnapshot;
+
+    // Whether the earthquakes of every profile got refreshed since the Activity was created.
+    private boolean mProfilesRefreshed;
+
+    // Restarts the Loader once for preferences changed together, e.g. by switching profiles.
+    private final Runnable mRestartLoader = new Runnable() {
+        @Override
+        public void run() {
+            startDownloadingNewEarthquakeData();
+        }
+    };
+
+    // Shows the earthquakes decoded while the list downloads, once per frame.
+    private Choreographer mChoreographer;
+
+    // Earthquakes decoded but not shown yet, also guarding "mFramePosted".
+    private final List<Earthquake> mPendingEarthquakes = new ArrayList<>();
+
+    // Whether a frame callback showing "mPendingEarthquakes" is posted.
+    private boolean mFramePosted;
+
+    // Changes whenever a download starts or ends, so earthquakes of an older one are dropped.
+    private volatile int mDownloadGeneration;
+
+    // Whether the list shows earthquakes of a download still in progress.
+    private boolean mShowingPartialData;
+
+    // Format of the export whose document is being created.
+    private String mExportFormat = EarthquakeExporter.FORMAT_CSV;
+
+    // Keeps the export in progress across configuration changes.
+    private ExportViewModel mExportModel;
+
+    // Shows the progress of the export in progress, or null.
+    private AlertDialog mExportDialog;
+
+    // Lets the user create the document an export is written to.
+    private final ActivityResultLauncher<String> mCreateExportDocument =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument() {
+                @NonNull
+                @Override
+                public Intent createIntent(@NonNull Context context, @NonNull String input) {
+                    // Lets document providers offer the right kind of file.
+                    return super.createIntent(context, input).setType(
+                            EarthquakeExporter.FORMAT_CSV.equals(mExportFormat) ?
+                                    "text/csv" : "application/geo+json");
+                }
+            }, new ActivityResultCallback<Uri>() {
+                @Override
+                public void onActivityResult(Uri document) {
+                    if (document != null) {
+                        startExport(document);
+                    }
+                }
+            });
+
+    // Selects the most significant earthquakes of the preferred range in the background.
+    private final LoaderManager.LoaderCallbacks<List<Earthquake>> mSignificantCallbacks =
+            new LoaderManager.LoaderCallbacks<List<Earthquake>>() {
+                @NonNull
+                @Override
+                public Loader<List<Earthquake>> onCreateLoader(int id, @Nullable Bundle args) {
+                    return new AsyncTaskLoader<List<Earthquake>>(MainActivity.this) {
+                        @Override
+                        protected void onStartLoading() {
+                            forceLoad();
+                        }
+
+                        @Override
+                        public List<Earthquake> loadInBackground() {
+                            // Ranks the whole range through a bounded heap, no full sort.
+                            List<Earthquake> earthquakes = EarthquakeRepository
+                                    .getMostSignificant(EarthquakeQuery.fromPreferences(
+                                            getContext()), SIGNIFICANT_COUNT);
+
+                            // Detail screen shows the values the list would.
+                            EarthquakeAdapter.prepareEarthquakeData(getContext(), earthquakes);
+                            return earthquakes;
+                        }
+                    };
+                }
+
+                @Override
+                public void onLoadFinished(@NonNull Loader<List<Earthquake>> loader,
+                                           List<Earthquake> data) {
+                    // Shown once, not again when the Activity is recreated.
+                    LoaderManager.getInstance(MainActivity.this)
+                            .destroyLoader(SIGNIFICANT_LOADER_ID);
+                    showMostSignificant(data);
+                }
+
+                @Override
+                public void onLoaderReset(@NonNull Loader<List<Earthquake>> loader) {
+                }
+            };
+
+    // Shows the earthquakes decoded since the last frame.
+    private final Choreographer.FrameCallback mShowPendingEarthquakes =
+            new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    showPendingEarthquakes();
+                }
+            };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -62,10 +216,41 @@ public class MainActivity extends AppCompatActivity implements
         // Optimise RecyclerView.
         mBinding.recyclerEarthquake.setHasFixedSize(true);
 
+        // Flattened rows are used when enabled, and always on low-RAM devices.
+        mFlatRows = getResources().getBoolean(R.bool.flat_list_rows) ||
+                ((ActivityManager) getSystemService(Context.ACTIVITY_SERVICE)).isLowRamDevice();
+
         // Link Adapter to RecyclerView.
-        mAdapter = (new EarthquakeAdapter(this));
+        mAdapter = (new EarthquakeAdapter(this, mFlatRows));
+
+        // Earthquakes decoded during a download get shown on the next frame.
+        mChoreographer = Choreographer.getInstance();
         mBinding.recyclerEarthquake.setAdapter(mAdapter);
 
+        // Rows are grouped into days or magnitude bands under sticky headers.
+        mBinding.recyclerEarthquake.addItemDecoration(new StickyHeaderDecoration(this, mAdapter));
+        mBinding.fastScroller.attach(mBinding.recyclerEarthquake, mAdapter);
+        updateSectionMode();
+
+        // Prefetches details of the rows near the viewport once scrolling stops.
+        mBinding.recyclerEarthquake.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    prefetchDetailsNearViewport();
+                }
+            }
+        });
+
+        // Shows the earthquakes of the last launch before anything gets downloaded.
+        showSnapshot();
+
+        // Export started before a configuration change keeps showing its progress.
+        mExportModel = new ViewModelProvider(this).get(ExportViewModel.class);
+        if (mExportModel.getExport() != null) {
+            showExportProgress(mExportModel.getExport());
+        }
+
         // Register Network Callbacks.
         NetworkUtils.isInternetAvailable(this);
 
@@ -80,6 +265,60 @@ public class MainActivity extends AppCompatActivity implements
                 .registerOnSharedPreferenceChangeListener(this);
     }
 
+    /**
+     * Shows the earthquakes of the last launch by memory-mapping their snapshot. Rows are only
+     * decoded from the mapping when they get bound, so this takes a couple of milliseconds
+     * whatever the number of earthquakes.
+     */
+    private void showSnapshot() {
+        // Snapshot only holds the earthquakes listed one by one.
+        if (isGroupingSequences(this)) {
+            return;
+        }
+
+        List<Earthquake> snapshot = EarthquakeSnapshot.open(EarthquakeSnapshot.getFile(this),
+                EarthquakeQuery.fromPreferences(this).getKey());
+
+        if (snapshot != null && snapshot.size() > 0) {
+            mShowingSnapshot = true;
+            mBinding.progressBar.setVisibility(View.GONE);
+            showEarthquakeData();
+            mAdapter.setEarthquakeData(snapshot);
+        }
+    }
+
+    /**
+     * @param context It is used to read the preferences.
+     * @return Whether the user chose to group aftershocks under their mainshock.
+     */
+    private static boolean isGroupingSequences(Context context) {
+        return context.getString(R.string.pref_grouping_value_sequences).equals(
+                PreferenceManager.getDefaultSharedPreferences(context).getString(
+                        context.getString(R.string.pref_grouping_value),
+                        context.getString(R.string.pref_grouping_default)));
+    }
+
+    /**
+     * @return Whether large lists are shown before their rows are decoded.
+     */
+    private static boolean isDecodingLazily(Context context) {
+        return context.getString(R.string.pref_decoding_value_lazy).equals(
+                PreferenceManager.getDefaultSharedPreferences(context).getString(
+                        context.getString(R.string.pref_decoding_value),
+                        context.getString(R.string.pref_decoding_default)));
+    }
+
+    /**
+     * Sections the list by magnitude band when it is ordered by magnitude, and by day
+     * otherwise.
+     */
+    private void updateSectionMode() {
+        mAdapter.setSectionMode(NetworkUtilsConstants.ORDER_BY_MAGNITUDE.equals(
+                EarthquakeQuery.fromPreferences(this).getOrderBy()) ?
+                SectionIndex.BY_MAGNITUDE : SectionIndex.BY_DAY);
+        mBinding.recyclerEarthquake.invalidateItemDecorations();
+    }
+
     /**
      * Starts a background operation to download earthquake data from the USGS web-servers.
      */
@@ -93,9 +332,18 @@ public class MainActivity extends AppCompatActivity implements
      * a Preference change.
      */
     private void startDownloadingNewEarthquakeData() {
+        // Snapshot belongs to the previous preferences.
+        mShowingSnapshot = false;
+
+        // Earthquakes still being decoded belong to the previous preferences too.
+        dropPendingEarthquakes();
+
         // Scrolls back to top.
         mBinding.recyclerEarthquake.scrollToPosition(0);
 
+        // Order of the list may have changed.
+        updateSectionMode();
+
         // Shows Progress Indicator only.
         showLoading();
 
@@ -103,26 +351,105 @@ public class MainActivity extends AppCompatActivity implements
         LoaderManager.getInstance(this).restartLoader(LOADER_ID, null, this);
     }
 
-    @Override
-    public void onListItemClick(String clickedEarthquakeUrl) {
-        try {
-            startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse(clickedEarthquakeUrl)));
-        } catch (ActivityNotFoundException e) {
-            showBrowserNotAvailable();
+    /**
+     * Queues earthquakes decoded by the Loader to be shown on the next frame, so however many
+     * chunks arrive in a frame the list is updated once. It may be invoked on any thread.
+     *
+     * @param generation  Value of "mDownloadGeneration" when the download started.
+     * @param earthquakes Prepared earthquakes, in the order they are shown.
+     */
+    private void postEarthquakes(int generation, List<Earthquake> earthquakes) {
+        synchronized (mPendingEarthquakes) {
+            if (generation != mDownloadGeneration) {
+                // Download got replaced or finished meanwhile.
+                return;
+            }
+
+            mPendingEarthquakes.addAll(earthquakes);
+            if (!mFramePosted) {
+                mFramePosted = true;
+                mChoreographer.postFrameCallback(mShowPendingEarthquakes);
+            }
         }
     }
 
     /**
-     * Notify user that there is no Browser installed in their deivice via Toast.
+     * Shows the earthquakes decoded since the last frame below the ones shown already.
      */
-    private void showBrowserNotAvailable() {
-        // Removes any previous visible Toasts.
-        if (mToast != null) {
-            mToast.cancel();
+    private void showPendingEarthquakes() {
+        List<Earthquake> earthquakes;
+        synchronized (mPendingEarthquakes) {
+            mFramePosted = false;
+            earthquakes = new ArrayList<>(mPendingEarthquakes);
+            mPendingEarthquakes.clear();
         }
 
-        mToast = Toast.makeText(this, R.string.toast_browser, Toast.LENGTH_SHORT);
-        mToast.show();
+        // A snapshot already shows a full list until the download ends.
+        if (earthquakes.isEmpty() || mShowingSnapshot) {
+            return;
+        }
+
+        if (!mShowingPartialData) {
+            // First screenful replaces the progress indicator.
+            mShowingPartialData = true;
+            mBinding.progressBar.setVisibility(View.GONE);
+            showEarthquakeData();
+            mAdapter.setEarthquakeData(earthquakes);
+        } else {
+            mAdapter.appendEarthquakeData(earthquakes);
+        }
+    }
+
+    /**
+     * Drops the earthquakes of the current download not shown yet, and any arriving later.
+     */
+    private void dropPendingEarthquakes() {
+        synchronized (mPendingEarthquakes) {
+            mDownloadGeneration++;
+            mPendingEarthquakes.clear();
+            if (mFramePosted) {
+                mFramePosted = false;
+                mChoreographer.removeFrameCallback(mShowPendingEarthquakes);
+            }
+        }
+        mShowingPartialData = false;
+    }
+
+    @Override
+    public void onListItemClick(Earthquake clickedEarthquake) {
+        // Shows the details in-app.
+        startActivity(EarthquakeDetailActivity.newIntent(this, clickedEarthquake));
+    }
+
+    /**
+     * Prefetches the details of the rows near the viewport. It is invoked when scrolling stops,
+     * so opening any of them is instant.
+     */
+    private void prefetchDetailsNearViewport() {
+        LinearLayoutManager layoutManager =
+                (LinearLayoutManager) mBinding.recyclerEarthquake.getLayoutManager();
+        if (layoutManager == null || mAdapter.getItemCount() == 0) {
+            return;
+        }
+
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        // Visible rows first, followed by the rows just below and above them.
+        int from = Math.max(0, first - DETAIL_PREFETCH_MARGIN);
+        int to = Math.min(mAdapter.getItemCount() - 1, last + DETAIL_PREFETCH_MARGIN);
+        ArrayList<String> detailUrls = new ArrayList<>();
+        for (int i = first; i <= to; i++) {
+            detailUrls.add(mAdapter.getEarthquake(i).getDetailUrl());
+        }
+        for (int i = first - 1; i >= from; i--) {
+            detailUrls.add(mAdapter.getEarthquake(i).getDetailUrl());
+        }
+
+        EarthquakeDetailCache.prefetch(detailUrls);
     }
 
     @Override
@@ -134,7 +461,29 @@ public class MainActivity extends AppCompatActivity implements
 
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
-        if (item.getItemId() == R.id.action_settings) {
+        if (item.getItemId() == R.id.action_profiles) {
+            // Lets the user switch to another profile.
+            showProfiles();
+            return true;
+        } else if (item.getItemId() == R.id.action_alerts) {
+            // Lets the user add or remove alert rules.
+            showAlertRules();
+            return true;
+        } else if (item.getItemId() == R.id.action_significant) {
+            // Ranks the earthquakes of the preferred range by significance.
+            Toast.makeText(this, R.string.significant_loading, Toast.LENGTH_SHORT).show();
+            LoaderManager.getInstance(this).restartLoader(SIGNIFICANT_LOADER_ID, null,
+                    mSignificantCallbacks);
+            return true;
+        } else if (item.getItemId() == R.id.action_export) {
+            // Lets the user export the earthquakes shown.
+            showExport();
+            return true;
+        } else if (item.getItemId() == R.id.action_backfill) {
+            // Shows the history download, or lets the user start one.
+            showBackfill();
+            return true;
+        } else if (item.getItemId() == R.id.action_settings) {
             // Open Settings Activity.
             startActivity(new Intent(this, SettingsActivity.class));
             return true;
@@ -142,13 +491,377 @@ public class MainActivity extends AppCompatActivity implements
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Shows the query profiles. Choosing one switches the list to its earthquakes, which are
+     * usually held ready by the last refresh of every profile.
+     */
+    private void showProfiles() {
+        List<QueryProfile> profiles = QueryProfiles.getProfiles(this);
+        String[] names = new String[profiles.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = profiles.get(i).getName();
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.profiles_title)
+                .setSingleChoiceItems(names, QueryProfiles.indexOfCurrent(this, profiles),
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialog, int which) {
+                                // Preference change restarts the Loader.
+                                QueryProfiles.apply(MainActivity.this, profiles.get(which));
+                                dialog.dismiss();
+                            }
+                        })
+                .setNeutralButton(R.string.profiles_save_current,
+                        new DialogInterface.OnClickListener() {
+                            @Override
+                            public void onClick(DialogInterface dialog, int which) {
+                                showSaveProfile();
+                            }
+                        })
+                .show();
+    }
+
+    /**
+     * Asks for a name to save the current preferences as a profile.
+     */
+    private void showSaveProfile() {
+        EditText name = new EditText(this);
+        name.setHint(R.string.profiles_name_hint);
+        name.setSingleLine(true);
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.profiles_save_title)
+                .setView(name)
+                .setPositiveButton(R.string.profiles_save, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        if (name.getText().toString().trim().length() > 0) {
+                            QueryProfiles.saveCurrent(MainActivity.this,
+                                    name.getText().toString());
+                        }
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Shows the alert rules. Choosing one offers to remove it.
+     */
+    private void showAlertRules() {
+        List<AlertRule> rules = AlertRules.getRules(this);
+        String[] names = new String[rules.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = rules.get(i).getName();
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                .setTitle(R.string.alerts_title)
+                .setPositiveButton(R.string.alerts_add, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        showAddAlertRule();
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null);
+        if (names.length == 0) {
+            builder.setMessage(R.string.alerts_empty);
+        } else {
+            builder.setItems(names, new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    showRemoveAlertRule(which, names[which]);
+                }
+            });
+        }
+        builder.show();
+    }
+
+    /**
+     * Asks to confirm removing the alert rule at "index".
+     */
+    private void showRemoveAlertRule(int index, String name) {
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.alerts_remove_title)
+                .setMessage(name)
+                .setPositiveButton(R.string.alerts_remove, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        AlertRules.removeRule(MainActivity.this, index);
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Asks for the conditions of a new alert rule. A blank radius matches earthquakes anywhere.
+     */
+    private void showAddAlertRule() {
+        DialogAlertRuleBinding rule = DialogAlertRuleBinding.inflate(getLayoutInflater());
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.alerts_add_title)
+                .setView(rule.getRoot())
+                .setPositiveButton(R.string.alerts_add, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        String name = rule.editAlertName.getText().toString().trim();
+                        String radius = rule.editAlertRadius.getText().toString().trim();
+                        try {
+                            double minMagnitude = Double.parseDouble(
+                                    rule.editAlertMagnitude.getText().toString());
+
+                            // Area is only read when the rule has one.
+                            double latitude = Double.NaN;
+                            double longitude = Double.NaN;
+                            double radiusKm = Double.NaN;
+                            if (!radius.isEmpty()) {
+                                radiusKm = Double.parseDouble(radius);
+                                latitude = Double.parseDouble(
+                                        rule.editAlertLatitude.getText().toString());
+                                longitude = Double.parseDouble(
+                                        rule.editAlertLongitude.getText().toString());
+                            }
+
+                            AlertRules.addRule(MainActivity.this, new AlertRule(
+                                    name.isEmpty() ? getString(R.string.alerts_menu_item) : name,
+                                    minMagnitude, latitude, longitude, radiusKm,
+                                    rule.checkAlertTsunami.isChecked()));
+                        } catch (NumberFormatException e) {
+                            Toast.makeText(MainActivity.this, R.string.alert_invalid,
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Shows the progress of the history download in progress, offering to stop it. Without one
+     * it asks for the history to download.
+     */
+    private void showBackfill() {
+        if (HistoryBackfill.getPlan(this) == null) {
+            showStartBackfill();
+            return;
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.backfill_title)
+                .setMessage(HistoryBackfill.getSummary(this))
+                .setPositiveButton(R.string.backfill_stop, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        HistoryBackfill.cancel(MainActivity.this);
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Asks for the region, magnitude and years of history to download, and how fast to
+     * download it. A blank radius downloads earthquakes anywhere.
+     */
+    private void showStartBackfill() {
+        DialogBackfillBinding backfill = DialogBackfillBinding.inflate(getLayoutInflater());
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                .setTitle(R.string.backfill_start_title)
+                .setView(backfill.getRoot())
+                .setPositiveButton(R.string.backfill_start, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        String radius = backfill.editBackfillRadius.getText().toString().trim();
+                        try {
+                            double minMagnitude = Double.parseDouble(
+                                    backfill.editBackfillMagnitude.getText().toString());
+                            int years = Integer.parseInt(
+                                    backfill.editBackfillYears.getText().toString());
+                            int requestsPerHour = Integer.parseInt(
+                                    backfill.editBackfillRequests.getText().toString());
+                            long megabytesPerDay = Long.parseLong(
+                                    backfill.editBackfillBudget.getText().toString());
+                            if (years <= 0 || requestsPerHour <= 0 || megabytesPerDay <= 0) {
+                                throw new NumberFormatException();
+                            }
+
+                            // Region is only read when the history has one.
+                            double latitude = Double.NaN;
+                            double longitude = Double.NaN;
+                            double radiusKm = Double.NaN;
+                            if (!radius.isEmpty()) {
+                                radiusKm = Double.parseDouble(radius);
+                                latitude = Double.parseDouble(
+                                        backfill.editBackfillLatitude.getText().toString());
+                                longitude = Double.parseDouble(
+                                        backfill.editBackfillLongitude.getText().toString());
+                            }
+
+                            // History ends now and goes back the years asked for.
+                            Calendar start = Calendar.getInstance();
+                            long endMillis = start.getTimeInMillis();
+                            start.add(Calendar.YEAR, -years);
+
+                            HistoryBackfill.start(MainActivity.this, new BackfillPlan(
+                                    minMagnitude, latitude, longitude, radiusKm,
+                                    start.getTimeInMillis(), endMillis, requestsPerHour,
+                                    megabytesPerDay * 1024 * 1024));
+                        } catch (NumberFormatException e) {
+                            Toast.makeText(MainActivity.this, R.string.backfill_invalid,
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null);
+
+        // Tells what a stopped download got before it is replaced.
+        String summary = HistoryBackfill.getSummary(this);
+        if (summary != null) {
+            builder.setMessage(summary);
+        }
+        builder.show();
+    }
+
+    /**
+     * Shows the most significant earthquakes. Choosing one opens its details.
+     *
+     * @param earthquakes The earthquakes most significant first, or null if they could not be
+     *                    downloaded.
+     */
+    private void showMostSignificant(List<Earthquake> earthquakes) {
+        if (earthquakes == null) {
+            Toast.makeText(this, R.string.significant_unavailable, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        String[] items = new String[earthquakes.size()];
+        for (int i = 0; i < items.length; i++) {
+            Earthquake earthquake = earthquakes.get(i);
+            items[i] = getString(R.string.significant_item, earthquake.getMagnitude(),
+                    earthquake.getPrimaryLocation(), earthquake.getDate());
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.significant_title, SIGNIFICANT_COUNT))
+                .setNegativeButton(android.R.string.cancel, null);
+        if (items.length == 0) {
+            builder.setMessage(R.string.significant_empty);
+        } else {
+            builder.setItems(items, new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    startActivity(EarthquakeDetailActivity.newIntent(MainActivity.this,
+                            earthquakes.get(which)));
+                }
+            });
+        }
+        builder.show();
+    }
+
+    /**
+     * Asks for the format to export the earthquakes shown in, and then for the document to
+     * write them to.
+     */
+    private void showExport() {
+        List<Earthquake> earthquakes = mAdapter.getEarthquakeData();
+        if (earthquakes == null || earthquakes.isEmpty() || mShowingPartialData) {
+            // Rows still being appended cannot be exported.
+            Toast.makeText(this, R.string.export_unavailable, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.export_title)
+                .setItems(R.array.export_formats, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        mExportFormat = which == 0 ? EarthquakeExporter.FORMAT_CSV :
+                                EarthquakeExporter.FORMAT_GEOJSON;
+                        mCreateExportDocument.launch("earthquakes." + mExportFormat);
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Exports the earthquakes shown to "document", showing the progress in a dialog which can
+     * cancel the export.
+     */
+    private void startExport(Uri document) {
+        List<Earthquake> earthquakes = mAdapter.getEarthquakeData();
+        if (earthquakes == null || earthquakes.isEmpty() || mShowingPartialData) {
+            Toast.makeText(this, R.string.export_unavailable, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // Loader may replace the list shown, the export keeps the one it started with.
+        EarthquakeExporter.Export export = EarthquakeExporter.export(this, document,
+                mExportFormat, earthquakes, null);
+        mExportModel.setExport(export);
+        showExportProgress(export);
+    }
+
+    /**
+     * Shows the progress of "export" in a dialog which can cancel it, e.g. again once the
+     * Activity got recreated during the export.
+     */
+    private void showExportProgress(EarthquakeExporter.Export export) {
+        ProgressBar progressBar = new ProgressBar(this, null,
+                android.R.attr.progressBarStyleHorizontal);
+        progressBar.setMax(export.getTotal());
+        int padding = getResources().getDimensionPixelSize(R.dimen.padding_default);
+        progressBar.setPadding(padding, padding, padding, padding);
+
+        AlertDialog progressDialog = new AlertDialog.Builder(this)
+                .setTitle(R.string.export_progress_title)
+                .setView(progressBar)
+                .setCancelable(false)
+                .setNegativeButton(android.R.string.cancel, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        export.cancel();
+                    }
+                })
+                .show();
+        mExportDialog = progressDialog;
+
+        // Told the progress so far right away, then as the export goes on.
+        export.setListener(new EarthquakeExporter.ExportListener() {
+            @Override
+            public void onProgress(int exported, int total) {
+                progressBar.setProgress(exported);
+            }
+
+            @Override
+            public void onFinished(int exported, boolean complete) {
+                mExportModel.setExport(null);
+                mExportDialog = null;
+                progressDialog.dismiss();
+                if (complete) {
+                    Toast.makeText(MainActivity.this, getResources().getQuantityString(
+                            R.plurals.export_done, exported, exported),
+                            Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(MainActivity.this, R.string.export_stopped,
+                            Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+    }
+
     @NonNull
     @Override
-    public Loader<ArrayList<Earthquake>> onCreateLoader(int id, Bundle args) {
-        return new AsyncTaskLoader<ArrayList<Earthquake>>(this) {
+    public Loader<List<Earthquake>> onCreateLoader(int id, Bundle args) {
+        return new AsyncTaskLoader<List<Earthquake>>(this) {
 
             // Will contain a list of occurred Earthquakes.
-            private ArrayList<Earthquake> mEarthquakes = null;
+            private List<Earthquake> mEarthquakes = null;
 
             @Override
             protected void onStartLoading() {
@@ -163,16 +876,170 @@ public class MainActivity extends AppCompatActivity implements
 
             @Nullable
             @Override
-            public ArrayList<Earthquake> loadInBackground() {
-                // Downloading earthquake info. here.
-                String jsonResponse = NetworkUtils.getEarthquakeInfo(getContext());
+            public List<Earthquake> loadInBackground() {
+                // Background work of lower lanes makes way while the user waits for the list.
+                BackgroundScheduler scheduler = BackgroundScheduler.getDefault();
+                scheduler.beginVisibleWork();
+                try {
+                    return load();
+                } finally {
+                    scheduler.endVisibleWork();
+                }
+            }
+
+            /**
+             * @return Bind-ready earthquakes of the user's query, or null if they could not be
+             * downloaded.
+             */
+            private List<Earthquake> load() {
+                EarthquakeQuery query = EarthquakeQuery.fromPreferences(getContext());
+
+                // Sequences are grouped anew from the earthquakes held for the range.
+                if (isGroupingSequences(getContext())) {
+                    return loadSequences(query);
+                }
+
+                // Earthquakes held ready e.g. by the refresh of every profile.
+                List<Earthquake> earthquakes = EarthquakeResultCache.get(query);
+
+                // Earthquakes still being prefetched while the settings were edited.
+                if (earthquakes == null) {
+                    earthquakes = SpeculativePrefetch.await(query);
+                }
+
+                // Earthquakes filtered and ordered from a wider result loaded before.
+                if (earthquakes == null) {
+                    earthquakes = EarthquakeQueryEngine.answer(query);
+                }
+
+                // Large lists are shown once indexed, their rows decoded as they are bound.
+                if (earthquakes == null && isDecodingLazily(getContext())) {
+                    List<Earthquake> indexed = loadIndexed(query);
+                    if (indexed != null) {
+                        // Neither held nor written to the snapshot, which would decode them all.
+                        EarthquakeWidgetProvider.update(getContext(), indexed);
+                        return indexed;
+                    }
+                }
+
+                if (earthquakes == null) {
+                    // Downloading the missing earthquake info. from every event service here.
+                    ArrayList<Earthquake> downloaded = EarthquakeRepository.getEarthquakes(query,
+                            newChunkListener(query));
+
+                    // Builds bind-ready rows here, so binding a row only sets values.
+                    EarthquakeAdapter.prepareEarthquakeData(getContext(), downloaded);
+
+                    // Laid out before being held, so the held size accounts for the rows.
+                    if (mFlatRows) {
+                        EarthquakeRowView.prepareLayouts(getContext(), downloaded);
+                    }
+                    if (downloaded != null) {
+                        EarthquakeResultCache.put(query, downloaded);
+                        EarthquakeQueryEngine.load(query, downloaded);
+                    }
+                    earthquakes = downloaded;
+                } else if (mFlatRows) {
+                    // Lays out rows for the current width and text size.
+                    EarthquakeRowView.prepareLayouts(getContext(), earthquakes);
+                }
 
-                // Parsing JSON response to an ArrayList of type Earthquake.
-                return JSONUtils.getEarthquakes(jsonResponse);
+                // Saved once the list is shown, rather than delaying it.
+                if (earthquakes != null && earthquakes.size() > 0) {
+                    persist(query, new ArrayList<>(earthquakes));
+                }
+                return earthquakes;
+            }
+
+            /**
+             * Writes "earthquakes" to the snapshot and the widgets in the persistence lane.
+             */
+            private void persist(EarthquakeQuery query, List<Earthquake> earthquakes) {
+                Context context = getContext();
+                BackgroundScheduler.getDefault().execute(BackgroundScheduler.LANE_PERSISTENCE,
+                        TAG_PERSIST, new Runnable() {
+                    @Override
+                    public void run() {
+                        // Next launch shows these straight from the snapshot.
+                        if (EarthquakeSnapshot.write(EarthquakeSnapshot.getFile(context),
+                                query.getKey(), earthquakes)) {
+                            // Apps reading the listed earthquakes requery them.
+                            EarthquakeContentProvider.notifyChange(context);
+                        }
+
+                        // Home-screen widgets get refreshed only if what they show changed.
+                        EarthquakeWidgetProvider.update(context, earthquakes);
+                    }
+                });
+            }
+
+            /**
+             * @return Mainshocks heading the sequences of "query", or null if the earthquakes
+             * could not be downloaded.
+             */
+            private List<Earthquake> loadSequences(EarthquakeQuery query) {
+                List<AftershockSequence> sequences = EarthquakeRepository.getSequences(query);
+                if (sequences == null) {
+                    return null;
+                }
+
+                // Earthquakes of collapsed sequences get bound once expanded, rows are laid
+                // out lazily then.
+                List<Earthquake> earthquakes = new ArrayList<>();
+                for (AftershockSequence sequence : sequences) {
+                    earthquakes.addAll(sequence.getEarthquakes());
+                }
+                EarthquakeAdapter.prepareEarthquakeData(getContext(), earthquakes);
+                EarthquakeAdapter.prepareSequenceData(getContext(), sequences);
+                EarthquakeWidgetProvider.update(getContext(), earthquakes);
+                return new AftershockSequence.HeadList(sequences);
+            }
+
+            /**
+             * @return Earthquakes of "query" from the preferred event service, indexed but not
+             * decoded, or null if it offers no "geojson" format or the request failed.
+             */
+            private List<Earthquake> loadIndexed(EarthquakeQuery query) {
+                EarthquakeProvider provider = EarthquakeFederation.getDefault()
+                        .getPreferredProvider();
+                if (!(provider instanceof FdsnProvider)) {
+                    return null;
+                }
+                return ((FdsnProvider) provider).getIndexedEarthquakes(query, getContext());
+            }
+
+            /**
+             * @return Listener showing the earthquakes of "query" as they are decoded, up to
+             * the number the query shows.
+             */
+            private EarthquakeChunkListener newChunkListener(EarthquakeQuery query) {
+                int generation = mDownloadGeneration;
+                return new EarthquakeChunkListener() {
+
+                    // Number of earthquakes handed to the list so far.
+                    private int mPosted;
+
+                    @Override
+                    public void onChunk(List<Earthquake> earthquakes) {
+                        int count = Math.min(earthquakes.size(), query.getLimit() - mPosted);
+                        if (count <= 0) {
+                            return;
+                        }
+                        mPosted += count;
+
+                        // Rows are bind-ready before reaching the main thread.
+                        List<Earthquake> rows = new ArrayList<>(earthquakes.subList(0, count));
+                        EarthquakeAdapter.prepareEarthquakeData(getContext(), rows);
+                        if (mFlatRows) {
+                            EarthquakeRowView.prepareLayouts(getContext(), rows);
+                        }
+                        postEarthquakes(generation, rows);
+                    }
+                };
             }
 
             @Override
-            public void deliverResult(@Nullable ArrayList<Earthquake> data) {
+            public void deliverResult(@Nullable List<Earthquake> data) {
                 // Caching the downloaded earthquake info.
                 if (data != null && data.size() > 0) {
                     mEarthquakes = data;
@@ -230,11 +1097,20 @@ public class MainActivity extends AppCompatActivity implements
     }
 
     @Override
-    public void onLoadFinished(@NonNull Loader<ArrayList<Earthquake>> loader,
-                               ArrayList<Earthquake> data) {
+    public void onLoadFinished(@NonNull Loader<List<Earthquake>> loader,
+                               List<Earthquake> data) {
+        // Complete list replaces whatever got shown while downloading.
+        dropPendingEarthquakes();
+
         // Hide the progress indicator.
         mBinding.progressBar.setVisibility(View.GONE);
 
+        if ((data == null || data.size() == 0) && mShowingSnapshot) {
+            // Keeps showing the snapshot of the last launch.
+            return;
+        }
+        mShowingSnapshot = false;
+
         if (data == null || data.size() == 0) {
             // Check for internet connectivity.
             if (!Variables.isNetworkConnected) {
@@ -246,6 +1122,20 @@ public class MainActivity extends AppCompatActivity implements
             showEarthquakeData();
             // Notifying RecyclerView that changes to the adapter are made.
             mAdapter.setEarthquakeData(data);
+
+            // Holds the earthquakes of every profile ready, once the visible list is shown.
+            if (!mProfilesRefreshed) {
+                mProfilesRefreshed = true;
+                QueryProfiles.refreshAll(this);
+            }
+
+            // The list is idle once laid out, so the first screenful gets prefetched.
+            mBinding.recyclerEarthquake.post(new Runnable() {
+                @Override
+                public void run() {
+                    prefetchDetailsNearViewport();
+                }
+            });
         }
     }
 
@@ -253,19 +1143,35 @@ public class MainActivity extends AppCompatActivity implements
     protected void onDestroy() {
         super.onDestroy();
 
+        // Frame callbacks outlive the Activity otherwise.
+        dropPendingEarthquakes();
+
+        // Progress dialog of an export goes with the Activity, the export goes on for the one
+        // recreated, and gets cancelled by "mExportModel" only once the Activity is finishing.
+        EarthquakeExporter.Export export = mExportModel.getExport();
+        if (export != null) {
+            export.setListener(null);
+        }
+        if (mExportDialog != null) {
+            mExportDialog.dismiss();
+            mExportDialog = null;
+        }
+
         // Unregistering the OnSharedPreferenceChangeListener
         PreferenceManager.getDefaultSharedPreferences(this)
                 .unregisterOnSharedPreferenceChangeListener(this);
     }
 
     @Override
-    public void onLoaderReset(@NonNull Loader<ArrayList<Earthquake>> loader) {
+    public void onLoaderReset(@NonNull Loader<List<Earthquake>> loader) {
         // Empty the EarthquakeAdapter.
         mAdapter.setEarthquakeData(null);
     }
 
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-        startDownloadingNewEarthquakeData();
+        // Preferences changed together restart the Loader once.
+        mBinding.getRoot().removeCallbacks(mRestartLoader);
+        mBinding.getRoot().post(mRestartLoader);
     }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.basic.quake_report;
+
+import android.app.Application;
+
+import com.basic.quake_report.utils.AlertRules;
+import com.basic.quake_report.utils.EarthquakeResultCache;
+import com.basic.quake_report.utils.HistoryBackfill;
+
+/**
+ * Sets up what has to run for as long as the process does, whichever component started it.
+ */
+public class QuakeReportApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Newly synced earthquakes are checked against the alert rules from the start.
+        AlertRules.install(this);
+
+        // Downloaded history answers the list in place of the event services.
+        HistoryBackfill.install(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // Held results shrink rather than getting the process killed.
+        EarthquakeResultCache.trimMemory(level);
+    }
+}
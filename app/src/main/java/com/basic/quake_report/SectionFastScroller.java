@@ -0,0 +1,237 @@
+package com.basic.quake_report;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.basic.quake_report.utils.SectionIndex;
+
+/**
+ * Rail along the edge of {@link R.id#recycler_earthquake} that jumps to a section of the
+ * {@link EarthquakeAdapter}, i.e. a day or a magnitude band. Every section gets an equal share
+ * of the rail, and while it is dragged a bubble tells the section it is on.
+ * <p>
+ * Touches map to a section and to its first row through the adapter's {@link SectionIndex}, so
+ * nothing is counted or searched linearly however long the list is.
+ */
+public class SectionFastScroller extends View {
+
+    // List scrolled by the rail.
+    private RecyclerView mRecyclerView;
+
+    // Adapter whose sections the rail jumps to.
+    private EarthquakeAdapter mAdapter;
+
+    // Draws the track.
+    private final Paint mTrackPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    // Draws the thumb and the bubble.
+    private final Paint mThumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    // Draws the label of the bubble.
+    private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    // Bounds of the bubble, reused on every draw.
+    private final RectF mBubble = new RectF();
+
+    // Width of the track and of the thumb.
+    private final float mTrackWidth;
+
+    // Height of the thumb.
+    private final float mThumbHeight;
+
+    // Space around the label of the bubble.
+    private final float mBubblePadding;
+
+    // Section the rail is on.
+    private int mSection;
+
+    // Whether the rail is being dragged.
+    private boolean mDragging;
+
+    public SectionFastScroller(Context context) {
+        this(context, null);
+    }
+
+    public SectionFastScroller(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        mTrackWidth = getResources().getDimension(R.dimen.fast_scroll_track_width);
+        mThumbHeight = getResources().getDimension(R.dimen.fast_scroll_thumb_height);
+        mBubblePadding = getResources().getDimension(R.dimen.fast_scroll_bubble_padding);
+
+        mTrackPaint.setColor(ContextCompat.getColor(context, R.color.textColorEarthquakeDetails));
+        mThumbPaint.setColor(ContextCompat.getColor(context, R.color.colorAccent));
+        mTextPaint.setColor(ContextCompat.getColor(context, android.R.color.white));
+        mTextPaint.setTextSize(getResources().getDimension(R.dimen.text_size_section));
+        mTextPaint.setTextAlign(Paint.Align.RIGHT);
+    }
+
+    /**
+     * Links the rail to the list it scrolls.
+     *
+     * @param recyclerView It is the list, laid out by a {@link LinearLayoutManager}.
+     * @param adapter      It is the adapter of the list.
+     */
+    public void attach(RecyclerView recyclerView, EarthquakeAdapter adapter) {
+        mRecyclerView = recyclerView;
+        mAdapter = adapter;
+
+        // Thumb follows the section at the top of the list.
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (!mDragging && updateSection()) {
+                    invalidate();
+                }
+            }
+        });
+
+        // Rail is hidden unless there are sections to jump between.
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                updateVisibility();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                updateVisibility();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                updateVisibility();
+            }
+        });
+        updateVisibility();
+    }
+
+    /**
+     * Shows the rail only when the list has more than one section.
+     */
+    private void updateVisibility() {
+        SectionIndex index = mAdapter.getSectionIndex();
+        setVisibility(index != null && index.getSectionCount() > 1 ? VISIBLE : GONE);
+        updateSection();
+        invalidate();
+    }
+
+    /**
+     * Moves the thumb to the section of the first row shown.
+     *
+     * @return Whether the thumb moved.
+     */
+    private boolean updateSection() {
+        SectionIndex index = mAdapter.getSectionIndex();
+        LinearLayoutManager layoutManager =
+                (LinearLayoutManager) mRecyclerView.getLayoutManager();
+        if (index == null || layoutManager == null) {
+            return false;
+        }
+
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int section = first == RecyclerView.NO_POSITION ? 0 : index.getSectionForPosition(first);
+        boolean moved = section != mSection;
+        mSection = section;
+        return moved;
+    }
+
+    @SuppressLint("ClickableViewAccessibility")
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        SectionIndex index = mAdapter == null ? null : mAdapter.getSectionIndex();
+        if (index == null || index.getSectionCount() == 0) {
+            return false;
+        }
+
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                // Only touches on the rail itself start a drag.
+                if (event.getX() < getWidth() - 3 * mTrackWidth - getPaddingRight()) {
+                    return false;
+                }
+                mDragging = true;
+                getParent().requestDisallowInterceptTouchEvent(true);
+                // Falls through to jump to the section touched.
+            case MotionEvent.ACTION_MOVE:
+                jumpTo(index, getSectionAt(index, event.getY()));
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mDragging = false;
+                invalidate();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return Section whose share of the rail holds "y".
+     */
+    private int getSectionAt(SectionIndex index, float y) {
+        float fraction = (y - getPaddingTop()) / (getHeight() - getPaddingTop() -
+                getPaddingBottom());
+        int section = (int) (fraction * index.getSectionCount());
+        return Math.max(0, Math.min(index.getSectionCount() - 1, section));
+    }
+
+    /**
+     * Scrolls the list so the first row of "section" is at its top.
+     */
+    private void jumpTo(SectionIndex index, int section) {
+        mSection = section;
+        ((LinearLayoutManager) mRecyclerView.getLayoutManager())
+                .scrollToPositionWithOffset(index.getPositionForSection(section), 0);
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        SectionIndex index = mAdapter == null ? null : mAdapter.getSectionIndex();
+        if (index == null || index.getSectionCount() == 0) {
+            return;
+        }
+
+        // Draws the track.
+        float right = getWidth() - getPaddingRight();
+        float left = right - mTrackWidth;
+        float top = getPaddingTop();
+        float length = getHeight() - getPaddingTop() - getPaddingBottom();
+        float radius = mTrackWidth / 2f;
+        canvas.drawRoundRect(left, top, right, top + length, radius, radius, mTrackPaint);
+
+        // Draws the thumb in the middle of the share of the section.
+        int section = Math.min(mSection, index.getSectionCount() - 1);
+        float share = length / index.getSectionCount();
+        float thumbTop = Math.max(top, Math.min(top + length - mThumbHeight,
+                top + share * (section + 0.5f) - mThumbHeight / 2f));
+        canvas.drawRoundRect(left, thumbTop, right, thumbTop + mThumbHeight, radius, radius,
+                mThumbPaint);
+
+        if (mDragging) {
+            // Draws the bubble telling the section, left of the thumb.
+            String label = index.getLabel(section);
+            float textRight = left - 2 * mBubblePadding;
+            float baseline = thumbTop + (mThumbHeight - mTextPaint.ascent() -
+                    mTextPaint.descent()) / 2f;
+            mBubble.set(textRight - mTextPaint.measureText(label) - mBubblePadding,
+                    baseline + mTextPaint.ascent() - mBubblePadding, textRight + mBubblePadding,
+                    baseline + mTextPaint.descent() + mBubblePadding);
+            canvas.drawRoundRect(mBubble, mBubblePadding, mBubblePadding, mThumbPaint);
+            canvas.drawText(label, textRight, baseline, mTextPaint);
+        }
+    }
+}
@@ -11,6 +11,9 @@ import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
 import androidx.preference.PreferenceScreen;
 
+import com.basic.quake_report.utils.EarthquakeQuery;
+import com.basic.quake_report.utils.SpeculativePrefetch;
+
 /**
  * Allows user to change "Order By" and "Minimum Magnitude" of Earthquakes grabbed from the USGS
  * web-servers.
@@ -103,6 +106,10 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
 
         if (preference != null) {
             setPreferenceSummary(preference, sharedPreferences.getString(key, ""));
+
+            // List shows the saved settings on return, so their earthquakes get loaded now.
+            SpeculativePrefetch.prefetch(requireContext(),
+                    EarthquakeQuery.fromPreferences(requireContext()));
         }
     }
 
@@ -132,6 +139,13 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
                 if (minMag > 8) {
                     showToast(R.string.toast_max_min_mag);
                 } else {
+                    // Loads the earthquakes of the new value while the user is still here.
+                    String orderBy = preference.getSharedPreferences().getString(
+                            getString(R.string.pref_order_by_value),
+                            getString(R.string.pref_order_by_default));
+                    SpeculativePrefetch.prefetch(requireContext(),
+                            EarthquakeQuery.forList(requireContext(), minMag, orderBy));
+
                     // Entered minimum magnitude is within limits. Value entered can be saved.
                     return true;
                 }
@@ -0,0 +1,119 @@
+package com.basic.quake_report;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.basic.quake_report.utils.SectionIndex;
+
+/**
+ * Draws a header above the first row of every section of the {@link EarthquakeAdapter}, and
+ * keeps the header of the section at the top of the list pinned until the next one pushes it
+ * away.
+ * <p>
+ * Headers are drawn rather than bound as rows, so adapter positions stay those of the
+ * earthquakes. Every lookup is a binary search of the adapter's {@link SectionIndex}.
+ */
+public class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
+
+    // Adapter whose sections are drawn.
+    private final EarthquakeAdapter mAdapter;
+
+    // Height of a header.
+    private final int mHeight;
+
+    // Space left of the label.
+    private final int mPaddingHorizontal;
+
+    // Fills a header.
+    private final Paint mBackgroundPaint = new Paint();
+
+    // Draws the label of a header.
+    private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    /**
+     * @param context It is used to resolve sizes and colors.
+     * @param adapter It is the adapter whose sections are drawn.
+     */
+    public StickyHeaderDecoration(Context context, EarthquakeAdapter adapter) {
+        mAdapter = adapter;
+        mHeight = context.getResources().getDimensionPixelSize(R.dimen.section_header_height);
+        mPaddingHorizontal = context.getResources().getDimensionPixelSize(R.dimen.padding_default);
+
+        mBackgroundPaint.setColor(ContextCompat.getColor(context, R.color.colorBackground));
+        mTextPaint.setColor(ContextCompat.getColor(context, R.color.colorPrimary));
+        mTextPaint.setTextSize(context.getResources().getDimension(R.dimen.text_size_section));
+        mTextPaint.setFakeBoldText(true);
+    }
+
+    @Override
+    public void getItemOffsets(@NonNull Rect outRect, @NonNull View view,
+                               @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        SectionIndex index = mAdapter.getSectionIndex();
+        int position = parent.getChildAdapterPosition(view);
+
+        // Leaves room for the header above the first row of a section.
+        if (index != null && position != RecyclerView.NO_POSITION &&
+                index.isSectionStart(position)) {
+            outRect.set(0, mHeight, 0, 0);
+        } else {
+            outRect.setEmpty();
+        }
+    }
+
+    @Override
+    public void onDrawOver(@NonNull Canvas c, @NonNull RecyclerView parent,
+                           @NonNull RecyclerView.State state) {
+        SectionIndex index = mAdapter.getSectionIndex();
+        if (index == null || index.getSectionCount() == 0 || parent.getChildCount() == 0) {
+            return;
+        }
+
+        // Headers scrolling with their section.
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            int position = parent.getChildAdapterPosition(child);
+            if (position != RecyclerView.NO_POSITION && index.isSectionStart(position)) {
+                drawHeader(c, parent, index.getLabel(index.getSectionForPosition(position)),
+                        child.getTop() + (int) child.getTranslationY() - mHeight);
+            }
+        }
+
+        // Header of the section at the top, pinned.
+        View first = parent.getChildAt(0);
+        int position = parent.getChildAdapterPosition(first);
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        int section = index.getSectionForPosition(position);
+        int top = 0;
+
+        // Next section's header pushes the pinned one up as it reaches it.
+        if (section + 1 < index.getSectionCount()) {
+            int next = index.getPositionForSection(section + 1);
+            RecyclerView.ViewHolder nextHolder = parent.findViewHolderForAdapterPosition(next);
+            if (nextHolder != null) {
+                top = Math.min(0, nextHolder.itemView.getTop() - 2 * mHeight);
+            }
+        }
+        drawHeader(c, parent, index.getLabel(section), top);
+    }
+
+    /**
+     * Draws the header labelled "label" with its top at "top".
+     */
+    private void drawHeader(Canvas c, RecyclerView parent, String label, int top) {
+        c.drawRect(parent.getPaddingLeft(), top, parent.getWidth() - parent.getPaddingRight(),
+                top + mHeight, mBackgroundPaint);
+
+        // Label is centred vertically.
+        float baseline = top + (mHeight - mTextPaint.ascent() - mTextPaint.descent()) / 2f;
+        c.drawText(label, parent.getPaddingLeft() + mPaddingHorizontal, baseline, mTextPaint);
+    }
+}
@@ -0,0 +1,313 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Groups earthquakes into mainshock / aftershock sequences by the windows of Gardner and
+ * Knopoff (1974): an earthquake belongs to the sequence of a larger one when it is within a
+ * distance and a time after it, both growing with the larger one's magnitude.
+ * <p>
+ * Earthquakes are swept once in time order. A sequence is open while its time window lasts,
+ * and is listed in every cell of a {@link #CELL_DEGREES} degree grid its distance window
+ * touches, so an earthquake is only checked against the open sequences of its own cell. Open
+ * sequences are closed in the order their windows end, which keeps grouping N earthquakes at
+ * about O(N log N). Earthquakes later than the ones swept are added without sweeping again.
+ */
+public class AftershockClusterer {
+
+    // Size of a cell in degrees of latitude and longitude, about the largest distance window.
+    private static final double CELL_DEGREES = 1.0;
+
+    // Number of cells from the south to the north pole.
+    private static final int LATITUDE_CELLS = (int) (180 / CELL_DEGREES);
+
+    // Number of cells around the globe.
+    private static final int LONGITUDE_CELLS = (int) (360 / CELL_DEGREES);
+
+    // Length of a degree of latitude in kilometres.
+    private static final double KM_PER_DEGREE = 111.2;
+
+    // Magnitude from which the time window grows more slowly.
+    private static final double LARGE_MAGNITUDE = 6.5;
+
+    // Length of a day in milliseconds.
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // Orders open sequences by the end of their time window, the earliest first.
+    private static final Comparator<WindowEnd> BY_WINDOW_END = new Comparator<WindowEnd>() {
+        @Override
+        public int compare(WindowEnd first, WindowEnd second) {
+            return Long.compare(first.mEndMillis, second.mEndMillis);
+        }
+    };
+
+    // Open sequences listed in every cell their distance window touches, null if none.
+    private final List<List<AftershockSequence>> mCells =
+            new ArrayList<>(Collections.<List<AftershockSequence>>nCopies(
+                    LATITUDE_CELLS * LONGITUDE_CELLS, null));
+
+    // Cells each open sequence is listed in.
+    private final IdentityHashMap<AftershockSequence, int[]> mOpen = new IdentityHashMap<>();
+
+    // Open sequences by the end of their time window. A sequence whose mainshock changed is
+    // queued again, and its former entry is skipped.
+    private final PriorityQueue<WindowEnd> mWindowEnds = new PriorityQueue<>(64, BY_WINDOW_END);
+
+    // Every sequence, in the order their first earthquake happened.
+    private final ArrayList<AftershockSequence> mSequences = new ArrayList<>();
+
+    // Earthquakes grouped so far.
+    private final Set<Earthquake> mSwept =
+            Collections.newSetFromMap(new IdentityHashMap<Earthquake, Boolean>());
+
+    // Time of the latest earthquake grouped.
+    private long mSweepMillis = Long.MIN_VALUE;
+
+    /**
+     * End of the time window of an open sequence, as it was when the sequence was queued.
+     */
+    private static class WindowEnd {
+
+        // End of the time window in milliseconds.
+        private final long mEndMillis;
+
+        // Sequence the window is of.
+        private final AftershockSequence mSequence;
+
+        private WindowEnd(AftershockSequence sequence) {
+            mEndMillis = sequence.getWindowEndMillis();
+            mSequence = sequence;
+        }
+    }
+
+    /**
+     * @param magnitude It is the magnitude of a mainshock.
+     * @return Time after the mainshock its aftershocks happen within, in milliseconds.
+     */
+    static long getWindowMillis(double magnitude) {
+        double days = magnitude >= LARGE_MAGNITUDE ?
+                Math.pow(10, 0.032 * magnitude + 2.7389) :
+                Math.pow(10, 0.5409 * magnitude - 0.547);
+        return (long) (days * DAY_MILLIS);
+    }
+
+    /**
+     * @param magnitude It is the magnitude of a mainshock.
+     * @return Distance from the mainshock its aftershocks happen within, in kilometres.
+     */
+    static double getWindowRadiusKm(double magnitude) {
+        return Math.pow(10, 0.1238 * magnitude + 0.983);
+    }
+
+    /**
+     * Groups the earthquakes not grouped yet. When all of them are later than the ones grouped
+     * they are simply added, otherwise every earthquake is grouped again.
+     *
+     * @param earthquakes It is every earthquake to group, oldest first.
+     */
+    public synchronized void update(List<Earthquake> earthquakes) {
+        int swept = 0;
+        boolean later = true;
+        List<Earthquake> added = new ArrayList<>();
+        for (Earthquake earthquake : earthquakes) {
+            if (mSwept.contains(earthquake)) {
+                swept++;
+            } else {
+                later &= earthquake.getTimeMillis() >= mSweepMillis;
+                added.add(earthquake);
+            }
+        }
+
+        // Earthquakes dropped, or added among the grouped ones, change the sequences before.
+        if (!later || swept != mSwept.size()) {
+            clear();
+            added = earthquakes;
+        }
+        for (Earthquake earthquake : added) {
+            add(earthquake);
+        }
+    }
+
+    /**
+     * @return Every sequence, in the order their first earthquake happened.
+     */
+    public synchronized List<AftershockSequence> getSequences() {
+        return new ArrayList<>(mSequences);
+    }
+
+    /**
+     * Forgets every earthquake grouped.
+     */
+    private void clear() {
+        Collections.fill(mCells, null);
+        mOpen.clear();
+        mWindowEnds.clear();
+        mSequences.clear();
+        mSwept.clear();
+        mSweepMillis = Long.MIN_VALUE;
+    }
+
+    /**
+     * Adds "earthquake" to the sequence whose windows it is in, preferring the largest
+     * mainshock, or starts a sequence of its own.
+     */
+    private void add(Earthquake earthquake) {
+        mSwept.add(earthquake);
+        mSweepMillis = earthquake.getTimeMillis();
+        closeBefore(mSweepMillis);
+
+        if (Double.isNaN(earthquake.getLatitude()) || Double.isNaN(earthquake.getLongitude())) {
+            // Without an epicentre it cannot be near any other.
+            mSequences.add(new AftershockSequence(earthquake));
+            return;
+        }
+
+        AftershockSequence sequence = null;
+        List<AftershockSequence> candidates =
+                mCells.get(getCell(earthquake.getLatitude(), earthquake.getLongitude()));
+        if (candidates != null) {
+            for (AftershockSequence candidate : candidates) {
+                if ((sequence == null || candidate.getMainshock().getMagnitude() >
+                        sequence.getMainshock().getMagnitude()) &&
+                        isInWindows(candidate, earthquake)) {
+                    sequence = candidate;
+                }
+            }
+        }
+
+        if (sequence == null) {
+            sequence = new AftershockSequence(earthquake);
+            mSequences.add(sequence);
+            open(sequence);
+        } else {
+            sequence.add(earthquake);
+            if (earthquake.getMagnitude() > sequence.getMainshock().getMagnitude()) {
+                // The larger earthquake was a mainshock, the ones before were foreshocks.
+                close(sequence);
+                sequence.setMainshock(earthquake);
+                open(sequence);
+            }
+        }
+    }
+
+    /**
+     * @return Whether "earthquake" is within the time and distance windows of the mainshock.
+     */
+    private static boolean isInWindows(AftershockSequence sequence, Earthquake earthquake) {
+        return earthquake.getTimeMillis() <= sequence.getWindowEndMillis() &&
+                EventDeduplicator.distanceKm(sequence.getMainshock(), earthquake) <=
+                        sequence.getWindowRadiusKm();
+    }
+
+    /**
+     * Lists "sequence" in the cells its distance window touches, until its time window ends.
+     */
+    private void open(AftershockSequence sequence) {
+        int[] cells = getCells(sequence.getMainshock(), sequence.getWindowRadiusKm());
+        for (int cell : cells) {
+            if (mCells.get(cell) == null) {
+                mCells.set(cell, new ArrayList<AftershockSequence>());
+            }
+            mCells.get(cell).add(sequence);
+        }
+        mOpen.put(sequence, cells);
+        mWindowEnds.add(new WindowEnd(sequence));
+    }
+
+    /**
+     * Removes "sequence" from the cells it is listed in.
+     */
+    private void close(AftershockSequence sequence) {
+        int[] cells = mOpen.remove(sequence);
+        if (cells == null) {
+            return;
+        }
+        for (int cell : cells) {
+            List<AftershockSequence> listed = mCells.get(cell);
+            listed.remove(sequence);
+            if (listed.isEmpty()) {
+                mCells.set(cell, null);
+            }
+        }
+    }
+
+    /**
+     * Closes the sequences whose time window ended before "timeMillis".
+     */
+    private void closeBefore(long timeMillis) {
+        while (!mWindowEnds.isEmpty() && mWindowEnds.peek().mEndMillis < timeMillis) {
+            WindowEnd windowEnd = mWindowEnds.poll();
+
+            // Skips the entry left by a former mainshock.
+            if (windowEnd.mSequence.getWindowEndMillis() == windowEnd.mEndMillis) {
+                close(windowEnd.mSequence);
+            }
+        }
+    }
+
+    /**
+     * @return Every cell touched by the circle of "radiusKm" around the epicentre of
+     * "earthquake".
+     */
+    private static int[] getCells(Earthquake earthquake, double radiusKm) {
+        double radiusDegrees = radiusKm / KM_PER_DEGREE;
+        double south = Math.max(-90, earthquake.getLatitude() - radiusDegrees);
+        double north = Math.min(90, earthquake.getLatitude() + radiusDegrees);
+
+        // A degree of longitude is shortest at the latitude closest to a pole.
+        double poleward = Math.max(Math.abs(south), Math.abs(north));
+        double longitudeDegrees = poleward >= 89.9 ? 360 :
+                radiusDegrees / Math.cos(Math.toRadians(poleward));
+
+        int firstRow = getRow(south);
+        int lastRow = getRow(north);
+        int firstColumn;
+        int lastColumn;
+        if (longitudeDegrees >= 180) {
+            firstColumn = 0;
+            lastColumn = LONGITUDE_CELLS - 1;
+        } else {
+            firstColumn = (int) Math.floor(
+                    (earthquake.getLongitude() - longitudeDegrees + 180) / CELL_DEGREES);
+            lastColumn = (int) Math.floor(
+                    (earthquake.getLongitude() + longitudeDegrees + 180) / CELL_DEGREES);
+            lastColumn = Math.min(lastColumn, firstColumn + LONGITUDE_CELLS - 1);
+        }
+
+        int[] cells = new int[(lastRow - firstRow + 1) * (lastColumn - firstColumn + 1)];
+        int count = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                // Windows crossing the antimeridian wrap around.
+                int wrapped = ((column % LONGITUDE_CELLS) + LONGITUDE_CELLS) % LONGITUDE_CELLS;
+                cells[count++] = row * LONGITUDE_CELLS + wrapped;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * @return Row of the cells holding "latitude".
+     */
+    private static int getRow(double latitude) {
+        return Math.min(LATITUDE_CELLS - 1, Math.max(0,
+                (int) Math.floor((latitude + 90) / CELL_DEGREES)));
+    }
+
+    /**
+     * @return Cell holding the point.
+     */
+    private static int getCell(double latitude, double longitude) {
+        int column = (int) Math.floor((longitude + 180) / CELL_DEGREES);
+        column = ((column % LONGITUDE_CELLS) + LONGITUDE_CELLS) % LONGITUDE_CELLS;
+        return getRow(latitude) * LONGITUDE_CELLS + column;
+    }
+}
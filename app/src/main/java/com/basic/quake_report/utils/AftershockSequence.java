@@ -0,0 +1,183 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Earthquakes grouped into one sequence by {@link AftershockClusterer}: the largest of them, the
+ * mainshock, and the foreshocks and aftershocks inside its time and distance windows.
+ */
+public class AftershockSequence {
+
+    // Largest earthquake of the sequence.
+    private Earthquake mainshock;
+
+    // Every earthquake of the sequence, the mainshock included, oldest first.
+    private final ArrayList<Earthquake> earthquakes = new ArrayList<>();
+
+    // End of the time window of the mainshock, as a Unix-Timestamp in milliseconds.
+    private long windowEndMillis;
+
+    // Radius of the distance window of the mainshock in kilometres.
+    private double windowRadiusKm;
+
+    // Whether this is a copy handed out of the clusterer, which nothing may change.
+    private final boolean snapshot;
+
+    // Number of earthquakes of the sequence as the list shows it, set before it is shown.
+    private String countText;
+
+    /**
+     * @param mainshock It is the first earthquake of the sequence.
+     */
+    AftershockSequence(Earthquake mainshock) {
+        snapshot = false;
+        add(mainshock);
+        setMainshock(mainshock);
+    }
+
+    /**
+     * @param sequence It is the sequence copied.
+     */
+    private AftershockSequence(AftershockSequence sequence) {
+        snapshot = true;
+        mainshock = sequence.mainshock;
+        earthquakes.addAll(sequence.earthquakes);
+        windowEndMillis = sequence.windowEndMillis;
+        windowRadiusKm = sequence.windowRadiusKm;
+    }
+
+    /**
+     * @return A copy of the sequence as it is now, which earthquakes grouped later leave
+     * unchanged, so it can be shown while the clusterer keeps grouping.
+     */
+    AftershockSequence snapshot() {
+        return new AftershockSequence(this);
+    }
+
+    /**
+     * Adds an earthquake later than every other of the sequence.
+     */
+    void add(Earthquake earthquake) {
+        checkMutable();
+        earthquakes.add(earthquake);
+    }
+
+    /**
+     * Makes "mainshock" the mainshock, whose windows then bound the sequence.
+     */
+    void setMainshock(Earthquake mainshock) {
+        checkMutable();
+        this.mainshock = mainshock;
+        windowEndMillis = mainshock.getTimeMillis() +
+                AftershockClusterer.getWindowMillis(mainshock.getMagnitude());
+        windowRadiusKm = AftershockClusterer.getWindowRadiusKm(mainshock.getMagnitude());
+    }
+
+    /**
+     * @return The largest earthquake of the sequence.
+     */
+    public Earthquake getMainshock() {
+        return mainshock;
+    }
+
+    /**
+     * @return Every earthquake of the sequence, the mainshock included, oldest first.
+     */
+    public List<Earthquake> getEarthquakes() {
+        return Collections.unmodifiableList(earthquakes);
+    }
+
+    /**
+     * @return Number of earthquakes of the sequence, the mainshock included.
+     */
+    public int size() {
+        return earthquakes.size();
+    }
+
+    /**
+     * @return Time of the latest earthquake of the sequence.
+     */
+    public long getLatestMillis() {
+        return earthquakes.get(earthquakes.size() - 1).getTimeMillis();
+    }
+
+    /**
+     * @return Number of earthquakes of the sequence as the list shows it.
+     */
+    public String getCountText() {
+        return countText;
+    }
+
+    /**
+     * Sets the number of earthquakes as the list shows it, which a snapshot may have too as it
+     * leaves the sequence unchanged.
+     *
+     * @param countText It is the formatted number of earthquakes of the sequence.
+     */
+    public void setCountText(String countText) {
+        this.countText = countText;
+    }
+
+    /**
+     * Fails if the sequence is a snapshot, which is shown and so must not change.
+     */
+    private void checkMutable() {
+        if (snapshot) {
+            throw new UnsupportedOperationException("Snapshot of a sequence");
+        }
+    }
+
+    /**
+     * @return End of the time window of the mainshock.
+     */
+    long getWindowEndMillis() {
+        return windowEndMillis;
+    }
+
+    /**
+     * @return Radius of the distance window of the mainshock in kilometres.
+     */
+    double getWindowRadiusKm() {
+        return windowRadiusKm;
+    }
+
+    /**
+     * Earthquakes heading a list of sequences i.e. their mainshocks, so a grouped list can be
+     * handed around as a list of earthquakes. The sequence of each stays reachable.
+     */
+    public static class HeadList extends AbstractList<Earthquake> {
+
+        // Sequences in the order shown.
+        private final List<AftershockSequence> mSequences;
+
+        /**
+         * @param sequences Sequences in the order shown.
+         */
+        public HeadList(List<AftershockSequence> sequences) {
+            mSequences = sequences;
+        }
+
+        @Override
+        public Earthquake get(int index) {
+            return mSequences.get(index).getMainshock();
+        }
+
+        @Override
+        public int size() {
+            return mSequences.size();
+        }
+
+        /**
+         * @param index Position of the sequence.
+         * @return The sequence headed by the earthquake at "index".
+         */
+        public AftershockSequence getSequence(int index) {
+            return mSequences.get(index);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.basic.quake_report.utils;
+
+/**
+ * A condition raising a notification for a newly synced earthquake, e.g. "M5.5+ within 300 km of
+ * home" or "any earthquake within 500 km of a point with a tsunami advisory".
+ */
+public class AlertRule {
+
+    // Name shown in the notification.
+    private final String name;
+
+    // Minimum magnitude of the earthquakes matched.
+    private final double minMagnitude;
+
+    // Latitude of the centre of the area matched.
+    private final double latitude;
+
+    // Longitude of the centre of the area matched.
+    private final double longitude;
+
+    // Radius of the area matched in kilometres, or NaN to match earthquakes anywhere.
+    private final double radiusKm;
+
+    // Whether only earthquakes having a tsunami advisory are matched.
+    private final boolean tsunamiOnly;
+
+    public AlertRule(String name, double minMagnitude, double latitude, double longitude,
+                     double radiusKm, boolean tsunamiOnly) {
+        this.name = name;
+        this.minMagnitude = minMagnitude;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radiusKm = radiusKm;
+        this.tsunamiOnly = tsunamiOnly;
+    }
+
+    /**
+     * @return Name shown in the notification.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Minimum magnitude of the earthquakes matched.
+     */
+    public double getMinMagnitude() {
+        return minMagnitude;
+    }
+
+    /**
+     * @return Latitude of the centre of the area matched.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return Longitude of the centre of the area matched.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return Radius of the area matched in kilometres, or NaN if earthquakes anywhere match.
+     */
+    public double getRadiusKm() {
+        return radiusKm;
+    }
+
+    /**
+     * @return Whether earthquakes anywhere are matched.
+     */
+    public boolean isGlobal() {
+        return Double.isNaN(radiusKm);
+    }
+
+    /**
+     * @return Whether only earthquakes having a tsunami advisory are matched.
+     */
+    public boolean isTsunamiOnly() {
+        return tsunamiOnly;
+    }
+}
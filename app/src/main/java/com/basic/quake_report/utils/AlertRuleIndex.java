@@ -0,0 +1,248 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the {@link AlertRule} matching an earthquake without checking every rule.
+ * <p>
+ * The globe is divided into cells of {@link #CELL_DEGREES} degrees, and a rule having an area is
+ * listed in every cell its area touches. An earthquake is then only checked against the rules of
+ * its own cell and the rules matching anywhere. Within a cell, rules are ordered by their minimum
+ * magnitude, so the rules an earthquake is too weak for are never looked at either.
+ */
+public class AlertRuleIndex {
+
+    // Size of a cell in degrees of latitude and longitude.
+    private static final double CELL_DEGREES = 5.0;
+
+    // Number of cells from the south to the north pole.
+    private static final int LATITUDE_CELLS = (int) (180 / CELL_DEGREES);
+
+    // Number of cells around the globe.
+    private static final int LONGITUDE_CELLS = (int) (360 / CELL_DEGREES);
+
+    // Length of a degree of latitude in kilometres.
+    private static final double KM_PER_DEGREE = 111.2;
+
+    // Rules indexed.
+    private final List<AlertRule> mRules;
+
+    // Rules of every cell as indices into "mRules" by ascending min. mag., null if none.
+    private final int[][] mCellRules = new int[LATITUDE_CELLS * LONGITUDE_CELLS][];
+
+    // Min. mag. of the rules of every cell, in the order of "mCellRules".
+    private final double[][] mCellFloors = new double[LATITUDE_CELLS * LONGITUDE_CELLS][];
+
+    // Rules matching earthquakes anywhere by ascending min. mag.
+    private final int[] mGlobalRules;
+
+    // Min. mag. of the rules matching earthquakes anywhere.
+    private final double[] mGlobalFloors;
+
+    /**
+     * Builds the index. It is only done when the rules change.
+     *
+     * @param rules It is the rules to index.
+     */
+    public AlertRuleIndex(List<AlertRule> rules) {
+        mRules = new ArrayList<>(rules);
+
+        List<List<Integer>> cells = new ArrayList<>(mCellRules.length);
+        for (int i = 0; i < mCellRules.length; i++) {
+            cells.add(null);
+        }
+        List<Integer> global = new ArrayList<>();
+
+        for (int i = 0; i < mRules.size(); i++) {
+            AlertRule rule = mRules.get(i);
+            if (rule.isGlobal()) {
+                global.add(i);
+            } else {
+                for (int cell : getCells(rule)) {
+                    if (cells.get(cell) == null) {
+                        cells.set(cell, new ArrayList<>());
+                    }
+                    cells.get(cell).add(i);
+                }
+            }
+        }
+
+        for (int cell = 0; cell < mCellRules.length; cell++) {
+            if (cells.get(cell) != null) {
+                mCellRules[cell] = toSortedArray(cells.get(cell));
+                mCellFloors[cell] = getFloors(mCellRules[cell]);
+            }
+        }
+        mGlobalRules = toSortedArray(global);
+        mGlobalFloors = getFloors(mGlobalRules);
+    }
+
+    /**
+     * @return Rule indices ordered by ascending min. mag.
+     */
+    private int[] toSortedArray(List<Integer> indices) {
+        Collections.sort(indices, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return Double.compare(mRules.get(first).getMinMagnitude(),
+                        mRules.get(second).getMinMagnitude());
+            }
+        });
+
+        int[] sorted = new int[indices.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = indices.get(i);
+        }
+        return sorted;
+    }
+
+    /**
+     * @return Min. mag. of every rule of "indices".
+     */
+    private double[] getFloors(int[] indices) {
+        double[] floors = new double[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            floors[i] = mRules.get(indices[i]).getMinMagnitude();
+        }
+        return floors;
+    }
+
+    /**
+     * @return Every cell touched by the area of "rule".
+     */
+    private static List<Integer> getCells(AlertRule rule) {
+        double radiusDegrees = rule.getRadiusKm() / KM_PER_DEGREE;
+        double south = Math.max(-90, rule.getLatitude() - radiusDegrees);
+        double north = Math.min(90, rule.getLatitude() + radiusDegrees);
+
+        // A degree of longitude is shortest at the latitude closest to a pole.
+        double poleward = Math.max(Math.abs(south), Math.abs(north));
+        double longitudeDegrees = poleward >= 89.9 ? 360 :
+                radiusDegrees / Math.cos(Math.toRadians(poleward));
+
+        int firstRow = getRow(south);
+        int lastRow = getRow(north);
+        int firstColumn;
+        int lastColumn;
+        if (longitudeDegrees >= 180) {
+            firstColumn = 0;
+            lastColumn = LONGITUDE_CELLS - 1;
+        } else {
+            firstColumn = (int) Math.floor(
+                    (rule.getLongitude() - longitudeDegrees + 180) / CELL_DEGREES);
+            lastColumn = (int) Math.floor(
+                    (rule.getLongitude() + longitudeDegrees + 180) / CELL_DEGREES);
+            lastColumn = Math.min(lastColumn, firstColumn + LONGITUDE_CELLS - 1);
+        }
+
+        List<Integer> cells = new ArrayList<>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                // Areas crossing the antimeridian wrap around.
+                int wrapped = ((column % LONGITUDE_CELLS) + LONGITUDE_CELLS) % LONGITUDE_CELLS;
+                cells.add(row * LONGITUDE_CELLS + wrapped);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * @return Row of the cells holding "latitude".
+     */
+    private static int getRow(double latitude) {
+        return Math.min(LATITUDE_CELLS - 1, Math.max(0,
+                (int) Math.floor((latitude + 90) / CELL_DEGREES)));
+    }
+
+    /**
+     * @return Cell holding the point.
+     */
+    private static int getCell(double latitude, double longitude) {
+        int column = (int) Math.floor((longitude + 180) / CELL_DEGREES);
+        column = ((column % LONGITUDE_CELLS) + LONGITUDE_CELLS) % LONGITUDE_CELLS;
+        return getRow(latitude) * LONGITUDE_CELLS + column;
+    }
+
+    /**
+     * @param earthquake It is the earthquake to match.
+     * @return A rule matching "earthquake", or null if none does.
+     */
+    public AlertRule match(Earthquake earthquake) {
+        AlertRule rule = match(mGlobalRules, mGlobalFloors, earthquake);
+        if (rule != null || Double.isNaN(earthquake.getLatitude()) ||
+                Double.isNaN(earthquake.getLongitude())) {
+            return rule;
+        }
+
+        int cell = getCell(earthquake.getLatitude(), earthquake.getLongitude());
+        return match(mCellRules[cell], mCellFloors[cell], earthquake);
+    }
+
+    /**
+     * Checks "earthquake" against the rules of a cell it is strong enough for.
+     */
+    private AlertRule match(int[] rules, double[] floors, Earthquake earthquake) {
+        if (rules == null) {
+            return null;
+        }
+
+        // Rules up to "candidates" have a min. mag. the earthquake reaches.
+        int low = 0;
+        int high = floors.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (floors[middle] <= earthquake.getMagnitude()) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int candidates = low;
+
+        for (int i = 0; i < candidates; i++) {
+            AlertRule rule = mRules.get(rules[i]);
+            if (matches(rule, earthquake)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Whether "rule" matches "earthquake", checking every condition.
+     */
+    static boolean matches(AlertRule rule, Earthquake earthquake) {
+        if (earthquake.getMagnitude() < rule.getMinMagnitude() ||
+                (rule.isTsunamiOnly() && !earthquake.isTsunami())) {
+            return false;
+        }
+        return rule.isGlobal() || EventDeduplicator.distanceKm(rule.getLatitude(),
+                rule.getLongitude(), earthquake.getLatitude(), earthquake.getLongitude())
+                <= rule.getRadiusKm();
+    }
+
+    /**
+     * @return Whether a rule only matches earthquakes having a tsunami advisory, which only
+     * GeoJSON reports.
+     */
+    public boolean needsTsunamiFlag() {
+        for (AlertRule rule : mRules) {
+            if (rule.isTsunamiOnly()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether no rule is indexed.
+     */
+    public boolean isEmpty() {
+        return mRules.isEmpty();
+    }
+}
@@ -0,0 +1,248 @@
+package com.basic.quake_report.utils;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import com.basic.quake_report.Earthquake;
+import com.basic.quake_report.EarthquakeAdapter;
+import com.basic.quake_report.EarthquakeDetailActivity;
+import com.basic.quake_report.R;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Stores the user's {@link AlertRule}s, and notifies the user of every newly downloaded
+ * earthquake matching one of them.
+ * <p>
+ * Earthquakes are checked on the thread downloading them, through an {@link AlertRuleIndex}
+ * built only when the rules change, so the UI is never involved.
+ */
+public class AlertRules implements EarthquakeRepository.NewEarthquakesListener {
+
+    // Name of the SharedPreferences file holding the rules, apart from the settings.
+    private static final String PREFERENCES_NAME = "alert_rules";
+
+    // Key of the rules, one per line.
+    private static final String KEY_RULES = "rules";
+
+    // Key of the ids of the earthquakes already notified, one per line.
+    private static final String KEY_NOTIFIED = "notified";
+
+    // Separates the fields of a rule.
+    private static final String FIELD_SEPARATOR = "\t";
+
+    // Separates the rules, and the notified ids.
+    private static final String LINE_SEPARATOR = "\n";
+
+    // Number of notified ids remembered, so an earthquake is never notified twice.
+    private static final int MAX_NOTIFIED = 200;
+
+    // Earthquakes older than a day are history rather than news, and are never notified.
+    private static final long MAX_AGE_MS = 24 * 60 * 60 * 1000L;
+
+    // Channel of the alert notifications.
+    private static final String CHANNEL_ID = "earthquake_alerts";
+
+    // Index of the current rules, replaced whenever they change.
+    private static volatile AlertRuleIndex mIndex = new AlertRuleIndex(
+            Collections.<AlertRule>emptyList());
+
+    // Used to post notifications and access SharedPreferences.
+    private final Context mContext;
+
+    private AlertRules(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Starts checking newly downloaded earthquakes against the stored rules. It is invoked once
+     * when the process starts.
+     *
+     * @param context It is used to post notifications and access SharedPreferences.
+     */
+    public static void install(Context context) {
+        Context appContext = context.getApplicationContext();
+
+        // Channel is required from Android O.
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                    appContext.getString(R.string.alert_channel_name),
+                    NotificationManager.IMPORTANCE_HIGH);
+            appContext.getSystemService(NotificationManager.class)
+                    .createNotificationChannel(channel);
+        }
+
+        setIndex(getRules(appContext));
+        EarthquakeRepository.setNewEarthquakesListener(new AlertRules(appContext));
+    }
+
+    /**
+     * Indexes the rules, and asks for the tsunami flag to be downloaded when a rule needs it.
+     */
+    private static void setIndex(List<AlertRule> rules) {
+        mIndex = new AlertRuleIndex(rules);
+        EarthquakeRepository.setFullEventsRequired(mIndex.needsTsunamiFlag());
+    }
+
+    /**
+     * @param context It is used access SharedPreferences.
+     * @return The stored rules.
+     */
+    public static List<AlertRule> getRules(Context context) {
+        String stored = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE)
+                .getString(KEY_RULES, "");
+
+        List<AlertRule> rules = new ArrayList<>();
+        for (String line : stored.split(LINE_SEPARATOR)) {
+            String[] fields = line.split(FIELD_SEPARATOR);
+            if (fields.length == 6) {
+                try {
+                    rules.add(new AlertRule(fields[0], Double.parseDouble(fields[1]),
+                            Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+                            Double.parseDouble(fields[4]), Boolean.parseBoolean(fields[5])));
+                } catch (NumberFormatException e) {
+                    // Skips a malformed rule.
+                }
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Stores a rule, which applies to earthquakes downloaded from now on.
+     *
+     * @param context It is used access SharedPreferences.
+     * @param rule    It is the rule to add.
+     */
+    public static void addRule(Context context, AlertRule rule) {
+        List<AlertRule> rules = getRules(context);
+        rules.add(rule);
+        setRules(context, rules);
+    }
+
+    /**
+     * Removes a stored rule.
+     *
+     * @param context It is used access SharedPreferences.
+     * @param index   Position of the rule in {@link #getRules(Context)}.
+     */
+    public static void removeRule(Context context, int index) {
+        List<AlertRule> rules = getRules(context);
+        rules.remove(index);
+        setRules(context, rules);
+    }
+
+    /**
+     * Stores the rules and indexes them.
+     */
+    private static void setRules(Context context, List<AlertRule> rules) {
+        StringBuilder stored = new StringBuilder();
+        for (AlertRule rule : rules) {
+            if (stored.length() > 0) {
+                stored.append(LINE_SEPARATOR);
+            }
+
+            // Tabs and line breaks separate the stored rules.
+            stored.append(rule.getName().replace(FIELD_SEPARATOR, " ")
+                            .replace(LINE_SEPARATOR, " "))
+                    .append(FIELD_SEPARATOR).append(rule.getMinMagnitude())
+                    .append(FIELD_SEPARATOR).append(rule.getLatitude())
+                    .append(FIELD_SEPARATOR).append(rule.getLongitude())
+                    .append(FIELD_SEPARATOR).append(rule.getRadiusKm())
+                    .append(FIELD_SEPARATOR).append(rule.isTsunamiOnly());
+        }
+
+        context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE).edit()
+                .putString(KEY_RULES, stored.toString())
+                .apply();
+        setIndex(rules);
+    }
+
+    @Override
+    public void onNewEarthquakes(List<Earthquake> earthquakes) {
+        AlertRuleIndex index = mIndex;
+        if (index.isEmpty()) {
+            return;
+        }
+
+        long oldest = System.currentTimeMillis() - MAX_AGE_MS;
+        for (Earthquake earthquake : earthquakes) {
+            if (earthquake.getTimeMillis() >= oldest) {
+                AlertRule rule = index.match(earthquake);
+                if (rule != null) {
+                    notify(earthquake, rule);
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifies the user of an earthquake matching "rule", unless it was notified before.
+     */
+    private synchronized void notify(Earthquake earthquake, AlertRule rule) {
+        SharedPreferences preferences = mContext.getSharedPreferences(PREFERENCES_NAME,
+                Context.MODE_PRIVATE);
+
+        // Earthquakes notified before, oldest first.
+        Set<String> notified = new LinkedHashSet<>();
+        for (String id : preferences.getString(KEY_NOTIFIED, "").split(LINE_SEPARATOR)) {
+            if (!id.isEmpty()) {
+                notified.add(id);
+            }
+        }
+        String id = earthquake.getId() + '@' + earthquake.getTimeMillis();
+        if (!notified.add(id)) {
+            return;
+        }
+
+        StringBuilder stored = new StringBuilder();
+        int skip = Math.max(0, notified.size() - MAX_NOTIFIED);
+        for (String notifiedId : notified) {
+            if (skip-- > 0) {
+                continue;
+            }
+            if (stored.length() > 0) {
+                stored.append(LINE_SEPARATOR);
+            }
+            stored.append(notifiedId);
+        }
+        preferences.edit().putString(KEY_NOTIFIED, stored.toString()).apply();
+
+        // Detail screen shows the values the list would.
+        EarthquakeAdapter.prepareEarthquakeData(mContext,
+                Collections.singletonList(earthquake));
+
+        // Immutability has to be stated from Android S.
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            flags |= PendingIntent.FLAG_IMMUTABLE;
+        }
+        PendingIntent contentIntent = PendingIntent.getActivity(mContext, id.hashCode(),
+                EarthquakeDetailActivity.newIntent(mContext, earthquake), flags);
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(mContext, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_alert)
+                .setContentTitle(String.format(Locale.US, "M %.1f - %s",
+                        earthquake.getMagnitude(), earthquake.getPrimaryLocation()))
+                .setContentText(mContext.getString(R.string.alert_matched, rule.getName()))
+                .setWhen(earthquake.getTimeMillis())
+                .setShowWhen(true)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setContentIntent(contentIntent)
+                .setAutoCancel(true);
+
+        NotificationManagerCompat.from(mContext).notify(id.hashCode(), builder.build());
+    }
+}
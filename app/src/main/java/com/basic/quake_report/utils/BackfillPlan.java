@@ -0,0 +1,101 @@
+package com.basic.quake_report.utils;
+
+/**
+ * History a {@link HistoryBackfill} downloads, e.g. "M4+ within 500 km of Tokyo over the past
+ * 10 years", and how fast it may download it.
+ */
+public class BackfillPlan {
+
+    // Minimum magnitude of the earthquakes downloaded.
+    private final double minMagnitude;
+
+    // Latitude of the centre of the region.
+    private final double latitude;
+
+    // Longitude of the centre of the region.
+    private final double longitude;
+
+    // Radius of the region in kilometres, or NaN for earthquakes anywhere.
+    private final double radiusKm;
+
+    // Start of the history, as a Unix-Timestamp in milliseconds.
+    private final long startMillis;
+
+    // End of the history, as a Unix-Timestamp in milliseconds.
+    private final long endMillis;
+
+    // Most requests made in an hour.
+    private final int requestsPerHour;
+
+    // Most bytes downloaded in a UTC day.
+    private final long bytesPerDay;
+
+    public BackfillPlan(double minMagnitude, double latitude, double longitude, double radiusKm,
+                        long startMillis, long endMillis, int requestsPerHour,
+                        long bytesPerDay) {
+        this.minMagnitude = minMagnitude;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radiusKm = radiusKm;
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.requestsPerHour = requestsPerHour;
+        this.bytesPerDay = bytesPerDay;
+    }
+
+    /**
+     * @return Minimum magnitude of the earthquakes downloaded.
+     */
+    public double getMinMagnitude() {
+        return minMagnitude;
+    }
+
+    /**
+     * @return Latitude of the centre of the region.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return Longitude of the centre of the region.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return Radius of the region in kilometres, or NaN for earthquakes anywhere.
+     */
+    public double getRadiusKm() {
+        return radiusKm;
+    }
+
+    /**
+     * @return Start of the history, as a Unix-Timestamp in milliseconds.
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return End of the history, as a Unix-Timestamp in milliseconds.
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    /**
+     * @return Most requests made in an hour.
+     */
+    public int getRequestsPerHour() {
+        return requestsPerHour;
+    }
+
+    /**
+     * @return Most bytes downloaded in a UTC day.
+     */
+    public long getBytesPerDay() {
+        return bytesPerDay;
+    }
+}
@@ -0,0 +1,518 @@
+package com.basic.quake_report.utils;
+
+import android.os.Process;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the background work of the whole app on one bounded set of threads, in lanes of
+ * decreasing priority: what the user waits for, prefetches, persistence and the backfill.
+ * <p>
+ * A lane only gets a thread once the lanes above it have none queued, bulk lanes run one task at
+ * a time, and one thread is always left to the visible lane, so an interactive load never waits
+ * behind bulk work. Tasks of a lower lane run at a lower thread priority, so the kernel preempts
+ * them for the visible ones, and a long task can also pause itself through
+ * {@link #awaitHigherLanes()} while work of a higher lane is pending. Tasks sharing a tag never
+ * run at once, so a tag behaves as a single-thread executor of its own.
+ */
+public class BackgroundScheduler {
+
+    // Work the user waits for, e.g. the list being loaded.
+    public static final int LANE_VISIBLE = 0;
+
+    // Work the user may ask for next, e.g. details of the rows near the viewport.
+    public static final int LANE_PREFETCH = 1;
+
+    // Work saving what is loaded, e.g. an export.
+    public static final int LANE_PERSISTENCE = 2;
+
+    // Work filling the catalog history in.
+    public static final int LANE_BACKFILL = 3;
+
+    // Number of lanes.
+    static final int LANE_COUNT = 4;
+
+    // Thread priority of the tasks of every lane.
+    private static final int[] LANE_PRIORITIES = {
+            Process.THREAD_PRIORITY_DEFAULT,
+            Process.THREAD_PRIORITY_BACKGROUND,
+            Process.THREAD_PRIORITY_BACKGROUND,
+            Process.THREAD_PRIORITY_LOWEST
+    };
+
+    // Fewest and most threads, whatever the number of cores.
+    private static final int MIN_THREADS = 2;
+    private static final int MAX_THREADS = 4;
+
+    // Idle threads end after this long.
+    private static final long KEEP_ALIVE_MILLIS = 30_000L;
+
+    // Lane of the task the calling thread runs, unset outside of a task.
+    private static final ThreadLocal<Integer> mCurrentLane = new ThreadLocal<>();
+
+    // Scheduler shared by the app, created on first use.
+    private static BackgroundScheduler mDefault;
+
+    // Guards every field below.
+    private final Object mLock = new Object();
+
+    // Most threads running at once.
+    private final int mThreadCount;
+
+    // Most tasks of every lane running at once.
+    private final int[] mLimits;
+
+    // Idle threads end after this many milliseconds.
+    private final long mKeepAliveMillis;
+
+    // Tasks waiting, per lane, in order of submission.
+    private final List<ArrayDeque<Task<?>>> mQueues = new ArrayList<>(LANE_COUNT);
+
+    // Tasks running per lane, visible work run outside of the scheduler included.
+    private final int[] mRunning = new int[LANE_COUNT];
+
+    // Tags of the tasks running.
+    private final Set<String> mRunningTags = new HashSet<>();
+
+    // Tasks completed per lane.
+    private final long[] mCompleted = new long[LANE_COUNT];
+
+    // Nanoseconds the completed tasks of every lane waited before running, in total.
+    private final long[] mWaitNanos = new long[LANE_COUNT];
+
+    // Longest wait of a task of every lane, in nanoseconds.
+    private final long[] mMaxWaitNanos = new long[LANE_COUNT];
+
+    // Threads started and not ended yet.
+    private int mWorkers;
+
+    // Threads waiting for a task.
+    private int mIdle;
+
+    // Threads of tasks paused in awaitHigherLanes(), which hold no share of the threads.
+    private int mParked;
+
+    /**
+     * @param threadCount     Most threads running at once, at least 2 so one is left to the
+     *                        visible lane.
+     * @param keepAliveMillis Idle threads end after this many milliseconds.
+     */
+    BackgroundScheduler(int threadCount, long keepAliveMillis) {
+        mThreadCount = Math.max(MIN_THREADS, threadCount);
+        mKeepAliveMillis = keepAliveMillis;
+
+        // Other lanes leave a thread to the visible one, bulk lanes run a task at a time.
+        mLimits = new int[]{mThreadCount, mThreadCount - 1, 1, 1};
+        for (int lane = 0; lane < LANE_COUNT; lane++) {
+            mQueues.add(new ArrayDeque<Task<?>>());
+        }
+    }
+
+    /**
+     * @return Scheduler of the app, with a thread per core within 2 to 4 threads.
+     */
+    public static synchronized BackgroundScheduler getDefault() {
+        if (mDefault == null) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            mDefault = new BackgroundScheduler(Math.min(MAX_THREADS, cores), KEEP_ALIVE_MILLIS);
+        }
+        return mDefault;
+    }
+
+    /**
+     * Runs "task" once a thread of "lane" is free.
+     *
+     * @param lane One of the LANE constants.
+     * @param tag  Tasks sharing it never run at once, or null.
+     * @param task It is the work to run.
+     */
+    public void execute(int lane, String tag, Runnable task) {
+        enqueue(new Task<>(lane, tag, Executors.callable(task, null), task));
+    }
+
+    /**
+     * Runs "task" once a thread of "lane" is free.
+     *
+     * @param lane One of the LANE constants.
+     * @param tag  Tasks sharing it never run at once, or null.
+     * @param task It is the work to run.
+     * @return Completion of "task", cancelling it takes it off the queue or interrupts it.
+     */
+    public Future<?> submit(int lane, String tag, Runnable task) {
+        return submit(lane, tag, Executors.callable(task, null));
+    }
+
+    /**
+     * Runs "task" once a thread of "lane" is free.
+     *
+     * @param lane One of the LANE constants.
+     * @param tag  Tasks sharing it never run at once, or null.
+     * @param task It is the work to run.
+     * @return The result of "task", cancelling it takes it off the queue or interrupts it.
+     */
+    public <T> Future<T> submit(int lane, String tag, Callable<T> task) {
+        Task<T> scheduled = new Task<>(lane, tag, task, null);
+        enqueue(scheduled);
+        return scheduled;
+    }
+
+    /**
+     * Takes the tasks of "tag" still waiting off the queue, e.g. as they became stale. Tasks
+     * running are left to finish.
+     *
+     * @param tag It is the tag of the tasks.
+     * @return The Runnables handed to {@link #execute(int, String, Runnable)}, or the Futures
+     * returned by submit(), in order of submission.
+     */
+    public List<Runnable> removeQueued(String tag) {
+        List<Task<?>> tasks = new ArrayList<>();
+        synchronized (mLock) {
+            for (ArrayDeque<Task<?>> queue : mQueues) {
+                for (Iterator<Task<?>> iterator = queue.iterator(); iterator.hasNext(); ) {
+                    Task<?> task = iterator.next();
+                    if (tag.equals(task.mTag)) {
+                        iterator.remove();
+                        tasks.add(task);
+                    }
+                }
+            }
+            mLock.notifyAll();
+        }
+
+        // Whoever waits for a task removed is told it got cancelled.
+        List<Runnable> removed = new ArrayList<>(tasks.size());
+        for (Task<?> task : tasks) {
+            task.cancel(false);
+            removed.add(task.mSource != null ? task.mSource : task);
+        }
+        return removed;
+    }
+
+    /**
+     * Moves a task returned by submit() that still waits to the visible lane, e.g. as the user
+     * now waits for a prefetch. A task running already is left in its lane.
+     *
+     * @param future It is the Future of the task.
+     */
+    public void promote(Future<?> future) {
+        if (!(future instanceof Task)) {
+            return;
+        }
+        Task<?> task = (Task<?>) future;
+        synchronized (mLock) {
+            if (task.mLane != LANE_VISIBLE && mQueues.get(task.mLane).remove(task)) {
+                task.mLane = LANE_VISIBLE;
+                mQueues.get(LANE_VISIBLE).add(task);
+                startWorkerIfNeeded();
+                mLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Counts work the user waits for that runs on a thread of its own, e.g. of a Loader, so
+     * lower lanes make way for it. Every call must be followed by
+     * {@link #endVisibleWork()}.
+     */
+    public void beginVisibleWork() {
+        synchronized (mLock) {
+            mRunning[LANE_VISIBLE]++;
+        }
+    }
+
+    /**
+     * Ends the work begun by {@link #beginVisibleWork()}.
+     */
+    public void endVisibleWork() {
+        synchronized (mLock) {
+            mRunning[LANE_VISIBLE]--;
+            mLock.notifyAll();
+        }
+    }
+
+    /**
+     * Pauses the task calling it while work of a higher lane is queued or running, giving up its
+     * thread's share of the lane meanwhile. It does nothing outside of a task.
+     *
+     * @throws InterruptedException If the task got cancelled while paused.
+     */
+    public void awaitHigherLanes() throws InterruptedException {
+        Integer lane = mCurrentLane.get();
+        if (lane == null) {
+            return;
+        }
+
+        synchronized (mLock) {
+            if (!hasWorkAbove(lane)) {
+                return;
+            }
+
+            // Higher lanes may need the share and the thread this task holds, so another
+            // thread takes its place while it is paused.
+            mRunning[lane]--;
+            mParked++;
+            startWorkerIfNeeded();
+            mLock.notifyAll();
+            try {
+                while (hasWorkAbove(lane) || !hasRoomIn(lane)) {
+                    mLock.wait();
+                }
+            } finally {
+                mParked--;
+                mRunning[lane]++;
+            }
+        }
+    }
+
+    /**
+     * @return Lane of the task the calling thread runs, or {@link #LANE_VISIBLE} outside of a
+     * task, as only work the user waits for runs on threads of its own.
+     */
+    public static int getCurrentLane() {
+        Integer lane = mCurrentLane.get();
+        return lane != null ? lane : LANE_VISIBLE;
+    }
+
+    /**
+     * @param lane One of the LANE constants.
+     * @return Number of tasks of "lane" waiting for a thread.
+     */
+    public int getQueueDepth(int lane) {
+        synchronized (mLock) {
+            return mQueues.get(lane).size();
+        }
+    }
+
+    /**
+     * @param lane One of the LANE constants.
+     * @return Number of tasks of "lane" running.
+     */
+    public int getRunningCount(int lane) {
+        synchronized (mLock) {
+            return mRunning[lane];
+        }
+    }
+
+    /**
+     * @param lane One of the LANE constants.
+     * @return Number of tasks of "lane" completed.
+     */
+    public long getCompletedCount(int lane) {
+        synchronized (mLock) {
+            return mCompleted[lane];
+        }
+    }
+
+    /**
+     * @param lane One of the LANE constants.
+     * @return Milliseconds a task of "lane" waited for a thread on average, or 0 if none ran.
+     */
+    public double getAverageWaitMillis(int lane) {
+        synchronized (mLock) {
+            return mCompleted[lane] == 0 ? 0.0 :
+                    mWaitNanos[lane] / 1e6 / mCompleted[lane];
+        }
+    }
+
+    /**
+     * @param lane One of the LANE constants.
+     * @return Longest milliseconds a task of "lane" waited for a thread.
+     */
+    public long getMaxWaitMillis(int lane) {
+        synchronized (mLock) {
+            return TimeUnit.NANOSECONDS.toMillis(mMaxWaitNanos[lane]);
+        }
+    }
+
+    private void enqueue(Task<?> task) {
+        synchronized (mLock) {
+            mQueues.get(task.mLane).add(task);
+            startWorkerIfNeeded();
+            mLock.notifyAll();
+        }
+    }
+
+    /**
+     * Starts a thread unless one is idle or the most are running, paused ones left out. Called
+     * holding the lock.
+     */
+    private void startWorkerIfNeeded() {
+        if (mIdle == 0 && mWorkers - mParked < mThreadCount) {
+            mWorkers++;
+            new Thread(new Worker(), "Background-" + mWorkers).start();
+        }
+    }
+
+    /**
+     * @return Whether work of a lane above "lane" is queued or running. Called holding the lock.
+     */
+    private boolean hasWorkAbove(int lane) {
+        for (int higher = 0; higher < lane; higher++) {
+            if (mRunning[higher] > 0 || !mQueues.get(higher).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether another task of "lane" may run. Called holding the lock.
+     */
+    private boolean hasRoomIn(int lane) {
+        if (mRunning[lane] >= mLimits[lane]) {
+            return false;
+        }
+        if (lane == LANE_VISIBLE) {
+            return true;
+        }
+
+        // A thread is always left to the visible lane.
+        int background = 0;
+        for (int other = LANE_VISIBLE + 1; other < LANE_COUNT; other++) {
+            background += mRunning[other];
+        }
+        return background < mThreadCount - 1;
+    }
+
+    /**
+     * Takes the first task of the highest lane that may run. Called holding the lock.
+     *
+     * @return The task, or null if none may run now.
+     */
+    private Task<?> poll() {
+        for (int lane = 0; lane < LANE_COUNT; lane++) {
+            if (!hasRoomIn(lane)) {
+                continue;
+            }
+            for (Iterator<Task<?>> iterator = mQueues.get(lane).iterator();
+                 iterator.hasNext(); ) {
+                Task<?> task = iterator.next();
+                if (task.mTag == null || !mRunningTags.contains(task.mTag)) {
+                    iterator.remove();
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Runs the tasks of every lane, ending once idle for the keep-alive time.
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            Task<?> task;
+            while ((task = take()) != null) {
+                // A cancel aimed at the previous task must not hit this one.
+                Thread.interrupted();
+                Process.setThreadPriority(LANE_PRIORITIES[task.mLane]);
+                mCurrentLane.set(task.mLane);
+                try {
+                    task.run();
+                } finally {
+                    mCurrentLane.remove();
+                    finish(task);
+                }
+            }
+        }
+
+        /**
+         * Waits for a task that may run, and counts it as running.
+         *
+         * @return The task, or null if the thread stayed idle for the keep-alive time.
+         */
+        private Task<?> take() {
+            synchronized (mLock) {
+                long deadline = System.currentTimeMillis() + mKeepAliveMillis;
+                Task<?> task = poll();
+                while (task == null) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        mWorkers--;
+                        return null;
+                    }
+                    mIdle++;
+                    try {
+                        mLock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        // Only tasks get interrupted, the wait goes on.
+                    } finally {
+                        mIdle--;
+                    }
+                    task = poll();
+                }
+
+                mRunning[task.mLane]++;
+                if (task.mTag != null) {
+                    mRunningTags.add(task.mTag);
+                }
+                long wait = System.nanoTime() - task.mQueuedNanos;
+                mWaitNanos[task.mLane] += wait;
+                mMaxWaitNanos[task.mLane] = Math.max(mMaxWaitNanos[task.mLane], wait);
+                return task;
+            }
+        }
+
+        /**
+         * Counts "task" as completed, and lets the threads waiting on its lane or tag go on.
+         */
+        private void finish(Task<?> task) {
+            synchronized (mLock) {
+                mRunning[task.mLane]--;
+                if (task.mTag != null) {
+                    mRunningTags.remove(task.mTag);
+                }
+                mCompleted[task.mLane]++;
+                mLock.notifyAll();
+            }
+        }
+    }
+
+    // A task of a lane, taken off its queue when cancelled before running.
+    private class Task<T> extends FutureTask<T> {
+
+        // Lane of the task, only changed while it waits.
+        private int mLane;
+
+        // Tasks sharing the tag never run at once, or null.
+        private final String mTag;
+
+        // Runnable handed to execute(), or null.
+        private final Runnable mSource;
+
+        // When the task got queued, in nanoseconds.
+        private final long mQueuedNanos = System.nanoTime();
+
+        Task(int lane, String tag, Callable<T> callable, Runnable source) {
+            super(callable);
+            if (lane < 0 || lane >= LANE_COUNT) {
+                throw new IllegalArgumentException("Unknown lane " + lane);
+            }
+            mLane = lane;
+            mTag = tag;
+            mSource = source;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                synchronized (mLock) {
+                    mQueues.get(mLane).remove(this);
+                    mLock.notifyAll();
+                }
+            }
+            return cancelled;
+        }
+    }
+}
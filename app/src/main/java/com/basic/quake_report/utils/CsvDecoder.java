@@ -0,0 +1,66 @@
+package com.basic.quake_report.utils;
+
+/**
+ * Decodes the comma separated "csv" format of the USGS event service.
+ * <p>
+ * Its first line names the columns e.g. "time,latitude,longitude,depth,mag,magType,...,id,
+ * updated,place,...", so columns are found by name. Places holding a comma are quoted.
+ */
+public class CsvDecoder extends DelimitedDecoder implements NetworkUtilsConstants {
+
+    // Separates the columns of a line.
+    private static final char SEPARATOR = ',';
+
+    // Name of the column of every field, indexed by FIELD_*.
+    private static final String[] NAMES = new String[FIELD_COUNT];
+
+    static {
+        NAMES[FIELD_ID] = "id";
+        NAMES[FIELD_TIME] = "time";
+        NAMES[FIELD_LATITUDE] = "latitude";
+        NAMES[FIELD_LONGITUDE] = "longitude";
+        NAMES[FIELD_DEPTH] = "depth";
+        NAMES[FIELD_MAGNITUDE] = "mag";
+        NAMES[FIELD_LOCATION] = "place";
+    }
+
+    /**
+     * @param eventUrlPrefix  Prefix of the page showing more info. about an event.
+     * @param detailUrlPrefix Prefix of the detail GeoJSON of an event, or null if the event
+     *                        service has none.
+     */
+    public CsvDecoder(String eventUrlPrefix, String detailUrlPrefix) {
+        super(SEPARATOR, true, eventUrlPrefix, detailUrlPrefix);
+    }
+
+    @Override
+    public String getFormat() {
+        return PARAMETER_FORMAT_CSV;
+    }
+
+    @Override
+    int[] readHeader(byte[] response, int[] starts, int[] ends, int count) {
+        int[] columns = new int[FIELD_COUNT];
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            columns[field] = -1;
+            for (int column = 0; column < count; column++) {
+                if (equalsAscii(response, starts[column], ends[column], NAMES[field])) {
+                    columns[field] = column;
+                    break;
+                }
+            }
+
+            // Not a header, or one lacking a field.
+            if (columns[field] == -1) {
+                return null;
+            }
+        }
+        return columns;
+    }
+
+    @Override
+    int[] getDefaultColumns() {
+        // Columns are only known from the header.
+        return null;
+    }
+}
@@ -0,0 +1,432 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes a line-based fdsnws format, where every line is one earthquake and its fields are
+ * separated by a single character.
+ * <p>
+ * Fields are read straight from the downloaded bytes: numbers and times are parsed in place,
+ * and only the id and location are turned into Strings. Subclasses tell which column holds which
+ * field.
+ */
+public abstract class DelimitedDecoder implements EarthquakeDecoder {
+
+    // Fields read from every line, as indices into the column map of a format.
+    static final int FIELD_ID = 0;
+    static final int FIELD_TIME = 1;
+    static final int FIELD_LATITUDE = 2;
+    static final int FIELD_LONGITUDE = 3;
+    static final int FIELD_DEPTH = 4;
+    static final int FIELD_MAGNITUDE = 5;
+    static final int FIELD_LOCATION = 6;
+    static final int FIELD_COUNT = 7;
+
+    // Most columns of a line looked at, later ones are ignored.
+    private static final int MAX_COLUMNS = 32;
+
+    // Encoding of the response.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Exact powers of ten, dividing by them gives a correctly rounded double.
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14,
+            1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    // Largest mantissa a double holds exactly.
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // Separates the columns of a line.
+    private final byte separator;
+
+    // Whether a column may be enclosed in double quotes, to hold the separator.
+    private final boolean quoted;
+
+    // Prefix of the page showing more info. about an event, followed by the event id.
+    private final String eventUrlPrefix;
+
+    // Prefix of the detail GeoJSON of an event, followed by the event id, or null if none.
+    private final String detailUrlPrefix;
+
+    /**
+     * @param separator       Separates the columns of a line.
+     * @param quoted          Whether a column may be enclosed in double quotes.
+     * @param eventUrlPrefix  Prefix of the page showing more info. about an event.
+     * @param detailUrlPrefix Prefix of the detail GeoJSON of an event, or null if the event
+     *                        service has none.
+     */
+    DelimitedDecoder(char separator, boolean quoted, String eventUrlPrefix,
+                     String detailUrlPrefix) {
+        this.separator = (byte) separator;
+        this.quoted = quoted;
+        this.eventUrlPrefix = eventUrlPrefix;
+        this.detailUrlPrefix = detailUrlPrefix;
+    }
+
+    /**
+     * Reads the first line of a response if it is a header.
+     *
+     * @param response Bytes received from the event service.
+     * @param starts   Start of every column of the line.
+     * @param ends     End of every column of the line.
+     * @param count    Number of columns of the line.
+     * @return Column of every field, indexed by FIELD_*, or null if the line is not a header.
+     */
+    abstract int[] readHeader(byte[] response, int[] starts, int[] ends, int count);
+
+    /**
+     * @return Column of every field when the response has no header, or null if it must have
+     * one.
+     */
+    abstract int[] getDefaultColumns();
+
+    /**
+     * Where decoding of a response stopped, so it can go on as more of the response arrives.
+     */
+    static final class Progress {
+
+        // Columns of the current line, held per response so that a decoder can be shared.
+        private final int[] starts = new int[MAX_COLUMNS];
+        private final int[] ends = new int[MAX_COLUMNS];
+
+        // Column of every field, or null until the header or the first earthquake is read.
+        private int[] columns;
+
+        // Start of the first line not decoded yet.
+        private int lineStart;
+
+        // Lines read after the header, and those an earthquake got decoded from.
+        private int lines;
+        private int decodedLines;
+
+        /**
+         * @return Whether lines were read but none of them decoded, e.g. as the event service
+         * sent another format than the one asked for.
+         */
+        boolean isUnrecognized() {
+            return lines > 0 && decodedLines == 0;
+        }
+    }
+
+    /**
+     * @return The earthquakes of the response, or null if it has lines but none of them could be
+     * decoded.
+     */
+    @Override
+    public ArrayList<Earthquake> decode(byte[] response, int length) {
+        ArrayList<Earthquake> earthquakes = new ArrayList<>();
+        if (response != null) {
+            Progress progress = new Progress();
+            decodeLines(response, length, true, progress, earthquakes);
+            if (progress.isUnrecognized()) {
+                return null;
+            }
+        }
+        return earthquakes;
+    }
+
+    /**
+     * Decodes the lines of a response received since the last call.
+     *
+     * @param response    Bytes received from the event service so far.
+     * @param length      Number of bytes of "response" received.
+     * @param complete    Whether the whole response is received, so a last line lacking a line
+     *                    break is complete too.
+     * @param progress    Where the last call stopped, updated to where this one stops.
+     * @param earthquakes Earthquakes decoded are added to it.
+     */
+    void decodeLines(byte[] response, int length, boolean complete, Progress progress,
+                     List<Earthquake> earthquakes) {
+        int[] starts = progress.starts;
+        int[] ends = progress.ends;
+
+        int lineStart = progress.lineStart;
+        while (lineStart < length) {
+            int lineEnd = indexOf(response, (byte) '\n', lineStart, length);
+            if (lineEnd == length && !complete) {
+                // Rest of the line is yet to arrive.
+                break;
+            }
+
+            // Ignores the "\r" of "\r\n" line endings.
+            int end = lineEnd;
+            if (end > lineStart && response[end - 1] == '\r') {
+                end--;
+            }
+
+            if (end > lineStart) {
+                int count = split(response, lineStart, end, starts, ends);
+
+                if (progress.columns == null) {
+                    // Looks for the header until the first earthquake.
+                    progress.columns = readHeader(response, starts, ends, count);
+                    if (progress.columns == null) {
+                        progress.columns = getDefaultColumns();
+                    } else {
+                        lineStart = lineEnd + 1;
+                        continue;
+                    }
+                }
+
+                progress.lines++;
+                if (progress.columns != null) {
+                    try {
+                        Earthquake earthquake = toEarthquake(response, starts, ends, count,
+                                progress.columns);
+                        if (earthquake != null) {
+                            earthquakes.add(earthquake);
+                            progress.decodedLines++;
+                        }
+                    } catch (NumberFormatException e) {
+                        // Skips malformed lines.
+                    }
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        progress.lineStart = lineStart;
+    }
+
+    /**
+     * @return Index of the first "value" of "bytes" in [from, to), or "to" if there is none.
+     */
+    private static int indexOf(byte[] bytes, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Splits a line to its columns, without the surrounding spaces and quotes of each.
+     *
+     * @return Number of columns of the line.
+     */
+    private int split(byte[] response, int start, int end, int[] starts, int[] ends) {
+        int column = 0;
+        int i = start;
+        while (i <= end && column < MAX_COLUMNS) {
+            // Skips leading spaces.
+            while (i < end && response[i] == ' ') {
+                i++;
+            }
+
+            int columnStart = i;
+            int columnEnd;
+            if (quoted && i < end && response[i] == '"') {
+                // A quoted column ends at a quote not followed by another quote.
+                columnStart = ++i;
+                while (i < end && !(response[i] == '"' &&
+                        (i + 1 == end || response[i + 1] != '"'))) {
+                    i += response[i] == '"' ? 2 : 1;
+                }
+                columnEnd = i;
+                i = indexOf(response, separator, i, end);
+            } else {
+                i = indexOf(response, separator, i, end);
+                columnEnd = i;
+
+                // Skips trailing spaces.
+                while (columnEnd > columnStart && response[columnEnd - 1] == ' ') {
+                    columnEnd--;
+                }
+            }
+
+            starts[column] = columnStart;
+            ends[column] = columnEnd;
+            column++;
+            i++;
+        }
+        return column;
+    }
+
+    /**
+     * Forms an {@link Earthquake} from the columns of a line.
+     *
+     * @return The earthquake, or null if the line lacks a column.
+     */
+    private Earthquake toEarthquake(byte[] response, int[] starts, int[] ends, int count,
+                                    int[] columns) {
+        for (int column : columns) {
+            if (column >= count) {
+                return null;
+            }
+        }
+
+        Earthquake earthquake = new Earthquake();
+
+        String id = getString(response, starts[columns[FIELD_ID]], ends[columns[FIELD_ID]]);
+        earthquake.setId(id);
+        earthquake.setUrl(eventUrlPrefix + id);
+        earthquake.setDetailUrl(detailUrlPrefix == null ? JSONUtilConstants.FALLBACK_STRING :
+                detailUrlPrefix + id);
+
+        int magnitude = columns[FIELD_MAGNITUDE];
+        JSONUtils.setMagnitude(earthquake, starts[magnitude] == ends[magnitude] ?
+                JSONUtilConstants.FALLBACK_MAG :
+                parseDouble(response, starts[magnitude], ends[magnitude]));
+
+        JSONUtils.setOffsetAndLocation(earthquake, getString(response,
+                starts[columns[FIELD_LOCATION]], ends[columns[FIELD_LOCATION]]));
+        JSONUtils.setDateAndTime(earthquake, parseIsoTime(response,
+                starts[columns[FIELD_TIME]], ends[columns[FIELD_TIME]]));
+
+        earthquake.setLatitude(parseDouble(response, starts[columns[FIELD_LATITUDE]],
+                ends[columns[FIELD_LATITUDE]]));
+        earthquake.setLongitude(parseDouble(response, starts[columns[FIELD_LONGITUDE]],
+                ends[columns[FIELD_LONGITUDE]]));
+
+        int depth = columns[FIELD_DEPTH];
+        earthquake.setDepth(starts[depth] == ends[depth] ? JSONUtilConstants.FALLBACK_DOUBLE :
+                parseDouble(response, starts[depth], ends[depth]));
+        return earthquake;
+    }
+
+    /**
+     * @return The UTF-8 String in [start, end), with doubled quotes of quoted columns undone.
+     */
+    String getString(byte[] response, int start, int end) {
+        String value = new String(response, start, end - start, UTF_8);
+        return quoted && value.indexOf('"') != -1 ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * @return Whether the bytes in [start, end) are the ASCII characters of "name".
+     */
+    static boolean equalsAscii(byte[] response, int start, int end, String name) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (response[start + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal number such as "-150.4417" without creating a String. Numbers having an
+     * exponent or too many digits are left to {@link Double#parseDouble(String)}.
+     *
+     * @return The number in [start, end).
+     */
+    static double parseDouble(byte[] response, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (response[i] == '-' || response[i] == '+')) {
+            negative = response[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = response[i];
+            if (b >= '0' && b <= '9') {
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) {
+                    return parseDoubleSlow(response, start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return parseDoubleSlow(response, start, end);
+            }
+        }
+
+        if (digits == 0) {
+            throw new NumberFormatException("Not a number");
+        }
+
+        double value = mantissa;
+        if (fractionDigits > 0) {
+            if (fractionDigits >= POWERS_OF_TEN.length) {
+                return parseDoubleSlow(response, start, end);
+            }
+            value /= POWERS_OF_TEN[fractionDigits];
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return The number in [start, end), parsed by {@link Double#parseDouble(String)}.
+     */
+    private static double parseDoubleSlow(byte[] response, int start, int end) {
+        return Double.parseDouble(new String(response, start, end - start, UTF_8));
+    }
+
+    /**
+     * Parses an ISO-8601 UTC time such as "2021-12-11T23:59:07.640" or "2021-12-11T23:59:07Z"
+     * without creating a String.
+     *
+     * @return Unix-Timestamp in milliseconds.
+     */
+    static long parseIsoTime(byte[] response, int start, int end) {
+        if (end - start < 19) {
+            throw new NumberFormatException("Not an ISO-8601 time");
+        }
+
+        int year = parseDigits(response, start, 4);
+        int month = parseDigits(response, start + 5, 2);
+        int day = parseDigits(response, start + 8, 2);
+        int hour = parseDigits(response, start + 11, 2);
+        int minute = parseDigits(response, start + 14, 2);
+        int second = parseDigits(response, start + 17, 2);
+
+        // Fraction of a second, any number of digits.
+        int millis = 0;
+        int i = start + 19;
+        if (i < end && response[i] == '.') {
+            int scale = 100;
+            for (i++; i < end && response[i] >= '0' && response[i] <= '9'; i++) {
+                millis += (response[i] - '0') * scale;
+                scale /= 10;
+            }
+        }
+
+        return toEpochMillis(year, month, day, hour, minute, second, millis);
+    }
+
+    /**
+     * @return The number formed by "count" digits starting at "start".
+     */
+    private static int parseDigits(byte[] response, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            byte b = response[i];
+            if (b < '0' || b > '9') {
+                throw new NumberFormatException("Not a digit");
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Converts a UTC date and time to a Unix-Timestamp without creating a Calendar.
+     */
+    static long toEpochMillis(int year, int month, int day, int hour, int minute, int second,
+                              int millis) {
+        // Days since 1970-01-01 of the proleptic Gregorian calendar.
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097L + dayOfEra - 719468;
+
+        return ((days * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis;
+    }
+}
@@ -0,0 +1,19 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.List;
+
+/**
+ * Receives earthquakes as they are decoded from a response still being downloaded, so the first
+ * rows can be shown before the rest of the response arrives.
+ */
+public interface EarthquakeChunkListener {
+
+    /**
+     * Invoked on the downloading thread, in the order the event service sent the earthquakes.
+     *
+     * @param earthquakes Earthquakes decoded since the last chunk.
+     */
+    void onChunk(List<Earthquake> earthquakes);
+}
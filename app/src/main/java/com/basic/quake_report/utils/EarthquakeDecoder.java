@@ -0,0 +1,30 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.ArrayList;
+
+/**
+ * Decodes the response of an fdsnws "query" in one wire format, e.g. GeoJSON or "text", to an
+ * ArrayList of type {@link Earthquake}.
+ * <p>
+ * {@link NetworkUtils#selectDecoder} picks the decoder for a query, so the lightest format having
+ * every field the query needs is requested.
+ */
+public interface EarthquakeDecoder {
+
+    /**
+     * @return Value of the "format" query parameter asking for this format e.g. "geojson".
+     */
+    String getFormat();
+
+    /**
+     * Decodes the response as downloaded, without converting it to a String first.
+     *
+     * @param response Bytes received from the event service.
+     * @param length   Number of bytes of "response" holding the response.
+     * @return An ArrayList of occurred {@link Earthquake}, or null if the response could not be
+     * decoded.
+     */
+    ArrayList<Earthquake> decode(byte[] response, int length);
+}
@@ -0,0 +1,105 @@
+package com.basic.quake_report.utils;
+
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import com.basic.quake_report.EarthquakeDetail;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the details of recently opened and prefetched earthquakes in a bounded LRU cache, and
+ * prefetches the details of earthquakes near the visible rows at a low priority.
+ */
+public class EarthquakeDetailCache {
+
+    // Maximum number of details kept in memory.
+    private static final int MAX_DETAILS = 64;
+
+    // Details keyed by the "detail" url of the earthquake.
+    private static final LruCache<String, EarthquakeDetail> mDetails = new LruCache<>(MAX_DETAILS);
+
+    // Detail urls currently being prefetched.
+    private static final Set<String> mInFlight = Collections.synchronizedSet(new HashSet<>());
+
+    // Tag of the prefetches, run one at a time in the prefetch lane.
+    private static final String TAG_PREFETCH = "EarthquakeDetailPrefetch";
+
+    // Setting constructor private.
+    private EarthquakeDetailCache() {
+    }
+
+    /**
+     * @param detailUrl It is the "detail" url of the earthquake.
+     * @return The cached details, or null if they are not downloaded yet.
+     */
+    public static EarthquakeDetail get(String detailUrl) {
+        return TextUtils.isEmpty(detailUrl) ? null : mDetails.get(detailUrl);
+    }
+
+    /**
+     * Returns the cached details, downloading them when not present. It must be invoked off the
+     * main thread.
+     *
+     * @param detailUrl It is the "detail" url of the earthquake.
+     * @return The details of the earthquake, or null if they could not be downloaded.
+     */
+    public static EarthquakeDetail load(String detailUrl) {
+        EarthquakeDetail detail = get(detailUrl);
+        if (detail == null && !TextUtils.isEmpty(detailUrl)) {
+            detail = JSONUtils.getEarthquakeDetail(NetworkUtils.getEarthquakeDetail(detailUrl));
+            if (detail != null) {
+                mDetails.put(detailUrl, detail);
+            }
+        }
+        return detail;
+    }
+
+    /**
+     * Prefetches the details of the given earthquakes at a low priority. Prefetches still
+     * waiting from a previous call are dropped, as those rows are no longer near the viewport.
+     *
+     * @param detailUrls "detail" urls of the earthquakes near the visible rows.
+     */
+    public static void prefetch(List<String> detailUrls) {
+        // Drops stale prefetches.
+        BackgroundScheduler scheduler = BackgroundScheduler.getDefault();
+        for (Runnable task : scheduler.removeQueued(TAG_PREFETCH)) {
+            mInFlight.remove(((PrefetchTask) task).detailUrl);
+        }
+
+        for (String detailUrl : detailUrls) {
+            // Skips details already cached or already being downloaded.
+            if (TextUtils.isEmpty(detailUrl) || get(detailUrl) != null ||
+                    !mInFlight.add(detailUrl)) {
+                continue;
+            }
+
+            scheduler.execute(BackgroundScheduler.LANE_PREFETCH, TAG_PREFETCH,
+                    new PrefetchTask(detailUrl));
+        }
+    }
+
+    // Downloads the details of a single earthquake into the cache.
+    private static class PrefetchTask implements Runnable {
+
+        // It is the "detail" url of the earthquake.
+        private final String detailUrl;
+
+        PrefetchTask(String detailUrl) {
+            this.detailUrl = detailUrl;
+        }
+
+        @Override
+        public void run() {
+            try {
+                load(detailUrl);
+            } finally {
+                mInFlight.remove(detailUrl);
+            }
+        }
+    }
+}
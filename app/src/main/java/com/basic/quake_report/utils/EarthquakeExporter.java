@@ -0,0 +1,463 @@
+package com.basic.quake_report.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import com.basic.quake_report.Earthquake;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exports the earthquakes shown to a CSV or GeoJSON document chosen by the user.
+ * <p>
+ * Earthquakes are written one at a time through a buffered writer on a background thread, so
+ * the memory taken is the same whatever their number, and an export can be cancelled between
+ * any two of them.
+ */
+public class EarthquakeExporter {
+
+    // Used to log errors.
+    private static final String TAG = EarthquakeExporter.class.getSimpleName();
+
+    // Format of a CSV export, as the USGS "csv" feed with the columns the app holds.
+    public static final String FORMAT_CSV = "csv";
+
+    // Format of a GeoJSON export, a FeatureCollection of Points.
+    public static final String FORMAT_GEOJSON = "geojson";
+
+    // Size of the write buffer in chars.
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    // Number of earthquakes written between progress reports.
+    private static final int PROGRESS_INTERVAL = 256;
+
+    // Header of a CSV export.
+    private static final String CSV_HEADER = "time,latitude,longitude,depth,mag,place,id,"
+            + "source,tsunami,url\n";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Tag of the exports, run one at a time in the persistence lane.
+    private static final String TAG_EXPORT = "EarthquakeExport";
+
+    /**
+     * Receives the progress of an export.
+     */
+    public interface ExportListener {
+
+        /**
+         * @param exported Number of earthquakes written so far.
+         * @param total    Number of earthquakes to write.
+         */
+        void onProgress(int exported, int total);
+
+        /**
+         * @param exported Number of earthquakes written.
+         * @param complete Whether every earthquake was written, false when the export was
+         *                 cancelled or failed, in which case the document is deleted.
+         */
+        void onFinished(int exported, boolean complete);
+    }
+
+    /**
+     * Export in progress, which can be cancelled. It keeps its progress, so a listener attached
+     * again, e.g. by an Activity recreated on a configuration change, resumes showing it.
+     */
+    public static final class Export {
+
+        // Checked before every earthquake is written.
+        private final AtomicBoolean mCancelled = new AtomicBoolean();
+
+        // Number of earthquakes to write.
+        private final int mTotal;
+
+        // Number of earthquakes written so far, as last reported on the main thread.
+        private int mExported;
+
+        // Whether the export finished.
+        private boolean mFinished;
+
+        // Whether every earthquake was written, once the export finished.
+        private boolean mComplete;
+
+        // Receives the progress on the main thread, or null while none is attached.
+        private ExportListener mListener;
+
+        Export(int total, ExportListener listener) {
+            mTotal = total;
+            mListener = listener;
+        }
+
+        /**
+         * Stops the export before the next earthquake is written.
+         */
+        public void cancel() {
+            mCancelled.set(true);
+        }
+
+        /**
+         * @return Whether the export was cancelled.
+         */
+        public boolean isCancelled() {
+            return mCancelled.get();
+        }
+
+        /**
+         * @return Number of earthquakes to write.
+         */
+        public int getTotal() {
+            return mTotal;
+        }
+
+        /**
+         * Attaches a listener on the main thread, which is told the progress so far right away,
+         * or detaches the one attached when null.
+         *
+         * @param listener It receives the progress of the export, or null.
+         */
+        public void setListener(ExportListener listener) {
+            mListener = listener;
+            if (listener == null) {
+                return;
+            }
+
+            // Progress reported while no listener was attached.
+            if (mFinished) {
+                listener.onFinished(mExported, mComplete);
+            } else {
+                listener.onProgress(mExported, mTotal);
+            }
+        }
+
+        /**
+         * Keeps the progress reported on the main thread and hands it to the listener attached.
+         */
+        void report(int exported) {
+            mExported = exported;
+            if (mListener != null) {
+                mListener.onProgress(exported, mTotal);
+            }
+        }
+
+        /**
+         * Keeps the end of the export reported on the main thread and hands it to the listener
+         * attached.
+         */
+        void finish(int exported, boolean complete) {
+            mExported = exported;
+            mFinished = true;
+            mComplete = complete;
+            if (mListener != null) {
+                mListener.onFinished(exported, complete);
+            }
+        }
+    }
+
+    // Setting constructor private.
+    private EarthquakeExporter() {
+    }
+
+    /**
+     * Starts exporting earthquakes on a background thread. Progress is reported on the main
+     * thread, to the listener attached to the export at that time.
+     *
+     * @param context     It is used to open the document.
+     * @param document    It is the document to write, e.g. one created by the user.
+     * @param format      Either {@link #FORMAT_CSV} or {@link #FORMAT_GEOJSON}.
+     * @param earthquakes Earthquakes to export, which must not change during the export.
+     * @param listener    It receives the progress of the export, until another one is attached.
+     * @return The export, to cancel it or to attach another listener.
+     */
+    public static Export export(Context context, Uri document, String format,
+                                List<Earthquake> earthquakes, ExportListener listener) {
+        Context appContext = context.getApplicationContext();
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        Export export = new Export(earthquakes.size(), listener);
+
+        BackgroundScheduler.getDefault().execute(BackgroundScheduler.LANE_PERSISTENCE,
+                TAG_EXPORT, new Runnable() {
+            @Override
+            public void run() {
+                // Reports progress on the main thread.
+                ExportListener mainListener = new ExportListener() {
+                    @Override
+                    public void onProgress(int exported, int total) {
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                export.report(exported);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onFinished(int exported, boolean complete) {
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                export.finish(exported, complete);
+                            }
+                        });
+                    }
+                };
+
+                int exported = 0;
+                try (OutputStream output = appContext.getContentResolver()
+                        .openOutputStream(document, "w")) {
+                    if (output == null) {
+                        throw new IOException("Unable to open " + document);
+                    }
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(output, UTF_8),
+                            BUFFER_SIZE);
+                    exported = write(earthquakes, format, writer, export.mCancelled,
+                            mainListener);
+                    writer.flush();
+                } catch (IOException | RuntimeException e) {
+                    Log.e(TAG, "Unable to export - " + e.getMessage());
+                    export.cancel();
+                }
+
+                boolean complete = !export.isCancelled();
+                if (!complete) {
+                    // A partial export would pass for a complete one.
+                    delete(appContext, document);
+                }
+                mainListener.onFinished(exported, complete);
+            }
+        });
+        return export;
+    }
+
+    /**
+     * Deletes a document that could not be completely written.
+     */
+    private static void delete(Context context, Uri document) {
+        try {
+            DocumentsContract.deleteDocument(context.getContentResolver(), document);
+        } catch (Exception e) {
+            // Document is left as it is, e.g. when its provider does not support deleting.
+            Log.e(TAG, "Unable to delete the partial export - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes earthquakes one at a time, checking for a cancellation before each of them.
+     *
+     * @param earthquakes Earthquakes to write.
+     * @param format      Either {@link #FORMAT_CSV} or {@link #FORMAT_GEOJSON}.
+     * @param writer      It receives the export.
+     * @param cancelled   Stops the export once set.
+     * @param listener    It receives the progress, on the writing thread.
+     * @return Number of earthquakes written.
+     * @throws IOException If "writer" fails.
+     */
+    static int write(List<Earthquake> earthquakes, String format, Writer writer,
+                     AtomicBoolean cancelled, ExportListener listener) throws IOException {
+        boolean geoJson = FORMAT_GEOJSON.equals(format);
+        LazyEarthquakeList lazy = earthquakes instanceof LazyEarthquakeList ?
+                (LazyEarthquakeList) earthquakes : null;
+
+        // Reused for every earthquake.
+        SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'",
+                Locale.US);
+        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Date date = new Date();
+
+        writer.write(geoJson ? "{\"type\":\"FeatureCollection\",\"features\":[" : CSV_HEADER);
+
+        int total = earthquakes.size();
+        int exported = 0;
+        listener.onProgress(0, total);
+        while (exported < total) {
+            if (cancelled.get()) {
+                return exported;
+            }
+
+            // Rows of a lazy list are decoded without being kept.
+            Earthquake earthquake = lazy != null ? lazy.peek(exported) :
+                    earthquakes.get(exported);
+            date.setTime(earthquake.getTimeMillis());
+            if (geoJson) {
+                writeFeature(writer, earthquake, exported > 0);
+            } else {
+                writeRow(writer, earthquake, isoFormat.format(date));
+            }
+
+            exported++;
+            if (exported % PROGRESS_INTERVAL == 0) {
+                listener.onProgress(exported, total);
+            }
+        }
+
+        if (geoJson) {
+            writer.write("]}\n");
+        }
+        listener.onProgress(exported, total);
+        return exported;
+    }
+
+    /**
+     * @param earthquake It is the earthquake named.
+     * @return Place of an earthquake as the event services name it, e.g. "5 km N of Town".
+     */
+    public static String getPlace(Earthquake earthquake) {
+        String location = earthquake.getPrimaryLocation();
+        String offset = earthquake.getOffset();
+        if (offset == null || JSONUtilConstants.DEFAULT_OFFSET.equals(offset)) {
+            return location;
+        }
+        return location == null ? offset : offset + ' ' + location;
+    }
+
+    /**
+     * Writes an earthquake as a CSV row.
+     */
+    private static void writeRow(Writer writer, Earthquake earthquake, String isoTime)
+            throws IOException {
+        writer.write(isoTime);
+        writer.write(',');
+        writeCsvNumber(writer, earthquake.getLatitude());
+        writer.write(',');
+        writeCsvNumber(writer, earthquake.getLongitude());
+        writer.write(',');
+        writeCsvNumber(writer, earthquake.getDepth());
+        writer.write(',');
+        writeCsvNumber(writer, earthquake.getMagnitude());
+        writer.write(',');
+        writeCsvField(writer, getPlace(earthquake));
+        writer.write(',');
+        writeCsvField(writer, earthquake.getId());
+        writer.write(',');
+        writeCsvField(writer, earthquake.getSource());
+        writer.write(',');
+        writer.write(earthquake.isTsunami() ? '1' : '0');
+        writer.write(',');
+        writeCsvField(writer, earthquake.getUrl());
+        writer.write('\n');
+    }
+
+    /**
+     * Writes a number as a CSV field, which is left empty when the value is missing.
+     */
+    private static void writeCsvNumber(Writer writer, double value) throws IOException {
+        if (!isMissing(value)) {
+            writer.write(Double.toString(value));
+        }
+    }
+
+    /**
+     * Writes a CSV field, quoted when it holds a separator, a quote or a line break.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                // Quotes are escaped by doubling them.
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Writes an earthquake as a GeoJSON Feature, preceded by a comma unless it is the first.
+     */
+    private static void writeFeature(Writer writer, Earthquake earthquake, boolean separated)
+            throws IOException {
+        if (separated) {
+            writer.write(',');
+        }
+        writer.write("\n{\"type\":\"Feature\",\"properties\":{\"mag\":");
+        writeJsonNumber(writer, earthquake.getMagnitude());
+        writer.write(",\"place\":");
+        writeJsonString(writer, getPlace(earthquake));
+        writer.write(",\"time\":");
+        writer.write(Long.toString(earthquake.getTimeMillis()));
+        writer.write(",\"url\":");
+        writeJsonString(writer, earthquake.getUrl());
+        writer.write(",\"tsunami\":");
+        writer.write(earthquake.isTsunami() ? '1' : '0');
+        writer.write(",\"sources\":");
+        writeJsonString(writer, earthquake.getSource());
+        writer.write("},\"geometry\":{\"type\":\"Point\",\"coordinates\":[");
+        writeJsonNumber(writer, earthquake.getLongitude());
+        writer.write(',');
+        writeJsonNumber(writer, earthquake.getLatitude());
+        writer.write(',');
+        writeJsonNumber(writer, earthquake.getDepth());
+        writer.write("]},\"id\":");
+        writeJsonString(writer, earthquake.getId());
+        writer.write('}');
+    }
+
+    /**
+     * Writes a JSON number, or null when the value is missing as JSON has no NaN.
+     */
+    private static void writeJsonNumber(Writer writer, double value) throws IOException {
+        writer.write(isMissing(value) ? "null" : Double.toString(value));
+    }
+
+    /**
+     * @return Whether "value" is missing, e.g. a depth some event services leave out, which is
+     * decoded as {@link JSONUtilConstants#FALLBACK_DOUBLE}.
+     */
+    private static boolean isMissing(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value);
+    }
+
+    /**
+     * Writes a JSON string, or null.
+     */
+    private static void writeJsonString(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                // Control characters are written as unicode escapes.
+                writer.write(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,243 @@
+package com.basic.quake_report.utils;
+
+import android.util.Log;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queries several {@link EarthquakeProvider} concurrently and merges their earthquakes into a
+ * single list, collapsing the earthquakes reported by more than one agency.
+ */
+public class EarthquakeFederation implements NetworkUtilsConstants {
+
+    // Reports whose origin times differ by at most 30 seconds may be the same earthquake.
+    private static final long TIME_TOLERANCE_MS = 30_000L;
+
+    // Reports whose epicentres are at most 100 km apart may be the same earthquake.
+    private static final double DISTANCE_TOLERANCE_KM = 100.0;
+
+    // Reports whose magnitudes differ by at most 0.5 may be the same earthquake.
+    private static final double MAGNITUDE_TOLERANCE = 0.5;
+
+    // Time given to all providers to respond, after which slow ones are left out.
+    private static final long TIMEOUT_SECONDS = 30L;
+
+    // Orders waiting requests by the lane of their caller, then in order of submission.
+    private static final Comparator<Runnable> LANE_ORDER = new Comparator<Runnable>() {
+        @Override
+        public int compare(Runnable first, Runnable second) {
+            LaneTask<?> firstTask = (LaneTask<?>) first;
+            LaneTask<?> secondTask = (LaneTask<?>) second;
+            return firstTask.mLane != secondTask.mLane ?
+                    Integer.compare(firstTask.mLane, secondTask.mLane) :
+                    Long.compare(firstTask.mSequence, secondTask.mSequence);
+        }
+    };
+
+    // Numbers the requests in order of submission.
+    private static final AtomicLong mSubmitted = new AtomicLong();
+
+    // Federation of the default providers, created on first use.
+    private static EarthquakeFederation mDefault;
+
+    // Providers in order of preference, the first one's reports are kept on duplicates.
+    private final List<EarthquakeProvider> mProviders;
+
+    // Runs one request per provider, the waiting requests of visible work first.
+    private final ThreadPoolExecutor mExecutor;
+
+    /**
+     * A provider request, ordered by the {@link BackgroundScheduler} lane of its caller.
+     */
+    private static class LaneTask<T> extends FutureTask<T> {
+
+        // Lane of the caller.
+        private final int mLane = BackgroundScheduler.getCurrentLane();
+
+        // Order of submission.
+        private final long mSequence = mSubmitted.getAndIncrement();
+
+        LaneTask(Callable<T> callable) {
+            super(callable);
+        }
+    }
+
+    /**
+     * @param providers Providers in order of preference.
+     */
+    public EarthquakeFederation(List<EarthquakeProvider> providers) {
+        mProviders = new ArrayList<>(providers);
+        // Requests of the list wait for a thread ahead of those of prefetches and the backfill.
+        mExecutor = new ThreadPoolExecutor(mProviders.size(), mProviders.size(), 30L,
+                TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(11, LANE_ORDER)) {
+            @Override
+            protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+                // Created on the submitting thread, so the task takes its caller's lane.
+                return new LaneTask<>(callable);
+            }
+        };
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return Federation of USGS, EMSC and GEOFON, in that order of preference. USGS lists are
+     * requested as "text", the lightest format it offers, or as "csv" should it stop answering
+     * "text", and EMSC and GEOFON only offer "text".
+     */
+    public static synchronized EarthquakeFederation getDefault() {
+        if (mDefault == null) {
+            EarthquakeDecoder emsc = new FdsnTextDecoder(EVENT_URL_EMSC, null);
+            EarthquakeDecoder geofon = new FdsnTextDecoder(EVENT_URL_GEOFON, null);
+            mDefault = new EarthquakeFederation(Arrays.asList(
+                    new FdsnProvider(PROVIDER_USGS, DOMAIN, new GeoJsonDecoder(),
+                            new FdsnTextDecoder(EVENT_URL_USGS, DETAIL_URL_USGS),
+                            new CsvDecoder(EVENT_URL_USGS, DETAIL_URL_USGS)),
+                    new FdsnProvider(PROVIDER_EMSC, DOMAIN_EMSC, emsc, emsc),
+                    new FdsnProvider(PROVIDER_GEOFON, DOMAIN_GEOFON, geofon, geofon)));
+        }
+        return mDefault;
+    }
+
+    /**
+     * Replaces the default federation, e.g. with one made of local stand-in providers.
+     *
+     * @param federation The federation used by the app from now on.
+     */
+    public static synchronized void setDefault(EarthquakeFederation federation) {
+        mDefault = federation;
+    }
+
+    /**
+     * @return The provider whose reports are kept on duplicates.
+     */
+    public EarthquakeProvider getPreferredProvider() {
+        return mProviders.get(0);
+    }
+
+    /**
+     * Downloads the earthquakes matching "query" from every provider. It must be invoked off the
+     * main thread.
+     *
+     * @param query It is the earthquakes to request.
+     * @return Earthquakes of every provider without duplicates, ordered and limited as "query"
+     * asks, or null if no provider responded.
+     */
+    public ArrayList<Earthquake> getEarthquakes(EarthquakeQuery query) {
+        return getEarthquakes(query, null);
+    }
+
+    /**
+     * Downloads the earthquakes matching "query" from every provider, handing the earthquakes of
+     * the preferred provider to "listener" as they are decoded. It must be invoked off the main
+     * thread.
+     *
+     * @param query    It is the earthquakes to request.
+     * @param listener Receives the preferred provider's earthquakes in the order it sends them,
+     *                 before any merging, or null.
+     * @return Earthquakes of every provider without duplicates, ordered and limited as "query"
+     * asks, or null if no provider responded.
+     */
+    public ArrayList<Earthquake> getEarthquakes(EarthquakeQuery query,
+                                                EarthquakeChunkListener listener) {
+        // A single provider needs neither threads nor de-duplication.
+        if (mProviders.size() == 1) {
+            return mProviders.get(0).getEarthquakes(query, listener);
+        }
+
+        // Starts every request at once.
+        List<Future<ArrayList<Earthquake>>> futures = new ArrayList<>();
+        for (int i = 0; i < mProviders.size(); i++) {
+            EarthquakeProvider provider = mProviders.get(i);
+            EarthquakeChunkListener providerListener = i == 0 ? listener : null;
+            futures.add(mExecutor.submit(new Callable<ArrayList<Earthquake>>() {
+                @Override
+                public ArrayList<Earthquake> call() {
+                    return provider.getEarthquakes(query, providerListener);
+                }
+            }));
+        }
+
+        // Collects the responses in order of preference.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        ArrayList<Earthquake> merged = null;
+        for (int i = 0; i < futures.size(); i++) {
+            Future<ArrayList<Earthquake>> future = futures.get(i);
+            try {
+                ArrayList<Earthquake> earthquakes = future.get(
+                        Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (earthquakes != null) {
+                    if (merged == null) {
+                        merged = new ArrayList<>();
+                    }
+                    merged.addAll(earthquakes);
+                }
+            } catch (ExecutionException | TimeoutException e) {
+                future.cancel(true);
+                Log.e(TAG, mProviders.get(i).getName() + " failed - " + e.getMessage());
+            } catch (InterruptedException e) {
+                // Loader got cancelled.
+                for (Future<ArrayList<Earthquake>> pending : futures) {
+                    pending.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        if (merged == null) {
+            return null;
+        }
+
+        ArrayList<Earthquake> earthquakes = EventDeduplicator.deduplicate(merged,
+                TIME_TOLERANCE_MS, DISTANCE_TOLERANCE_KM, MAGNITUDE_TOLERANCE);
+        sort(earthquakes, query);
+
+        // Keeps the number of earthquakes a single provider would return.
+        if (earthquakes.size() > query.getLimit()) {
+            earthquakes.subList(query.getLimit(), earthquakes.size()).clear();
+        }
+        return earthquakes;
+    }
+
+    /**
+     * Orders the earthquakes the way an event service would for "query".
+     */
+    static void sort(List<Earthquake> earthquakes, EarthquakeQuery query) {
+        if (query.isOrderedByTime()) {
+            // Most recent first.
+            Collections.sort(earthquakes, new Comparator<Earthquake>() {
+                @Override
+                public int compare(Earthquake first, Earthquake second) {
+                    return Long.compare(second.getTimeMillis(), first.getTimeMillis());
+                }
+            });
+        } else {
+            // Largest first, most recent first on equal magnitudes.
+            Collections.sort(earthquakes, new Comparator<Earthquake>() {
+                @Override
+                public int compare(Earthquake first, Earthquake second) {
+                    int byMagnitude = Double.compare(second.getMagnitude(),
+                            first.getMagnitude());
+                    return byMagnitude != 0 ? byMagnitude :
+                            Long.compare(second.getTimeMillis(), first.getTimeMillis());
+                }
+            });
+        }
+    }
+}
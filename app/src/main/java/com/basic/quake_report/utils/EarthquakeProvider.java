@@ -0,0 +1,29 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.ArrayList;
+
+/**
+ * An event service earthquakes are downloaded from, e.g. the USGS fdsnws "query" endpoint.
+ * <p>
+ * {@link EarthquakeFederation} queries every provider through this interface, so any of them can
+ * be replaced by a local stand-in.
+ */
+public interface EarthquakeProvider {
+
+    /**
+     * @return Name of the agency running the event service e.g. "USGS".
+     */
+    String getName();
+
+    /**
+     * Downloads and parses the earthquakes matching "query". It is invoked off the main thread.
+     *
+     * @param query    It is the earthquakes to request.
+     * @param listener Receives the earthquakes as they are decoded, or null. A provider unable to
+     *                 decode a partial response may never invoke it.
+     * @return An ArrayList of occurred {@link Earthquake}, or null if the request failed.
+     */
+    ArrayList<Earthquake> getEarthquakes(EarthquakeQuery query, EarthquakeChunkListener listener);
+}
@@ -0,0 +1,256 @@
+package com.basic.quake_report.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.preference.PreferenceManager;
+
+import com.basic.quake_report.R;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Defines which earthquakes are requested from the event services i.e. the parameters of an
+ * fdsnws "query".
+ */
+public class EarthquakeQuery implements NetworkUtilsConstants {
+
+    // Length of a day in milliseconds.
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // Format of the "starttime" and "endtime" parameters, always in UTC.
+    private static final String PATTERN_TIME = "yyyy-MM-dd'T'HH:mm:ss";
+
+    // Minimum magnitude of the earthquakes.
+    private final double minMagnitude;
+
+    // Order of the earthquakes, either "magnitude" or "time".
+    private final String orderBy;
+
+    // Starting time of the earthquake occurrences, as a Unix-Timestamp in milliseconds.
+    private final long startMillis;
+
+    // Ending time of the earthquake occurrences, as a Unix-Timestamp in milliseconds.
+    private final long endMillis;
+
+    // Starting time of the earthquake occurrences, as "yyyy-MM-ddTHH:mm:ss".
+    private final String startTime;
+
+    // Ending time of the earthquake occurrences, as "yyyy-MM-ddTHH:mm:ss".
+    private final String endTime;
+
+    // Maximum number of earthquakes returned.
+    private final int limit;
+
+    // Whether only the fields shown by the list i.e. magnitude, place, time and id are needed.
+    private final boolean listOnly;
+
+    // Latitude of the centre of the region, NaN for earthquakes anywhere.
+    private final double latitude;
+
+    // Longitude of the centre of the region, NaN for earthquakes anywhere.
+    private final double longitude;
+
+    // Radius of the region in kilometres, NaN for earthquakes anywhere.
+    private final double maxRadiusKm;
+
+    public EarthquakeQuery(double minMagnitude, String orderBy, long startMillis, long endMillis,
+                           int limit) {
+        this(minMagnitude, orderBy, startMillis, endMillis, limit, false);
+    }
+
+    public EarthquakeQuery(double minMagnitude, String orderBy, long startMillis, long endMillis,
+                           int limit, boolean listOnly) {
+        this(minMagnitude, orderBy, startMillis, endMillis, limit, listOnly, Double.NaN,
+                Double.NaN, Double.NaN);
+    }
+
+    public EarthquakeQuery(double minMagnitude, String orderBy, long startMillis, long endMillis,
+                           int limit, boolean listOnly, double latitude, double longitude,
+                           double maxRadiusKm) {
+        this.minMagnitude = minMagnitude;
+        this.orderBy = orderBy;
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.startTime = formatTime(startMillis);
+        this.endTime = formatTime(endMillis);
+        this.limit = limit;
+        this.listOnly = listOnly;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.maxRadiusKm = maxRadiusKm;
+    }
+
+    /**
+     * Forms the query the user asked for. It takes user preferences from SharedPreference that
+     * points to the default file.
+     *
+     * @param context It is used access SharedPreferences.
+     * @return Query having user preferred "Order By", "Min Magnitude" and "Time Range".
+     */
+    public static EarthquakeQuery fromPreferences(Context context) {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // User preferred min. mag.
+        double minMagnitude = Double.parseDouble(preferences.getString(
+                context.getString(R.string.pref_magnitude_value),
+                context.getString(R.string.pref_magnitude_default)));
+
+        // User preferred order by.
+        String orderBy = preferences.getString(context.getString(R.string.pref_order_by_value),
+                context.getString(R.string.pref_order_by_default));
+
+        return forList(context, minMagnitude, orderBy);
+    }
+
+    /**
+     * Forms a query of the earthquakes shown by the list, over the user preferred "Time Range".
+     *
+     * @param context      It is used access SharedPreferences.
+     * @param minMagnitude Minimum magnitude of the earthquakes.
+     * @param orderBy      Order of the earthquakes, either "magnitude" or "time".
+     * @return Query over whole UTC days, so it stays the same query for the rest of the day.
+     */
+    public static EarthquakeQuery forList(Context context, double minMagnitude, String orderBy) {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // User preferred number of days shown.
+        int days = Integer.parseInt(preferences.getString(
+                context.getString(R.string.pref_range_days_value),
+                context.getString(R.string.pref_range_days_default)));
+
+        // User preferred number of days the range ends before today.
+        int daysAgo = Integer.parseInt(preferences.getString(
+                context.getString(R.string.pref_range_end_value),
+                context.getString(R.string.pref_range_end_default)));
+
+        // Range ends at the end of the chosen UTC day.
+        long tomorrow = (System.currentTimeMillis() / DAY_MILLIS + 1) * DAY_MILLIS;
+        long endMillis = tomorrow - daysAgo * DAY_MILLIS;
+
+        // The list is the only screen showing the results.
+        return new EarthquakeQuery(minMagnitude, orderBy, endMillis - days * DAY_MILLIS,
+                endMillis, Integer.parseInt(PARAMETER_LIMIT_VALUE), true);
+    }
+
+    /**
+     * @return "millis" formatted as a "starttime" or "endtime" parameter.
+     */
+    static String formatTime(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat(PATTERN_TIME, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+
+    /**
+     * @return The minimum magnitude of the earthquakes.
+     */
+    public double getMinMagnitude() {
+        return minMagnitude;
+    }
+
+    /**
+     * @return Order of the earthquakes, either "magnitude" or "time".
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * @return Starting time of the earthquake occurrences, as "yyyy-MM-ddTHH:mm:ss" in UTC.
+     */
+    public String getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return Ending time of the earthquake occurrences, as "yyyy-MM-ddTHH:mm:ss" in UTC.
+     */
+    public String getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * @return Starting time of the earthquake occurrences, as a Unix-Timestamp in milliseconds.
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return Ending time of the earthquake occurrences, as a Unix-Timestamp in milliseconds.
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    /**
+     * @return Maximum number of earthquakes returned.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return Whether only the fields shown by the list are needed, so a lighter format than
+     * GeoJSON may be requested.
+     */
+    public boolean isListOnly() {
+        return listOnly;
+    }
+
+    /**
+     * @return Whether only the earthquakes of a circular region are requested.
+     */
+    public boolean isRegional() {
+        return !Double.isNaN(maxRadiusKm);
+    }
+
+    /**
+     * @return Latitude of the centre of the region, NaN for earthquakes anywhere.
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return Longitude of the centre of the region, NaN for earthquakes anywhere.
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return Radius of the region in kilometres, NaN for earthquakes anywhere.
+     */
+    public double getMaxRadiusKm() {
+        return maxRadiusKm;
+    }
+
+    /**
+     * @return A key identifying this query, equal for queries requesting the same earthquakes
+     * in the same order with the same fields e.g. min. mag. "5" and "5.0" give the same key.
+     * Queries needing every field get a key of their own, as results of the list lack some.
+     */
+    public String getKey() {
+        return PARAMETER_MIN_MAG_KEY + '=' + minMagnitude +
+                '&' + PARAMETER_ORDER_BY_KEY + '=' + orderBy +
+                '&' + PARAMETER_START_KEY + '=' + startTime +
+                '&' + PARAMETER_END_KEY + '=' + endTime +
+                '&' + PARAMETER_LIMIT_KEY + '=' + limit +
+                (isRegional() ? '&' + PARAMETER_LATITUDE_KEY + '=' + latitude +
+                        '&' + PARAMETER_LONGITUDE_KEY + '=' + longitude +
+                        '&' + PARAMETER_MAX_RADIUS_KEY + '=' + maxRadiusKm + "km" : "") +
+                (listOnly ? "" : '&' + PARAMETER_FORMAT_KEY + '=' + PARAMETER_FORMAT_VALUE);
+    }
+
+    /**
+     * @return Whether the earthquakes are ordered by time, most recent first.
+     */
+    public boolean isOrderedByTime() {
+        return ORDER_BY_TIME.equals(orderBy);
+    }
+}
@@ -0,0 +1,338 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Answers a query locally when its earthquakes are all part of a result already loaded, so
+ * changing the min. mag. or the order of the list skips the network.
+ * <p>
+ * The loaded result is indexed once: its earthquakes are stored most recent first, and their
+ * positions are sorted by magnitude into a primitive array. A query is then answered by a
+ * binary search over the magnitudes and, when ordered by time, a sort of primitive positions,
+ * never by sorting Earthquake objects through a comparator.
+ * <p>
+ * The index goes stale as the results of {@link EarthquakeResultCache} do, and is dropped once
+ * {@link EarthquakeRepository} adds earthquakes of its range it does not hold.
+ */
+public class EarthquakeQueryEngine {
+
+    // Bits of a sort key holding a position, which limits an index to 2^21 earthquakes.
+    private static final int POSITION_BITS = 21;
+
+    // Extracts the position from a sort key.
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+
+    // Longest span of time an index can hold, as the rest of a sort key holds the time.
+    private static final long MAX_TIME_SPAN = 1L << (Long.SIZE - 1 - POSITION_BITS);
+
+    // Below this share of the earthquakes, matches are sorted rather than filtered in time order.
+    private static final int SORT_FRACTION = 16;
+
+    // Index of the widest result loaded, or null if none can answer other queries.
+    private static volatile EarthquakeQueryEngine mLoaded;
+
+    // Query whose result is indexed.
+    private final EarthquakeQuery mQuery;
+
+    // Min. mag. from which every earthquake of the query's range is held.
+    private final double mCompleteFrom;
+
+    // Whether earthquakes of exactly "mCompleteFrom" are all held too.
+    private final boolean mCompleteInclusive;
+
+    // Earthquakes most recent first, so a position is also the rank by time.
+    private final Earthquake[] mEarthquakes;
+
+    // Positions ordered by magnitude, largest first, and by time on equal magnitudes.
+    private final int[] mByMagnitude;
+
+    // Magnitudes in the order of "mByMagnitude".
+    private final double[] mSortedMagnitudes;
+
+    // Magnitudes by position.
+    private final double[] mMagnitudes;
+
+    // Unix-Timestamp in milliseconds when the indexed result was fetched.
+    private final long mFetchedMillis;
+
+    private EarthquakeQueryEngine(EarthquakeQuery query, double completeFrom,
+                                  boolean completeInclusive, List<Earthquake> earthquakes,
+                                  long fetchedMillis) {
+        mQuery = query;
+        mCompleteFrom = completeFrom;
+        mCompleteInclusive = completeInclusive;
+        mFetchedMillis = fetchedMillis;
+
+        int count = earthquakes.size();
+        long latest = Long.MIN_VALUE;
+        for (Earthquake earthquake : earthquakes) {
+            latest = Math.max(latest, earthquake.getTimeMillis());
+        }
+
+        // Most recent first, equal times keep their order.
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (latest - earthquakes.get(i).getTimeMillis()) << POSITION_BITS | i;
+        }
+        Arrays.sort(keys);
+        mEarthquakes = new Earthquake[count];
+        mMagnitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            mEarthquakes[i] = earthquakes.get((int) (keys[i] & POSITION_MASK));
+            mMagnitudes[i] = mEarthquakes[i].getMagnitude();
+        }
+
+        // Number of larger magnitudes ranks a magnitude, largest first.
+        double[] ascending = mMagnitudes.clone();
+        Arrays.sort(ascending);
+        for (int i = 0; i < count; i++) {
+            long larger = count - upperBound(ascending, mMagnitudes[i]);
+            keys[i] = larger << POSITION_BITS | i;
+        }
+        Arrays.sort(keys);
+        mByMagnitude = new int[count];
+        mSortedMagnitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            mByMagnitude[i] = (int) (keys[i] & POSITION_MASK);
+            mSortedMagnitudes[i] = mMagnitudes[mByMagnitude[i]];
+        }
+    }
+
+    /**
+     * @return Index of the first value of ascending "values" greater than "value".
+     */
+    private static int upperBound(double[] values, double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Indexes the complete result of a query, unless the result already indexed is wider.
+     *
+     * @param query       It is the query "earthquakes" answer.
+     * @param earthquakes Prepared earthquakes ordered and limited as "query" asks.
+     */
+    public static void load(EarthquakeQuery query, List<Earthquake> earthquakes) {
+        EarthquakeQueryEngine engine = index(query, earthquakes, System.currentTimeMillis());
+        if (engine == null) {
+            return;
+        }
+
+        // A wider result of the same range answers more queries, a result as wide is fresher.
+        EarthquakeQueryEngine loaded = mLoaded;
+        if (loaded == null || !loaded.isSameRange(query) ||
+                engine.mCompleteFrom <= loaded.mCompleteFrom) {
+            mLoaded = engine;
+        }
+    }
+
+    /**
+     * @param query       It is the query "earthquakes" answer.
+     * @param earthquakes Prepared earthquakes ordered and limited as "query" asks.
+     * @return Index of "earthquakes", or null if they cannot answer any other query.
+     */
+    static EarthquakeQueryEngine index(EarthquakeQuery query, List<Earthquake> earthquakes) {
+        return index(query, earthquakes, System.currentTimeMillis());
+    }
+
+    /**
+     * @param query         It is the query "earthquakes" answer.
+     * @param earthquakes   Prepared earthquakes ordered and limited as "query" asks.
+     * @param fetchedMillis Unix-Timestamp in milliseconds when "earthquakes" were fetched.
+     * @return Index of "earthquakes", or null if they cannot answer any other query.
+     */
+    static EarthquakeQueryEngine index(EarthquakeQuery query, List<Earthquake> earthquakes,
+                                       long fetchedMillis) {
+        if (earthquakes == null || earthquakes.size() > POSITION_MASK) {
+            return null;
+        }
+
+        double completeFrom;
+        boolean completeInclusive;
+        if (earthquakes.size() < query.getLimit()) {
+            // Nothing was cut by the limit.
+            completeFrom = query.getMinMagnitude();
+            completeInclusive = true;
+        } else if (!query.isOrderedByTime() && !earthquakes.isEmpty()) {
+            // Only the smallest magnitudes were cut, though some equal to the last may be.
+            completeFrom = earthquakes.get(earthquakes.size() - 1).getMagnitude();
+            completeInclusive = false;
+        } else {
+            // Earthquakes of any magnitude may have been cut.
+            return null;
+        }
+
+        long earliest = Long.MAX_VALUE;
+        long latest = Long.MIN_VALUE;
+        for (Earthquake earthquake : earthquakes) {
+            earliest = Math.min(earliest, earthquake.getTimeMillis());
+            latest = Math.max(latest, earthquake.getTimeMillis());
+        }
+        // Sort keys hold the time before the latest earthquake.
+        if (!earthquakes.isEmpty() &&
+                (latest - earliest < 0 || latest - earliest >= MAX_TIME_SPAN)) {
+            return null;
+        }
+
+        return new EarthquakeQueryEngine(query, completeFrom, completeInclusive, earthquakes,
+                fetchedMillis);
+    }
+
+    /**
+     * @param query It is the earthquakes requested.
+     * @return The earthquakes of "query" from the result loaded, or null if it may not hold all
+     * of them and they have to be downloaded.
+     */
+    public static List<Earthquake> answer(EarthquakeQuery query) {
+        return answer(query, System.currentTimeMillis());
+    }
+
+    /**
+     * @param query     It is the earthquakes requested.
+     * @param nowMillis It is the current time, as a Unix-Timestamp in milliseconds.
+     * @return The earthquakes of "query" from the result loaded, or null if it may not hold all
+     * of them or is stale, and they have to be downloaded.
+     */
+    static List<Earthquake> answer(EarthquakeQuery query, long nowMillis) {
+        EarthquakeQueryEngine loaded = mLoaded;
+        if (loaded == null) {
+            return null;
+        }
+
+        // Results of a range still receiving earthquakes are fetched again after a while.
+        if (!EarthquakeResultCache.isFresh(loaded.mQuery, loaded.mFetchedMillis, nowMillis)) {
+            mLoaded = null;
+            return null;
+        }
+        return loaded.query(query);
+    }
+
+    /**
+     * Drops the loaded result if it lacks one of "added", so queries it answered are
+     * downloaded again.
+     *
+     * @param added Earthquakes {@link EarthquakeRepository} did not hold before.
+     */
+    static void invalidate(List<Earthquake> added) {
+        EarthquakeQueryEngine loaded = mLoaded;
+        if (loaded != null && !loaded.holds(added)) {
+            mLoaded = null;
+        }
+    }
+
+    /**
+     * @param earthquakes It is earthquakes which may be part of the queries answered.
+     * @return Whether every one of "earthquakes" the loaded result should hold is held.
+     */
+    private boolean holds(List<Earthquake> earthquakes) {
+        for (Earthquake earthquake : earthquakes) {
+            long time = earthquake.getTimeMillis();
+            if (earthquake.getMagnitude() < mCompleteFrom || time < mQuery.getStartMillis() ||
+                    time > mQuery.getEndMillis()) {
+                continue;
+            }
+
+            // Earthquakes are most recent first, so those of equal time are found by search.
+            int low = 0;
+            int high = mEarthquakes.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (mEarthquakes[middle].getTimeMillis() > time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            boolean held = false;
+            for (int i = low; i < mEarthquakes.length &&
+                    mEarthquakes[i].getTimeMillis() == time && !held; i++) {
+                held = earthquake.getId() != null &&
+                        earthquake.getId().equals(mEarthquakes[i].getId());
+            }
+            if (!held) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether "query" covers the same time range as the indexed query.
+     */
+    private boolean isSameRange(EarthquakeQuery query) {
+        return mQuery.getStartMillis() == query.getStartMillis() &&
+                mQuery.getEndMillis() == query.getEndMillis();
+    }
+
+    /**
+     * @param query It is the earthquakes requested.
+     * @return Whether every earthquake of "query" is held.
+     */
+    boolean contains(EarthquakeQuery query) {
+        double minMagnitude = query.getMinMagnitude();
+        return isSameRange(query) && (minMagnitude > mCompleteFrom ||
+                (mCompleteInclusive && minMagnitude == mCompleteFrom));
+    }
+
+    /**
+     * @param query It is the earthquakes requested.
+     * @return The earthquakes of "query" ordered and limited as it asks, or null if they are not
+     * all held.
+     */
+    List<Earthquake> query(EarthquakeQuery query) {
+        if (!contains(query)) {
+            return null;
+        }
+
+        // Magnitudes are sorted, so the matches are a prefix of "mByMagnitude".
+        double minMagnitude = query.getMinMagnitude();
+        int low = 0;
+        int high = mSortedMagnitudes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mSortedMagnitudes[middle] >= minMagnitude) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int matches = low;
+        int size = Math.min(matches, query.getLimit());
+        ArrayList<Earthquake> earthquakes = new ArrayList<>(size);
+
+        if (!query.isOrderedByTime()) {
+            for (int i = 0; i < size; i++) {
+                earthquakes.add(mEarthquakes[mByMagnitude[i]]);
+            }
+        } else if (matches < mEarthquakes.length / SORT_FRACTION) {
+            // Few matches, positions are their rank by time.
+            int[] positions = Arrays.copyOf(mByMagnitude, matches);
+            Arrays.sort(positions);
+            for (int i = 0; i < size; i++) {
+                earthquakes.add(mEarthquakes[positions[i]]);
+            }
+        } else {
+            // Many matches, filtering the earthquakes in time order is cheaper.
+            for (int i = 0; i < mEarthquakes.length && earthquakes.size() < size; i++) {
+                if (mMagnitudes[i] >= minMagnitude) {
+                    earthquakes.add(mEarthquakes[i]);
+                }
+            }
+        }
+        return earthquakes;
+    }
+}
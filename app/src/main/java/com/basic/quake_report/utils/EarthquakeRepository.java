@@ -0,0 +1,429 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Answers an {@link EarthquakeQuery} from the earthquakes already downloaded for its time range,
+ * downloading only the spans of the range which are missing.
+ */
+public class EarthquakeRepository implements NetworkUtilsConstants {
+
+    // Most earthquakes requested for a span, the maximum the USGS event service allows.
+    private static final int SPAN_LIMIT = 20000;
+
+    // Most requests made to fill the spans of a single query.
+    private static final int MAX_SPAN_REQUESTS = 8;
+
+    /*
+     * Earthquakes are published some time after they occur, so the latest 2 hours are never
+     * marked as downloaded and get requested again.
+     */
+    static final long PUBLICATION_DELAY_MS = 2 * 60 * 60 * 1000L;
+
+    // Spans downloaded so far with every field, for every magnitude floor.
+    private static final TimeRangeCache mRanges = new TimeRangeCache();
+
+    // Spans downloaded so far with only the fields shown by the list, for every magnitude floor.
+    private static final TimeRangeCache mListRanges = new TimeRangeCache();
+
+    // Groups the earthquakes of the range last asked for into sequences.
+    private static final AftershockClusterer mClusterer = new AftershockClusterer();
+
+    // Orders sequences by their latest earthquake, the most recent first.
+    private static final Comparator<AftershockSequence> LATEST_FIRST =
+            new Comparator<AftershockSequence>() {
+                @Override
+                public int compare(AftershockSequence first, AftershockSequence second) {
+                    return Long.compare(second.getLatestMillis(), first.getLatestMillis());
+                }
+            };
+
+    // Orders sequences by their mainshock, the largest first.
+    private static final Comparator<AftershockSequence> LARGEST_FIRST =
+            new Comparator<AftershockSequence>() {
+                @Override
+                public int compare(AftershockSequence first, AftershockSequence second) {
+                    return Double.compare(second.getMainshock().getMagnitude(),
+                            first.getMainshock().getMagnitude());
+                }
+            };
+
+    // Told about every earthquake downloaded for the first time, or null.
+    private static volatile NewEarthquakesListener mListener;
+
+    // Whether spans are downloaded with every field, even for list queries.
+    private static volatile boolean mFullEventsRequired;
+
+    // Directory of the chunks stored by the history backfill, or null.
+    private static volatile File mHistoryDirectory;
+
+    /**
+     * Receives the earthquakes downloaded for the first time, on the thread downloading them.
+     */
+    public interface NewEarthquakesListener {
+
+        /**
+         * @param earthquakes Earthquakes not downloaded before.
+         */
+        void onNewEarthquakes(List<Earthquake> earthquakes);
+    }
+
+    // Setting constructor private.
+    private EarthquakeRepository() {
+    }
+
+    /**
+     * @param listener Told about every earthquake downloaded for the first time, or null.
+     */
+    public static void setNewEarthquakesListener(NewEarthquakesListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Spans held with only the fields shown by the list are not used while every field is
+     * required, so they get downloaded again with every field.
+     *
+     * @param required Whether spans are downloaded with every field, e.g. the tsunami flag, even
+     *                 for queries only needing the fields shown by the list.
+     */
+    public static void setFullEventsRequired(boolean required) {
+        mFullEventsRequired = required;
+    }
+
+    /**
+     * @param directory Directory of the chunks stored by {@link HistoryBackfill}, read in place
+     *                  of downloading their spans, or null.
+     */
+    static void setHistoryDirectory(File directory) {
+        mHistoryDirectory = directory;
+    }
+
+    /**
+     * Downloads the spans of the query's time range not downloaded yet, and answers the query
+     * from every earthquake held for the range. It must be invoked off the main thread.
+     *
+     * @param query It is the earthquakes to request.
+     * @return Earthquakes ordered and limited as "query" asks, or null if a missing span could
+     * not be downloaded.
+     */
+    public static ArrayList<Earthquake> getEarthquakes(EarthquakeQuery query) {
+        return getEarthquakes(query, null);
+    }
+
+    /**
+     * Downloads the spans of the query's time range not downloaded yet, and answers the query
+     * from every earthquake held for the range. It must be invoked off the main thread.
+     * <p>
+     * When nothing of the range is held, the whole range is requested in the query's order and
+     * "listener" receives the earthquakes as they are decoded, so they arrive in the order the
+     * query asks for.
+     *
+     * @param query    It is the earthquakes to request.
+     * @param listener Receives the earthquakes of a range downloaded in full as they are
+     *                 decoded, or null.
+     * @return Earthquakes ordered and limited as "query" asks, or null if a missing span could
+     * not be downloaded.
+     */
+    public static ArrayList<Earthquake> getEarthquakes(EarthquakeQuery query,
+                                                       EarthquakeChunkListener listener) {
+        boolean listOnly = isListOnly(query);
+        return download(query, listOnly, listener) ? answer(query, listOnly) : null;
+    }
+
+    /**
+     * Selects the most significant earthquakes of the query's time range. The range is
+     * downloaded from the preferred event service in full, as only full events carry the USGS
+     * "sig", and every earthquake is fed to a bounded heap as it is decoded instead of being
+     * held and sorted. It must be invoked off the main thread.
+     * <p>
+     * An event service without full events has the range downloaded as
+     * {@link #getEarthquakes(EarthquakeQuery)} would, and the significance of its held
+     * earthquakes estimated from their magnitudes.
+     *
+     * @param query It is the min. mag. and time range of the earthquakes, its order and limit
+     *              are not used.
+     * @param count Number of earthquakes selected.
+     * @return The most significant earthquakes, most significant first, or null if the range
+     * could not be downloaded.
+     */
+    public static List<Earthquake> getMostSignificant(EarthquakeQuery query, int count) {
+        SignificanceSelector selector = new SignificanceSelector(count);
+
+        // Held spans may come from a list format, which lacks the "sig", so they are not used.
+        EarthquakeProvider provider = EarthquakeFederation.getDefault().getPreferredProvider();
+        if (provider instanceof FdsnProvider) {
+            // Largest first, so a range cut by the limit loses its least significant ones.
+            EarthquakeQuery fullQuery = new EarthquakeQuery(query.getMinMagnitude(),
+                    ORDER_BY_MAGNITUDE, query.getStartMillis(), query.getEndMillis(), SPAN_LIMIT,
+                    false);
+            if (((FdsnProvider) provider).scanFullEarthquakes(fullQuery, selector)) {
+                return selector.getTop();
+            }
+        }
+
+        // List formats only allow estimating the significance.
+        EarthquakeQuery rangeQuery = new EarthquakeQuery(query.getMinMagnitude(), ORDER_BY_TIME,
+                query.getStartMillis(), query.getEndMillis(), SPAN_LIMIT, true);
+        boolean listOnly = isListOnly(rangeQuery);
+        if (!download(rangeQuery, listOnly, null)) {
+            return null;
+        }
+        getRanges(listOnly).scan(query.getMinMagnitude(), query.getStartMillis(),
+                query.getEndMillis(), selector);
+        return selector.getTop();
+    }
+
+    /**
+     * Groups the earthquakes of the query's time range into mainshock / aftershock sequences.
+     * The range is downloaded as {@link #getEarthquakes(EarthquakeQuery)} would, and only the
+     * earthquakes synced since the range was last grouped are added to its sequences. It must
+     * be invoked off the main thread.
+     *
+     * @param query It is the earthquakes to group, ordered by the time of their latest
+     *              earthquake or by the magnitude of their mainshock and limited as it asks.
+     * @return Sequences of the range, or null if a missing span could not be downloaded.
+     */
+    public static List<AftershockSequence> getSequences(EarthquakeQuery query) {
+        // Sequences are grouped in time order, whatever order they are shown in.
+        EarthquakeQuery rangeQuery = new EarthquakeQuery(query.getMinMagnitude(), ORDER_BY_TIME,
+                query.getStartMillis(), query.getEndMillis(), SPAN_LIMIT, query.isListOnly());
+        boolean listOnly = isListOnly(rangeQuery);
+        if (!download(rangeQuery, listOnly, null)) {
+            return null;
+        }
+
+        // Only earthquakes synced since are added, any other change groups them from scratch.
+        List<AftershockSequence> sequences;
+        synchronized (mClusterer) {
+            mClusterer.update(getRanges(listOnly).get(query.getMinMagnitude(),
+                    query.getStartMillis(), query.getEndMillis()));
+            sequences = mClusterer.getSequences();
+
+            Collections.sort(sequences, query.isOrderedByTime() ? LATEST_FIRST : LARGEST_FIRST);
+            if (sequences.size() > query.getLimit()) {
+                sequences.subList(query.getLimit(), sequences.size()).clear();
+            }
+
+            // Sequences shown are copies, the clusterer keeps growing its own on later syncs.
+            for (int i = 0; i < sequences.size(); i++) {
+                sequences.set(i, sequences.get(i).snapshot());
+            }
+        }
+        return sequences;
+    }
+
+    /**
+     * @return Whether the spans of "query" are downloaded with only the fields shown by the
+     * list, which is found once per query as it may change while the query is answered.
+     */
+    private static boolean isListOnly(EarthquakeQuery query) {
+        return query.isListOnly() && !mFullEventsRequired;
+    }
+
+    /**
+     * @param listOnly Whether the spans hold only the fields shown by the list.
+     * @return Spans downloaded so far with those fields.
+     */
+    private static TimeRangeCache getRanges(boolean listOnly) {
+        return listOnly ? mListRanges : mRanges;
+    }
+
+    /**
+     * Downloads the spans of the query's time range not downloaded yet.
+     *
+     * @param listOnly Whether the spans are downloaded with only the fields shown by the list.
+     * @return Whether the earthquakes held can answer "query", false if a missing span could
+     * not be downloaded.
+     */
+    private static boolean download(EarthquakeQuery query, boolean listOnly,
+                                    EarthquakeChunkListener listener) {
+        double floor = query.getMinMagnitude();
+        long now = System.currentTimeMillis();
+
+        // Nothing later than now can be downloaded.
+        long end = Math.min(query.getEndMillis(), now);
+
+        // Earthquakes later than this may still be published.
+        long settled = now - PUBLICATION_DELAY_MS;
+
+        int requests = 0;
+        boolean recentDownloaded = false;
+        TimeRangeCache ranges = getRanges(listOnly);
+        List<long[]> gaps = ranges.getGaps(floor, query.getStartMillis(), end);
+
+        // Stored history, downloaded with only the fields shown by the list, fills what it can
+        // before anything is downloaded.
+        if (listOnly && !gaps.isEmpty() && loadHistory(floor, gaps)) {
+            gaps = ranges.getGaps(floor, query.getStartMillis(), end);
+        }
+        while (!gaps.isEmpty()) {
+            boolean requested = false;
+            for (long[] gap : gaps) {
+                // The unsettled end of the range stays a gap, and is requested once.
+                if (recentDownloaded && gap[0] >= settled) {
+                    continue;
+                }
+
+                if (requests++ == MAX_SPAN_REQUESTS) {
+                    // Answers from what is held, the rest is downloaded next time.
+                    return true;
+                }
+
+                // Only a download of the whole range arrives in the query's order.
+                boolean whole = requests == 1 && gap[0] == query.getStartMillis() &&
+                        gap[1] == end;
+                if (!downloadSpan(floor, gap[0], gap[1],
+                        whole ? query.getOrderBy() : ORDER_BY_TIME, listOnly, settled,
+                        whole ? listener : null)) {
+                    return false;
+                }
+                recentDownloaded |= gap[1] > settled;
+                requested = true;
+            }
+
+            if (!requested) {
+                break;
+            }
+            gaps = ranges.getGaps(floor, query.getStartMillis(), end);
+        }
+        return true;
+    }
+
+    /**
+     * Downloads the earthquakes of [start, end). A span holding more than {@link #SPAN_LIMIT}
+     * earthquakes is only marked downloaded back to its oldest earthquake received when ordered
+     * by time, and not at all when ordered by magnitude, leaving the rest as a gap.
+     *
+     * @param orderBy  Order the earthquakes are requested in.
+     * @param listOnly Whether only the fields shown by the list are requested.
+     * @param settled  Time before which every earthquake is published.
+     * @param listener Receives the earthquakes as they are decoded, or null.
+     * @return Whether the span could be downloaded.
+     */
+    private static boolean downloadSpan(double floor, long start, long end, String orderBy,
+                                        boolean listOnly, long settled,
+                                        EarthquakeChunkListener listener) {
+        EarthquakeQuery spanQuery = new EarthquakeQuery(floor, orderBy, start, end,
+                SPAN_LIMIT, listOnly);
+        ArrayList<Earthquake> earthquakes = EarthquakeFederation.getDefault()
+                .getEarthquakes(spanQuery, listener);
+        if (earthquakes == null) {
+            return false;
+        }
+
+        long coveredStart = start;
+        long coveredEnd = Math.min(end, settled);
+        if (earthquakes.size() >= SPAN_LIMIT) {
+            if (spanQuery.isOrderedByTime()) {
+                // Most recent first, so a cut list is complete back to its last earthquake.
+                coveredStart = Math.max(start,
+                        earthquakes.get(earthquakes.size() - 1).getTimeMillis() + 1);
+            } else {
+                // Smallest magnitudes got cut all over the span.
+                coveredStart = coveredEnd;
+            }
+        }
+
+        List<Earthquake> added = getRanges(listOnly).add(floor, coveredStart, coveredEnd,
+                earthquakes);
+        invalidate(floor, added);
+
+        NewEarthquakesListener newEarthquakesListener = mListener;
+        if (newEarthquakesListener != null && !added.isEmpty()) {
+            newEarthquakesListener.onNewEarthquakes(added);
+        }
+        return true;
+    }
+
+    /**
+     * Holds the earthquakes of the stored history chunks of "floor" overlapping "gaps". Only
+     * chunks of the history anywhere hold every earthquake of their span, and a chunk is only
+     * marked downloaded up to what was published when it got stored. Chunks are held with the
+     * spans of only the fields shown by the list, which is all they were downloaded with.
+     *
+     * @param gaps Spans not downloaded yet as {start, end}, oldest first.
+     * @return Whether any chunk was held.
+     */
+    private static boolean loadHistory(double floor, List<long[]> gaps) {
+        File directory = mHistoryDirectory;
+        File[] chunks = directory == null ? null : directory.listFiles();
+        if (chunks == null) {
+            return false;
+        }
+
+        boolean loaded = false;
+        for (File chunk : chunks) {
+            long[] span = HistoryBackfill.getSpan(chunk);
+            if (span == null) {
+                continue;
+            }
+
+            long coveredEnd = Math.min(span[1], chunk.lastModified() - PUBLICATION_DELAY_MS);
+            if (!overlaps(gaps, span[0], coveredEnd)) {
+                continue;
+            }
+
+            // Chunks of a region or of another floor have another key.
+            EarthquakeSnapshot.SnapshotList earthquakes = EarthquakeSnapshot.open(chunk,
+                    HistoryBackfill.getChunkKey(floor, span[0], span[1]));
+            if (earthquakes == null) {
+                continue;
+            }
+
+            // Most recent first, so a cut chunk is complete back to its last earthquake.
+            long coveredStart = span[0];
+            if (earthquakes.size() >= SPAN_LIMIT) {
+                coveredStart = Math.max(coveredStart,
+                        earthquakes.getTimeMillis(earthquakes.size() - 1) + 1);
+            }
+
+            invalidate(floor, mListRanges.add(floor, coveredStart, Math.max(coveredStart,
+                    coveredEnd), earthquakes));
+            loaded = true;
+        }
+        return loaded;
+    }
+
+    /**
+     * @return Whether [start, end) overlaps any of "gaps".
+     */
+    private static boolean overlaps(List<long[]> gaps, long start, long end) {
+        for (long[] gap : gaps) {
+            if (gap[0] < end && start < gap[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the results shown before, which lack the earthquakes "added" for "floor".
+     */
+    private static void invalidate(double floor, List<Earthquake> added) {
+        if (!added.isEmpty()) {
+            EarthquakeResultCache.invalidate(floor, added);
+            EarthquakeQueryEngine.invalidate(added);
+        }
+    }
+
+    /**
+     * @param listOnly Whether the spans of "query" were downloaded with only the fields shown
+     *                 by the list.
+     * @return Held earthquakes of the query's time range, ordered and limited as it asks.
+     */
+    private static ArrayList<Earthquake> answer(EarthquakeQuery query, boolean listOnly) {
+        ArrayList<Earthquake> earthquakes = getRanges(listOnly).get(query.getMinMagnitude(),
+                query.getStartMillis(), query.getEndMillis());
+        EarthquakeFederation.sort(earthquakes, query);
+        if (earthquakes.size() > query.getLimit()) {
+            earthquakes.subList(query.getLimit(), earthquakes.size()).clear();
+        }
+        return earthquakes;
+    }
+}
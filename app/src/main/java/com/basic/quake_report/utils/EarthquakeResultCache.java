@@ -0,0 +1,229 @@
+package com.basic.quake_report.utils;
+
+import android.content.ComponentCallbacks2;
+import android.util.LruCache;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the prepared earthquakes of recently loaded queries for the lifetime of the process, so
+ * showing a query again is a local lookup rather than a download.
+ * <p>
+ * Results are kept in an LRU cache bounded by their estimated size in bytes, which shrinks when
+ * the system reports memory pressure through {@link #trimMemory(int)}.
+ * <p>
+ * A result of a range still receiving earthquakes goes stale a few minutes after it was fetched,
+ * and any result is dropped once {@link EarthquakeRepository} adds earthquakes it should hold.
+ */
+public class EarthquakeResultCache {
+
+    // Share of the heap the results may take.
+    private static final int HEAP_FRACTION = 16;
+
+    // Estimated bytes of an earthquake, apart from its strings and rows.
+    private static final int EARTHQUAKE_BYTES = 128;
+
+    // Estimated bytes of a string, apart from its characters.
+    private static final int STRING_BYTES = 40;
+
+    // Estimated bytes of the laid out text of a flattened row.
+    private static final int ROW_LAYOUTS_BYTES = 1024;
+
+    // Estimated bytes of a result list, apart from its earthquakes.
+    private static final int LIST_BYTES = 64;
+
+    // Longest a result of a range still receiving earthquakes is shown without a refresh.
+    static final long OPEN_RANGE_TTL_MILLIS = 5 * 60 * 1000L;
+
+    // Results keyed by {@link EarthquakeQuery#getKey()}, sized in bytes.
+    private static final LruCache<String, Result> mResults = new LruCache<String, Result>(
+            (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / HEAP_FRACTION)) {
+        @Override
+        protected int sizeOf(String key, Result result) {
+            return result.mBytes;
+        }
+    };
+
+    /**
+     * Earthquakes of a query along with their size, which is estimated once as rows laid out
+     * later must not change the size the cache accounted for.
+     */
+    private static class Result {
+
+        // Query the earthquakes answer.
+        private final EarthquakeQuery mQuery;
+
+        // Prepared earthquakes.
+        private final List<Earthquake> mEarthquakes;
+
+        // Estimated bytes of "mEarthquakes" when held.
+        private final int mBytes;
+
+        // Unix-Timestamp in milliseconds when the earthquakes were fetched.
+        private final long mFetchedMillis;
+
+        private Result(EarthquakeQuery query, List<Earthquake> earthquakes, long fetchedMillis) {
+            mQuery = query;
+            mEarthquakes = earthquakes;
+            mBytes = estimateBytes(earthquakes);
+            mFetchedMillis = fetchedMillis;
+        }
+    }
+
+    // Setting constructor private.
+    private EarthquakeResultCache() {
+    }
+
+    /**
+     * @param query It is the earthquakes requested.
+     * @return The earthquakes of "query", or null if they are not loaded yet or are stale.
+     */
+    public static List<Earthquake> get(EarthquakeQuery query) {
+        return get(query, System.currentTimeMillis());
+    }
+
+    /**
+     * @param query     It is the earthquakes requested.
+     * @param nowMillis It is the current time, as a Unix-Timestamp in milliseconds.
+     * @return The earthquakes of "query", or null if they are not loaded yet or are stale.
+     */
+    static List<Earthquake> get(EarthquakeQuery query, long nowMillis) {
+        Result result = mResults.get(query.getKey());
+        if (result == null) {
+            return null;
+        }
+
+        // Stale results are dropped, the query is fetched again.
+        if (!isFresh(query, result.mFetchedMillis, nowMillis)) {
+            mResults.remove(query.getKey());
+            return null;
+        }
+        return result.mEarthquakes;
+    }
+
+    /**
+     * Holds the earthquakes of "query", replacing any older ones.
+     *
+     * @param query       It is the earthquakes requested.
+     * @param earthquakes Prepared earthquakes of "query".
+     */
+    public static void put(EarthquakeQuery query, List<Earthquake> earthquakes) {
+        put(query, earthquakes, System.currentTimeMillis());
+    }
+
+    /**
+     * Holds the earthquakes of "query", replacing any older ones.
+     *
+     * @param query         It is the earthquakes requested.
+     * @param earthquakes   Prepared earthquakes of "query".
+     * @param fetchedMillis Unix-Timestamp in milliseconds when the earthquakes were fetched.
+     */
+    static void put(EarthquakeQuery query, List<Earthquake> earthquakes, long fetchedMillis) {
+        mResults.put(query.getKey(), new Result(query, earthquakes, fetchedMillis));
+    }
+
+    /**
+     * Drops every result which should hold one of "added", so its query is fetched again.
+     *
+     * @param floor Magnitude floor the earthquakes were added for.
+     * @param added Earthquakes {@link EarthquakeRepository} did not hold before.
+     */
+    static void invalidate(double floor, List<Earthquake> added) {
+        for (Map.Entry<String, Result> entry : mResults.snapshot().entrySet()) {
+            if (isAffected(entry.getValue().mQuery, floor, added)) {
+                mResults.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * A result of a range whose earthquakes were still being published when it was fetched is
+     * fresh for {@link #OPEN_RANGE_TTL_MILLIS}, any other result until earthquakes are added to
+     * it.
+     *
+     * @param query         It is the query of a result.
+     * @param fetchedMillis Unix-Timestamp in milliseconds when the result was fetched.
+     * @param nowMillis     It is the current time, as a Unix-Timestamp in milliseconds.
+     * @return Whether the result can still be shown.
+     */
+    static boolean isFresh(EarthquakeQuery query, long fetchedMillis, long nowMillis) {
+        // Earthquakes of the range were still being published when it was fetched.
+        boolean open = query.getEndMillis() >
+                fetchedMillis - EarthquakeRepository.PUBLICATION_DELAY_MS;
+        return !open || nowMillis - fetchedMillis < OPEN_RANGE_TTL_MILLIS;
+    }
+
+    /**
+     * @param query It is the query of a result.
+     * @param floor Magnitude floor the earthquakes were added for.
+     * @param added Earthquakes {@link EarthquakeRepository} did not hold before.
+     * @return Whether the result of "query" should hold one of "added".
+     */
+    static boolean isAffected(EarthquakeQuery query, double floor, List<Earthquake> added) {
+        // Results are answered from the earthquakes held for their own min. mag. only.
+        if (query.getMinMagnitude() != floor) {
+            return false;
+        }
+
+        for (Earthquake earthquake : added) {
+            if (earthquake.getTimeMillis() >= query.getStartMillis() &&
+                    earthquake.getTimeMillis() <= query.getEndMillis()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops results according to the memory pressure reported by the system. Results of the
+     * least recently shown queries go first.
+     *
+     * @param level It is the level passed to {@link ComponentCallbacks2#onTrimMemory(int)}.
+     */
+    public static void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            // Process is among the next to be killed, whatever is held is lost anyway.
+            mResults.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW ||
+                level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            // Keeps the most recently shown results.
+            mResults.trimToSize(mResults.maxSize() / 2);
+        }
+    }
+
+    /**
+     * @param earthquakes It is a result to hold.
+     * @return Estimated bytes taken by "earthquakes" on the heap.
+     */
+    static int estimateBytes(List<Earthquake> earthquakes) {
+        long bytes = LIST_BYTES;
+        for (Earthquake earthquake : earthquakes) {
+            bytes += EARTHQUAKE_BYTES +
+                    estimateBytes(earthquake.getOffset()) +
+                    estimateBytes(earthquake.getPrimaryLocation()) +
+                    estimateBytes(earthquake.getDate()) +
+                    estimateBytes(earthquake.getTime()) +
+                    estimateBytes(earthquake.getUrl()) +
+                    estimateBytes(earthquake.getId()) +
+                    estimateBytes(earthquake.getDetailUrl()) +
+                    estimateBytes(earthquake.getSource()) +
+                    estimateBytes(earthquake.getMagnitudeText()) +
+                    estimateBytes(earthquake.getDisplayOffset());
+            if (earthquake.getRowLayouts() != null) {
+                bytes += ROW_LAYOUTS_BYTES;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    /**
+     * @return Estimated bytes taken by "text", which is 0 when absent.
+     */
+    private static int estimateBytes(String text) {
+        return text == null ? 0 : STRING_BYTES + 2 * text.length();
+    }
+}
@@ -0,0 +1,434 @@
+package com.basic.quake_report.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.basic.quake_report.Earthquake;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Stores a parsed, bind-ready list of earthquakes in a compact binary file, and reads it back by
+ * memory-mapping the file.
+ * <p>
+ * The file is a header, followed by one fixed-width record per earthquake, followed by a table
+ * of UTF-8 strings which the records point into. Reading it needs no parsing: a row is decoded
+ * from the mapping only when {@link SnapshotList#get(int)} is invoked for it, i.e. when it is
+ * bound, and the string references of a record are only checked then.
+ */
+public class EarthquakeSnapshot {
+
+    // Name of the snapshot file in the cache directory.
+    private static final String FILE_NAME = "earthquakes.snapshot";
+
+    // Identifies a snapshot file, "QKSN".
+    private static final int MAGIC = 0x514B534E;
+
+    // Version of the file format, bumped whenever the layout of a record changes.
+    private static final int VERSION = 1;
+
+    // Header: magic, version, count, record size, string table offset, query key (offset, length).
+    private static final int HEADER_SIZE = 7 * 4;
+
+    // Strings of a record, each stored as (offset, length) into the string table.
+    private static final int STRING_MAGNITUDE_TEXT = 0;
+    private static final int STRING_OFFSET = 1;
+    private static final int STRING_DISPLAY_OFFSET = 2;
+    private static final int STRING_LOCATION = 3;
+    private static final int STRING_DATE = 4;
+    private static final int STRING_TIME = 5;
+    private static final int STRING_URL = 6;
+    private static final int STRING_ID = 7;
+    private static final int STRING_DETAIL_URL = 8;
+    private static final int STRING_SOURCE = 9;
+    private static final int STRING_COUNT = 10;
+
+    // Positions of the fixed-width fields inside a record.
+    private static final int FIELD_MAGNITUDE = 0;
+    private static final int FIELD_TIME = 8;
+    private static final int FIELD_LATITUDE = 16;
+    private static final int FIELD_LONGITUDE = 24;
+    private static final int FIELD_DEPTH = 32;
+    private static final int FIELD_MAGNITUDE_COLOR = 40;
+    private static final int FIELD_STRINGS = 44;
+
+    // Size of a record.
+    private static final int RECORD_SIZE = FIELD_STRINGS + STRING_COUNT * 8;
+
+    // Encoding of the string table.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Used for logging.
+    private static final String TAG = "EarthquakeSnapshot";
+
+    // Setting constructor private.
+    private EarthquakeSnapshot() {
+    }
+
+    /**
+     * @param context Used to access the cache directory.
+     * @return The snapshot file of the app.
+     */
+    public static File getFile(Context context) {
+        return new File(context.getCacheDir(), FILE_NAME);
+    }
+
+    /**
+     * Writes the bind-ready earthquakes to "file", replacing it atomically. It must be invoked
+     * off the main thread.
+     *
+     * @param file        Snapshot file.
+     * @param queryKey    Key of the query these earthquakes answer, see
+     *                    {@link EarthquakeQuery#getKey()}.
+     * @param earthquakes Earthquakes prepared by
+     *                    {@link com.basic.quake_report.EarthquakeAdapter#prepareEarthquakeData}.
+     * @return Whether the snapshot got written.
+     */
+    public static boolean write(File file, String queryKey, List<Earthquake> earthquakes) {
+        // Strings repeat a lot e.g. dates and "Near The", so each is stored only once.
+        HashMap<String, Integer> stringOffsets = new HashMap<>();
+        ByteArrayOutputStream stringTable = new ByteArrayOutputStream();
+
+        int count = earthquakes.size();
+        ByteBuffer records = ByteBuffer.allocate(count * RECORD_SIZE);
+        String[] strings = new String[STRING_COUNT];
+
+        for (int i = 0; i < count; i++) {
+            Earthquake earthquake = earthquakes.get(i);
+            int record = i * RECORD_SIZE;
+
+            records.putDouble(record + FIELD_MAGNITUDE, earthquake.getMagnitude());
+            records.putLong(record + FIELD_TIME, earthquake.getTimeMillis());
+            records.putDouble(record + FIELD_LATITUDE, earthquake.getLatitude());
+            records.putDouble(record + FIELD_LONGITUDE, earthquake.getLongitude());
+            records.putDouble(record + FIELD_DEPTH, earthquake.getDepth());
+            records.putInt(record + FIELD_MAGNITUDE_COLOR, earthquake.getMagnitudeColor());
+
+            strings[STRING_MAGNITUDE_TEXT] = earthquake.getMagnitudeText();
+            strings[STRING_OFFSET] = earthquake.getOffset();
+            strings[STRING_DISPLAY_OFFSET] = earthquake.getDisplayOffset();
+            strings[STRING_LOCATION] = earthquake.getPrimaryLocation();
+            strings[STRING_DATE] = earthquake.getDate();
+            strings[STRING_TIME] = earthquake.getTime();
+            strings[STRING_URL] = earthquake.getUrl();
+            strings[STRING_ID] = earthquake.getId();
+            strings[STRING_DETAIL_URL] = earthquake.getDetailUrl();
+            strings[STRING_SOURCE] = earthquake.getSource();
+
+            for (int s = 0; s < STRING_COUNT; s++) {
+                int position = record + FIELD_STRINGS + s * 8;
+                if (strings[s] == null) {
+                    // Null is stored with a negative length.
+                    records.putInt(position, 0);
+                    records.putInt(position + 4, -1);
+                    continue;
+                }
+
+                byte[] bytes = strings[s].getBytes(UTF_8);
+                Integer offset = stringOffsets.get(strings[s]);
+                if (offset == null) {
+                    offset = stringTable.size();
+                    stringOffsets.put(strings[s], offset);
+                    stringTable.write(bytes, 0, bytes.length);
+                }
+                records.putInt(position, offset);
+                records.putInt(position + 4, bytes.length);
+            }
+        }
+
+        byte[] key = queryKey.getBytes(UTF_8);
+        int keyOffset = stringTable.size();
+        stringTable.write(key, 0, key.length);
+
+        // Written next to the snapshot first, so a reader never maps a partial file.
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temporary)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(count);
+            output.writeInt(RECORD_SIZE);
+            output.writeInt(HEADER_SIZE + count * RECORD_SIZE);
+            output.writeInt(keyOffset);
+            output.writeInt(key.length);
+            output.write(records.array());
+            stringTable.writeTo(output);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to write the snapshot - " + e.getMessage());
+            temporary.delete();
+            return false;
+        }
+        return temporary.renameTo(file);
+    }
+
+    /**
+     * Memory-maps a snapshot whatever query its earthquakes answer, e.g. to share them with
+     * other apps. Only the header is read.
+     *
+     * @param file Snapshot file.
+     * @return The earthquakes of the snapshot, or null if there is no valid snapshot.
+     */
+    public static SnapshotList open(File file) {
+        return open(file, null);
+    }
+
+    /**
+     * Memory-maps a snapshot. Only the header and the query key are read, so it takes the same
+     * time whatever the number of earthquakes, and is cheap enough for the main thread. A
+     * snapshot failing the checks, e.g. one truncated when the disk filled up, is deleted.
+     *
+     * @param file     Snapshot file.
+     * @param queryKey Key of the query the earthquakes must answer, or null for any query.
+     * @return The earthquakes of the snapshot, or null if there is no valid snapshot for
+     * "queryKey".
+     */
+    public static SnapshotList open(File file, String queryKey) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        SnapshotList snapshot;
+        String snapshotKey;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+
+            snapshot = check(buffer, file);
+            snapshotKey = snapshot == null ? null :
+                    snapshot.readString(buffer.getInt(20), buffer.getInt(24));
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to open the snapshot - " + e.getMessage());
+            return null;
+        } catch (RuntimeException e) {
+            // A read the checks did not foresee went past the end of the file.
+            Log.e(TAG, "Unable to read the snapshot - " + e);
+            snapshot = null;
+            snapshotKey = null;
+        }
+
+        if (snapshot == null) {
+            // Written by another version of the app, or corrupt.
+            file.delete();
+            return null;
+        }
+
+        if (queryKey != null && !queryKey.equals(snapshotKey)) {
+            // Snapshot of another query.
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Checks the header of a snapshot, and that the file ends where the header says. The string
+     * references of a record are checked as it is decoded, see {@link SnapshotList#readString}.
+     *
+     * @param buffer Mapping of the whole file.
+     * @param file   Snapshot file, deleted should a record turn out to be corrupt.
+     * @return The earthquakes of the snapshot, or null if it is not a valid snapshot.
+     */
+    private static SnapshotList check(ByteBuffer buffer, File file) {
+        int limit = buffer.limit();
+        if (limit < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION ||
+                buffer.getInt(12) != RECORD_SIZE) {
+            return null;
+        }
+
+        // Computed in long, so a corrupt count cannot overflow into a valid-looking offset.
+        int count = buffer.getInt(8);
+        int stringTable = buffer.getInt(16);
+        if (count < 0 || stringTable != HEADER_SIZE + (long) count * RECORD_SIZE ||
+                stringTable > limit) {
+            return null;
+        }
+
+        // Query key is never null, and is the last string written, so a truncated file lacks
+        // its end.
+        int keyOffset = buffer.getInt(20);
+        int keyLength = buffer.getInt(24);
+        if (keyLength < 0 || !isInTable(keyOffset, keyLength, limit - stringTable) ||
+                stringTable + (long) keyOffset + keyLength != limit) {
+            return null;
+        }
+        return new SnapshotList(buffer, count, stringTable, file);
+    }
+
+    /**
+     * @return Whether the string at (offset, length) lies within a string table of "size"
+     * bytes, a null string always doing so.
+     */
+    private static boolean isInTable(int offset, int length, int size) {
+        // Null is stored with a negative length.
+        return length < 0 || (offset >= 0 && offset <= size - length);
+    }
+
+    /**
+     * Earthquakes of a memory-mapped snapshot. An {@link Earthquake} is created only the first
+     * time its row is asked for, while magnitudes and times can be read without creating any.
+     */
+    public static class SnapshotList extends AbstractList<Earthquake>
+            implements LazyEarthquakeList {
+
+        // Mapping of the whole file.
+        private final ByteBuffer mBuffer;
+
+        // Number of earthquakes.
+        private final int mCount;
+
+        // Position of the string table in the file.
+        private final int mStringTable;
+
+        // Earthquakes decoded so far.
+        private final Earthquake[] mRows;
+
+        // Snapshot file, deleted once a record turns out to be corrupt.
+        private final File mFile;
+
+        // Whether a record turned out to be corrupt.
+        private boolean mCorrupt;
+
+        SnapshotList(ByteBuffer buffer, int count, int stringTable, File file) {
+            mBuffer = buffer;
+            mCount = count;
+            mStringTable = stringTable;
+            mRows = new Earthquake[count];
+            mFile = file;
+        }
+
+        @Override
+        public int size() {
+            return mCount;
+        }
+
+        @Override
+        public synchronized Earthquake get(int index) {
+            Earthquake earthquake = mRows[index];
+            if (earthquake == null) {
+                earthquake = decode(index);
+                mRows[index] = earthquake;
+            }
+            return earthquake;
+        }
+
+        /**
+         * @return The earthquake at "index", decoded again unless it was bound before.
+         */
+        @Override
+        public synchronized Earthquake peek(int index) {
+            Earthquake earthquake = mRows[index];
+            return earthquake != null ? earthquake : decode(index);
+        }
+
+        /**
+         * @return Magnitude of the earthquake at "index", read straight from the mapping.
+         */
+        @Override
+        public double getMagnitude(int index) {
+            return mBuffer.getDouble(record(index) + FIELD_MAGNITUDE);
+        }
+
+        /**
+         * @return Unix-Timestamp of the earthquake at "index", read straight from the mapping.
+         */
+        @Override
+        public long getTimeMillis(int index) {
+            return mBuffer.getLong(record(index) + FIELD_TIME);
+        }
+
+        /**
+         * @return Latitude of the earthquake at "index", read straight from the mapping.
+         */
+        public double getLatitude(int index) {
+            return mBuffer.getDouble(record(index) + FIELD_LATITUDE);
+        }
+
+        /**
+         * @return Longitude of the earthquake at "index", read straight from the mapping.
+         */
+        public double getLongitude(int index) {
+            return mBuffer.getDouble(record(index) + FIELD_LONGITUDE);
+        }
+
+        private int record(int index) {
+            if (index < 0 || index >= mCount) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + mCount);
+            }
+            return HEADER_SIZE + index * RECORD_SIZE;
+        }
+
+        /**
+         * Creates the earthquake at "index" from its record.
+         */
+        private Earthquake decode(int index) {
+            int record = record(index);
+
+            Earthquake earthquake = new Earthquake();
+            earthquake.setMagnitude(mBuffer.getDouble(record + FIELD_MAGNITUDE));
+            earthquake.setTimeMillis(mBuffer.getLong(record + FIELD_TIME));
+            earthquake.setLatitude(mBuffer.getDouble(record + FIELD_LATITUDE));
+            earthquake.setLongitude(mBuffer.getDouble(record + FIELD_LONGITUDE));
+            earthquake.setDepth(mBuffer.getDouble(record + FIELD_DEPTH));
+            earthquake.setMagnitudeColor(mBuffer.getInt(record + FIELD_MAGNITUDE_COLOR));
+
+            earthquake.setMagnitudeText(readRecordString(record, STRING_MAGNITUDE_TEXT));
+            earthquake.setOffset(readRecordString(record, STRING_OFFSET));
+            earthquake.setDisplayOffset(readRecordString(record, STRING_DISPLAY_OFFSET));
+            earthquake.setPrimaryLocation(readRecordString(record, STRING_LOCATION));
+            earthquake.setDate(readRecordString(record, STRING_DATE));
+            earthquake.setTime(readRecordString(record, STRING_TIME));
+            earthquake.setUrl(readRecordString(record, STRING_URL));
+            earthquake.setId(readRecordString(record, STRING_ID));
+            earthquake.setDetailUrl(readRecordString(record, STRING_DETAIL_URL));
+            earthquake.setSource(readRecordString(record, STRING_SOURCE));
+            return earthquake;
+        }
+
+        private String readRecordString(int record, int string) {
+            int position = record + FIELD_STRINGS + string * 8;
+            return readString(mBuffer.getInt(position), mBuffer.getInt(position + 4));
+        }
+
+        /**
+         * Decodes a string of the string table. A string lying outside of it makes the snapshot
+         * corrupt: it reads as null, and the file is deleted so it is not opened again.
+         *
+         * @param offset Position of the string in the string table.
+         * @param length Length of the string in bytes, negative for null.
+         */
+        String readString(int offset, int length) {
+            if (length < 0) {
+                return null;
+            }
+
+            if (!isInTable(offset, length, mBuffer.limit() - mStringTable)) {
+                if (!mCorrupt) {
+                    mCorrupt = true;
+                    Log.e(TAG, "Corrupt snapshot record, deleting " + mFile.getName());
+                    mFile.delete();
+                }
+                return null;
+            }
+
+            byte[] bytes = new byte[length];
+            ByteBuffer string = mBuffer.duplicate();
+            string.position(mStringTable + offset);
+            string.get(bytes);
+            return new String(bytes, UTF_8);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collapses earthquakes reported by several agencies into one.
+ * <p>
+ * Two reports are the same earthquake when their origin times, epicentres and magnitudes are
+ * within the given tolerances. Reports are swept in time order, so each report is only compared
+ * with the reports inside its time window instead of with every other report.
+ */
+public class EventDeduplicator {
+
+    // Mean radius of the Earth in kilometres.
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    // Separates the agency names of a collapsed earthquake.
+    private static final String SOURCE_SEPARATOR = ", ";
+
+    /*
+     * Bits of a packed sort key holding the index, leaving 42 bits i.e. over a century of
+     * milliseconds for the time.
+     */
+    private static final int INDEX_BITS = 21;
+
+    // Extracts the index from a packed sort key.
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    // Setting constructor private.
+    private EventDeduplicator() {
+    }
+
+    /**
+     * Collapses duplicate reports. The report kept for an earthquake is the one appearing first in
+     * "earthquakes", so reports should be listed in order of preferred agency.
+     *
+     * @param earthquakes         Reports of every agency, at most 2^21 of them.
+     * @param timeToleranceMs     Maximum difference of the origin times.
+     * @param distanceToleranceKm Maximum distance between the epicentres.
+     * @param magnitudeTolerance  Maximum difference of the magnitudes.
+     * @return An ArrayList having one report per earthquake, in the order of "earthquakes".
+     */
+    public static ArrayList<Earthquake> deduplicate(List<Earthquake> earthquakes,
+                                                    long timeToleranceMs,
+                                                    double distanceToleranceKm,
+                                                    double magnitudeTolerance) {
+        int size = earthquakes.size();
+
+        // Indices of the reports ordered by origin time, sorted as primitives.
+        long[] keys = new long[size];
+        long[] times = new long[size];
+        for (int i = 0; i < size; i++) {
+            times[i] = earthquakes.get(i).getTimeMillis();
+        }
+        int[] byTime = sortByTime(times, keys);
+
+        // Report each report got collapsed into, itself if it is kept.
+        int[] keptAs = new int[size];
+        for (int i = 0; i < size; i++) {
+            keptAs[i] = i;
+        }
+
+        int windowStart = 0;
+        for (int k = 0; k < size; k++) {
+            int current = byTime[k];
+            Earthquake report = earthquakes.get(current);
+
+            // Moves the window past reports too old to match.
+            while (times[byTime[windowStart]] < times[current] - timeToleranceMs) {
+                windowStart++;
+            }
+
+            for (int w = windowStart; w < k; w++) {
+                int other = byTime[w];
+                int kept = keptAs[other];
+                Earthquake keptReport = earthquakes.get(kept);
+
+                if (kept != other || sameSource(keptReport, report)) {
+                    // Only reports still kept are matched, each agency once.
+                    continue;
+                }
+
+                if (Math.abs(keptReport.getMagnitude() - report.getMagnitude())
+                        <= magnitudeTolerance &&
+                        distanceKm(keptReport, report) <= distanceToleranceKm) {
+                    // Keeps the report of the preferred agency.
+                    if (current < kept) {
+                        keptAs[kept] = current;
+                        mergeSource(report, keptReport);
+                    } else {
+                        keptAs[current] = kept;
+                        mergeSource(keptReport, report);
+                    }
+                    break;
+                }
+            }
+        }
+
+        ArrayList<Earthquake> unique = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (keptAs[i] == i) {
+                unique.add(earthquakes.get(i));
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Sorts the indices of "times" by time, packing each time and index into a single long so
+     * that a primitive sort can be used.
+     *
+     * @param times Origin times.
+     * @param keys  Scratch array as long as "times".
+     * @return Indices ordered by time.
+     */
+    private static int[] sortByTime(long[] times, long[] keys) {
+        // Times are ordered relative to the earliest one, leaving the low bits for the index.
+        long min = Long.MAX_VALUE;
+        for (long time : times) {
+            min = Math.min(min, time);
+        }
+        for (int i = 0; i < times.length; i++) {
+            keys[i] = ((times[i] - min) << INDEX_BITS) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] indices = new int[times.length];
+        for (int i = 0; i < keys.length; i++) {
+            indices[i] = (int) (keys[i] & INDEX_MASK);
+        }
+        return indices;
+    }
+
+    /**
+     * @return Whether both reports come from the same agency.
+     */
+    private static boolean sameSource(Earthquake first, Earthquake second) {
+        return first.getSource() != null && second.getSource() != null &&
+                first.getSource().contains(second.getSource());
+    }
+
+    /**
+     * Adds the agency of "duplicate" to the agencies of "kept".
+     */
+    private static void mergeSource(Earthquake kept, Earthquake duplicate) {
+        if (duplicate.getSource() != null) {
+            kept.setSource(kept.getSource() == null ? duplicate.getSource() :
+                    kept.getSource() + SOURCE_SEPARATOR + duplicate.getSource());
+        }
+    }
+
+    /**
+     * @return Great-circle distance between the epicentres in kilometres.
+     */
+    static double distanceKm(Earthquake first, Earthquake second) {
+        return distanceKm(first.getLatitude(), first.getLongitude(), second.getLatitude(),
+                second.getLongitude());
+    }
+
+    /**
+     * @return Great-circle distance between two points in kilometres, by the haversine formula.
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2,
+                                    double longitude2) {
+        double dLatitude = Math.toRadians(latitude2 - latitude1);
+        double dLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLatitude / 2) * Math.sin(dLatitude / 2) +
+                Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) *
+                        Math.sin(dLongitude / 2) * Math.sin(dLongitude / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,290 @@
+package com.basic.quake_report.utils;
+
+import android.content.Context;
+
+import com.basic.quake_report.Earthquake;
+
+import java.net.URL;
+import java.util.ArrayList;
+
+/**
+ * An {@link EarthquakeProvider} downloading from an FDSN-compatible fdsnws event service.
+ */
+public class FdsnProvider implements EarthquakeProvider, NetworkUtilsConstants {
+
+    // Name of the agency running the event service.
+    private final String name;
+
+    // Domain of the event service.
+    private final String domain;
+
+    // Decodes a format having every field of an earthquake.
+    private final EarthquakeDecoder fullDecoder;
+
+    // Decode lighter formats having the fields shown by the list, lightest first.
+    private final EarthquakeDecoder[] listDecoders;
+
+    // Number of the first "listDecoders" whose format the event service did not send.
+    private volatile int unrecognizedListFormats;
+
+    /**
+     * @param name         Name of the agency running the event service.
+     * @param domain       Domain of the event service.
+     * @param fullDecoder  Decodes a format having every field of an earthquake.
+     * @param listDecoders Decode lighter formats having the fields shown by the list, lightest
+     *                     first, none if the event service has none. The next one is requested
+     *                     once the event service answers a list in another format.
+     */
+    public FdsnProvider(String name, String domain, EarthquakeDecoder fullDecoder,
+                        EarthquakeDecoder... listDecoders) {
+        this.name = name;
+        this.domain = domain;
+        this.fullDecoder = fullDecoder;
+        this.listDecoders = listDecoders;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public ArrayList<Earthquake> getEarthquakes(EarthquakeQuery query,
+                                                EarthquakeChunkListener listener) {
+        // Queries whose settled part a USGS summary feed holds are answered from the feed.
+        if (DOMAIN.equals(domain) && fullDecoder instanceof GeoJsonDecoder) {
+            ArrayList<Earthquake> routed = getFromSummaryFeed(query);
+            if (routed != null) {
+                return routed;
+            }
+        }
+        return queryEventService(query, listener);
+    }
+
+    /**
+     * Downloads the earthquakes of "query" from the event service, in the lightest format
+     * having every field the query needs.
+     *
+     * @param query    It is the query whose earthquakes are downloaded.
+     * @param listener Receives the earthquakes as they are decoded, or null.
+     * @return The earthquakes of "query", or null if the request failed.
+     */
+    private ArrayList<Earthquake> queryEventService(EarthquakeQuery query,
+                                                    EarthquakeChunkListener listener) {
+        EarthquakeDecoder unrecognized = null;
+        while (true) {
+            EarthquakeDecoder decoder = NetworkUtils.selectDecoder(query, fullDecoder,
+                    listDecoders, unrecognizedListFormats);
+            if (decoder == unrecognized) {
+                // No other format is left to request.
+                return null;
+            }
+
+            URL url = NetworkUtils.makeUrl(domain, query, decoder.getFormat());
+            if (url == null) {
+                return null;
+            }
+
+            if (listener != null && decoder instanceof DelimitedDecoder) {
+                // Line-based formats are decoded as they arrive.
+                DelimitedDecoder.Progress progress = new DelimitedDecoder.Progress();
+                ArrayList<Earthquake> earthquakes = stream(url, (DelimitedDecoder) decoder,
+                        progress, listener);
+                if (earthquakes == null || !progress.isUnrecognized()) {
+                    return earthquakes;
+                }
+            } else {
+                byte[] response = NetworkUtils.downloadBytes(url);
+                if (response == null) {
+                    return null;
+                }
+
+                ArrayList<Earthquake> earthquakes = decoder.decode(response, response.length);
+
+                // Tags every earthquake with the agency reporting it.
+                if (earthquakes != null) {
+                    setSource(earthquakes, 0);
+                    return earthquakes;
+                }
+            }
+
+            // Requested in the next format, for this list and the later ones.
+            unrecognized = decoder;
+            skipListFormat(decoder);
+        }
+    }
+
+    /**
+     * Stops requesting lists in the format of "decoder", as the event service answered them in
+     * another one.
+     */
+    private synchronized void skipListFormat(EarthquakeDecoder decoder) {
+        for (int i = unrecognizedListFormats; i < listDecoders.length; i++) {
+            if (listDecoders[i] == decoder) {
+                unrecognizedListFormats = i + 1;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Downloads the summary feed holding every earthquake of the settled part of "query", and
+     * applies the rest of the query to it locally. The unsettled part is asked of the event
+     * service.
+     *
+     * @param query It is the query whose earthquakes are downloaded.
+     * @return The earthquakes of "query", or null if no feed holds its settled part or a request
+     * failed, in which case the event service is queried for the whole query instead.
+     */
+    private ArrayList<Earthquake> getFromSummaryFeed(EarthquakeQuery query) {
+        long now = System.currentTimeMillis();
+        EarthquakeQuery settledPart = SummaryFeedRouter.getSettledPart(query, now);
+        if (settledPart == null) {
+            return null;
+        }
+
+        String feed = SummaryFeedRouter.getFeed(settledPart, now);
+        if (feed == null) {
+            return null;
+        }
+
+        URL url = SummaryFeedRouter.makeFeedUrl(feed);
+        if (url == null) {
+            return null;
+        }
+
+        byte[] response = NetworkUtils.downloadBytes(url);
+        if (response == null) {
+            return null;
+        }
+
+        ArrayList<Earthquake> earthquakes = fullDecoder.decode(response, response.length);
+        if (earthquakes == null) {
+            return null;
+        }
+
+        // Tags every earthquake with the agency reporting it.
+        setSource(earthquakes, 0);
+        ArrayList<Earthquake> settled = SummaryFeedRouter.filter(earthquakes, settledPart);
+        if (settledPart == query) {
+            return settled;
+        }
+
+        // Earthquakes the feed may not hold yet.
+        ArrayList<Earthquake> unsettled = queryEventService(
+                SummaryFeedRouter.getUnsettledPart(query, now), null);
+        if (unsettled == null) {
+            return null;
+        }
+        return SummaryFeedRouter.merge(settled, settledPart, unsettled, query);
+    }
+
+    /**
+     * Downloads the "geojson" response of "query" and indexes it without decoding its
+     * earthquakes, which are only decoded as their rows are shown.
+     *
+     * @param query   It is the query whose earthquakes are downloaded.
+     * @param context It is used to make decoded rows bind-ready.
+     * @return The indexed earthquakes, or null if the event service has no "geojson" format or
+     * the request failed.
+     */
+    public IndexedGeoJsonList getIndexedEarthquakes(EarthquakeQuery query, Context context) {
+        if (!(fullDecoder instanceof GeoJsonDecoder)) {
+            return null;
+        }
+
+        URL url = NetworkUtils.makeUrl(domain, query, fullDecoder.getFormat());
+        if (url == null) {
+            return null;
+        }
+
+        byte[] response = NetworkUtils.downloadBytes(url);
+        if (response == null) {
+            return null;
+        }
+        return IndexedGeoJsonList.index(response, response.length, name, context);
+    }
+
+    /**
+     * Downloads the "geojson" response of "query" and hands its earthquakes to "listener" as
+     * they arrive, so neither the response nor its earthquakes have to be held, e.g. to select
+     * some of them.
+     *
+     * @param query    It is the query whose earthquakes are downloaded.
+     * @param listener Receives the earthquakes in the order the event service sent them.
+     * @return Whether every earthquake was handed to "listener", false if the event service has
+     * no "geojson" format or the request failed.
+     */
+    public boolean scanFullEarthquakes(EarthquakeQuery query, EarthquakeChunkListener listener) {
+        if (!(fullDecoder instanceof GeoJsonDecoder)) {
+            return false;
+        }
+
+        URL url = NetworkUtils.makeUrl(domain, query, fullDecoder.getFormat());
+        if (url == null) {
+            return false;
+        }
+
+        // Every feature is decoded as soon as its last byte arrives, only to be handed over.
+        IndexedGeoJsonList.FeatureStream features =
+                new IndexedGeoJsonList.FeatureStream(name);
+        boolean received = NetworkUtils.streamBytes(url, new NetworkUtils.StreamListener() {
+            @Override
+            public int onReceived(byte[] response, int length) {
+                return features.scan(response, length, listener);
+            }
+        });
+        return received && features.isComplete();
+    }
+
+    /**
+     * Downloads the response of "url", handing the earthquakes of every part received to
+     * "listener" before the rest arrives.
+     *
+     * @param progress It tells where decoding stopped, and whether any line was decoded.
+     * @return Every earthquake of the response, or null if the request failed.
+     */
+    private ArrayList<Earthquake> stream(URL url, DelimitedDecoder decoder,
+                                         DelimitedDecoder.Progress progress,
+                                         EarthquakeChunkListener listener) {
+        ArrayList<Earthquake> earthquakes = new ArrayList<>();
+
+        byte[] response = NetworkUtils.downloadBytes(url, new NetworkUtils.ResponseListener() {
+            @Override
+            public void onReceived(byte[] received, int length) {
+                decode(decoder, received, length, false, progress, earthquakes, listener);
+            }
+        });
+        if (response == null) {
+            return null;
+        }
+
+        // A last line lacking a line break is only complete now.
+        decode(decoder, response, response.length, true, progress, earthquakes, listener);
+        return earthquakes;
+    }
+
+    /**
+     * Decodes the lines received since the last call, and hands the earthquakes found to
+     * "listener".
+     */
+    private void decode(DelimitedDecoder decoder, byte[] response, int length, boolean complete,
+                        DelimitedDecoder.Progress progress, ArrayList<Earthquake> earthquakes,
+                        EarthquakeChunkListener listener) {
+        int decoded = earthquakes.size();
+        decoder.decodeLines(response, length, complete, progress, earthquakes);
+        if (earthquakes.size() > decoded) {
+            setSource(earthquakes, decoded);
+            listener.onChunk(new ArrayList<>(earthquakes.subList(decoded, earthquakes.size())));
+        }
+    }
+
+    /**
+     * Tags the earthquakes from "from" onwards with the agency reporting them.
+     */
+    private void setSource(ArrayList<Earthquake> earthquakes, int from) {
+        for (int i = from; i < earthquakes.size(); i++) {
+            earthquakes.get(i).setSource(name);
+        }
+    }
+}
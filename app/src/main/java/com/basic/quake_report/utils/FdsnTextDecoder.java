@@ -0,0 +1,55 @@
+package com.basic.quake_report.utils;
+
+/**
+ * Decodes the pipe separated fdsnws "text" format, which every FDSN-compatible event service
+ * supports.
+ * <p>
+ * Each line is "EventID|Time|Latitude|Longitude|Depth/km|Author|Catalog|Contributor|
+ * ContributorID|MagType|Magnitude|MagAuthor|EventLocationName", preceded by a "#" header line.
+ */
+public class FdsnTextDecoder extends DelimitedDecoder implements NetworkUtilsConstants {
+
+    // Separates the columns of a line.
+    private static final char SEPARATOR = '|';
+
+    // Starts the header line.
+    private static final byte COMMENT = '#';
+
+    // Column of every field, indexed by FIELD_*.
+    private static final int[] COLUMNS = new int[FIELD_COUNT];
+
+    static {
+        COLUMNS[FIELD_ID] = 0;
+        COLUMNS[FIELD_TIME] = 1;
+        COLUMNS[FIELD_LATITUDE] = 2;
+        COLUMNS[FIELD_LONGITUDE] = 3;
+        COLUMNS[FIELD_DEPTH] = 4;
+        COLUMNS[FIELD_MAGNITUDE] = 10;
+        COLUMNS[FIELD_LOCATION] = 12;
+    }
+
+    /**
+     * @param eventUrlPrefix  Prefix of the page showing more info. about an event.
+     * @param detailUrlPrefix Prefix of the detail GeoJSON of an event, or null if the event
+     *                        service has none.
+     */
+    public FdsnTextDecoder(String eventUrlPrefix, String detailUrlPrefix) {
+        super(SEPARATOR, false, eventUrlPrefix, detailUrlPrefix);
+    }
+
+    @Override
+    public String getFormat() {
+        return PARAMETER_FORMAT_TEXT;
+    }
+
+    @Override
+    int[] readHeader(byte[] response, int[] starts, int[] ends, int count) {
+        // Columns are fixed, the header is only skipped.
+        return response[starts[0]] == COMMENT ? COLUMNS : null;
+    }
+
+    @Override
+    int[] getDefaultColumns() {
+        return COLUMNS;
+    }
+}
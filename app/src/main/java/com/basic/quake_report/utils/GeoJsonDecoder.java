@@ -0,0 +1,31 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+/**
+ * Decodes the USGS "geojson" format. It is the only format carrying the detail url and every
+ * property of an earthquake, but also the most verbose one.
+ */
+public class GeoJsonDecoder implements EarthquakeDecoder, NetworkUtilsConstants {
+
+    // Encoding of the response.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Override
+    public String getFormat() {
+        return PARAMETER_FORMAT_VALUE;
+    }
+
+    @Override
+    public ArrayList<Earthquake> decode(byte[] response, int length) {
+        if (response == null) {
+            return null;
+        }
+
+        // org.json only parses Strings.
+        return JSONUtils.getEarthquakes(new String(response, 0, length, UTF_8));
+    }
+}
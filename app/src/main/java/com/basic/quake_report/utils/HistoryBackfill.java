@@ -0,0 +1,453 @@
+package com.basic.quake_report.utils;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.text.format.Formatter;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import com.basic.quake_report.Earthquake;
+import com.basic.quake_report.EarthquakeAdapter;
+import com.basic.quake_report.HistoryBackfillJobService;
+import com.basic.quake_report.R;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Downloads years of history of a region into the files of the app, following a
+ * {@link BackfillPlan}.
+ * <p>
+ * History is downloaded in chunks from the most recent backwards, and every chunk is stored as
+ * an {@link EarthquakeSnapshot} before the progress is checkpointed, so the backfill resumes
+ * from the last chunk stored after the process dies or the network is lost. Chunks shrink when
+ * they hold too many earthquakes for a request and grow when they hold few. Requests are spaced
+ * to the plan's rate, and the backfill pauses until the next UTC day once the day's data budget
+ * is used.
+ * <p>
+ * Every chunk is a single request to the preferred event service, so the rate counts what the
+ * service receives. Chunks of a history without a region are read by
+ * {@link EarthquakeRepository} in place of downloading their spans.
+ */
+public class HistoryBackfill implements NetworkUtilsConstants {
+
+    // Returned by run() once the whole history is stored.
+    public static final long FINISHED = -1L;
+
+    // Returned by run() when the backfill has to be retried later, e.g. as the network got lost.
+    public static final long RETRY = -2L;
+
+    // Name of the SharedPreferences file holding the plan and the progress.
+    private static final String PREFERENCES_NAME = "history_backfill";
+
+    // Key of the plan, its fields separated by tabs.
+    private static final String KEY_PLAN = "plan";
+
+    // Key of the start of the oldest chunk stored, history before it is yet to be downloaded.
+    private static final String KEY_CURSOR = "cursor";
+
+    // Key of the length of the next chunk in milliseconds.
+    private static final String KEY_CHUNK_MILLIS = "chunk_millis";
+
+    // Key of the time of the last request.
+    private static final String KEY_LAST_REQUEST = "last_request";
+
+    // Key of the UTC day "KEY_BYTES_TODAY" counts the bytes of.
+    private static final String KEY_BUDGET_DAY = "budget_day";
+
+    // Key of the bytes downloaded during "KEY_BUDGET_DAY".
+    private static final String KEY_BYTES_TODAY = "bytes_today";
+
+    // Key of the number of earthquakes stored.
+    private static final String KEY_EARTHQUAKES = "earthquakes";
+
+    // Key of the bytes downloaded for the plan.
+    private static final String KEY_BYTES = "bytes";
+
+    // Key of the time spent downloading in milliseconds, to tell the throughput.
+    private static final String KEY_DOWNLOAD_MILLIS = "download_millis";
+
+    // Key of the time the backfill waits until for the daily budget, 0 if it does not wait.
+    private static final String KEY_PAUSED_UNTIL = "paused_until";
+
+    // Separates the fields of the stored plan.
+    private static final String FIELD_SEPARATOR = "\t";
+
+    // Directory of the stored chunks, in the files of the app.
+    private static final String DIRECTORY_NAME = "history";
+
+    // Extension of the stored chunks.
+    private static final String CHUNK_EXTENSION = ".snapshot";
+
+    // Length of a day in milliseconds.
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // Length of the first chunk.
+    private static final long INITIAL_CHUNK_MILLIS = 30 * DAY_MILLIS;
+
+    // Shortest chunk, shorter ones are stored even if cut.
+    private static final long MIN_CHUNK_MILLIS = 60 * 60 * 1000L;
+
+    // Longest chunk.
+    private static final long MAX_CHUNK_MILLIS = 365 * DAY_MILLIS;
+
+    // Most earthquakes requested for a chunk, the maximum the USGS event service allows.
+    private static final int CHUNK_LIMIT = 20000;
+
+    // Longest wait for the request rate spent sleeping, longer ones reschedule the job.
+    private static final long MAX_SLEEP_MILLIS = 60 * 1000L;
+
+    // Channel of the progress notification.
+    private static final String CHANNEL_ID = "history_backfill";
+
+    // Id of the progress notification.
+    private static final int NOTIFICATION_ID = 0x48495354;
+
+    // Setting constructor private.
+    private HistoryBackfill() {
+    }
+
+    /**
+     * Replaces any backfill with "plan", discarding the history stored so far, and schedules it.
+     *
+     * @param context It is used to access SharedPreferences and to schedule the job.
+     * @param plan    It is the history to download.
+     */
+    public static void start(Context context, BackfillPlan plan) {
+        HistoryBackfillJobService.cancel(context);
+        deleteChunks(context);
+
+        getPreferences(context).edit()
+                .clear()
+                .putString(KEY_PLAN, plan.getMinMagnitude() + FIELD_SEPARATOR +
+                        plan.getLatitude() + FIELD_SEPARATOR + plan.getLongitude() +
+                        FIELD_SEPARATOR + plan.getRadiusKm() + FIELD_SEPARATOR +
+                        plan.getStartMillis() + FIELD_SEPARATOR + plan.getEndMillis() +
+                        FIELD_SEPARATOR + plan.getRequestsPerHour() + FIELD_SEPARATOR +
+                        plan.getBytesPerDay())
+                .putLong(KEY_CURSOR, plan.getEndMillis())
+                .apply();
+        HistoryBackfillJobService.schedule(context, 0L);
+    }
+
+    /**
+     * Lets {@link EarthquakeRepository} answer queries from the history stored.
+     *
+     * @param context It is used to access the files of the app.
+     */
+    public static void install(Context context) {
+        EarthquakeRepository.setHistoryDirectory(getDirectory(context));
+    }
+
+    /**
+     * Stops the backfill, keeping the history stored so far.
+     *
+     * @param context It is used to access SharedPreferences and to cancel the job.
+     */
+    public static void cancel(Context context) {
+        HistoryBackfillJobService.cancel(context);
+        getPreferences(context).edit().remove(KEY_PLAN).apply();
+        NotificationManagerCompat.from(context).cancel(NOTIFICATION_ID);
+    }
+
+    /**
+     * @param context It is used to access SharedPreferences.
+     * @return The plan being backfilled, or null if there is none or it is finished.
+     */
+    public static BackfillPlan getPlan(Context context) {
+        String[] fields = getPreferences(context).getString(KEY_PLAN, "")
+                .split(FIELD_SEPARATOR);
+        if (fields.length != 8) {
+            return null;
+        }
+
+        try {
+            return new BackfillPlan(Double.parseDouble(fields[0]), Double.parseDouble(fields[1]),
+                    Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+                    Long.parseLong(fields[4]), Long.parseLong(fields[5]),
+                    Integer.parseInt(fields[6]), Long.parseLong(fields[7]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param context It is used to access the files of the app.
+     * @return Directory the history is stored in, one snapshot file per chunk named
+     * "start-end.snapshot" after its time range in milliseconds.
+     */
+    public static File getDirectory(Context context) {
+        return new File(context.getFilesDir(), DIRECTORY_NAME);
+    }
+
+    /**
+     * @param chunk It is a file of {@link #getDirectory(Context)}.
+     * @return Time range of the earthquakes of "chunk" as {start, end}, or null if it is not a
+     * stored chunk.
+     */
+    static long[] getSpan(File chunk) {
+        String name = chunk.getName();
+        if (!name.endsWith(CHUNK_EXTENSION)) {
+            return null;
+        }
+
+        // Start may be negative, so the separator is searched for after its first character.
+        int separator = name.indexOf('-', 1);
+        try {
+            return separator < 0 ? null : new long[]{
+                    Long.parseLong(name.substring(0, separator)),
+                    Long.parseLong(name.substring(separator + 1,
+                            name.length() - CHUNK_EXTENSION.length()))};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param minMagnitude It is the magnitude floor.
+     * @param start        Start of the chunk, inclusive.
+     * @param end          End of the chunk, exclusive.
+     * @return Key a stored chunk of [start, end) holding the earthquakes anywhere above
+     * "minMagnitude" was written with.
+     */
+    static String getChunkKey(double minMagnitude, long start, long end) {
+        return new EarthquakeQuery(minMagnitude, ORDER_BY_TIME, start, end, CHUNK_LIMIT, true)
+                .getKey();
+    }
+
+    /**
+     * Downloads and stores chunks until the history is complete, the request rate or the data
+     * budget makes it wait, a request fails or "stopped" is set. It must be invoked off the
+     * main thread.
+     *
+     * @param context It is used to access SharedPreferences and to store the chunks.
+     * @param stopped It is set when the backfill has to stop after the chunk in progress.
+     * @return {@link #FINISHED}, {@link #RETRY}, or else the milliseconds to wait before
+     * running again.
+     */
+    public static long run(Context context, AtomicBoolean stopped) {
+        SharedPreferences preferences = getPreferences(context);
+        BackfillPlan plan = getPlan(context);
+        if (plan == null) {
+            return FINISHED;
+        }
+
+        File directory = getDirectory(context);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return RETRY;
+        }
+
+        while (!stopped.get()) {
+            // Every chunk waits for the work the user waits for.
+            try {
+                BackgroundScheduler.getDefault().awaitHigherLanes();
+            } catch (InterruptedException e) {
+                return RETRY;
+            }
+
+            long cursor = preferences.getLong(KEY_CURSOR, plan.getEndMillis());
+            if (cursor <= plan.getStartMillis()) {
+                // History is complete, the plan is kept to show what got stored.
+                showProgress(context);
+                preferences.edit().remove(KEY_PLAN).apply();
+                return FINISHED;
+            }
+
+            long now = System.currentTimeMillis();
+            long bytesToday = getBytesToday(preferences, now);
+            if (bytesToday >= plan.getBytesPerDay()) {
+                // Resumes as the next UTC day starts.
+                long wait = (now / DAY_MILLIS + 1) * DAY_MILLIS - now;
+                preferences.edit().putLong(KEY_PAUSED_UNTIL, now + wait).apply();
+                showProgress(context);
+                return wait;
+            }
+
+            long wait = getWaitMillis(now, preferences.getLong(KEY_LAST_REQUEST, 0L),
+                    plan.getRequestsPerHour());
+            if (wait > MAX_SLEEP_MILLIS) {
+                return wait;
+            } else if (wait > 0) {
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    return RETRY;
+                }
+                continue;
+            }
+
+            long chunkMillis = preferences.getLong(KEY_CHUNK_MILLIS, INITIAL_CHUNK_MILLIS);
+            long start = Math.max(plan.getStartMillis(), cursor - chunkMillis);
+            EarthquakeQuery query = new EarthquakeQuery(plan.getMinMagnitude(), ORDER_BY_TIME,
+                    start, cursor, CHUNK_LIMIT, true, plan.getLatitude(), plan.getLongitude(),
+                    plan.getRadiusKm());
+
+            // Committed at once, so the rate holds across process death.
+            preferences.edit().putLong(KEY_LAST_REQUEST, now).putLong(KEY_PAUSED_UNTIL, 0L)
+                    .commit();
+
+            // Downloaded on this thread, so only the chunk's own response is metered.
+            long bytesBefore = NetworkUtils.getBytesReceived();
+            long requestStart = System.nanoTime();
+            ArrayList<Earthquake> earthquakes = EarthquakeFederation.getDefault()
+                    .getPreferredProvider().getEarthquakes(query, null);
+            long downloadMillis = (System.nanoTime() - requestStart) / 1_000_000L;
+            long bytes = NetworkUtils.getBytesReceived() - bytesBefore;
+
+            SharedPreferences.Editor checkpoint = preferences.edit()
+                    .putLong(KEY_BUDGET_DAY, now / DAY_MILLIS)
+                    .putLong(KEY_BYTES_TODAY, bytesToday + bytes)
+                    .putLong(KEY_BYTES, preferences.getLong(KEY_BYTES, 0L) + bytes)
+                    .putLong(KEY_DOWNLOAD_MILLIS,
+                            preferences.getLong(KEY_DOWNLOAD_MILLIS, 0L) + downloadMillis);
+
+            if (earthquakes == null) {
+                // Network got lost, the chunk is requested again.
+                checkpoint.commit();
+                return RETRY;
+            }
+
+            if (earthquakes.size() >= CHUNK_LIMIT && chunkMillis > MIN_CHUNK_MILLIS) {
+                // Chunk got cut, half of it is requested instead.
+                checkpoint.putLong(KEY_CHUNK_MILLIS, Math.max(MIN_CHUNK_MILLIS, chunkMillis / 2))
+                        .commit();
+                continue;
+            }
+
+            // Stored before the checkpoint, so a stored chunk is at worst downloaded twice.
+            EarthquakeAdapter.prepareEarthquakeData(context, earthquakes);
+            File chunk = new File(directory, start + "-" + cursor + CHUNK_EXTENSION);
+            if (!EarthquakeSnapshot.write(chunk, query.getKey(), earthquakes)) {
+                checkpoint.commit();
+                return RETRY;
+            }
+
+            checkpoint.putLong(KEY_CURSOR, start)
+                    .putLong(KEY_CHUNK_MILLIS, getNextChunkMillis(chunkMillis,
+                            earthquakes.size()))
+                    .putLong(KEY_EARTHQUAKES,
+                            preferences.getLong(KEY_EARTHQUAKES, 0L) + earthquakes.size())
+                    .commit();
+            showProgress(context);
+        }
+        return RETRY;
+    }
+
+    /**
+     * @param now             It is the current time.
+     * @param lastRequest     Time of the last request, 0 if none was made.
+     * @param requestsPerHour Most requests made in an hour.
+     * @return Milliseconds to wait before the next request keeps to the rate, 0 if none.
+     */
+    static long getWaitMillis(long now, long lastRequest, int requestsPerHour) {
+        long interval = 60 * 60 * 1000L / Math.max(1, requestsPerHour);
+        return Math.max(0L, Math.min(interval, lastRequest + interval - now));
+    }
+
+    /**
+     * @param chunkMillis Length of the chunk just stored.
+     * @param count       Number of earthquakes of the chunk.
+     * @return Length of the next chunk, doubled if the chunk held less than a quarter of the
+     * earthquakes a request allows.
+     */
+    static long getNextChunkMillis(long chunkMillis, int count) {
+        if (count < CHUNK_LIMIT / 4) {
+            return Math.min(MAX_CHUNK_MILLIS, chunkMillis * 2);
+        }
+        return chunkMillis;
+    }
+
+    /**
+     * @param context It is used to access SharedPreferences.
+     * @return What got stored so far and how fast, or null if nothing was ever backfilled.
+     */
+    public static String getSummary(Context context) {
+        SharedPreferences preferences = getPreferences(context);
+        if (!preferences.contains(KEY_CURSOR)) {
+            return null;
+        }
+
+        long earthquakes = preferences.getLong(KEY_EARTHQUAKES, 0L);
+        long bytes = preferences.getLong(KEY_BYTES, 0L);
+        BackfillPlan plan = getPlan(context);
+        if (plan == null) {
+            return context.getString(R.string.backfill_stopped, earthquakes,
+                    Formatter.formatShortFileSize(context, bytes));
+        }
+
+        long downloadMillis = Math.max(1L, preferences.getLong(KEY_DOWNLOAD_MILLIS, 0L));
+        String summary = context.getString(R.string.backfill_progress, getPercent(context, plan),
+                earthquakes, Formatter.formatShortFileSize(context, bytes),
+                Formatter.formatShortFileSize(context, bytes * 1000L / downloadMillis));
+        if (preferences.getLong(KEY_PAUSED_UNTIL, 0L) > System.currentTimeMillis()) {
+            summary += '\n' + context.getString(R.string.backfill_paused);
+        }
+        return summary;
+    }
+
+    /**
+     * @return Percentage of the history of "plan" stored.
+     */
+    private static int getPercent(Context context, BackfillPlan plan) {
+        long cursor = getPreferences(context).getLong(KEY_CURSOR, plan.getEndMillis());
+        long length = Math.max(1L, plan.getEndMillis() - plan.getStartMillis());
+        return (int) (100 * (plan.getEndMillis() - Math.max(plan.getStartMillis(), cursor))
+                / length);
+    }
+
+    /**
+     * Shows the progress of the backfill in a notification.
+     */
+    private static void showProgress(Context context) {
+        // Channel is required from Android O.
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                    context.getString(R.string.backfill_channel_name),
+                    NotificationManager.IMPORTANCE_LOW);
+            context.getSystemService(NotificationManager.class)
+                    .createNotificationChannel(channel);
+        }
+
+        BackfillPlan plan = getPlan(context);
+        int percent = plan == null ? 100 : getPercent(context, plan);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_download_done)
+                .setContentTitle(context.getString(R.string.backfill_title))
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(getSummary(context)))
+                .setContentText(getSummary(context))
+                .setProgress(100, percent, false)
+                .setOnlyAlertOnce(true)
+                .setPriority(NotificationCompat.PRIORITY_LOW);
+
+        NotificationManagerCompat.from(context).notify(NOTIFICATION_ID, builder.build());
+    }
+
+    /**
+     * @return Bytes downloaded during the UTC day of "now".
+     */
+    private static long getBytesToday(SharedPreferences preferences, long now) {
+        return preferences.getLong(KEY_BUDGET_DAY, -1L) == now / DAY_MILLIS ?
+                preferences.getLong(KEY_BYTES_TODAY, 0L) : 0L;
+    }
+
+    /**
+     * Deletes every stored chunk.
+     */
+    private static void deleteChunks(Context context) {
+        File[] chunks = getDirectory(context).listFiles();
+        if (chunks != null) {
+            for (File chunk : chunks) {
+                chunk.delete();
+            }
+        }
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,501 @@
+package com.basic.quake_report.utils;
+
+import android.content.Context;
+
+import com.basic.quake_report.Earthquake;
+import com.basic.quake_report.EarthquakeAdapter;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Earthquakes of a USGS "geojson" response, kept as the bytes received. A single scan of the
+ * response finds where every feature starts and ends and reads its magnitude and time, so the
+ * list can be shown as soon as the download completes. The rest of a feature is only decoded
+ * when its row is asked for, and the rows decoded last are kept for the rows being scrolled.
+ */
+public class IndexedGeoJsonList extends AbstractList<Earthquake>
+        implements LazyEarthquakeList, JSONUtilConstants {
+
+    // Encoding of the response.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Number of decoded rows kept, a few screens of the list.
+    private static final int CACHE_SIZE = 128;
+
+    // Capacity of the index before the first feature is found.
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Depths of the containers of a response, the root object being at depth 1.
+    private static final int DEPTH_FEATURES = 2;
+    private static final int DEPTH_FEATURE = 3;
+    private static final int DEPTH_PROPERTIES = 4;
+
+    // Bytes of the response.
+    private final byte[] mResponse;
+
+    // Position of the first byte of every feature.
+    private final int[] mStarts;
+
+    // Position after the last byte of every feature.
+    private final int[] mEnds;
+
+    // Rounded magnitude of every feature.
+    private final double[] mMagnitudes;
+
+    // Unix-Timestamp of every feature.
+    private final long[] mTimes;
+
+    // Number of features.
+    private final int mCount;
+
+    // Agency reporting the earthquakes.
+    private final String mSource;
+
+    // Used to make decoded rows bind-ready.
+    private final Context mContext;
+
+    // Rows decoded last, the least recently asked for first.
+    private final LinkedHashMap<Integer, Earthquake> mRows =
+            new LinkedHashMap<Integer, Earthquake>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Earthquake> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private IndexedGeoJsonList(byte[] response, int[] starts, int[] ends, double[] magnitudes,
+                               long[] times, int count, String source, Context context) {
+        mResponse = response;
+        mStarts = starts;
+        mEnds = ends;
+        mMagnitudes = magnitudes;
+        mTimes = times;
+        mCount = count;
+        mSource = source;
+        mContext = context;
+    }
+
+    /**
+     * Indexes the features of a "geojson" response in one scan, without decoding any of them.
+     *
+     * @param response It is the bytes of the response.
+     * @param length   It is the number of bytes of "response" holding the response.
+     * @param source   It is the agency reporting the earthquakes.
+     * @param context  It is used to make decoded rows bind-ready.
+     * @return The earthquakes of the response, or null if it is not a complete JSON object.
+     */
+    public static IndexedGeoJsonList index(byte[] response, int length, String source,
+                                           Context context) {
+        if (response == null) {
+            return null;
+        }
+
+        int i = skipWhitespace(response, 0, length);
+        if (i >= length || response[i] != '{') {
+            return null;
+        }
+
+        int[] starts = new int[INITIAL_CAPACITY];
+        int[] ends = new int[INITIAL_CAPACITY];
+        double[] magnitudes = new double[INITIAL_CAPACITY];
+        long[] times = new long[INITIAL_CAPACITY];
+        int count = 0;
+
+        int depth = 0;
+        boolean inFeatures = false;
+        boolean inProperties = false;
+
+        // Key whose value is being scanned, -1 when the value is an element of an array.
+        int keyStart = -1;
+        int keyEnd = -1;
+
+        while (i < length) {
+            byte b = response[i];
+
+            if (b == '"') {
+                // Strings are skipped whole, so brackets within them are not counted.
+                int end = skipString(response, i + 1, length);
+                if (end < 0) {
+                    return null;
+                }
+                int next = skipWhitespace(response, end + 1, length);
+                if (next >= length || response[next] != ':') {
+                    // A value.
+                    keyStart = -1;
+                    i = end + 1;
+                    continue;
+                }
+
+                keyStart = i + 1;
+                keyEnd = end;
+                i = next + 1;
+
+                // Magnitude and time of a feature are read as the scan passes them.
+                if (inProperties && depth == DEPTH_PROPERTIES) {
+                    boolean magnitude = DelimitedDecoder.equalsAscii(response, keyStart, keyEnd,
+                            VALUE_MAG);
+                    if (magnitude || DelimitedDecoder.equalsAscii(response, keyStart, keyEnd,
+                            VALUE_TIME)) {
+                        int value = skipWhitespace(response, i, length);
+                        int valueEnd = skipPrimitive(response, value, length);
+                        if (magnitude) {
+                            magnitudes[count] = parseMagnitude(response, value, valueEnd);
+                        } else {
+                            times[count] = parseTime(response, value, valueEnd);
+                        }
+                        i = valueEnd;
+                    }
+                }
+                continue;
+            }
+
+            if (b == '{' || b == '[') {
+                depth++;
+                if (depth == DEPTH_FEATURES && b == '[' && keyStart != -1 &&
+                        DelimitedDecoder.equalsAscii(response, keyStart, keyEnd,
+                                ARRAY_FEATURES)) {
+                    inFeatures = true;
+                } else if (inFeatures && depth == DEPTH_FEATURE && b == '{') {
+                    // A feature starts, the index grows as needed.
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, 2 * count);
+                        ends = Arrays.copyOf(ends, 2 * count);
+                        magnitudes = Arrays.copyOf(magnitudes, 2 * count);
+                        times = Arrays.copyOf(times, 2 * count);
+                    }
+                    starts[count] = i;
+                    magnitudes[count] = FALLBACK_MAG;
+                    times[count] = FALLBACK_TIME;
+                } else if (inFeatures && depth == DEPTH_PROPERTIES && b == '{' &&
+                        keyStart != -1 && DelimitedDecoder.equalsAscii(response, keyStart,
+                        keyEnd, OBJECT_PROPERTIES)) {
+                    inProperties = true;
+                }
+                keyStart = -1;
+            } else if (b == '}' || b == ']') {
+                if (depth == DEPTH_PROPERTIES) {
+                    inProperties = false;
+                } else if (inFeatures && depth == DEPTH_FEATURE && b == '}') {
+                    ends[count] = i + 1;
+                    count++;
+                } else if (depth == DEPTH_FEATURES) {
+                    inFeatures = false;
+                }
+                depth--;
+                keyStart = -1;
+
+                // Root object is complete.
+                if (depth == 0) {
+                    return new IndexedGeoJsonList(response, starts, ends, magnitudes, times,
+                            count, source, context);
+                }
+            }
+            i++;
+        }
+
+        // Response ended before its root object did.
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return mCount;
+    }
+
+    @Override
+    public synchronized Earthquake get(int index) {
+        Earthquake earthquake = mRows.get(index);
+        if (earthquake == null) {
+            earthquake = decode(index);
+            mRows.put(index, earthquake);
+        }
+        return earthquake;
+    }
+
+    /**
+     * @return The earthquake at "index", decoded again unless it is one of the rows kept.
+     */
+    @Override
+    public synchronized Earthquake peek(int index) {
+        Earthquake earthquake = mRows.get(index);
+        return earthquake != null ? earthquake : decode(index);
+    }
+
+    /**
+     * @return Magnitude of the earthquake at "index", read by the scan of the response.
+     */
+    @Override
+    public double getMagnitude(int index) {
+        checkIndex(index);
+        return mMagnitudes[index];
+    }
+
+    /**
+     * @return Unix-Timestamp of the earthquake at "index", read by the scan of the response.
+     */
+    @Override
+    public long getTimeMillis(int index) {
+        checkIndex(index);
+        return mTimes[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + mCount);
+        }
+    }
+
+    /**
+     * Decodes the feature at "index" to a bind-ready earthquake.
+     */
+    private Earthquake decode(int index) {
+        Earthquake earthquake = decodeFeature(index);
+        EarthquakeAdapter.prepareEarthquakeData(mContext, Collections.singletonList(earthquake));
+        return earthquake;
+    }
+
+    /**
+     * Decodes the feature at "index" to an earthquake which is not bind-ready yet.
+     */
+    private Earthquake decodeFeature(int index) {
+        checkIndex(index);
+
+        Earthquake earthquake;
+        try {
+            // org.json only parses Strings, so only the feature's bytes become one.
+            earthquake = JSONUtils.toEarthquake(new JSONObject(new String(mResponse,
+                    mStarts[index], mEnds[index] - mStarts[index], UTF_8)));
+        } catch (JSONException e) {
+            // Row still shows what the scan read of the feature.
+            earthquake = new Earthquake();
+            JSONUtils.setOffsetAndLocation(earthquake, FALLBACK_STRING);
+            JSONUtils.setDateAndTime(earthquake, mTimes[index]);
+            earthquake.setMagnitude(mMagnitudes[index]);
+        }
+        earthquake.setSource(mSource);
+        return earthquake;
+    }
+
+    /**
+     * @return Position of the first byte from "from" onwards that is not whitespace.
+     */
+    private static int skipWhitespace(byte[] response, int from, int to) {
+        int i = from;
+        while (i < to && (response[i] == ' ' || response[i] == '\n' || response[i] == '\r' ||
+                response[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @param from Position after the opening quote of a string.
+     * @return Position of the closing quote of the string, or -1 if the response ends first.
+     */
+    private static int skipString(byte[] response, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (response[i] == '\\') {
+                // Escaped character, possibly a quote.
+                i++;
+            } else if (response[i] == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Position after the number, boolean or null starting at "from".
+     */
+    private static int skipPrimitive(byte[] response, int from, int to) {
+        int i = from;
+        while (i < to && response[i] != ',' && response[i] != '}' && response[i] != ']' &&
+                response[i] != ' ' && response[i] != '\n' && response[i] != '\r' &&
+                response[i] != '\t') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return The magnitude in [start, end) rounded as the list shows it, or the fallback if
+     * it is null or not a number.
+     */
+    private static double parseMagnitude(byte[] response, int start, int end) {
+        if (start == end || response[start] == 'n') {
+            return FALLBACK_MAG;
+        }
+        try {
+            return JSONUtils.roundMagnitude(DelimitedDecoder.parseDouble(response, start, end));
+        } catch (NumberFormatException e) {
+            return FALLBACK_MAG;
+        }
+    }
+
+    /**
+     * @return The Unix-Timestamp in [start, end), or the fallback if it is not an integer.
+     */
+    private static long parseTime(byte[] response, int start, int end) {
+        boolean negative = start < end && response[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end) {
+            return FALLBACK_TIME;
+        }
+
+        long time = 0;
+        for (; i < end; i++) {
+            int digit = response[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return FALLBACK_TIME;
+            }
+            time = 10 * time + digit;
+        }
+        return negative ? -time : time;
+    }
+
+    /**
+     * Decodes the features of a "geojson" response while it is being downloaded, and hands
+     * them over without keeping them or making them bind-ready, e.g. to select some of them.
+     * Only the feature being received is held, the bytes before it are given back after every
+     * part.
+     */
+    static class FeatureStream {
+
+        // Agency reporting the earthquakes.
+        private final String mSource;
+
+        // Depth of the container being scanned, the root object being at depth 1.
+        private int mDepth;
+
+        // Whether the features array is being scanned.
+        private boolean mInFeatures;
+
+        // Whether the last key read is the one of the features array.
+        private boolean mFeaturesKey;
+
+        // Position of the first byte of the feature being received, or -1.
+        private int mFeatureStart = -1;
+
+        // Position of the first byte not scanned yet.
+        private int mPosition;
+
+        // Whether the root object is complete.
+        private boolean mComplete;
+
+        /**
+         * @param source Agency reporting the earthquakes.
+         */
+        FeatureStream(String source) {
+            mSource = source;
+        }
+
+        /**
+         * Scans the bytes received since the last call, and hands the features completed by
+         * them to "listener".
+         *
+         * @param response Bytes received and not given back yet.
+         * @param length   Number of bytes of "response" received.
+         * @param listener Receives the earthquakes in the order of the response.
+         * @return Number of bytes from the start of "response" no longer needed, which the
+         * next call must not be passed again.
+         */
+        int scan(byte[] response, int length, EarthquakeChunkListener listener) {
+            List<Earthquake> completed = new ArrayList<>();
+
+            int i = mPosition;
+            while (i < length && !mComplete) {
+                byte b = response[i];
+
+                if (b == '"') {
+                    // Strings are skipped whole, so brackets within them are not counted.
+                    int end = skipString(response, i + 1, length);
+                    int next = end < 0 ? length : skipWhitespace(response, end + 1, length);
+                    if (next >= length) {
+                        // Rest of the string, or what tells whether it is a key, is to arrive.
+                        break;
+                    }
+
+                    if (response[next] == ':') {
+                        mFeaturesKey = mDepth == 1 && DelimitedDecoder.equalsAscii(response,
+                                i + 1, end, ARRAY_FEATURES);
+                        i = next + 1;
+                    } else {
+                        mFeaturesKey = false;
+                        i = end + 1;
+                    }
+                    continue;
+                }
+
+                if (b == '{' || b == '[') {
+                    mDepth++;
+                    if (mDepth == DEPTH_FEATURES && b == '[' && mFeaturesKey) {
+                        mInFeatures = true;
+                    } else if (mInFeatures && mDepth == DEPTH_FEATURE && b == '{') {
+                        mFeatureStart = i;
+                    }
+                    mFeaturesKey = false;
+                } else if (b == '}' || b == ']') {
+                    if (mInFeatures && mDepth == DEPTH_FEATURE && b == '}') {
+                        decodeFeature(response, mFeatureStart, i + 1, completed);
+                        mFeatureStart = -1;
+                    } else if (mDepth == DEPTH_FEATURES) {
+                        mInFeatures = false;
+                    }
+                    mDepth--;
+                    mFeaturesKey = false;
+
+                    // Root object is complete.
+                    mComplete = mDepth == 0 && b == '}';
+                }
+                i++;
+            }
+
+            if (!completed.isEmpty()) {
+                listener.onChunk(completed);
+            }
+
+            // Bytes before the feature being received are given back.
+            int consumed = mFeatureStart != -1 ? mFeatureStart : i;
+            mPosition = i - consumed;
+            if (mFeatureStart != -1) {
+                mFeatureStart = 0;
+            }
+            return consumed;
+        }
+
+        /**
+         * @return Whether the whole root object was scanned, false if the response ended
+         * before it did.
+         */
+        boolean isComplete() {
+            return mComplete;
+        }
+
+        /**
+         * Decodes the feature in [start, end) and adds it to "earthquakes", unless it is
+         * malformed.
+         */
+        private void decodeFeature(byte[] response, int start, int end,
+                                   List<Earthquake> earthquakes) {
+            try {
+                // org.json only parses Strings, so only the feature's bytes become one.
+                Earthquake earthquake = JSONUtils.toEarthquake(new JSONObject(new String(
+                        response, start, end - start, UTF_8)));
+                earthquake.setSource(mSource);
+                earthquakes.add(earthquake);
+            } catch (JSONException e) {
+                // A malformed feature has nothing to be selected by.
+            }
+        }
+    }
+}
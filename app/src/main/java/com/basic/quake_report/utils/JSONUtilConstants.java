@@ -33,6 +33,51 @@ public interface JSONUtilConstants {
     // Points to a primitive having key "url".
     String VALUE_URL = "url";
 
+    // Points to a primitive having key "id" i.e. the USGS event id of a feature.
+    String VALUE_ID = "id";
+
+    // Points to a primitive having key "detail" i.e. url of the event's detail GeoJSON.
+    String VALUE_DETAIL = "detail";
+
+    // Points to a primitive having key "title".
+    String VALUE_TITLE = "title";
+
+    // Points to a primitive having key "magType".
+    String VALUE_MAG_TYPE = "magType";
+
+    // Points to a primitive having key "felt" i.e. number of "Did You Feel It?" reports.
+    String VALUE_FELT = "felt";
+
+    // Points to a primitive having key "cdi" i.e. the maximum reported intensity.
+    String VALUE_CDI = "cdi";
+
+    // Points to a primitive having key "mmi" i.e. the maximum estimated instrumental intensity.
+    String VALUE_MMI = "mmi";
+
+    // Points to a primitive having key "alert" i.e. the PAGER alert level.
+    String VALUE_ALERT = "alert";
+
+    // Points to a primitive having key "tsunami".
+    String VALUE_TSUNAMI = "tsunami";
+
+    // Points to a primitive having key "sig".
+    String VALUE_SIG = "sig";
+
+    // Points to a primitive having key "status".
+    String VALUE_STATUS = "status";
+
+    // Points to JSONObject having key "geometry".
+    String OBJECT_GEOMETRY = "geometry";
+
+    // Points to JSONArray having key "coordinates" i.e. [longitude, latitude, depth].
+    String ARRAY_COORDINATES = "coordinates";
+
+    // Fallback value applied when an int JSON primitive is not found during JSON parsing.
+    int FALLBACK_INT = 0;
+
+    // Fallback value applied when an optional decimal JSON primitive is not found.
+    double FALLBACK_DOUBLE = Double.NaN;
+
     // Used for setting earthquake's offset.
     String SEQUENCE = " of ";
 
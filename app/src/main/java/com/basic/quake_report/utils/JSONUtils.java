@@ -1,6 +1,7 @@
 package com.basic.quake_report.utils;
 
 import com.basic.quake_report.Earthquake;
+import com.basic.quake_report.EarthquakeDetail;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -11,6 +12,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Locale;
+import java.util.TimeZone;
 
 /**
  * Traverses through a String containing JSON data to parse it an ArrayList of type
@@ -18,8 +20,34 @@ import java.util.Locale;
  */
 public class JSONUtils implements JSONUtilConstants {
 
-    // Contains info. about earthquake.
-    private static Earthquake mEarthquake;
+    // Formats magnitudes with pattern "0.0", one per thread as DecimalFormat is not thread-safe.
+    private static final ThreadLocal<DecimalFormat> DECIMAL_FORMAT =
+            new ThreadLocal<DecimalFormat>() {
+                @Override
+                protected DecimalFormat initialValue() {
+                    return new DecimalFormat(PATTERN_DECIMAL);
+                }
+            };
+
+    // Formats dates with pattern "MMM dd, yyyy", one per thread.
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT =
+            new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    return new SimpleDateFormat(PATTERN_DATE_FORMAT,
+                            new Locale(LOCALE_LANGUAGE, LOCALE_COUNTRY));
+                }
+            };
+
+    // Formats times with pattern "h:mm a", one per thread.
+    private static final ThreadLocal<SimpleDateFormat> TIME_FORMAT =
+            new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    return new SimpleDateFormat(PATTERN_TIME_FORMAT,
+                            new Locale(LOCALE_LANGUAGE, LOCALE_COUNTRY));
+                }
+            };
 
     // Setting constructor to avoid.
     private JSONUtils() {
@@ -45,30 +73,109 @@ public class JSONUtils implements JSONUtilConstants {
             if (arrayFeatures != null) {
                 for (int i = 0; i < arrayFeatures.length(); i++) {
 
-                    mEarthquake = new Earthquake();
+                    // Add Earthquake to List.
+                    earthquakes.add(toEarthquake(arrayFeatures.getJSONObject(i)));
+                }
+            }
+            return earthquakes;
+        } catch (JSONException e) {
+            // Parse FAILED or data not present to form a JSONObject.
+            return null;
+        }
+    }
+
+    /**
+     * Parses a single feature of the "features" array to an {@link Earthquake}.
+     *
+     * @param earthquakeItem It is the feature.
+     * @return The occurred {@link Earthquake}.
+     * @throws JSONException If the feature has no "properties".
+     */
+    static Earthquake toEarthquake(JSONObject earthquakeItem) throws JSONException {
+        Earthquake earthquake = new Earthquake();
 
-                    JSONObject earthquakeItem = arrayFeatures.getJSONObject(i);
+        // Traverse to JSONArray with key "properties".
+        JSONObject properties = earthquakeItem.getJSONObject(OBJECT_PROPERTIES);
 
-                    // Traverse to JSONArray with key "properties".
-                    JSONObject properties = earthquakeItem.getJSONObject(OBJECT_PROPERTIES);
+        // Sets the "earthquake" magnitude.
+        setMagnitude(earthquake, properties.optDouble(VALUE_MAG, FALLBACK_MAG));
 
-                    // Sets the "earthquake" magnitude.
-                    setMagnitude(properties.optDouble(VALUE_MAG, FALLBACK_MAG));
+        // Sets offset and primary location.
+        setOffsetAndLocation(earthquake,
+                properties.optString(VALUE_PLACE, FALLBACK_STRING));
 
-                    // Sets offset and primary location.
-                    setOffsetAndLocation(properties.optString(VALUE_PLACE, FALLBACK_STRING));
+        // Sets date and time.
+        setDateAndTime(earthquake, properties.optLong(VALUE_TIME, FALLBACK_TIME));
 
-                    // Sets date and time.
-                    setDateAndTime(properties.optLong(VALUE_TIME, FALLBACK_TIME));
+        // Sets the url.
+        earthquake.setUrl(properties.optString(VALUE_URL));
 
-                    // Sets the url.
-                    mEarthquake.setUrl(properties.optString(VALUE_URL));
+        // Sets the event id and the url of its detail GeoJSON.
+        earthquake.setId(earthquakeItem.optString(VALUE_ID, FALLBACK_STRING));
+        earthquake.setDetailUrl(properties.optString(VALUE_DETAIL,
+                FALLBACK_STRING));
 
-                    // Add Earthquake to List.
-                    earthquakes.add(mEarthquake);
-                }
+        // Sets whether a tsunami advisory was issued.
+        earthquake.setTsunami(properties.optInt(VALUE_TSUNAMI, FALLBACK_INT) > 0);
+
+        // Sets the significance, which weighs magnitude, felt reports and impact.
+        earthquake.setSignificance(properties.optInt(VALUE_SIG, FALLBACK_INT));
+
+        // Sets the epicentre and depth from [longitude, latitude, depth].
+        JSONObject geometry = earthquakeItem.optJSONObject(OBJECT_GEOMETRY);
+        JSONArray coordinates = geometry == null ? null :
+                geometry.optJSONArray(ARRAY_COORDINATES);
+        if (coordinates != null) {
+            earthquake.setLongitude(coordinates.optDouble(0, FALLBACK_DOUBLE));
+            earthquake.setLatitude(coordinates.optDouble(1, FALLBACK_DOUBLE));
+            earthquake.setDepth(coordinates.optDouble(2, FALLBACK_DOUBLE));
+        }
+        return earthquake;
+    }
+
+    /**
+     * Parses the detail GeoJSON of a single earthquake to an {@link EarthquakeDetail}.
+     *
+     * @param jsonResponse Received from the "detail" url of the earthquake.
+     * @return The details of the earthquake, or null if the response could not be parsed.
+     */
+    public static EarthquakeDetail getEarthquakeDetail(String jsonResponse) {
+        try {
+            // Root of response is a single feature.
+            JSONObject root = new JSONObject(jsonResponse);
+
+            // Traverse to JSONObject with key "properties".
+            JSONObject properties = root.getJSONObject(OBJECT_PROPERTIES);
+
+            EarthquakeDetail detail = new EarthquakeDetail();
+            detail.setTitle(properties.optString(VALUE_TITLE, FALLBACK_STRING));
+            detail.setMagnitude(properties.optDouble(VALUE_MAG, FALLBACK_MAG));
+            detail.setMagnitudeType(properties.optString(VALUE_MAG_TYPE, FALLBACK_STRING));
+            detail.setTime(properties.optLong(VALUE_TIME, FALLBACK_TIME));
+            detail.setFelt(properties.optInt(VALUE_FELT, FALLBACK_INT));
+            detail.setCdi(properties.optDouble(VALUE_CDI, FALLBACK_DOUBLE));
+            detail.setMmi(properties.optDouble(VALUE_MMI, FALLBACK_DOUBLE));
+            detail.setAlert(properties.isNull(VALUE_ALERT) ? FALLBACK_STRING :
+                    properties.optString(VALUE_ALERT, FALLBACK_STRING));
+            detail.setTsunami(properties.optInt(VALUE_TSUNAMI, FALLBACK_INT) != 0);
+            detail.setStatus(properties.optString(VALUE_STATUS, FALLBACK_STRING));
+            detail.setSignificance(properties.optInt(VALUE_SIG, FALLBACK_INT));
+            detail.setUrl(properties.optString(VALUE_URL, FALLBACK_STRING));
+
+            // Traverse to JSONArray "coordinates" i.e. [longitude, latitude, depth].
+            JSONObject geometry = root.optJSONObject(OBJECT_GEOMETRY);
+            JSONArray coordinates = geometry == null ? null :
+                    geometry.optJSONArray(ARRAY_COORDINATES);
+            if (coordinates != null) {
+                detail.setLongitude(coordinates.optDouble(0, FALLBACK_DOUBLE));
+                detail.setLatitude(coordinates.optDouble(1, FALLBACK_DOUBLE));
+                detail.setDepth(coordinates.optDouble(2, FALLBACK_DOUBLE));
+            } else {
+                detail.setLongitude(FALLBACK_DOUBLE);
+                detail.setLatitude(FALLBACK_DOUBLE);
+                detail.setDepth(FALLBACK_DOUBLE);
             }
-            return earthquakes;
+            return detail;
         } catch (JSONException e) {
             // Parse FAILED or data not present to form a JSONObject.
             return null;
@@ -78,15 +185,21 @@ public class JSONUtils implements JSONUtilConstants {
     /**
      * Formats the magnitude of earthquake with pattern "0.0".
      */
-    private static void setMagnitude(double magnitude) {
-        DecimalFormat decimalFormat = new DecimalFormat(PATTERN_DECIMAL);
-        mEarthquake.setMagnitude(Double.parseDouble(decimalFormat.format(magnitude)));
+    static void setMagnitude(Earthquake earthquake, double magnitude) {
+        earthquake.setMagnitude(roundMagnitude(magnitude));
+    }
+
+    /**
+     * @return "magnitude" rounded to one decimal, as the list shows it.
+     */
+    static double roundMagnitude(double magnitude) {
+        return Double.parseDouble(DECIMAL_FORMAT.get().format(magnitude));
     }
 
     /**
      * Sets offset and primary location of the Earthquake.
      */
-    private static void setOffsetAndLocation(String location) {
+    static void setOffsetAndLocation(Earthquake earthquake, String location) {
         // Find first occurrence of " of ".
         int endIndex = location.indexOf(SEQUENCE);
 
@@ -94,16 +207,16 @@ public class JSONUtils implements JSONUtilConstants {
         if (endIndex != -1) {
             // Set offset.
             int index = endIndex + 3;
-            mEarthquake.setOffset(location.substring(0, index));
+            earthquake.setOffset(location.substring(0, index));
 
             // Set location.
-            mEarthquake.setPrimaryLocation(location.substring(index + 1));
+            earthquake.setPrimaryLocation(location.substring(index + 1));
         } else {
             // Set default offset.
-            mEarthquake.setOffset(DEFAULT_OFFSET);
+            earthquake.setOffset(DEFAULT_OFFSET);
 
             // Set location.
-            mEarthquake.setPrimaryLocation(location);
+            earthquake.setPrimaryLocation(location);
         }
     }
 
@@ -112,17 +225,20 @@ public class JSONUtils implements JSONUtilConstants {
      *
      * @param time Unix-Timestamp when the earthquake occurred.
      */
-    private static void setDateAndTime(long time) {
+    static void setDateAndTime(Earthquake earthquake, long time) {
+        earthquake.setTimeMillis(time);
+
         // Parse time to custom pattern Date.
         Date date = new Date(time);
-        Locale locale = new Locale(LOCALE_LANGUAGE, LOCALE_COUNTRY);
 
-        // Formats the "date" to pattern -> "MMM dd, yyyy".
-        SimpleDateFormat dateFormat = new SimpleDateFormat(PATTERN_DATE_FORMAT, locale);
-        mEarthquake.setDate(dateFormat.format(date));
+        // Formats the "date" to pattern -> "MMM dd, yyyy", in the zone the device is set to now.
+        SimpleDateFormat dateFormat = DATE_FORMAT.get();
+        dateFormat.setTimeZone(TimeZone.getDefault());
+        earthquake.setDate(dateFormat.format(date));
 
         // Formats the "date" to pattern -> "h:mm a".
-        SimpleDateFormat timeFormat = new SimpleDateFormat(PATTERN_TIME_FORMAT, locale);
-        mEarthquake.setTime(timeFormat.format(date));
+        SimpleDateFormat timeFormat = TIME_FORMAT.get();
+        timeFormat.setTimeZone(TimeZone.getDefault());
+        earthquake.setTime(timeFormat.format(date));
     }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.List;
+
+/**
+ * List whose earthquakes are only created as their rows are asked for, e.g. from a
+ * memory-mapped snapshot or from an indexed response. The magnitude and time of a row are read
+ * without creating its earthquake, so a pass over every row e.g. to section the list stays cheap.
+ */
+public interface LazyEarthquakeList extends List<Earthquake> {
+
+    /**
+     * @param index Position of the earthquake.
+     * @return Magnitude of the earthquake at "index", without creating it.
+     */
+    double getMagnitude(int index);
+
+    /**
+     * @param index Position of the earthquake.
+     * @return Unix-Timestamp of the earthquake at "index", without creating it.
+     */
+    long getTimeMillis(int index);
+
+    /**
+     * Reads the earthquake at "index" without keeping it, so a pass over every row e.g. an
+     * export does not end up holding them all.
+     *
+     * @param index Position of the earthquake.
+     * @return The earthquake at "index".
+     */
+    Earthquake peek(int index);
+}
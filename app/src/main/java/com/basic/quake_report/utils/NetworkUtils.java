@@ -1,7 +1,6 @@
 package com.basic.quake_report.utils;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.Network;
 import android.net.NetworkRequest;
@@ -11,7 +10,6 @@ import android.util.Log;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
-import androidx.preference.PreferenceManager;
 
 import com.basic.quake_report.R;
 
@@ -20,16 +18,65 @@ import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Scanner;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 /**
  * Performs all Network operations to download earthquake data from the USGS' web-servers.
  */
 public class NetworkUtils implements NetworkUtilsConstants {
 
+    // Encoding of the responses.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Size of the chunks a response is read in.
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    // Length of a degree of a great circle in kilometres.
+    private static final double KM_PER_DEGREE = 111.2;
+
     // Shows change in network state to user.
     private static Toast mToast;
 
+    // Bytes of the responses received by every thread, so a download meters only its own.
+    private static final ThreadLocal<long[]> mBytesReceived = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    /**
+     * Receives a response while it is being downloaded.
+     */
+    interface ResponseListener {
+
+        /**
+         * Invoked on the downloading thread every time more of the response arrives.
+         *
+         * @param response Bytes received so far, valid until the next invocation.
+         * @param length   Number of bytes of "response" received.
+         */
+        void onReceived(byte[] response, int length);
+    }
+
+    /**
+     * Receives a response while it is being downloaded, and gives back the bytes it is done
+     * with, so the response is never held whole.
+     */
+    interface StreamListener {
+
+        /**
+         * Invoked on the downloading thread every time more of the response arrives.
+         *
+         * @param response Bytes received and not given back yet, valid until the next
+         *                 invocation.
+         * @param length   Number of bytes of "response" received.
+         * @return Number of bytes from the start of "response" no longer needed.
+         */
+        int onReceived(byte[] response, int length);
+    }
+
     // Setting constructor private.
     private NetworkUtils() {
     }
@@ -81,34 +128,40 @@ public class NetworkUtils implements NetworkUtilsConstants {
     }
 
     /**
-     * Forms a URL to connect to the USGS API Endpoint to download list of occurred earthquakes.
-     * It takes user preferences from SharedPreference that points to the default file.
+     * Forms a URL to connect to the "query" endpoint of an fdsnws event service to download list
+     * of occurred earthquakes.
      *
-     * @param context It is used access SharedPreferences.
-     * @return A URL that points to the 'query' section of the USGS api.
+     * @param domain Domain of the event service e.g. {@link #DOMAIN}.
+     * @param query  It is the earthquakes to request.
+     * @param format Format of the response e.g. {@link #PARAMETER_FORMAT_VALUE}.
+     * @return A URL that points to the 'query' section of the event service.
      */
-    private static URL makeUrl(Context context) {
+    static URL makeUrl(String domain, EarthquakeQuery query, String format) {
         try {
             // Initialize a Uri.Builder object for building a valid URL.
-            Uri.Builder builder = Uri.parse(DOMAIN).buildUpon()
+            Uri.Builder builder = Uri.parse(domain).buildUpon()
                     .path(PATH)
-                    .appendQueryParameter(PARAMETER_FORMAT_KEY, PARAMETER_FORMAT_VALUE)
-                    .appendQueryParameter(PARAMETER_START_KEY, PARAMETER_START_VALUE)
-                    .appendQueryParameter(PARAMETER_END_KEY, PARAMETER_END_VALUE)
-                    .appendQueryParameter(PARAMETER_LIMIT_KEY, PARAMETER_LIMIT_VALUE);
-
-            // Initialize SharedPreferences to set "Order By" and "Min Magnitude".
-            SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
-
-            // Set user preferred min. mag.
-            builder.appendQueryParameter(PARAMETER_MIN_MAG_KEY, preferences.getString(
-                    context.getString(R.string.pref_magnitude_value),
-                    context.getString(R.string.pref_magnitude_default)));
-
-            // Set user preferred order by.
-            builder.appendQueryParameter(PARAMETER_ORDER_BY_KEY, preferences.getString(
-                    context.getString(R.string.pref_order_by_value),
-                    context.getString(R.string.pref_order_by_default)));
+                    .appendQueryParameter(PARAMETER_FORMAT_KEY, format)
+                    .appendQueryParameter(PARAMETER_START_KEY, query.getStartTime())
+                    .appendQueryParameter(PARAMETER_END_KEY, query.getEndTime())
+                    .appendQueryParameter(PARAMETER_LIMIT_KEY, String.valueOf(query.getLimit()));
+
+            // Set min. mag.
+            builder.appendQueryParameter(PARAMETER_MIN_MAG_KEY,
+                    String.valueOf(query.getMinMagnitude()));
+
+            // Set order by.
+            builder.appendQueryParameter(PARAMETER_ORDER_BY_KEY, query.getOrderBy());
+
+            // Set the region, as a circle every fdsnws event service supports.
+            if (query.isRegional()) {
+                builder.appendQueryParameter(PARAMETER_LATITUDE_KEY,
+                        String.valueOf(query.getLatitude()))
+                        .appendQueryParameter(PARAMETER_LONGITUDE_KEY,
+                                String.valueOf(query.getLongitude()))
+                        .appendQueryParameter(PARAMETER_MAX_RADIUS_KEY,
+                                String.valueOf(query.getMaxRadiusKm() / KM_PER_DEGREE));
+            }
 
             // Forming a URL.
             return new URL(builder.toString());
@@ -119,26 +172,130 @@ public class NetworkUtils implements NetworkUtilsConstants {
     }
 
     /**
-     * Connects and retrieves a JSON response containing occurred earthquake info. from USGS Api
-     * Endpoint.
+     * @return Number of bytes of the responses received by the current thread so far, e.g. to
+     * keep a download within a data budget whatever else the process downloads meanwhile.
+     */
+    public static long getBytesReceived() {
+        return mBytesReceived.get()[0];
+    }
+
+    /**
+     * Adds bytes received by the current thread to {@link #getBytesReceived()}.
+     */
+    static void countReceived(int bytes) {
+        if (bytes > 0) {
+            mBytesReceived.get()[0] += bytes;
+        }
+    }
+
+    /**
+     * Connects and retrieves the detail GeoJSON of a single earthquake.
      *
-     * @param context It is used to access SharedPreferences.
+     * @param detailUrl It is the "detail" url of the earthquake.
      * @return A String containing the JSON response.
      */
-    public static String getEarthquakeInfo(Context context) {
-        // Get URL to form the network connection.
-        URL url = makeUrl(context);
+    public static String getEarthquakeDetail(String detailUrl) {
+        try {
+            return download(new URL(detailUrl));
+        } catch (MalformedURLException e) {
+            Log.e(TAG, "Invalid detail URL - " + e.getMessage());
+            return EMPTY_STRING;
+        }
+    }
 
+    /**
+     * Picks the decoder, and so the format, used to download the earthquakes of "query".
+     *
+     * @param query        It is the earthquakes to request.
+     * @param fullDecoder  Decodes a format having every field of an earthquake.
+     * @param listDecoders Decode lighter formats having the fields shown by the list, lightest
+     *                     first, none if the event service has none.
+     * @param unrecognized Number of the first "listDecoders" whose format the event service was
+     *                     found not to send.
+     * @return The lightest list decoder left when the query only needs the fields shown by the
+     * list, else "fullDecoder".
+     */
+    static EarthquakeDecoder selectDecoder(EarthquakeQuery query, EarthquakeDecoder fullDecoder,
+                                           EarthquakeDecoder[] listDecoders, int unrecognized) {
+        return query.isListOnly() && unrecognized < listDecoders.length ?
+                listDecoders[unrecognized] : fullDecoder;
+    }
+
+    /**
+     * Downloads the response of "url" to a single String.
+     *
+     * @param url It is the resource to download.
+     * @return A String containing the response, or an empty String if the request failed.
+     */
+    static String download(URL url) {
+        byte[] response = downloadBytes(url);
+        return response == null ? EMPTY_STRING : new String(response, UTF_8);
+    }
+
+    /**
+     * Downloads the response of "url" as it is sent, leaving decoding to an
+     * {@link EarthquakeDecoder}.
+     *
+     * @param url It is the resource to download.
+     * @return The bytes of the response, or null if the request failed.
+     */
+    static byte[] downloadBytes(URL url) {
+        return downloadBytes(url, null);
+    }
+
+    /**
+     * Downloads the response of "url" as it is sent, handing every part received to "listener"
+     * so it can be decoded before the rest arrives.
+     *
+     * @param url      It is the resource to download.
+     * @param listener Receives the response so far after every read, or null.
+     * @return The bytes of the response, or null if the request failed.
+     */
+    static byte[] downloadBytes(URL url, ResponseListener listener) {
+        return read(url, true, new StreamListener() {
+            @Override
+            public int onReceived(byte[] response, int length) {
+                if (listener != null) {
+                    listener.onReceived(response, length);
+                }
+
+                // Every byte is kept, to be returned.
+                return 0;
+            }
+        });
+    }
+
+    /**
+     * Downloads the response of "url" as it is sent, handing every part received to "listener"
+     * and dropping the bytes it is done with, so a large response is decoded without being held
+     * whole.
+     *
+     * @param url      It is the resource to download.
+     * @param listener Receives the bytes not given back yet after every read.
+     * @return Whether the whole response was received.
+     */
+    static boolean streamBytes(URL url, StreamListener listener) {
+        return read(url, false, listener) != null;
+    }
+
+    /**
+     * Reads the response of "url", handing it to "listener" after every read.
+     *
+     * @param url      It is the resource to download.
+     * @param whole    Whether the response is expected to be kept whole, so it is read into a
+     *                 buffer of its announced length.
+     * @param listener Receives the bytes not given back yet after every read.
+     * @return The bytes of the response "listener" did not give back, or null if the request
+     * failed.
+     */
+    private static byte[] read(URL url, boolean whole, StreamListener listener) {
         if (url != null) {
             // Creates a HTTP request.
             HttpURLConnection urlConnection = null;
 
-            // Downloads bytes of data from the USGS web-servers.
+            // Downloads bytes of data from the web-servers.
             InputStream inputStream = null;
 
-            // Parses downloaded info. to a single String.
-            Scanner scanner = null;
-
             try {
                 // Network request set for resource set by URL.
                 urlConnection = (HttpURLConnection) url.openConnection();
@@ -153,12 +310,33 @@ public class NetworkUtils implements NetworkUtilsConstants {
                     // Downloading data.
                     inputStream = urlConnection.getInputStream();
 
-                    // Parsing stream of data into a single String.
-                    scanner = new Scanner(inputStream);
-                    scanner.useDelimiter("\\A");
+                    // Collects the stream of data without decoding it. A byte to spare lets
+                    // the end of a response of the announced length be read without growing.
+                    byte[] response = new byte[whole ?
+                            Math.max(urlConnection.getContentLength() + 1, BUFFER_SIZE) :
+                            2 * BUFFER_SIZE];
+                    int length = 0;
+                    int read;
+                    while ((read = inputStream.read(response, length,
+                            Math.min(BUFFER_SIZE, response.length - length))) != -1) {
+                        length += read;
+                        countReceived(read);
+                        if (read > 0) {
+                            // Drops the bytes the listener is done with.
+                            int consumed = listener.onReceived(response, length);
+                            if (consumed > 0) {
+                                System.arraycopy(response, consumed, response, 0,
+                                        length - consumed);
+                                length -= consumed;
+                            }
+                        }
 
-                    // Returning available data or empty String.
-                    return scanner.hasNext() ? scanner.next() : EMPTY_STRING;
+                        // Grows the response once it is full.
+                        if (length == response.length) {
+                            response = Arrays.copyOf(response, response.length * 2);
+                        }
+                    }
+                    return Arrays.copyOf(response, length);
                 }
 
                 // Request Failed.
@@ -180,15 +358,10 @@ public class NetworkUtils implements NetworkUtilsConstants {
                         Log.v(TAG, "Could not close the InputStream - " + e.getMessage());
                     }
                 }
-
-                // Close Scanner to free memory resources.
-                if (scanner != null) {
-                    scanner.close();
-                }
             }
         }
 
-        // Returning empty String.
-        return EMPTY_STRING;
+        // Request failed.
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -8,27 +8,61 @@ public interface NetworkUtilsConstants {
     // Domain for constructing the USGS API Endpoint.
     String DOMAIN = "https://earthquake.usgs.gov";
 
+    // Domain of the EMSC (European-Mediterranean Seismological Centre) event service.
+    String DOMAIN_EMSC = "https://www.seismicportal.eu";
+
+    // Domain of the GFZ GEOFON event service.
+    String DOMAIN_GEOFON = "https://geofon.gfz-potsdam.de";
+
+    // Prefix of the USGS page showing more info. about an event.
+    String EVENT_URL_USGS = "https://earthquake.usgs.gov/earthquakes/eventpage/";
+
+    // Prefix of the USGS detail GeoJSON of an event.
+    String DETAIL_URL_USGS =
+            "https://earthquake.usgs.gov/fdsnws/event/1/query?format=geojson&eventid=";
+
+    // Prefix of the EMSC page showing more info. about an event.
+    String EVENT_URL_EMSC = "https://www.seismicportal.eu/eventdetails.html?unid=";
+
+    // Prefix of the GEOFON page showing more info. about an event.
+    String EVENT_URL_GEOFON = "https://geofon.gfz-potsdam.de/eqinfo/event.php?id=";
+
+    // Name of the USGS event service.
+    String PROVIDER_USGS = "USGS";
+
+    // Name of the EMSC event service.
+    String PROVIDER_EMSC = "EMSC";
+
+    // Name of the GEOFON event service.
+    String PROVIDER_GEOFON = "GEOFON";
+
     // Path for constructing the USGS API Endpoint.
     String PATH = "fdsnws/event/1/query";
 
+    // Path of the summary feeds USGS precomputes e.g. of the past day's M2.5+ earthquakes.
+    String PATH_SUMMARY_FEED = "earthquakes/feed/v1.0/summary";
+
+    // Extension of a summary feed in the "geojson" format.
+    String FEED_EXTENSION_GEOJSON = ".geojson";
+
     // Query parameter is used to set the format of data.
     String PARAMETER_FORMAT_KEY = "format";
 
     // Values sets the format of data be JSON.
     String PARAMETER_FORMAT_VALUE = "geojson";
 
+    // Values sets the format of data be the pipe separated fdsnws "text" format.
+    String PARAMETER_FORMAT_TEXT = "text";
+
+    // Values sets the format of data be the comma separated "csv" format of USGS.
+    String PARAMETER_FORMAT_CSV = "csv";
+
     // Query parameter is used to set the starting date of the earthquake occurrences.
     String PARAMETER_START_KEY = "starttime";
 
-    // Value sets the starting date to be 11th Dec, 2021.
-    String PARAMETER_START_VALUE = "2021-12-11";
-
     // Query parameter is used to set the ending data of the earthquake occurrences.
     String PARAMETER_END_KEY = "endtime";
 
-    // Value sets the ending data to be 13th Dec, 2021.
-    String PARAMETER_END_VALUE = "2021-12-13";
-
     // Query parameter is used to set the minimum magnitude for earthquakes.
     String PARAMETER_MIN_MAG_KEY = "minmagnitude";
 
@@ -41,6 +75,21 @@ public interface NetworkUtilsConstants {
     // Query parameter is used to order earthquakes by either magnitude or time.
     String PARAMETER_ORDER_BY_KEY = "orderby";
 
+    // Value orders earthquakes by magnitude, largest first.
+    String ORDER_BY_MAGNITUDE = "magnitude";
+
+    // Value orders earthquakes by time, most recent first.
+    String ORDER_BY_TIME = "time";
+
+    // Query parameter is used to set the latitude of the centre of a circular region.
+    String PARAMETER_LATITUDE_KEY = "latitude";
+
+    // Query parameter is used to set the longitude of the centre of a circular region.
+    String PARAMETER_LONGITUDE_KEY = "longitude";
+
+    // Query parameter is used to set the radius of a circular region, in degrees.
+    String PARAMETER_MAX_RADIUS_KEY = "maxradius";
+
     // Used for logging.
     String TAG = "NetworkUtils";
 
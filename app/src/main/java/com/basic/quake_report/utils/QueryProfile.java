@@ -0,0 +1,54 @@
+package com.basic.quake_report.utils;
+
+import android.content.Context;
+
+/**
+ * A named pair of "Min Magnitude" and "Order By" preferences, e.g. "M4+ worldwide", which the
+ * user can switch to from the main screen.
+ */
+public class QueryProfile {
+
+    // Name shown to the user.
+    private final String name;
+
+    // Minimum magnitude, as stored by the "Min Magnitude" preference.
+    private final String minMagnitude;
+
+    // Order of the earthquakes, either "magnitude" or "time".
+    private final String orderBy;
+
+    public QueryProfile(String name, String minMagnitude, String orderBy) {
+        this.name = name;
+        this.minMagnitude = minMagnitude;
+        this.orderBy = orderBy;
+    }
+
+    /**
+     * @return Name shown to the user.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Minimum magnitude, as stored by the "Min Magnitude" preference.
+     */
+    public String getMinMagnitude() {
+        return minMagnitude;
+    }
+
+    /**
+     * @return Order of the earthquakes, either "magnitude" or "time".
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * @param context It is used access the "Time Range" preferences.
+     * @return Query of the earthquakes shown by the list for this profile.
+     */
+    public EarthquakeQuery toQuery(Context context) {
+        return EarthquakeQuery.forList(context, Double.parseDouble(minMagnitude), orderBy);
+    }
+}
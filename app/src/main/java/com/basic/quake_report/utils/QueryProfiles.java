@@ -0,0 +1,241 @@
+package com.basic.quake_report.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.preference.PreferenceManager;
+
+import com.basic.quake_report.Earthquake;
+import com.basic.quake_report.EarthquakeAdapter;
+import com.basic.quake_report.EarthquakeWidgetProvider;
+import com.basic.quake_report.R;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stores the user's {@link QueryProfile}s, and refreshes the earthquakes of all of them in one
+ * background pass so that switching profiles is served by {@link EarthquakeResultCache}.
+ */
+public class QueryProfiles {
+
+    // Name of the SharedPreferences file holding the profiles, apart from the settings.
+    private static final String PREFERENCES_NAME = "query_profiles";
+
+    // Key of the profiles, one per line.
+    private static final String KEY_PROFILES = "profiles";
+
+    // Separates the name, min. mag. and order by of a profile.
+    private static final String FIELD_SEPARATOR = "\t";
+
+    // Separates the profiles.
+    private static final String PROFILE_SEPARATOR = "\n";
+
+    // Tag of the refresh passes, run one at a time in the prefetch lane.
+    private static final String TAG_REFRESH = "QueryProfileRefresh";
+
+    // Setting constructor private.
+    private QueryProfiles() {
+    }
+
+    /**
+     * @param context It is used access SharedPreferences and resources.
+     * @return The saved profiles, or the default ones if the user saved none.
+     */
+    public static List<QueryProfile> getProfiles(Context context) {
+        String stored = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE)
+                .getString(KEY_PROFILES, null);
+
+        List<QueryProfile> profiles = new ArrayList<>();
+        if (stored == null) {
+            // Profiles shipped with the app.
+            String[] names = context.getResources().getStringArray(R.array.array_profile_names);
+            String[] magnitudes = context.getResources()
+                    .getStringArray(R.array.array_profile_magnitudes);
+            String[] orderBy = context.getResources()
+                    .getStringArray(R.array.array_profile_order_by);
+            for (int i = 0; i < names.length; i++) {
+                profiles.add(new QueryProfile(names[i], magnitudes[i], orderBy[i]));
+            }
+            return profiles;
+        }
+
+        for (String line : stored.split(PROFILE_SEPARATOR)) {
+            String[] fields = line.split(FIELD_SEPARATOR);
+            if (fields.length == 3) {
+                profiles.add(new QueryProfile(fields[0], fields[1], fields[2]));
+            }
+        }
+        return profiles;
+    }
+
+    /**
+     * Saves the current "Min Magnitude" and "Order By" preferences as a profile, replacing any
+     * profile having the same name.
+     *
+     * @param context It is used access SharedPreferences.
+     * @param name    Name of the profile.
+     */
+    public static void saveCurrent(Context context, String name) {
+        // Tabs and line breaks separate the stored profiles.
+        name = name.replace(FIELD_SEPARATOR, " ").replace(PROFILE_SEPARATOR, " ").trim();
+
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(context);
+        QueryProfile current = new QueryProfile(name,
+                preferences.getString(context.getString(R.string.pref_magnitude_value),
+                        context.getString(R.string.pref_magnitude_default)),
+                preferences.getString(context.getString(R.string.pref_order_by_value),
+                        context.getString(R.string.pref_order_by_default)));
+
+        List<QueryProfile> profiles = getProfiles(context);
+        StringBuilder stored = new StringBuilder();
+        boolean replaced = false;
+        for (QueryProfile profile : profiles) {
+            if (profile.getName().equals(name)) {
+                profile = current;
+                replaced = true;
+            }
+            append(stored, profile);
+        }
+        if (!replaced) {
+            append(stored, current);
+        }
+
+        context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE).edit()
+                .putString(KEY_PROFILES, stored.toString())
+                .apply();
+    }
+
+    /**
+     * Appends a profile as a line of "stored".
+     */
+    private static void append(StringBuilder stored, QueryProfile profile) {
+        if (stored.length() > 0) {
+            stored.append(PROFILE_SEPARATOR);
+        }
+        stored.append(profile.getName()).append(FIELD_SEPARATOR)
+                .append(profile.getMinMagnitude()).append(FIELD_SEPARATOR)
+                .append(profile.getOrderBy());
+    }
+
+    /**
+     * Switches to a profile by writing its values to the "Min Magnitude" and "Order By"
+     * preferences, which restarts the list.
+     *
+     * @param context It is used access SharedPreferences.
+     * @param profile It is the profile to switch to.
+     */
+    public static void apply(Context context, QueryProfile profile) {
+        PreferenceManager.getDefaultSharedPreferences(context).edit()
+                .putString(context.getString(R.string.pref_magnitude_value),
+                        profile.getMinMagnitude())
+                .putString(context.getString(R.string.pref_order_by_value), profile.getOrderBy())
+                .apply();
+    }
+
+    /**
+     * @param context  It is used access SharedPreferences.
+     * @param profiles It is the profiles to look through.
+     * @return Index of the profile matching the current preferences, or -1 if there is none.
+     */
+    public static int indexOfCurrent(Context context, List<QueryProfile> profiles) {
+        String key = EarthquakeQuery.fromPreferences(context).getKey();
+        for (int i = 0; i < profiles.size(); i++) {
+            if (profiles.get(i).toQuery(context).getKey().equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Refreshes the earthquakes of every profile in one background pass. A pass still waiting
+     * to run is replaced, as this one covers it.
+     *
+     * @param context It is used access SharedPreferences and resources.
+     */
+    public static void refreshAll(Context context) {
+        Context appContext = context.getApplicationContext();
+        List<QueryProfile> profiles = getProfiles(appContext);
+
+        BackgroundScheduler scheduler = BackgroundScheduler.getDefault();
+        scheduler.removeQueued(TAG_REFRESH);
+        scheduler.execute(BackgroundScheduler.LANE_PREFETCH, TAG_REFRESH, new Runnable() {
+            @Override
+            public void run() {
+                refresh(appContext, getQueries(appContext, profiles));
+            }
+        });
+    }
+
+    /**
+     * @return Distinct queries of the profiles, grouped by order and then by ascending min. mag.
+     * so that a query is preceded by the queries it may be derived from.
+     */
+    static List<EarthquakeQuery> getQueries(Context context, List<QueryProfile> profiles) {
+        List<EarthquakeQuery> queries = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        for (QueryProfile profile : profiles) {
+            EarthquakeQuery query;
+            try {
+                query = profile.toQuery(context);
+            } catch (NumberFormatException e) {
+                // Skips a profile stored with an invalid min. mag.
+                continue;
+            }
+            if (keys.add(query.getKey())) {
+                queries.add(query);
+            }
+        }
+
+        Collections.sort(queries, new Comparator<EarthquakeQuery>() {
+            @Override
+            public int compare(EarthquakeQuery first, EarthquakeQuery second) {
+                int byOrder = first.getOrderBy().compareTo(second.getOrderBy());
+                return byOrder != 0 ? byOrder :
+                        Double.compare(first.getMinMagnitude(), second.getMinMagnitude());
+            }
+        });
+        return queries;
+    }
+
+    /**
+     * Loads the earthquakes of every query into {@link EarthquakeResultCache}. A query whose
+     * earthquakes are all part of a result downloaded earlier in the pass is answered by
+     * {@link EarthquakeQueryEngine} instead of being downloaded.
+     */
+    private static void refresh(Context context, List<EarthquakeQuery> queries) {
+        String currentKey = EarthquakeQuery.fromPreferences(context).getKey();
+        for (EarthquakeQuery query : queries) {
+            // Makes way for a list the user waits for.
+            try {
+                BackgroundScheduler.getDefault().awaitHigherLanes();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            List<Earthquake> earthquakes = EarthquakeQueryEngine.answer(query);
+
+            if (earthquakes == null) {
+                ArrayList<Earthquake> downloaded = EarthquakeRepository.getEarthquakes(query);
+                if (downloaded == null) {
+                    // Keeps whatever is held for this query.
+                    continue;
+                }
+                EarthquakeAdapter.prepareEarthquakeData(context, downloaded);
+                EarthquakeQueryEngine.load(query, downloaded);
+                earthquakes = downloaded;
+            }
+            EarthquakeResultCache.put(query, earthquakes);
+
+            // Widgets show the earthquakes of the current query.
+            if (query.getKey().equals(currentKey)) {
+                EarthquakeWidgetProvider.update(context, earthquakes);
+            }
+        }
+    }
+}
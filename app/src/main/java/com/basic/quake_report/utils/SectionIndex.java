@@ -0,0 +1,165 @@
+package com.basic.quake_report.utils;
+
+import android.widget.SectionIndexer;
+
+import com.basic.quake_report.Earthquake;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Splits a list of earthquakes into sections of consecutive rows sharing a day, or a whole
+ * magnitude when the list is ordered by magnitude.
+ * <p>
+ * The first position of every section is found in a single pass when the list is set, so
+ * mapping a position to its section is a binary search and nothing is recomputed while the list
+ * scrolls. Rows of a {@link LazyEarthquakeList} are never decoded, only their time and magnitude
+ * are read.
+ */
+public class SectionIndex implements SectionIndexer, JSONUtilConstants {
+
+    // Sections are the days of the rows.
+    public static final int BY_DAY = 0;
+
+    // Sections are the whole magnitudes of the rows.
+    public static final int BY_MAGNITUDE = 1;
+
+    // Length of a day in milliseconds.
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // Whether sections are days or magnitudes.
+    private final int mMode;
+
+    // Days are those of the dates shown by the rows.
+    private final TimeZone mTimeZone;
+
+    // Formats the label of a day, as the rows format their date.
+    private final SimpleDateFormat mDateFormat;
+
+    // First position of every section, ascending.
+    private int[] mStarts = new int[16];
+
+    // Label of every section.
+    private final List<String> mLabels = new ArrayList<>();
+
+    // Day or whole magnitude of the last section.
+    private long mLastKey;
+
+    // Number of rows indexed.
+    private int mSize;
+
+    /**
+     * @param mode {@link #BY_DAY} or {@link #BY_MAGNITUDE}.
+     */
+    public SectionIndex(int mode) {
+        this(mode, TimeZone.getDefault());
+    }
+
+    /**
+     * @param mode     {@link #BY_DAY} or {@link #BY_MAGNITUDE}.
+     * @param timeZone It is the time zone days start in.
+     */
+    SectionIndex(int mode, TimeZone timeZone) {
+        mMode = mode;
+        mTimeZone = timeZone;
+        mDateFormat = new SimpleDateFormat(PATTERN_DATE_FORMAT,
+                new Locale(LOCALE_LANGUAGE, LOCALE_COUNTRY));
+        mDateFormat.setTimeZone(timeZone);
+    }
+
+    /**
+     * Indexes the rows of "earthquakes" after the ones indexed already, e.g. once they got
+     * appended to the list. Only the new rows are read.
+     *
+     * @param earthquakes It is the whole list, the first rows of which are indexed already.
+     */
+    public void append(List<Earthquake> earthquakes) {
+        // Rows of a lazy list are read without being decoded.
+        LazyEarthquakeList lazy = earthquakes instanceof LazyEarthquakeList ?
+                (LazyEarthquakeList) earthquakes : null;
+
+        for (int i = mSize; i < earthquakes.size(); i++) {
+            long key;
+            long millis = 0L;
+            if (mMode == BY_MAGNITUDE) {
+                key = (long) Math.floor(lazy != null ? lazy.getMagnitude(i) :
+                        earthquakes.get(i).getMagnitude());
+            } else {
+                millis = lazy != null ? lazy.getTimeMillis(i) :
+                        earthquakes.get(i).getTimeMillis();
+                long localMillis = millis + mTimeZone.getOffset(millis);
+
+                // Rounds down for days before 1970 too.
+                key = localMillis / DAY_MILLIS - (localMillis % DAY_MILLIS < 0 ? 1 : 0);
+            }
+
+            if (mLabels.isEmpty() || key != mLastKey) {
+                // Labels are formatted once, and only for the first row of a section.
+                addSection(i, key, mMode == BY_MAGNITUDE ? "M " + key + "+" :
+                        mDateFormat.format(new Date(millis)));
+            }
+        }
+        mSize = earthquakes.size();
+    }
+
+    /**
+     * Starts a section at "position".
+     */
+    private void addSection(int position, long key, String label) {
+        if (mLabels.size() == mStarts.length) {
+            mStarts = Arrays.copyOf(mStarts, mStarts.length * 2);
+        }
+        mStarts[mLabels.size()] = position;
+        mLabels.add(label);
+        mLastKey = key;
+    }
+
+    /**
+     * @return Number of sections.
+     */
+    public int getSectionCount() {
+        return mLabels.size();
+    }
+
+    /**
+     * @param section It is the index of the section.
+     * @return Label of the section e.g. "Dec 11, 2021" or "M 5+".
+     */
+    public String getLabel(int section) {
+        return mLabels.get(section);
+    }
+
+    /**
+     * @param position Position of a row.
+     * @return Whether the row is the first of its section.
+     */
+    public boolean isSectionStart(int position) {
+        return Arrays.binarySearch(mStarts, 0, mLabels.size(), position) >= 0;
+    }
+
+    @Override
+    public Object[] getSections() {
+        return mLabels.toArray();
+    }
+
+    @Override
+    public int getPositionForSection(int sectionIndex) {
+        if (mLabels.isEmpty()) {
+            return 0;
+        }
+        return mStarts[Math.max(0, Math.min(sectionIndex, mLabels.size() - 1))];
+    }
+
+    @Override
+    public int getSectionForPosition(int position) {
+        int index = Arrays.binarySearch(mStarts, 0, mLabels.size(), position);
+
+        // Position inside a section lands after its start.
+        return Math.max(0, index >= 0 ? index : -index - 2);
+    }
+}
@@ -0,0 +1,101 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the most significant earthquakes of a stream, holding only a bounded number of them,
+ * so the top K of a range is known without holding or sorting the whole range.
+ * <p>
+ * The top K are kept in a min-heap, the least significant on top, and each earthquake offered
+ * costs O(log K).
+ */
+public class SignificanceSelector implements EarthquakeChunkListener {
+
+    // Magnitude whose significance is 650, as in the USGS formula of the magnitude's share.
+    private static final double SIGNIFICANT_MAGNITUDE = 6.5;
+
+    // Orders the least significant first, on equal significance the smaller and then the older.
+    private static final Comparator<Earthquake> RANK = new Comparator<Earthquake>() {
+        @Override
+        public int compare(Earthquake first, Earthquake second) {
+            int bySignificance = Integer.compare(significanceOf(first), significanceOf(second));
+            if (bySignificance != 0) {
+                return bySignificance;
+            }
+            int byMagnitude = Double.compare(first.getMagnitude(), second.getMagnitude());
+            return byMagnitude != 0 ? byMagnitude :
+                    Long.compare(first.getTimeMillis(), second.getTimeMillis());
+        }
+    };
+
+    // Number of earthquakes selected.
+    private final int mCount;
+
+    // Top K so far, least significant on top.
+    private final PriorityQueue<Earthquake> mTop;
+
+    /**
+     * @param count Number of earthquakes selected.
+     */
+    public SignificanceSelector(int count) {
+        mCount = Math.max(1, count);
+        mTop = new PriorityQueue<>(mCount + 1, RANK);
+    }
+
+    /**
+     * @param earthquake It is the earthquake ranked.
+     * @return The USGS "sig" of "earthquake" when known. Otherwise the share of its magnitude
+     * in it, which is what the list formats allow.
+     */
+    public static int significanceOf(Earthquake earthquake) {
+        if (earthquake.getSignificance() > 0) {
+            return earthquake.getSignificance();
+        }
+        double magnitude = Math.max(0.0, earthquake.getMagnitude());
+        return (int) Math.round(magnitude * 100 * magnitude / SIGNIFICANT_MAGNITUDE);
+    }
+
+    @Override
+    public void onChunk(List<Earthquake> earthquakes) {
+        for (Earthquake earthquake : earthquakes) {
+            offer(earthquake);
+        }
+    }
+
+    /**
+     * Ranks an earthquake, keeping it only if it is part of the top K so far.
+     *
+     * @param earthquake It is the earthquake ranked.
+     */
+    public synchronized void offer(Earthquake earthquake) {
+        if (mTop.size() < mCount) {
+            mTop.add(earthquake);
+        } else if (RANK.compare(earthquake, mTop.peek()) > 0) {
+            // Replaces the least significant of the top K.
+            mTop.poll();
+            mTop.add(earthquake);
+        }
+    }
+
+    /**
+     * @return The most significant earthquakes selected, most significant first.
+     */
+    public synchronized List<Earthquake> getTop() {
+        ArrayList<Earthquake> top = new ArrayList<>(mTop);
+        Collections.sort(top, Collections.reverseOrder(RANK));
+        return top;
+    }
+
+    /**
+     * @return Number of earthquakes held, which is bounded whatever the number offered.
+     */
+    synchronized int getHeldCount() {
+        return mTop.size();
+    }
+}
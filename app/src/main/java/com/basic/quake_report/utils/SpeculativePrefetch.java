@@ -0,0 +1,143 @@
+package com.basic.quake_report.utils;
+
+import android.content.Context;
+import android.os.Process;
+
+import com.basic.quake_report.Earthquake;
+import com.basic.quake_report.EarthquakeAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the earthquakes of a query the user is likely to ask for next, e.g. while a setting is
+ * being edited, so the list shows them without a wait once the user returns to it.
+ * <p>
+ * Only the latest candidate is loaded, at a background priority, and its result is held by
+ * {@link EarthquakeResultCache}. A list asking for the candidate while it still loads waits for
+ * it through {@link #await(EarthquakeQuery)} rather than downloading it a second time.
+ */
+public class SpeculativePrefetch {
+
+    // Tag of the prefetches, run one at a time in the prefetch lane.
+    private static final String TAG_PREFETCH = "SpeculativePrefetch";
+
+    // Key of the candidate query, or null if none is loading.
+    private static String mPendingKey;
+
+    // Loads the candidate query.
+    private static Future<List<Earthquake>> mPending;
+
+    // Thread id of the running prefetch, or 0 when none is running.
+    private static volatile int mRunningTid;
+
+    // Setting constructor private.
+    private SpeculativePrefetch() {
+    }
+
+    /**
+     * Starts loading the earthquakes of "query", cancelling the prefetch of any other query.
+     * Nothing is done if "query" is held already or is loading.
+     *
+     * @param context It is used to prepare the earthquakes for the list.
+     * @param query   It is the query the user is likely to ask for next.
+     */
+    public static synchronized void prefetch(Context context, EarthquakeQuery query) {
+        if (query.getKey().equals(mPendingKey) && !mPending.isDone()) {
+            return;
+        }
+        cancel();
+        if (EarthquakeResultCache.get(query) != null) {
+            return;
+        }
+
+        Context appContext = context.getApplicationContext();
+        mPendingKey = query.getKey();
+        // Never competes with the UI, unless the list waits for it.
+        mPending = BackgroundScheduler.getDefault().submit(BackgroundScheduler.LANE_PREFETCH,
+                TAG_PREFETCH, new Callable<List<Earthquake>>() {
+            @Override
+            public List<Earthquake> call() {
+                mRunningTid = Process.myTid();
+                try {
+                    return load(appContext, query);
+                } finally {
+                    mRunningTid = 0;
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels the prefetch in progress, e.g. as the candidate value changed again.
+     */
+    public static synchronized void cancel() {
+        if (mPending != null) {
+            mPending.cancel(true);
+        }
+        mPending = null;
+        mPendingKey = null;
+    }
+
+    /**
+     * Waits for the prefetch of "query" to finish, raising its priority as the user now waits
+     * for it. It must be invoked off the main thread.
+     *
+     * @param query It is the earthquakes requested.
+     * @return The prefetched earthquakes of "query", or null if "query" is not being prefetched
+     * or its prefetch failed.
+     */
+    public static List<Earthquake> await(EarthquakeQuery query) {
+        Future<List<Earthquake>> pending;
+        synchronized (SpeculativePrefetch.class) {
+            if (!query.getKey().equals(mPendingKey)) {
+                return null;
+            }
+            pending = mPending;
+        }
+
+        // No longer speculative, whether it waits for a thread or runs already.
+        BackgroundScheduler.getDefault().promote(pending);
+        int tid = mRunningTid;
+        if (tid != 0 && !pending.isDone()) {
+            try {
+                Process.setThreadPriority(tid, Process.THREAD_PRIORITY_DEFAULT);
+            } catch (IllegalArgumentException | SecurityException e) {
+                // Prefetch just finished.
+            }
+        }
+
+        try {
+            return pending.get();
+        } catch (CancellationException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Loads the earthquakes of "query" as the list would, and holds them.
+     */
+    private static List<Earthquake> load(Context context, EarthquakeQuery query) {
+        List<Earthquake> earthquakes = EarthquakeQueryEngine.answer(query);
+
+        if (earthquakes == null) {
+            ArrayList<Earthquake> downloaded = EarthquakeRepository.getEarthquakes(query);
+            if (downloaded == null || Thread.currentThread().isInterrupted()) {
+                // A cancelled prefetch leaves nothing behind.
+                return null;
+            }
+            EarthquakeAdapter.prepareEarthquakeData(context, downloaded);
+            EarthquakeQueryEngine.load(query, downloaded);
+            earthquakes = downloaded;
+        }
+        EarthquakeResultCache.put(query, earthquakes);
+        return earthquakes;
+    }
+}
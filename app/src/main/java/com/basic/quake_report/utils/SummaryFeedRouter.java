@@ -0,0 +1,246 @@
+package com.basic.quake_report.utils;
+
+import android.net.Uri;
+import android.util.Log;
+
+import com.basic.quake_report.Earthquake;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes a USGS query to one of the summary feeds USGS precomputes, e.g. "2.5_day", when the
+ * feed holds every earthquake the query asks for. A feed is served from a cache rather than
+ * searched for, so it arrives sooner than the "query" response; the filters of the query the
+ * feed does not apply are then applied locally, as the event service would.
+ * <p>
+ * A feed holds the earthquakes of a period back from when it was generated, above a magnitude
+ * level. A query is routed to the shortest period holding its whole time range, and the highest
+ * level not above its min. mag.
+ * <p>
+ * Only the settled part of a range is routed: a feed lags behind the catalog, and earthquakes
+ * keep being published for a while after they occur. The rest is left to the event service,
+ * which the repository also asks again for the unsettled end of its ranges.
+ */
+public class SummaryFeedRouter implements NetworkUtilsConstants {
+
+    // Length of an hour in milliseconds.
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+
+    // Length of a day in milliseconds.
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    // Longest a feed lags behind the catalog, the past month's being generated every 15 minutes.
+    private static final long FEED_LAG_MILLIS = 15 * 60 * 1000L;
+
+    // Radius of the Earth in kilometres.
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    // Length of a degree of a great circle in kilometres, as the "maxradius" sent uses.
+    private static final double KM_PER_DEGREE = 111.2;
+
+    // Names of the periods of the feeds, shortest first.
+    private static final String[] PERIODS = {"hour", "day", "week", "month"};
+
+    // Lengths of the periods of the feeds.
+    private static final long[] PERIOD_MILLIS =
+            {HOUR_MILLIS, DAY_MILLIS, 7 * DAY_MILLIS, 30 * DAY_MILLIS};
+
+    // Names of the magnitude levels of the feeds, highest first.
+    private static final String[] LEVELS = {"4.5", "2.5", "1.0", "all"};
+
+    // Min. mag. of the magnitude levels.
+    private static final double[] LEVEL_MAGNITUDES = {4.5, 2.5, 1.0, Double.NEGATIVE_INFINITY};
+
+    // Lowest level routed to for every period, as lower levels of the longer periods hold
+    // thousands of earthquakes, megabytes more than a query of a few hundred downloads.
+    private static final int[] LOWEST_LEVELS = {3, 3, 1, 0};
+
+    // Separates the level and the period of a feed's name.
+    private static final String FEED_SEPARATOR = "_";
+
+    // Setting constructor private.
+    private SummaryFeedRouter() {
+    }
+
+    /**
+     * Finds the summary feed holding every earthquake of "query".
+     *
+     * @param query     It is the query to route.
+     * @param nowMillis It is the current time, as a Unix-Timestamp in milliseconds.
+     * @return Name of the feed e.g. "2.5_day", or null if no feed holds the query's earthquakes.
+     */
+    static String getFeed(EarthquakeQuery query, long nowMillis) {
+        // Earthquakes after the feed was generated are not in it.
+        if (query.getEndMillis() > nowMillis - FEED_LAG_MILLIS) {
+            return null;
+        }
+
+        for (int period = 0; period < PERIODS.length; period++) {
+            // Feed may have been generated a while ago, so its period starts that much earlier.
+            if (query.getStartMillis() < nowMillis - PERIOD_MILLIS[period] + FEED_LAG_MILLIS) {
+                continue;
+            }
+
+            for (int level = 0; level <= LOWEST_LEVELS[period]; level++) {
+                if (LEVEL_MAGNITUDES[level] <= query.getMinMagnitude()) {
+                    return LEVELS[level] + FEED_SEPARATOR + PERIODS[period];
+                }
+            }
+
+            // Longer periods offer no lower level.
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * Limits "query" to the part of its time range every earthquake of which a feed generated a
+     * while ago already holds.
+     *
+     * @param query     It is the query to route.
+     * @param nowMillis It is the current time, as a Unix-Timestamp in milliseconds.
+     * @return "query" up to the settled end, "query" itself if it ends there, or null if it
+     * starts later.
+     */
+    static EarthquakeQuery getSettledPart(EarthquakeQuery query, long nowMillis) {
+        long settled = getSettledEnd(nowMillis);
+        if (query.getStartMillis() >= settled) {
+            return null;
+        }
+        return query.getEndMillis() <= settled ? query :
+                withTimeRange(query, query.getStartMillis(), settled);
+    }
+
+    /**
+     * Limits "query" to the part of its time range left to the event service.
+     *
+     * @param query     It is the query to route.
+     * @param nowMillis It is the current time, as a Unix-Timestamp in milliseconds.
+     * @return "query" from the settled end, sharing that second with the settled part, or null
+     * if it ends before.
+     */
+    static EarthquakeQuery getUnsettledPart(EarthquakeQuery query, long nowMillis) {
+        long settled = getSettledEnd(nowMillis);
+        if (query.getEndMillis() <= settled) {
+            return null;
+        }
+        return withTimeRange(query, Math.max(query.getStartMillis(), settled),
+                query.getEndMillis());
+    }
+
+    /**
+     * Joins the answers of both parts of "query" into the answer of the whole query.
+     *
+     * @param settled     It is the earthquakes of the settled part, as filtered.
+     * @param settledPart It is the settled part of "query".
+     * @param unsettled   It is the earthquakes of the unsettled part, from the event service.
+     * @param query       It is the query both parts are split from.
+     * @return The earthquakes the event service would answer "query" with.
+     */
+    static ArrayList<Earthquake> merge(List<Earthquake> settled, EarthquakeQuery settledPart,
+                                       List<Earthquake> unsettled, EarthquakeQuery query) {
+        ArrayList<Earthquake> merged = new ArrayList<>(settled);
+
+        // Earthquakes of the second both parts share are already in the settled part.
+        for (Earthquake earthquake : unsettled) {
+            if (earthquake.getTimeMillis() > settledPart.getEndMillis()) {
+                merged.add(earthquake);
+            }
+        }
+
+        EarthquakeFederation.sort(merged, query);
+
+        // Each part holds up to the limit, so the whole query's limit is kept.
+        if (merged.size() > query.getLimit()) {
+            merged.subList(query.getLimit(), merged.size()).clear();
+        }
+        return merged;
+    }
+
+    /**
+     * @return Latest time every earthquake of which is in a feed downloaded at "nowMillis", as
+     * the feed may have been generated a while ago, before earthquakes of the while before that
+     * got published. It is a whole second, so both parts of a query meet exactly.
+     */
+    private static long getSettledEnd(long nowMillis) {
+        return floorToSecond(nowMillis - FEED_LAG_MILLIS -
+                EarthquakeRepository.PUBLICATION_DELAY_MS);
+    }
+
+    /**
+     * @return "query" over [startMillis, endMillis] instead.
+     */
+    private static EarthquakeQuery withTimeRange(EarthquakeQuery query, long startMillis,
+                                                 long endMillis) {
+        return new EarthquakeQuery(query.getMinMagnitude(), query.getOrderBy(), startMillis,
+                endMillis, query.getLimit(), query.isListOnly(), query.getLatitude(),
+                query.getLongitude(), query.getMaxRadiusKm());
+    }
+
+    /**
+     * Forms the URL of a summary feed, in the "geojson" format.
+     *
+     * @param feed Name of the feed e.g. "2.5_day".
+     * @return A URL that points to the feed.
+     */
+    static URL makeFeedUrl(String feed) {
+        try {
+            return new URL(Uri.parse(DOMAIN).buildUpon()
+                    .path(PATH_SUMMARY_FEED)
+                    .appendPath(feed + FEED_EXTENSION_GEOJSON)
+                    .toString());
+        } catch (MalformedURLException e) {
+            Log.e(TAG, "Unable to form the URL - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Applies the filters, order and limit of "query" to the earthquakes of a summary feed, as
+     * the event service does to the earthquakes it holds.
+     *
+     * @param earthquakes It is the earthquakes of the feed "query" is routed to.
+     * @param query       It is the query the feed answers.
+     * @return The earthquakes the event service would answer "query" with.
+     */
+    static ArrayList<Earthquake> filter(List<Earthquake> earthquakes, EarthquakeQuery query) {
+        // Query sends its times to the second, and the event service includes both ends.
+        long start = floorToSecond(query.getStartMillis());
+        long end = floorToSecond(query.getEndMillis());
+
+        ArrayList<Earthquake> filtered = new ArrayList<>();
+        for (Earthquake earthquake : earthquakes) {
+            if (earthquake.getMagnitude() < query.getMinMagnitude() ||
+                    earthquake.getTimeMillis() < start || earthquake.getTimeMillis() > end) {
+                continue;
+            }
+
+            // Region is a circle of "maxradius" degrees, as the event service measures it.
+            if (query.isRegional() && Math.toDegrees(EventDeduplicator.distanceKm(
+                    query.getLatitude(), query.getLongitude(), earthquake.getLatitude(),
+                    earthquake.getLongitude()) / EARTH_RADIUS_KM) >
+                    query.getMaxRadiusKm() / KM_PER_DEGREE) {
+                continue;
+            }
+            filtered.add(earthquake);
+        }
+
+        EarthquakeFederation.sort(filtered, query);
+
+        // Keeps the number of earthquakes the event service would return.
+        if (filtered.size() > query.getLimit()) {
+            filtered.subList(query.getLimit(), filtered.size()).clear();
+        }
+        return filtered;
+    }
+
+    /**
+     * @return "millis" without its milliseconds, rounded towards the past.
+     */
+    private static long floorToSecond(long millis) {
+        return millis - ((millis % 1000L) + 1000L) % 1000L;
+    }
+}
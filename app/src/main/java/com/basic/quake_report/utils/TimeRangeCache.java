@@ -0,0 +1,210 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers which [start, end) spans of time have been downloaded for a magnitude floor, along
+ * with every earthquake of those spans.
+ * <p>
+ * A query over a time range then only needs the gaps between the held spans to be downloaded,
+ * e.g. sliding a 30-day range forward by a day leaves a single day to download.
+ */
+public class TimeRangeCache {
+
+    // Most magnitude floors held, the least recently used one is dropped.
+    private static final int MAX_FLOORS = 4;
+
+    // Orders earthquakes by time, oldest first.
+    private static final Comparator<Earthquake> BY_TIME = new Comparator<Earthquake>() {
+        @Override
+        public int compare(Earthquake first, Earthquake second) {
+            return Long.compare(first.getTimeMillis(), second.getTimeMillis());
+        }
+    };
+
+    // Spans and earthquakes keyed by the magnitude floor, in order of use.
+    private final LinkedHashMap<Double, Spans> mFloors =
+            new LinkedHashMap<Double, Spans>(MAX_FLOORS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Double, Spans> eldest) {
+                    return size() > MAX_FLOORS;
+                }
+            };
+
+    /**
+     * Spans downloaded for a single magnitude floor.
+     */
+    private static class Spans {
+
+        // Downloaded spans as {start, end}, ordered and never overlapping or touching.
+        private List<long[]> mRanges = new ArrayList<>();
+
+        // Earthquakes of the spans, oldest first.
+        private final ArrayList<Earthquake> mEarthquakes = new ArrayList<>();
+
+        // Ids and times of "mEarthquakes", so an earthquake downloaded twice is held once.
+        private final Set<String> mIds = new HashSet<>();
+    }
+
+    /**
+     * @param minMagnitude It is the magnitude floor.
+     * @param start        Start of the range, inclusive.
+     * @param end          End of the range, exclusive.
+     * @return Spans of [start, end) not downloaded yet as {start, end}, oldest first.
+     */
+    public synchronized List<long[]> getGaps(double minMagnitude, long start, long end) {
+        List<long[]> gaps = new ArrayList<>();
+        Spans spans = mFloors.get(minMagnitude);
+
+        long cursor = start;
+        if (spans != null) {
+            for (long[] range : spans.mRanges) {
+                if (range[1] <= cursor) {
+                    continue;
+                }
+                if (range[0] >= end) {
+                    break;
+                }
+                if (range[0] > cursor) {
+                    gaps.add(new long[]{cursor, range[0]});
+                }
+                cursor = range[1];
+            }
+        }
+
+        if (cursor < end) {
+            gaps.add(new long[]{cursor, end});
+        }
+        return gaps;
+    }
+
+    /**
+     * Holds the earthquakes downloaded for a span, merging the span with the held ones.
+     *
+     * @param minMagnitude It is the magnitude floor.
+     * @param start        Start of the span every earthquake was downloaded for, inclusive.
+     * @param end          End of the span every earthquake was downloaded for, exclusive.
+     * @param earthquakes  Earthquakes downloaded, which may reach outside the span.
+     * @return Earthquakes of "earthquakes" not held before.
+     */
+    public synchronized List<Earthquake> add(double minMagnitude, long start, long end,
+                                             List<Earthquake> earthquakes) {
+        Spans spans = mFloors.get(minMagnitude);
+        if (spans == null) {
+            spans = new Spans();
+            mFloors.put(minMagnitude, spans);
+        }
+
+        List<Earthquake> added = new ArrayList<>();
+        for (Earthquake earthquake : earthquakes) {
+            if (spans.mIds.add(earthquake.getId() + '@' + earthquake.getTimeMillis())) {
+                spans.mEarthquakes.add(earthquake);
+                added.add(earthquake);
+            }
+        }
+        if (!added.isEmpty()) {
+            Collections.sort(spans.mEarthquakes, BY_TIME);
+        }
+
+        if (start < end) {
+            spans.mRanges = merge(spans.mRanges, start, end);
+        }
+        return added;
+    }
+
+    /**
+     * @return "ranges" having [start, end) added, with overlapping and touching spans merged.
+     */
+    static List<long[]> merge(List<long[]> ranges, long start, long end) {
+        List<long[]> merged = new ArrayList<>(ranges.size() + 1);
+        boolean placed = false;
+        for (long[] range : ranges) {
+            if (range[1] < start) {
+                // Entirely before the new span.
+                merged.add(range);
+            } else if (range[0] > end) {
+                // Entirely after the new span.
+                if (!placed) {
+                    merged.add(new long[]{start, end});
+                    placed = true;
+                }
+                merged.add(range);
+            } else {
+                // Overlapping or touching, so it grows the new span.
+                start = Math.min(start, range[0]);
+                end = Math.max(end, range[1]);
+            }
+        }
+        if (!placed) {
+            merged.add(new long[]{start, end});
+        }
+        return merged;
+    }
+
+    /**
+     * @param minMagnitude It is the magnitude floor.
+     * @param start        Start of the range, inclusive.
+     * @param end          End of the range, exclusive.
+     * @return Held earthquakes of [start, end), oldest first.
+     */
+    public synchronized ArrayList<Earthquake> get(double minMagnitude, long start, long end) {
+        ArrayList<Earthquake> earthquakes = new ArrayList<>();
+        Spans spans = mFloors.get(minMagnitude);
+        if (spans == null) {
+            return earthquakes;
+        }
+
+        // Earthquakes are ordered by time, so the range is found by binary search.
+        List<Earthquake> held = spans.mEarthquakes;
+        int from = lowerBound(held, start);
+        int to = lowerBound(held, end);
+        earthquakes.addAll(held.subList(from, to));
+        return earthquakes;
+    }
+
+    /**
+     * Hands the held earthquakes of [start, end) to "listener" without copying them, e.g. to
+     * select some of them. Nothing can be added meanwhile, so "listener" must not keep the list.
+     *
+     * @param minMagnitude Magnitude floor the earthquakes were downloaded for.
+     * @param start        Start of the range, inclusive.
+     * @param end          End of the range, exclusive.
+     * @param listener     Receives the earthquakes ordered by time, oldest first.
+     */
+    public synchronized void scan(double minMagnitude, long start, long end,
+                                  EarthquakeChunkListener listener) {
+        Spans spans = mFloors.get(minMagnitude);
+        if (spans == null) {
+            return;
+        }
+
+        List<Earthquake> held = spans.mEarthquakes;
+        listener.onChunk(held.subList(lowerBound(held, start), lowerBound(held, end)));
+    }
+
+    /**
+     * @return Index of the first earthquake of "earthquakes" at or after "time".
+     */
+    private static int lowerBound(List<Earthquake> earthquakes, long time) {
+        int low = 0;
+        int high = earthquakes.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (earthquakes.get(middle).getTimeMillis() < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
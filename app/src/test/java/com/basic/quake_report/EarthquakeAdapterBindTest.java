@@ -0,0 +1,180 @@
+package com.basic.quake_report;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.basic.quake_report.utils.AftershockClusterer;
+import com.basic.quake_report.utils.AftershockSequence;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link EarthquakeAdapter#onBindViewHolder} only sets precomputed values, and so
+ * allocates nothing once warmed up.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EarthquakeAdapterBindTest {
+
+    // Number of rows present in the adapter.
+    private static final int ROW_COUNT = 200;
+
+    // Number of ViewHolders recycled between the rows, like a RecyclerView showing a screenful.
+    private static final int HOLDER_COUNT = 12;
+
+    // Bytes a bind may allocate on average, left to the framework and the JVM's own counters,
+    // far below the cost of formatting a single value.
+    private static final long BIND_TOLERANCE_BYTES = 16;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Context mContext;
+
+    private EarthquakeAdapter mAdapter;
+
+    private EarthquakeAdapter.EarthquakeViewHolder[] mHolders;
+
+    @Before
+    public void setUp() {
+        Context context = new ContextThemeWrapper(ApplicationProvider.getApplicationContext(),
+                R.style.AppTheme);
+        mContext = context;
+
+        // Builds the rows the way the Loader does, off the bind path.
+        ArrayList<Earthquake> earthquakes = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Earthquake earthquake = new Earthquake();
+            earthquake.setMagnitude((i % 100) / 10.0);
+            earthquake.setOffset("1" + i + "km N of");
+            earthquake.setPrimaryLocation("Location " + i);
+            earthquake.setDate("Dec 11, 2021");
+            earthquake.setTime("1:0" + (i % 10) + " PM");
+            earthquakes.add(earthquake);
+        }
+        EarthquakeAdapter.prepareEarthquakeData(context, earthquakes);
+
+        mAdapter = new EarthquakeAdapter(earthquake -> {
+        });
+        mAdapter.setEarthquakeData(earthquakes);
+
+        RecyclerView parent = new RecyclerView(context);
+        parent.setLayoutManager(new LinearLayoutManager(context));
+
+        mHolders = new EarthquakeAdapter.EarthquakeViewHolder[HOLDER_COUNT];
+        for (int i = 0; i < HOLDER_COUNT; i++) {
+            mHolders[i] = mAdapter.createViewHolder(parent, 0);
+        }
+    }
+
+    private static String getText(EarthquakeAdapter.EarthquakeViewHolder holder, int id) {
+        return ((TextView) holder.itemView.findViewById(id)).getText().toString();
+    }
+
+    /**
+     * Binds every row once, recycling the holders.
+     */
+    private void bindAll() {
+        for (int position = 0; position < ROW_COUNT; position++) {
+            mAdapter.onBindViewHolder(mHolders[position % HOLDER_COUNT], position);
+        }
+    }
+
+    /**
+     * @return Bytes allocated by the current thread so far.
+     */
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void onBindViewHolder_allocatesNothingAfterWarmUp() {
+        // Warm-up lets every holder and color go through the bind path at least once.
+        bindAll();
+        bindAll();
+
+        // Cost of reading the counter itself.
+        long calibrationStart = allocatedBytes();
+        long calibration = allocatedBytes() - calibrationStart;
+
+        long start = allocatedBytes();
+        bindAll();
+        long allocated = allocatedBytes() - start - calibration;
+
+        assertTrue("Bytes allocated by " + ROW_COUNT + " binds: " + allocated,
+                allocated <= ROW_COUNT * BIND_TOLERANCE_BYTES);
+    }
+
+    @Test
+    public void onBindViewHolder_formatsNothing() {
+        bindAll();
+
+        // Raw values changed after preparing are not formatted again by a bind.
+        Earthquake earthquake = mAdapter.getEarthquakeData().get(42);
+        String magnitudeText = earthquake.getMagnitudeText();
+        String displayOffset = earthquake.getDisplayOffset();
+        earthquake.setMagnitude(9.9);
+        earthquake.setOffset("changed after preparing");
+
+        EarthquakeAdapter.EarthquakeViewHolder holder = mHolders[0];
+        mAdapter.onBindViewHolder(holder, 42);
+        assertEquals(magnitudeText, getText(holder, R.id.magnitude));
+        assertEquals(displayOffset, getText(holder, R.id.location_offset));
+    }
+
+    @Test
+    public void onBindViewHolder_doesNotLeakColorsBetweenHolders() {
+        mAdapter.onBindViewHolder(mHolders[0], 0);
+        mAdapter.onBindViewHolder(mHolders[1], 95);
+
+        // Each holder owns its own badge background.
+        assertNotSame(mHolders[0].itemView.findViewById(R.id.magnitude).getBackground(),
+                mHolders[1].itemView.findViewById(R.id.magnitude).getBackground());
+    }
+
+    @Test
+    public void onBindViewHolder_showsThePreparedSequenceCount() {
+        // Builds a sequence the way the Loader does, off the bind path.
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Earthquake earthquake = new Earthquake();
+            earthquake.setTimeMillis(1639180800000L + i * 60_000L);
+            earthquake.setMagnitude(i == 0 ? 6.8 : 4.5);
+            earthquake.setLatitude(38.2);
+            earthquake.setLongitude(142.9);
+            earthquakes.add(earthquake);
+        }
+        AftershockClusterer clusterer = new AftershockClusterer();
+        clusterer.update(earthquakes);
+        List<AftershockSequence> sequences = clusterer.getSequences();
+        EarthquakeAdapter.prepareEarthquakeData(mContext, earthquakes);
+        EarthquakeAdapter.prepareSequenceData(mContext, sequences);
+        String countText = sequences.get(0).getCountText();
+
+        mAdapter.setEarthquakeData(new AftershockSequence.HeadList(sequences));
+        RecyclerView parent = new RecyclerView(mContext);
+        parent.setLayoutManager(new LinearLayoutManager(mContext));
+        EarthquakeAdapter.EarthquakeViewHolder holder =
+                mAdapter.createViewHolder(parent, mAdapter.getItemViewType(0));
+        mAdapter.onBindViewHolder(holder, 0);
+
+        assertEquals(mContext.getResources().getQuantityString(R.plurals.sequence_count, 3, 3),
+                countText);
+        assertEquals(countText, getText(holder, R.id.sequence_count));
+    }
+}
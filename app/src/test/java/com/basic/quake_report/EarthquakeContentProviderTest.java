@@ -0,0 +1,154 @@
+package com.basic.quake_report;
+
+import android.content.Context;
+import android.database.CrossProcessCursor;
+import android.database.Cursor;
+import android.database.CursorWindow;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.basic.quake_report.utils.EarthquakeSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link EarthquakeContentProvider} selects, projects and pages the earthquakes of the
+ * snapshot.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EarthquakeContentProviderTest {
+
+    // 2021-12-11T00:00:00Z.
+    private static final long START = 1639180800000L;
+
+    // Number of earthquakes of the snapshot.
+    private static final int EVENT_COUNT = 10_000;
+
+    private EarthquakeContentProvider mProvider;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+
+        // Magnitudes 0.0 to 7.9, one a minute, spread around the globe.
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            Earthquake earthquake = new Earthquake();
+            earthquake.setId("us7000" + i);
+            earthquake.setMagnitude((i % 80) / 10.0);
+            earthquake.setTimeMillis(START + i * 60_000L);
+            earthquake.setLatitude(-60 + (i % 120));
+            earthquake.setLongitude(-180 + (i % 360));
+            earthquake.setDepth(10.0);
+            earthquake.setOffset("5 km N of");
+            earthquake.setPrimaryLocation("Town " + i);
+            earthquakes.add(earthquake);
+        }
+        EarthquakeAdapter.prepareEarthquakeData(context, earthquakes);
+        assertTrue(EarthquakeSnapshot.write(EarthquakeSnapshot.getFile(context), "key",
+                earthquakes));
+
+        mProvider = Robolectric.setupContentProvider(EarthquakeContentProvider.class,
+                EarthquakeContract.AUTHORITY);
+    }
+
+    private Cursor query(Uri uri, String[] projection, String sortOrder) {
+        return mProvider.query(uri, projection, null, null, sortOrder);
+    }
+
+    @Test
+    public void query_returnsEveryColumnOfEveryEarthquake() {
+        try (Cursor cursor = query(EarthquakeContract.CONTENT_URI, null, null)) {
+            assertEquals(EVENT_COUNT, cursor.getCount());
+            assertEquals(EarthquakeContract.COLUMNS.length, cursor.getColumnCount());
+
+            assertTrue(cursor.moveToPosition(81));
+            assertEquals("us700081", cursor.getString(
+                    cursor.getColumnIndexOrThrow(EarthquakeContract.COLUMN_EVENT_ID)));
+            assertEquals(0.1, cursor.getDouble(
+                    cursor.getColumnIndexOrThrow(EarthquakeContract.COLUMN_MAGNITUDE)), 1e-9);
+            assertEquals(START + 81 * 60_000L, cursor.getLong(
+                    cursor.getColumnIndexOrThrow(EarthquakeContract.COLUMN_TIME)));
+            assertEquals("5 km N of Town 81", cursor.getString(
+                    cursor.getColumnIndexOrThrow(EarthquakeContract.COLUMN_PLACE)));
+        }
+    }
+
+    @Test
+    public void queryParameters_selectByMagnitudeTimeAndRegion() {
+        Uri uri = EarthquakeContract.CONTENT_URI.buildUpon()
+                .appendQueryParameter(EarthquakeContract.PARAM_MIN_MAGNITUDE, "7")
+                .appendQueryParameter(EarthquakeContract.PARAM_START_TIME,
+                        String.valueOf(START + 1000 * 60_000L))
+                .appendQueryParameter(EarthquakeContract.PARAM_MIN_LATITUDE, "0")
+                .appendQueryParameter(EarthquakeContract.PARAM_MAX_LATITUDE, "30")
+                .appendQueryParameter(EarthquakeContract.PARAM_MIN_LONGITUDE, "170")
+                .appendQueryParameter(EarthquakeContract.PARAM_MAX_LONGITUDE, "-170")
+                .build();
+
+        String[] projection = {EarthquakeContract.COLUMN_MAGNITUDE,
+                EarthquakeContract.COLUMN_TIME, EarthquakeContract.COLUMN_LATITUDE,
+                EarthquakeContract.COLUMN_LONGITUDE};
+        try (Cursor cursor = query(uri, projection, null)) {
+            assertEquals(4, cursor.getColumnCount());
+            assertTrue(cursor.getCount() > 0);
+            while (cursor.moveToNext()) {
+                assertTrue(cursor.getDouble(0) >= 7);
+                assertTrue(cursor.getLong(1) >= START + 1000 * 60_000L);
+                assertTrue(cursor.getDouble(2) >= 0 && cursor.getDouble(2) <= 30);
+
+                // Region crosses the antimeridian.
+                assertTrue(cursor.getDouble(3) >= 170 || cursor.getDouble(3) <= -170);
+            }
+        }
+    }
+
+    @Test
+    public void limitAndOffset_pageTheSortedEarthquakes() {
+        Uri uri = EarthquakeContract.CONTENT_URI.buildUpon()
+                .appendQueryParameter(EarthquakeContract.PARAM_OFFSET, "10")
+                .appendQueryParameter(EarthquakeContract.PARAM_LIMIT, "5")
+                .build();
+
+        try (Cursor cursor = query(uri, new String[]{EarthquakeContract.COLUMN_MAGNITUDE},
+                EarthquakeContract.COLUMN_MAGNITUDE + " DESC")) {
+            assertEquals(5, cursor.getCount());
+            while (cursor.moveToNext()) {
+                assertEquals(7.9, cursor.getDouble(0), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void window_isFilledOnePageAtATime() {
+        try (Cursor cursor = query(EarthquakeContract.CONTENT_URI, null, null)) {
+            CursorWindow window = new CursorWindow("earthquakes");
+            try {
+                ((CrossProcessCursor) cursor).fillWindow(1000, window);
+
+                // A remote consumer gets the earthquakes page by page.
+                assertEquals(1000, window.getStartPosition());
+                assertEquals(EarthquakeCursor.PAGE_ROWS, window.getNumRows());
+                assertEquals("us70001000", window.getString(1000, 1));
+            } finally {
+                window.close();
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownColumn_isRejected() {
+        query(EarthquakeContract.CONTENT_URI, new String[]{"mag"}, null);
+    }
+}
@@ -0,0 +1,96 @@
+package com.basic.quake_report;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowAppWidgetManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks {@link EarthquakeWidgetProvider} shows the latest and largest earthquakes loaded, and
+ * only pushes new views when they change.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EarthquakeWidgetProviderTest {
+
+    // 2021-12-11T00:00:00Z.
+    private static final long START = 1639180800000L;
+
+    private Context mContext;
+
+    private ShadowAppWidgetManager mWidgetManager;
+
+    private int mWidgetId;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mWidgetManager = Shadows.shadowOf(AppWidgetManager.getInstance(mContext));
+        mWidgetId = mWidgetManager.createWidget(EarthquakeWidgetProvider.class,
+                R.layout.layout_widget);
+    }
+
+    private Earthquake makeEarthquake(long timeMillis, double magnitude, String location) {
+        Earthquake earthquake = new Earthquake();
+        earthquake.setTimeMillis(timeMillis);
+        earthquake.setMagnitude(magnitude);
+        earthquake.setPrimaryLocation(location);
+        earthquake.setDate("Dec 11, 2021");
+        earthquake.setTime("1:00 PM");
+        return earthquake;
+    }
+
+    private List<Earthquake> makeEarthquakes() {
+        List<Earthquake> earthquakes = new ArrayList<>();
+        earthquakes.add(makeEarthquake(START, 6.2, "Fiji"));
+        earthquakes.add(makeEarthquake(START + 60_000L, 4.1, "Alaska"));
+        earthquakes.add(makeEarthquake(START - 60_000L, 5.0, "Chile"));
+        EarthquakeAdapter.prepareEarthquakeData(mContext, earthquakes);
+        return earthquakes;
+    }
+
+    private String getText(View widget, int id) {
+        return ((TextView) widget.findViewById(id)).getText().toString();
+    }
+
+    @Test
+    public void widget_showsNothingLoadedYet() {
+        View widget = mWidgetManager.getViewFor(mWidgetId);
+        assertEquals(View.VISIBLE, widget.findViewById(R.id.widget_empty).getVisibility());
+    }
+
+    @Test
+    public void update_showsTheLatestAndTheLargest() {
+        EarthquakeWidgetProvider.update(mContext, makeEarthquakes());
+
+        View widget = mWidgetManager.getViewFor(mWidgetId);
+        assertEquals("Alaska", getText(widget, R.id.widget_latest_place));
+        assertEquals("6.2", getText(widget, R.id.widget_largest_magnitude));
+        assertEquals("Fiji", getText(widget, R.id.widget_largest_place));
+    }
+
+    @Test
+    public void unchangedEarthquakes_pushNothing() {
+        EarthquakeWidgetProvider.update(mContext, makeEarthquakes());
+        View widget = mWidgetManager.getViewFor(mWidgetId);
+        ((TextView) widget.findViewById(R.id.widget_latest_place)).setText("Not pushed");
+
+        // Same earthquakes loaded again, e.g. by the next profile refresh.
+        EarthquakeWidgetProvider.update(mContext, makeEarthquakes());
+        assertEquals("Not pushed", getText(mWidgetManager.getViewFor(mWidgetId),
+                R.id.widget_latest_place));
+    }
+}
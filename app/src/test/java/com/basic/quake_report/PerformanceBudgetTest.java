@@ -0,0 +1,420 @@
+package com.basic.quake_report;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Bundle;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import androidx.core.view.LayoutInflaterCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.basic.quake_report.utils.EarthquakeChunkListener;
+import com.basic.quake_report.utils.EarthquakeFederation;
+import com.basic.quake_report.utils.EarthquakeProvider;
+import com.basic.quake_report.utils.EarthquakeQuery;
+import com.basic.quake_report.utils.EarthquakeResultCache;
+import com.basic.quake_report.utils.FdsnTextDecoder;
+import com.basic.quake_report.utils.NetworkUtilsConstants;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Fails the build when startup or list binding exceeds a fixed budget of main-thread time,
+ * allocations or view inflations, and writes every measurement to a JSON report.
+ * <p>
+ * Budgets are ceilings for a JVM run, well above what the code needs today, so only a real
+ * regression breaks them. The reports hold the exact values for tracking trends.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PerformanceBudgetTest implements NetworkUtilsConstants {
+
+    // Number of earthquakes in the canned response, and of rows bound.
+    private static final int EVENT_COUNT = 1_000;
+
+    // Number of ViewHolders recycled between the rows, like a RecyclerView showing a screenful.
+    private static final int HOLDER_COUNT = 12;
+
+    // Size of the list the rows are laid out in.
+    private static final int LIST_WIDTH = 1080;
+    private static final int LIST_HEIGHT = 1920;
+
+    // Longest wait for the first rows of a cold start.
+    private static final long COLD_START_TIMEOUT_MS = 10_000L;
+
+    // Time a frame takes on the main Looper's clock.
+    private static final Duration FRAME = Duration.ofMillis(16);
+
+    // Budgets of a cold start, from creating MainActivity until its first rows are laid out.
+    private static final double COLD_START_CPU_BUDGET_MS = 4_000;
+    private static final double COLD_START_ALLOCATION_BUDGET_MB = 256;
+    private static final double COLD_START_INFLATION_BUDGET = 250;
+
+    // Budgets of setting the earthquakes on a laid out list, including the layout pass.
+    private static final double SET_DATA_CPU_BUDGET_MS = 250;
+    private static final double SET_DATA_ALLOCATION_BUDGET_MB = 8;
+    private static final double SET_DATA_INFLATION_BUDGET = 150;
+
+    // Budgets of binding every row once to recycled holders, after a warm-up.
+    private static final double BIND_CPU_BUDGET_MS = 250;
+    private static final double BIND_ALLOCATION_BUDGET_KB = 16;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Shared by every test, written once they all ran.
+    private static final PerformanceReport mReport =
+            new PerformanceReport(PerformanceBudgetTest.class.getSimpleName());
+
+    /**
+     * Counts every view inflated, leaving its creation to whoever would create it otherwise.
+     */
+    private static class InflationCounter implements LayoutInflater.Factory2 {
+
+        // Views inflated so far.
+        int inflations;
+
+        // Creates the views instead of the LayoutInflater when set, e.g. AppCompat.
+        LayoutInflater.Factory2 delegate;
+
+        @Override
+        public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+            inflations++;
+            return delegate == null ? null :
+                    delegate.onCreateView(parent, name, context, attrs);
+        }
+
+        @Override
+        public View onCreateView(String name, Context context, AttributeSet attrs) {
+            return onCreateView(null, name, context, attrs);
+        }
+    }
+
+    /**
+     * MainActivity counting the views it inflates, its rows included.
+     */
+    public static class CountingMainActivity extends MainActivity {
+
+        final InflationCounter counter = new InflationCounter();
+
+        @Override
+        protected void onCreate(Bundle savedInstanceState) {
+            // Views are still created by AppCompat, which finds the factory taken.
+            counter.delegate = new InflationCounter() {
+                @Override
+                public View onCreateView(View parent, String name, Context context,
+                                         AttributeSet attrs) {
+                    return getDelegate().createView(parent, name, context, attrs);
+                }
+            };
+            LayoutInflaterCompat.setFactory2(getLayoutInflater(), counter);
+            super.onCreate(savedInstanceState);
+        }
+    }
+
+    /**
+     * Stands in for the event services with a canned "text" response.
+     */
+    private static class CannedProvider implements EarthquakeProvider {
+
+        // Canned response, most recent earthquake first.
+        private final byte[] mResponse;
+
+        CannedProvider(byte[] response) {
+            mResponse = response;
+        }
+
+        @Override
+        public String getName() {
+            return PROVIDER_USGS;
+        }
+
+        @Override
+        public ArrayList<Earthquake> getEarthquakes(EarthquakeQuery query,
+                                                    EarthquakeChunkListener listener) {
+            ArrayList<Earthquake> earthquakes = new ArrayList<>();
+            for (Earthquake earthquake : new FdsnTextDecoder(EVENT_URL_USGS, DETAIL_URL_USGS)
+                    .decode(mResponse, mResponse.length)) {
+                if (earthquake.getMagnitude() >= query.getMinMagnitude() &&
+                        earthquake.getTimeMillis() >= query.getStartMillis() &&
+                        earthquake.getTimeMillis() < query.getEndMillis()) {
+                    earthquakes.add(earthquake);
+                }
+            }
+            if (listener != null) {
+                listener.onChunk(earthquakes);
+            }
+            return earthquakes;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        // Later tests get the real event services and nothing held.
+        EarthquakeFederation.setDefault(null);
+        EarthquakeResultCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    @AfterClass
+    public static void writeReport() throws IOException {
+        System.out.println("Performance report: " + mReport.write().getAbsolutePath());
+    }
+
+    /**
+     * @return "text" response of {@link #EVENT_COUNT} earthquakes of the last hours, most recent
+     * first, magnitudes cycling from 0 to 8.
+     */
+    private static byte[] makeTextResponse() {
+        StringBuilder text = new StringBuilder("#EventID|Time|Latitude|Longitude|Depth/km|Author|"
+                + "Catalog|Contributor|ContributorID|MagType|Magnitude|MagAuthor|"
+                + "EventLocationName\n");
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'",
+                Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            String id = "us7000" + i;
+            text.append(id).append('|').append(format.format(new Date(now - i * 60_000L)))
+                    .append('|').append(-60 + (i % 1200) / 10.0).append('|')
+                    .append(-179.5 + (i % 3590) / 10.0).append('|').append((i % 700) + 0.5)
+                    .append("|us|us|us|").append(id).append("|mb|").append((i % 80) / 10.0)
+                    .append("|us|").append(i % 300).append(" km SSW of Town ").append(i % 97)
+                    .append(", Alaska\n");
+        }
+        return text.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * @return Bind-ready earthquakes of the canned response.
+     */
+    private static List<Earthquake> makeEarthquakes(Context context, boolean flatRows) {
+        byte[] response = makeTextResponse();
+        List<Earthquake> earthquakes = new FdsnTextDecoder(EVENT_URL_USGS, DETAIL_URL_USGS)
+                .decode(response, response.length);
+        EarthquakeAdapter.prepareEarthquakeData(context, earthquakes);
+        if (flatRows) {
+            EarthquakeRowView.prepareLayouts(context, earthquakes);
+        }
+        return earthquakes;
+    }
+
+    /**
+     * @return Context of the app's theme, whose LayoutInflater reports to "counter".
+     */
+    private static Context makeCountingContext(InflationCounter counter) {
+        return new ContextWrapper(new ContextThemeWrapper(
+                ApplicationProvider.getApplicationContext(), R.style.AppTheme)) {
+
+            // Inflater of this context, created on first use.
+            private LayoutInflater mInflater;
+
+            @Override
+            public Object getSystemService(String name) {
+                if (LAYOUT_INFLATER_SERVICE.equals(name)) {
+                    if (mInflater == null) {
+                        mInflater = LayoutInflater.from(getBaseContext()).cloneInContext(this);
+                        mInflater.setFactory2(counter);
+                    }
+                    return mInflater;
+                }
+                return super.getSystemService(name);
+            }
+        };
+    }
+
+    /**
+     * Runs the measure and layout pass of a single frame.
+     */
+    private static void layoutPass(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(LIST_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(LIST_HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, LIST_WIDTH, LIST_HEIGHT);
+    }
+
+    /**
+     * @return Bytes allocated by the main thread so far.
+     */
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Records a measurement and tells whether it is within budget.
+     */
+    private static boolean check(List<String> failures, String name, double value, double budget,
+                                 String unit) {
+        boolean withinBudget = mReport.record(name, value, budget, unit);
+        if (!withinBudget) {
+            failures.add(String.format(Locale.US, "%s: %.3f %s over a budget of %.3f %s",
+                    name, value, unit, budget, unit));
+        }
+        return withinBudget;
+    }
+
+    @Test
+    public void coldStart_withCannedResponse_staysWithinBudget() {
+        EarthquakeFederation.setDefault(new EarthquakeFederation(Collections.singletonList(
+                new CannedProvider(makeTextResponse()))));
+
+        long wallStart = System.nanoTime();
+        long cpuStart = THREADS.getCurrentThreadCpuTime();
+        long allocationStart = allocatedBytes();
+
+        CountingMainActivity activity = Robolectric.buildActivity(CountingMainActivity.class)
+                .setup().get();
+        RecyclerView list = activity.findViewById(R.id.recycler_earthquake);
+
+        // Main thread runs frames until the Loader's rows are laid out, idle in between.
+        long deadline = System.currentTimeMillis() + COLD_START_TIMEOUT_MS;
+        while (list.getChildCount() == 0 && System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idleFor(FRAME);
+            if (list.getChildCount() == 0) {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        double cpuMs = (THREADS.getCurrentThreadCpuTime() - cpuStart) / 1e6;
+        double allocatedMb = (allocatedBytes() - allocationStart) / (1024.0 * 1024.0);
+        double wallMs = (System.nanoTime() - wallStart) / 1e6;
+        assertTrue("No rows shown within " + COLD_START_TIMEOUT_MS + " ms",
+                list.getChildCount() > 0);
+
+        List<String> failures = new ArrayList<>();
+        mReport.record("coldStart.timeToFirstRowMs", wallMs, COLD_START_TIMEOUT_MS, "ms");
+        check(failures, "coldStart.mainThreadCpuMs", cpuMs, COLD_START_CPU_BUDGET_MS, "ms");
+        check(failures, "coldStart.mainThreadAllocatedMb", allocatedMb,
+                COLD_START_ALLOCATION_BUDGET_MB, "MB");
+        check(failures, "coldStart.viewInflations", activity.counter.inflations,
+                COLD_START_INFLATION_BUDGET, "views");
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    @Test
+    public void setEarthquakeData_staysWithinBudget() {
+        InflationCounter counter = new InflationCounter();
+        Context context = makeCountingContext(counter);
+        List<Earthquake> earthquakes = makeEarthquakes(context, false);
+
+        RecyclerView list = new RecyclerView(context);
+        list.setLayoutManager(new LinearLayoutManager(context));
+        EarthquakeAdapter adapter = new EarthquakeAdapter(earthquake -> {
+        });
+        list.setAdapter(adapter);
+        layoutPass(list);
+
+        long cpuStart = THREADS.getCurrentThreadCpuTime();
+        long allocationStart = allocatedBytes();
+
+        // Setting the data is only done once the list is laid out again.
+        adapter.setEarthquakeData(earthquakes);
+        layoutPass(list);
+
+        double cpuMs = (THREADS.getCurrentThreadCpuTime() - cpuStart) / 1e6;
+        double allocatedMb = (allocatedBytes() - allocationStart) / (1024.0 * 1024.0);
+        assertTrue(list.getChildCount() > 0);
+
+        List<String> failures = new ArrayList<>();
+        check(failures, "setEarthquakeData.mainThreadCpuMs", cpuMs, SET_DATA_CPU_BUDGET_MS,
+                "ms");
+        check(failures, "setEarthquakeData.mainThreadAllocatedMb", allocatedMb,
+                SET_DATA_ALLOCATION_BUDGET_MB, "MB");
+        check(failures, "setEarthquakeData.viewInflations", counter.inflations,
+                SET_DATA_INFLATION_BUDGET, "views");
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    /**
+     * Binds {@link #EVENT_COUNT} rows to recycled holders, and checks the bind after a warm-up
+     * neither inflates nor allocates beyond the budget.
+     */
+    private void bindRows(boolean flatRows) {
+        String name = flatRows ? "bindFlatRows" : "bindInflatedRows";
+        InflationCounter counter = new InflationCounter();
+        Context context = makeCountingContext(counter);
+        List<Earthquake> earthquakes = makeEarthquakes(context, flatRows);
+
+        EarthquakeAdapter adapter = new EarthquakeAdapter(earthquake -> {
+        }, flatRows);
+        adapter.setEarthquakeData(earthquakes);
+
+        RecyclerView parent = new RecyclerView(context);
+        parent.setLayoutManager(new LinearLayoutManager(context));
+        int viewType = adapter.getItemViewType(0);
+        EarthquakeAdapter.EarthquakeViewHolder[] holders =
+                new EarthquakeAdapter.EarthquakeViewHolder[HOLDER_COUNT];
+        for (int i = 0; i < HOLDER_COUNT; i++) {
+            holders[i] = adapter.createViewHolder(parent, viewType);
+        }
+        int holderInflations = counter.inflations;
+
+        // Warm-up lets every holder and color go through the bind path at least once.
+        for (int position = 0; position < earthquakes.size(); position++) {
+            adapter.onBindViewHolder(holders[position % HOLDER_COUNT], position);
+        }
+
+        // Cost of reading the counter itself.
+        long calibrationStart = allocatedBytes();
+        long calibration = allocatedBytes() - calibrationStart;
+
+        long cpuStart = THREADS.getCurrentThreadCpuTime();
+        long allocationStart = allocatedBytes();
+        for (int position = 0; position < earthquakes.size(); position++) {
+            adapter.onBindViewHolder(holders[position % HOLDER_COUNT], position);
+        }
+        double cpuMs = (THREADS.getCurrentThreadCpuTime() - cpuStart) / 1e6;
+        double allocatedKb = (allocatedBytes() - allocationStart - calibration) / 1024.0;
+
+        List<String> failures = new ArrayList<>();
+        mReport.record(name + ".holderInflations", holderInflations, holderInflations, "views");
+        check(failures, name + ".mainThreadCpuMs", cpuMs, BIND_CPU_BUDGET_MS, "ms");
+        check(failures, name + ".mainThreadAllocatedKb", allocatedKb, BIND_ALLOCATION_BUDGET_KB,
+                "KB");
+        check(failures, name + ".viewInflations", counter.inflations - holderInflations, 0,
+                "views");
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    @Test
+    public void bindThousandInflatedRows_staysWithinBudget() {
+        bindRows(false);
+    }
+
+    @Test
+    public void bindThousandFlatRows_staysWithinBudget() {
+        bindRows(true);
+    }
+}
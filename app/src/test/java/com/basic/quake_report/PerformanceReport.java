@@ -0,0 +1,87 @@
+package com.basic.quake_report;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Collects the measurements of a performance test class along with their budgets, and writes
+ * them as a JSON report so that trends can be tracked across commits.
+ * <p>
+ * Reports are written to the directory named by the "perf.reportDir" system property, which the
+ * build sets to "build/perf-reports", one file per test class.
+ */
+public final class PerformanceReport {
+
+    // System property naming the directory reports are written to.
+    private static final String PROPERTY_REPORT_DIR = "perf.reportDir";
+
+    // Directory used when the property is not set, relative to the module.
+    private static final String DEFAULT_REPORT_DIR = "build/perf-reports";
+
+    // Name of the suite, also the name of the report file.
+    private final String mSuite;
+
+    // Measurements as JSON objects, in the order they were taken.
+    private final List<String> mMetrics = new ArrayList<>();
+
+    /**
+     * @param suite Name of the suite, also the name of the report file.
+     */
+    public PerformanceReport(String suite) {
+        mSuite = suite;
+    }
+
+    /**
+     * Records a measurement.
+     *
+     * @param name   Name of the measurement e.g. "coldStart.mainThreadCpuMs".
+     * @param value  Value measured.
+     * @param budget Largest value allowed.
+     * @param unit   Unit of "value" and "budget" e.g. "ms".
+     * @return Whether "value" is within "budget".
+     */
+    public synchronized boolean record(String name, double value, double budget, String unit) {
+        boolean withinBudget = value <= budget;
+        mMetrics.add(String.format(Locale.US, "{\"name\":\"%s\",\"value\":%.3f,"
+                        + "\"budget\":%.3f,\"unit\":\"%s\",\"withinBudget\":%b}",
+                name, value, budget, unit, withinBudget));
+        return withinBudget;
+    }
+
+    /**
+     * Writes every measurement recorded to "&lt;suite&gt;.json".
+     *
+     * @return The report written.
+     * @throws IOException If the report could not be written.
+     */
+    public synchronized File write() throws IOException {
+        File directory = new File(System.getProperty(PROPERTY_REPORT_DIR, DEFAULT_REPORT_DIR));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"suite\":\"").append(mSuite).append("\",")
+                .append("\"timestamp\":").append(System.currentTimeMillis()).append(',')
+                .append("\"jvm\":\"").append(System.getProperty("java.vm.version")).append("\",")
+                .append("\"metrics\":[");
+        for (int i = 0; i < mMetrics.size(); i++) {
+            json.append(i == 0 ? "\n  " : ",\n  ").append(mMetrics.get(i));
+        }
+        json.append("\n]}\n");
+
+        File report = new File(directory, mSuite + ".json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(report),
+                Charset.forName("UTF-8"))) {
+            writer.write(json.toString());
+        }
+        return report;
+    }
+}
@@ -0,0 +1,115 @@
+package com.basic.quake_report;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts the layout passes a list item goes through when it gets bound to another Earthquake.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RowLayoutPassesTest {
+
+    // Number of rows bound to the same list item.
+    private static final int BIND_COUNT = 100;
+
+    // Size of the list the rows are laid out in.
+    private static final int LIST_WIDTH = 1080;
+    private static final int LIST_HEIGHT = 1920;
+
+    // Stands in for the RecyclerView and counts how often its row gets measured.
+    private static class CountingParent extends FrameLayout {
+        int measurePasses;
+
+        CountingParent(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            measurePasses++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        // Runs the measure and layout pass of a single frame.
+        void layoutPass() {
+            measure(View.MeasureSpec.makeMeasureSpec(LIST_WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(LIST_HEIGHT, View.MeasureSpec.EXACTLY));
+            layout(0, 0, LIST_WIDTH, LIST_HEIGHT);
+        }
+    }
+
+    /**
+     * Binds {@link #BIND_COUNT} rows to a single list item, running a frame's layout pass
+     * whenever the bind requested one.
+     *
+     * @return Number of layout passes.
+     */
+    private int countLayoutPasses(boolean flatRows) {
+        Context context = new ContextThemeWrapper(ApplicationProvider.getApplicationContext(),
+                R.style.AppTheme);
+
+        ArrayList<Earthquake> earthquakes = new ArrayList<>();
+        for (int i = 0; i < BIND_COUNT; i++) {
+            Earthquake earthquake = new Earthquake();
+            earthquake.setMagnitude((i % 90) / 10.0);
+            earthquake.setOffset(i + "km " + (i % 2 == 0 ? "N" : "SSW") + " of");
+            earthquake.setPrimaryLocation(i % 3 == 0 ? "Tonga" : "Pacific-Antarctic Ridge " + i);
+            earthquake.setDate("Dec " + (i % 28 + 1) + ", 2021");
+            earthquake.setTime((i % 12 + 1) + ":0" + (i % 10) + " AM");
+            earthquakes.add(earthquake);
+        }
+
+        // Prepared the way the Loader prepares them.
+        EarthquakeAdapter.prepareEarthquakeData(context, earthquakes);
+        if (flatRows) {
+            EarthquakeRowView.prepareLayouts(context, earthquakes);
+        }
+
+        EarthquakeAdapter adapter = new EarthquakeAdapter(earthquake -> {
+        }, flatRows);
+        adapter.setEarthquakeData(earthquakes);
+
+        CountingParent parent = new CountingParent(context);
+        EarthquakeAdapter.EarthquakeViewHolder holder =
+                adapter.createViewHolder(parent, adapter.getItemViewType(0));
+        parent.addView(holder.itemView);
+
+        // First layout of the item is not part of binding.
+        adapter.onBindViewHolder(holder, 0);
+        parent.layoutPass();
+        parent.measurePasses = 0;
+
+        for (int position = 1; position < BIND_COUNT; position++) {
+            adapter.onBindViewHolder(holder, position);
+            if (parent.isLayoutRequested()) {
+                parent.layoutPass();
+            }
+        }
+
+        return parent.measurePasses;
+    }
+
+    @Test
+    public void flatRow_bindNeverRequestsLayout() {
+        assertEquals(0, countLayoutPasses(true));
+    }
+
+    @Test
+    public void inflatedRow_bindRequestsLayout() {
+        // Kept as the baseline the flat row is compared against.
+        assertTrue(countLayoutPasses(false) > 0);
+    }
+}
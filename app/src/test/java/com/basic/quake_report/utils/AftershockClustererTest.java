@@ -0,0 +1,186 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link AftershockClusterer} groups a mainshock with its foreshocks and aftershocks,
+ * keeps distant or late earthquakes apart, and groups new earthquakes as a full sweep would.
+ */
+public class AftershockClustererTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static final long DAY = 24 * HOUR;
+
+    // 2021-12-11T00:00:00Z.
+    private static final long START = 1639180800000L;
+
+    // Number of earthquakes of the large sweep, about a year of M2.5+.
+    private static final int LARGE_COUNT = 100_000;
+
+    private static Earthquake makeEarthquake(long timeMillis, double magnitude, double latitude,
+                                             double longitude) {
+        Earthquake earthquake = new Earthquake();
+        earthquake.setTimeMillis(timeMillis);
+        earthquake.setMagnitude(magnitude);
+        earthquake.setLatitude(latitude);
+        earthquake.setLongitude(longitude);
+        return earthquake;
+    }
+
+    /**
+     * @return Earthquakes scattered over the globe in time order, a tenth of them aftershocks
+     * of an earlier one.
+     */
+    private static List<Earthquake> makeStream(Random random, int count) {
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long time = START + i * (365 * DAY / LARGE_COUNT);
+            double magnitude = 2.5 + 4 * Math.pow(random.nextDouble(), 4);
+            if (i > 0 && random.nextInt(10) == 0) {
+                Earthquake before = earthquakes.get(i - 1 - random.nextInt(Math.min(i, 50)));
+                earthquakes.add(makeEarthquake(time, magnitude,
+                        before.getLatitude() + random.nextDouble() * 0.1,
+                        before.getLongitude() + random.nextDouble() * 0.1));
+            } else {
+                earthquakes.add(makeEarthquake(time, magnitude, -60 + random.nextDouble() * 120,
+                        -180 + random.nextDouble() * 360));
+            }
+        }
+        return earthquakes;
+    }
+
+    /**
+     * @return The mainshock and size of every sequence, in order.
+     */
+    private static String describe(List<AftershockSequence> sequences) {
+        StringBuilder description = new StringBuilder();
+        for (AftershockSequence sequence : sequences) {
+            description.append(sequence.getMainshock().getTimeMillis()).append('x')
+                    .append(sequence.size()).append(' ');
+        }
+        return description.toString();
+    }
+
+    @Test
+    public void swarm_isGroupedUnderItsLargestEarthquake() {
+        Earthquake foreshock = makeEarthquake(START, 4.1, 38.10, 142.80);
+        Earthquake mainshock = makeEarthquake(START + 2 * HOUR, 6.8, 38.20, 142.90);
+        Earthquake aftershock = makeEarthquake(START + 30 * DAY, 4.5, 38.60, 143.30);
+        Earthquake distant = makeEarthquake(START + 3 * HOUR, 5.0, 35.0, 139.0);
+
+        AftershockClusterer clusterer = new AftershockClusterer();
+        clusterer.update(Arrays.asList(foreshock, mainshock, distant, aftershock));
+
+        List<AftershockSequence> sequences = clusterer.getSequences();
+        assertEquals(2, sequences.size());
+        assertSame(mainshock, sequences.get(0).getMainshock());
+        assertEquals(Arrays.asList(foreshock, mainshock, aftershock),
+                sequences.get(0).getEarthquakes());
+        assertSame(distant, sequences.get(1).getMainshock());
+    }
+
+    @Test
+    public void earthquakeAfterTheTimeWindow_startsASequence() {
+        // The time window of a M3.0 is about 12 days.
+        Earthquake first = makeEarthquake(START, 3.0, 19.40, -155.30);
+        Earthquake late = makeEarthquake(START + 20 * DAY, 2.8, 19.40, -155.30);
+
+        AftershockClusterer clusterer = new AftershockClusterer();
+        clusterer.update(Arrays.asList(first, late));
+
+        assertEquals(2, clusterer.getSequences().size());
+    }
+
+    @Test
+    public void windowAcrossTheAntimeridian_isFound() {
+        Earthquake mainshock = makeEarthquake(START, 6.0, -17.9, 179.9);
+        Earthquake aftershock = makeEarthquake(START + HOUR, 4.0, -17.9, -179.8);
+
+        AftershockClusterer clusterer = new AftershockClusterer();
+        clusterer.update(Arrays.asList(mainshock, aftershock));
+
+        assertEquals(1, clusterer.getSequences().size());
+    }
+
+    @Test
+    public void snapshot_isLeftUnchangedByLaterUpdates() {
+        Earthquake first = makeEarthquake(START, 5.5, 38.10, 142.80);
+        Earthquake larger = makeEarthquake(START + HOUR, 6.8, 38.20, 142.90);
+
+        AftershockClusterer clusterer = new AftershockClusterer();
+        clusterer.update(Collections.singletonList(first));
+        AftershockSequence shown = clusterer.getSequences().get(0).snapshot();
+
+        // A later sync grows the clusterer's sequence under a new mainshock.
+        clusterer.update(Arrays.asList(first, larger));
+        AftershockSequence grouped = clusterer.getSequences().get(0);
+        assertEquals(2, grouped.size());
+        assertSame(larger, grouped.getMainshock());
+
+        assertEquals(1, shown.size());
+        assertSame(first, shown.getMainshock());
+        assertEquals(Collections.singletonList(first), shown.getEarthquakes());
+    }
+
+    @Test
+    public void incrementalUpdates_matchAFullSweep() {
+        List<Earthquake> earthquakes = makeStream(new Random(3), 20_000);
+
+        // New earthquakes synced a few at a time.
+        AftershockClusterer incremental = new AftershockClusterer();
+        for (int to = 0; to <= earthquakes.size(); to += 777) {
+            incremental.update(earthquakes.subList(0, to));
+        }
+        incremental.update(earthquakes);
+
+        AftershockClusterer full = new AftershockClusterer();
+        full.update(earthquakes);
+
+        assertEquals(describe(full.getSequences()), describe(incremental.getSequences()));
+        assertTrue(full.getSequences().size() < earthquakes.size());
+    }
+
+    @Test
+    public void droppedEarthquake_groupsAgain() {
+        Earthquake mainshock = makeEarthquake(START, 6.0, 10, 10);
+        Earthquake aftershock = makeEarthquake(START + HOUR, 4.0, 10, 10);
+
+        AftershockClusterer clusterer = new AftershockClusterer();
+        clusterer.update(Arrays.asList(mainshock, aftershock));
+        clusterer.update(Arrays.asList(aftershock));
+
+        assertEquals(1, clusterer.getSequences().size());
+        assertSame(aftershock, clusterer.getSequences().get(0).getMainshock());
+    }
+
+    @Test
+    public void largeSweep_takesNearLinearTime() {
+        List<Earthquake> earthquakes = makeStream(new Random(5), LARGE_COUNT);
+
+        long started = System.nanoTime();
+        AftershockClusterer clusterer = new AftershockClusterer();
+        clusterer.update(earthquakes);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        // Comparing every pair would take minutes.
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 5_000);
+        int grouped = 0;
+        for (AftershockSequence sequence : clusterer.getSequences()) {
+            grouped += sequence.size();
+        }
+        assertEquals(LARGE_COUNT, grouped);
+    }
+}
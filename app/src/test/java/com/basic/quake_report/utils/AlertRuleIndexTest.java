@@ -0,0 +1,91 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks {@link AlertRuleIndex} finds the same matches as checking every rule.
+ */
+public class AlertRuleIndexTest {
+
+    private static Earthquake earthquake(double magnitude, double latitude, double longitude,
+                                         boolean tsunami) {
+        Earthquake earthquake = new Earthquake();
+        earthquake.setMagnitude(magnitude);
+        earthquake.setLatitude(latitude);
+        earthquake.setLongitude(longitude);
+        earthquake.setTsunami(tsunami);
+        return earthquake;
+    }
+
+    @Test
+    public void nearHome_matchesRadiusRule() {
+        // M5.5+ within 300 km of Anchorage.
+        AlertRule home = new AlertRule("Home", 5.5, 61.2, -149.9, 300, false);
+        AlertRuleIndex index = new AlertRuleIndex(Arrays.asList(home));
+
+        assertSame(home, index.match(earthquake(5.8, 61.5, -150.4, false)));
+        assertNull(index.match(earthquake(5.4, 61.5, -150.4, false)));
+        assertNull(index.match(earthquake(6.5, 35.0, 139.0, false)));
+    }
+
+    @Test
+    public void tsunamiRule_needsTsunamiFlag() {
+        AlertRule tsunami = new AlertRule("Pacific", 0, 0, -160, 5000, true);
+        AlertRuleIndex index = new AlertRuleIndex(Arrays.asList(tsunami));
+
+        assertSame(tsunami, index.match(earthquake(7.1, 10, -150, true)));
+        assertNull(index.match(earthquake(7.1, 10, -150, false)));
+    }
+
+    @Test
+    public void areaAcrossAntimeridian_matchesBothSides() {
+        AlertRule fiji = new AlertRule("Fiji", 4, -17.7, 178.1, 500, false);
+        AlertRuleIndex index = new AlertRuleIndex(Arrays.asList(fiji));
+
+        assertNotNull(index.match(earthquake(5, -18, 179.9, false)));
+        assertNotNull(index.match(earthquake(5, -18, -178.5, false)));
+    }
+
+    @Test
+    public void manyRules_matchLikeCheckingEveryRule() {
+        Random random = new Random(42);
+        List<AlertRule> rules = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            boolean global = random.nextInt(20) == 0;
+            rules.add(new AlertRule("Rule " + i, random.nextInt(80) / 10.0,
+                    random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180,
+                    global ? Double.NaN : 10 + random.nextDouble() * 3000,
+                    random.nextInt(10) == 0));
+        }
+        AlertRuleIndex index = new AlertRuleIndex(rules);
+
+        for (int i = 0; i < 20000; i++) {
+            Earthquake earthquake = earthquake(random.nextInt(90) / 10.0,
+                    random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180,
+                    random.nextInt(5) == 0);
+
+            boolean expected = false;
+            for (AlertRule rule : rules) {
+                expected |= AlertRuleIndex.matches(rule, earthquake);
+            }
+
+            AlertRule matched = index.match(earthquake);
+            assertEquals(expected, matched != null);
+            if (matched != null) {
+                assertEquals(true, AlertRuleIndex.matches(matched, earthquake));
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.basic.quake_report.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks {@link BackgroundScheduler} never lets visible work wait behind lower lanes, runs the
+ * tasks of a tag one at a time and counts what waited.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BackgroundSchedulerTest {
+
+    // Longest a test waits for a task.
+    private static final long TIMEOUT_SECONDS = 5L;
+
+    /**
+     * @return A task waiting for "release", having counted down "started" first.
+     */
+    private static Runnable block(CountDownLatch started, CountDownLatch release) {
+        return () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Waits for "count" tasks of "lane" to be counted, which happens just after their Futures
+     * complete.
+     */
+    private static void awaitCompleted(BackgroundScheduler scheduler, int lane, long count)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (scheduler.getCompletedCount(lane) < count &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(1L);
+        }
+        assertEquals(count, scheduler.getCompletedCount(lane));
+    }
+
+    /**
+     * Waits for the tasks of "lane" running to drop to "count", e.g. as they pause.
+     */
+    private static void awaitRunning(BackgroundScheduler scheduler, int lane, int count)
+            throws InterruptedException {
+        // Queued tasks are yet to start, so their lane counts nothing until then.
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while ((scheduler.getQueueDepth(lane) > 0 || scheduler.getRunningCount(lane) != count) &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(1L);
+        }
+        assertEquals(0, scheduler.getQueueDepth(lane));
+        assertEquals(count, scheduler.getRunningCount(lane));
+    }
+
+    @Test
+    public void visibleWork_neverWaitsBehindLowerLanes() throws Exception {
+        BackgroundScheduler scheduler = new BackgroundScheduler(2, 1_000L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Every lower lane has work, only one of which gets a thread.
+        scheduler.execute(BackgroundScheduler.LANE_BACKFILL, "backfill", block(started, release));
+        await(started);
+        scheduler.execute(BackgroundScheduler.LANE_PERSISTENCE, null, block(started, release));
+        scheduler.execute(BackgroundScheduler.LANE_PREFETCH, null, block(started, release));
+
+        Future<?> visible = scheduler.submit(BackgroundScheduler.LANE_VISIBLE, null, () -> {
+        });
+        visible.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(2, scheduler.getQueueDepth(BackgroundScheduler.LANE_PERSISTENCE) +
+                scheduler.getQueueDepth(BackgroundScheduler.LANE_PREFETCH));
+        release.countDown();
+    }
+
+    @Test
+    public void higherLane_runsFirst() throws Exception {
+        BackgroundScheduler scheduler = new BackgroundScheduler(2, 1_000L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(BackgroundScheduler.LANE_PREFETCH, null, block(started, release));
+        await(started);
+
+        // Queued while the only thread of lower lanes is busy.
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        Future<?> backfill = scheduler.submit(BackgroundScheduler.LANE_BACKFILL, null,
+                () -> order.add(BackgroundScheduler.LANE_BACKFILL));
+        Future<?> prefetch = scheduler.submit(BackgroundScheduler.LANE_PREFETCH, null,
+                () -> order.add(BackgroundScheduler.LANE_PREFETCH));
+        release.countDown();
+
+        backfill.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        prefetch.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(BackgroundScheduler.LANE_PREFETCH, (int) order.get(0));
+        assertEquals(BackgroundScheduler.LANE_BACKFILL, (int) order.get(1));
+    }
+
+    @Test
+    public void tasksOfATag_runOneAtATime() throws Exception {
+        BackgroundScheduler scheduler = new BackgroundScheduler(4, 1_000L);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(scheduler.submit(BackgroundScheduler.LANE_VISIBLE, "tag", () -> {
+                mostRunning.set(Math.max(mostRunning.get(), running.incrementAndGet()));
+                try {
+                    Thread.sleep(5L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, mostRunning.get());
+        awaitCompleted(scheduler, BackgroundScheduler.LANE_VISIBLE, 6);
+    }
+
+    @Test
+    public void removeQueued_dropsWaitingTasksOfTheTag() throws Exception {
+        BackgroundScheduler scheduler = new BackgroundScheduler(2, 1_000L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(BackgroundScheduler.LANE_PREFETCH, "tag", block(started, release));
+        await(started);
+
+        Runnable waiting = () -> fail("Removed task ran");
+        scheduler.execute(BackgroundScheduler.LANE_PREFETCH, "tag", waiting);
+        Future<?> submitted = scheduler.submit(BackgroundScheduler.LANE_PREFETCH, "tag", waiting);
+
+        List<Runnable> removed = scheduler.removeQueued("tag");
+        assertEquals(2, removed.size());
+        assertSame(waiting, removed.get(0));
+        assertTrue(submitted.isCancelled());
+        try {
+            submitted.get();
+            fail("Removed task completed");
+        } catch (CancellationException e) {
+            // Whoever waited is told.
+        }
+        assertEquals(0, scheduler.getQueueDepth(BackgroundScheduler.LANE_PREFETCH));
+        release.countDown();
+    }
+
+    @Test
+    public void awaitHigherLanes_pausesWhileVisibleWorkRuns() throws Exception {
+        BackgroundScheduler scheduler = new BackgroundScheduler(2, 1_000L);
+        CountDownLatch paused = new CountDownLatch(1);
+        CountDownLatch resumed = new CountDownLatch(1);
+
+        // E.g. a Loader the user waits for.
+        scheduler.beginVisibleWork();
+        scheduler.execute(BackgroundScheduler.LANE_BACKFILL, null, () -> {
+            paused.countDown();
+            try {
+                scheduler.awaitHigherLanes();
+                resumed.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        await(paused);
+        assertFalse(resumed.await(100L, TimeUnit.MILLISECONDS));
+        scheduler.endVisibleWork();
+        await(resumed);
+    }
+
+    @Test
+    public void promote_runsAWaitingPrefetchAsVisibleWork() throws Exception {
+        BackgroundScheduler scheduler = new BackgroundScheduler(2, 1_000L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(BackgroundScheduler.LANE_PREFETCH, null, block(started, release));
+        await(started);
+
+        // Waits for the busy prefetch thread until the user asks for it.
+        Future<?> prefetch = scheduler.submit(BackgroundScheduler.LANE_PREFETCH, null, () -> {
+        });
+        assertEquals(1, scheduler.getQueueDepth(BackgroundScheduler.LANE_PREFETCH));
+        scheduler.promote(prefetch);
+
+        prefetch.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        awaitCompleted(scheduler, BackgroundScheduler.LANE_VISIBLE, 1);
+        assertTrue(scheduler.getMaxWaitMillis(BackgroundScheduler.LANE_VISIBLE) <
+                TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void pausedTasks_leaveTheirThreadsToPromotedWork() throws Exception {
+        BackgroundScheduler scheduler = new BackgroundScheduler(2, 1_000L);
+        CountDownLatch resumed = new CountDownLatch(2);
+
+        // A Loader the user waits for, which the backfill and the profile refresh pause for.
+        scheduler.beginVisibleWork();
+        Runnable pausing = () -> {
+            try {
+                scheduler.awaitHigherLanes();
+                resumed.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        scheduler.execute(BackgroundScheduler.LANE_BACKFILL, "backfill", pausing);
+        awaitRunning(scheduler, BackgroundScheduler.LANE_BACKFILL, 0);
+        scheduler.execute(BackgroundScheduler.LANE_PREFETCH, "refresh", pausing);
+        awaitRunning(scheduler, BackgroundScheduler.LANE_PREFETCH, 0);
+
+        // Both threads are paused when the Loader waits for a prefetch it promotes.
+        Future<?> prefetch = scheduler.submit(BackgroundScheduler.LANE_PREFETCH, null, () -> {
+        });
+        scheduler.promote(prefetch);
+        prefetch.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        scheduler.endVisibleWork();
+        await(resumed);
+    }
+}
@@ -0,0 +1,285 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+import com.basic.quake_report.PerformanceReport;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the size and decoding time of the same earthquakes sent as "geojson", "csv" and
+ * "text", and checks every decoder reads the same list.
+ * <p>
+ * The bytes and milliseconds of each format are written to the performance report of the class.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EarthquakeDecoderBenchmarkTest implements NetworkUtilsConstants {
+
+    // Number of earthquakes in a response.
+    private static final int EVENT_COUNT = 5_000;
+
+    // Runs discarded while the JIT warms up, then runs measured.
+    private static final int WARM_UP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Bytes and decoding time of every format.
+    private static final PerformanceReport mReport =
+            new PerformanceReport(EarthquakeDecoderBenchmarkTest.class.getSimpleName());
+
+    private byte[] mGeoJson;
+
+    private byte[] mCsv;
+
+    private byte[] mText;
+
+    @Before
+    public void setUp() {
+        StringBuilder geoJson = new StringBuilder("{\"type\":\"FeatureCollection\",\"features\":[");
+        StringBuilder csv = new StringBuilder("time,latitude,longitude,depth,mag,magType,nst,gap,"
+                + "dmin,rms,net,id,updated,place,type,horizontalError,depthError,magError,"
+                + "magNst,status,locationSource,magSource\n");
+        StringBuilder text = new StringBuilder("#EventID|Time|Latitude|Longitude|Depth/km|Author|"
+                + "Catalog|Contributor|ContributorID|MagType|Magnitude|MagAuthor|"
+                + "EventLocationName\n");
+
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            String id = "us7000" + i;
+            double magnitude = (i % 80) / 10.0;
+            double latitude = -60 + (i % 1200) / 10.0;
+            double longitude = -179.5 + (i % 3590) / 10.0;
+            double depth = (i % 700) + 0.5;
+            String place = (i % 300) + " km SSW of Town " + (i % 97) + ", Alaska";
+            long millis = 1639180800000L + i * 7919L;
+            String iso = isoTime(millis);
+
+            if (i > 0) {
+                geoJson.append(',');
+            }
+            geoJson.append("{\"type\":\"Feature\",\"properties\":{\"mag\":").append(magnitude)
+                    .append(",\"place\":\"").append(place).append("\",\"time\":").append(millis)
+                    .append(",\"updated\":").append(millis + 60_000L).append(",\"tz\":null")
+                    .append(",\"url\":\"").append(EVENT_URL_USGS).append(id)
+                    .append("\",\"detail\":\"").append(DETAIL_URL_USGS).append(id)
+                    .append("\",\"felt\":null,\"cdi\":null,\"mmi\":null,\"alert\":null,")
+                    .append("\"status\":\"reviewed\",\"tsunami\":0,\"sig\":312,\"net\":\"us\",")
+                    .append("\"code\":\"").append(i).append("\",\"ids\":\",").append(id)
+                    .append(",\",\"sources\":\",us,\",\"types\":\",origin,phase-data,\",")
+                    .append("\"nst\":null,\"dmin\":2.1,\"rms\":0.5,\"gap\":80,\"magType\":\"mb\",")
+                    .append("\"type\":\"earthquake\",\"title\":\"M ").append(magnitude)
+                    .append(" - ").append(place).append("\"},\"geometry\":{\"type\":\"Point\",")
+                    .append("\"coordinates\":[").append(longitude).append(',').append(latitude)
+                    .append(',').append(depth).append("]},\"id\":\"").append(id).append("\"}");
+
+            csv.append(iso).append(',').append(latitude).append(',').append(longitude)
+                    .append(',').append(depth).append(',').append(magnitude)
+                    .append(",mb,,80,2.1,0.5,us,").append(id).append(',')
+                    .append(isoTime(millis + 60_000L)).append(",\"").append(place)
+                    .append("\",earthquake,7.4,1.9,0.07,60,reviewed,us,us\n");
+
+            text.append(id).append('|').append(iso, 0, iso.length() - 1).append('|')
+                    .append(latitude).append('|').append(longitude).append('|').append(depth)
+                    .append("|us|us|us|").append(id).append("|mb|").append(magnitude)
+                    .append("|us|").append(place).append('\n');
+        }
+        geoJson.append("]}");
+
+        mGeoJson = geoJson.toString().getBytes(UTF_8);
+        mCsv = csv.toString().getBytes(UTF_8);
+        mText = text.toString().getBytes(UTF_8);
+    }
+
+    @AfterClass
+    public static void writeReport() throws IOException {
+        System.out.println("Performance report: " + mReport.write().getAbsolutePath());
+    }
+
+    /**
+     * @return "millis" as an ISO-8601 UTC time e.g. "2021-12-11T00:00:07.919Z".
+     */
+    private static String isoTime(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+
+    /**
+     * @return Median decoding time of "response" in milliseconds.
+     */
+    private static double timeDecode(EarthquakeDecoder decoder, byte[] response) {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            decoder.decode(response, response.length);
+        }
+
+        double[] runs = new double[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            decoder.decode(response, response.length);
+            runs[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(runs);
+        return runs[runs.length / 2];
+    }
+
+    @Test
+    public void lighterFormats_areSmallerAndFasterThanGeoJson() {
+        EarthquakeDecoder geoJson = new GeoJsonDecoder();
+        EarthquakeDecoder csv = new CsvDecoder(EVENT_URL_USGS, DETAIL_URL_USGS);
+        EarthquakeDecoder text = new FdsnTextDecoder(EVENT_URL_USGS, DETAIL_URL_USGS);
+
+        double geoJsonMs = timeDecode(geoJson, mGeoJson);
+        double csvMs = timeDecode(csv, mCsv);
+        double textMs = timeDecode(text, mText);
+
+        // GeoJSON is the baseline the lighter formats are held to.
+        mReport.record("geojson.bytes", mGeoJson.length, mGeoJson.length, "bytes");
+        mReport.record("geojson.decodeMs", geoJsonMs, geoJsonMs, "ms");
+        boolean csvSmaller = mReport.record("csv.bytes", mCsv.length, mGeoJson.length / 2,
+                "bytes");
+        boolean csvFaster = mReport.record("csv.decodeMs", csvMs, geoJsonMs, "ms");
+        boolean textSmaller = mReport.record("text.bytes", mText.length, mGeoJson.length / 2,
+                "bytes");
+        boolean textFaster = mReport.record("text.decodeMs", textMs, geoJsonMs, "ms");
+
+        assertTrue(csvSmaller);
+        assertTrue(textSmaller);
+        assertTrue(csvFaster);
+        assertTrue(textFaster);
+    }
+
+    @Test
+    public void everyDecoder_readsTheSameEarthquakes() {
+        List<Earthquake> fromGeoJson = new GeoJsonDecoder().decode(mGeoJson, mGeoJson.length);
+        List<List<Earthquake>> others = new ArrayList<>();
+        others.add(new CsvDecoder(EVENT_URL_USGS, DETAIL_URL_USGS).decode(mCsv, mCsv.length));
+        others.add(new FdsnTextDecoder(EVENT_URL_USGS, DETAIL_URL_USGS)
+                .decode(mText, mText.length));
+
+        assertNotNull(fromGeoJson);
+        assertEquals(EVENT_COUNT, fromGeoJson.size());
+        for (List<Earthquake> decoded : others) {
+            assertEquals(EVENT_COUNT, decoded.size());
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                Earthquake expected = fromGeoJson.get(i);
+                Earthquake actual = decoded.get(i);
+                assertEquals(expected.getId(), actual.getId());
+                assertEquals(expected.getMagnitude(), actual.getMagnitude(), 0.0);
+                assertEquals(expected.getTimeMillis(), actual.getTimeMillis());
+                assertEquals(expected.getDate(), actual.getDate());
+                assertEquals(expected.getTime(), actual.getTime());
+                assertEquals(expected.getOffset(), actual.getOffset());
+                assertEquals(expected.getPrimaryLocation(), actual.getPrimaryLocation());
+                assertEquals(expected.getLatitude(), actual.getLatitude(), 0.0);
+                assertEquals(expected.getLongitude(), actual.getLongitude(), 0.0);
+                assertEquals(expected.getDepth(), actual.getDepth(), 0.0);
+                assertEquals(expected.getUrl(), actual.getUrl());
+                assertEquals(expected.getDetailUrl(), actual.getDetailUrl());
+            }
+        }
+    }
+
+    @Test
+    public void responseDecodedAsItArrives_matchesTheWholeResponse() {
+        DelimitedDecoder[] decoders = {new CsvDecoder(EVENT_URL_USGS, DETAIL_URL_USGS),
+                new FdsnTextDecoder(EVENT_URL_USGS, DETAIL_URL_USGS)};
+        byte[][] responses = {mCsv, mText};
+
+        for (int i = 0; i < decoders.length; i++) {
+            byte[] response = responses[i];
+            List<Earthquake> expected = decoders[i].decode(response, response.length);
+
+            // Arrives in reads cutting lines anywhere, the last one lacking its line break.
+            List<Earthquake> decoded = new ArrayList<>();
+            DelimitedDecoder.Progress progress = new DelimitedDecoder.Progress();
+            int length = 0;
+            while (length < response.length - 1) {
+                length = Math.min(response.length - 1, length + 1021);
+                decoders[i].decodeLines(response, length, false, progress, decoded);
+            }
+            decoders[i].decodeLines(response, length, true, progress, decoded);
+
+            assertEquals(EVENT_COUNT, decoded.size());
+            for (int j = 0; j < EVENT_COUNT; j++) {
+                assertEquals(expected.get(j).getId(), decoded.get(j).getId());
+                assertEquals(expected.get(j).getTimeMillis(), decoded.get(j).getTimeMillis());
+                assertEquals(expected.get(j).getPrimaryLocation(),
+                        decoded.get(j).getPrimaryLocation());
+            }
+        }
+    }
+
+    @Test
+    public void csv_undoesDoubledQuotesAndSkipsMalformedLines() {
+        byte[] csv = ("time,latitude,longitude,depth,mag,id,place\r\n"
+                + "2021-12-11T23:59:07.640Z,61.5,-150.25,,4.5,ak1,"
+                + "\"5 km N of \"\"A\"\", Alaska\"\r\n"
+                + "not a time,61.5,-150.25,10,4.5,ak2,Nowhere\r\n"
+                + "2021-12-11T23:59:07Z,1e1,-1.5E2,10,,ak3,Somewhere\r\n").getBytes(UTF_8);
+
+        List<Earthquake> earthquakes = new CsvDecoder(EVENT_URL_USGS, null)
+                .decode(csv, csv.length);
+
+        assertEquals(2, earthquakes.size());
+        assertEquals("\"A\", Alaska", earthquakes.get(0).getPrimaryLocation());
+        assertEquals(1639267147640L, earthquakes.get(0).getTimeMillis());
+        assertTrue(Double.isNaN(earthquakes.get(0).getDepth()));
+        assertEquals(10.0, earthquakes.get(1).getLatitude(), 0.0);
+        assertEquals(-150.0, earthquakes.get(1).getLongitude(), 0.0);
+    }
+
+    @Test
+    public void text_skipsMalformedLines() {
+        byte[] text = ("#EventID|Time|Latitude|Longitude|Depth/km|Author|Catalog|Contributor|"
+                + "ContributorID|MagType|Magnitude|MagAuthor|EventLocationName\r\n"
+                + "ak1|2021-12-11T23:59:07.640|61.5|-150.25||ak|ak|ak|ak1|ml|4.5|ak|"
+                + "5 km N of A, Alaska\r\n"
+                + "ak2|not a time|61.5|-150.25|10|ak|ak|ak|ak2|ml|4.5|ak|Nowhere\r\n"
+                + "ak3|2021-12-11T23:59:07|1e1|-1.5E2|10|ak|ak|ak|ak3|ml||ak|Somewhere\r\n")
+                .getBytes(UTF_8);
+
+        List<Earthquake> earthquakes = new FdsnTextDecoder(EVENT_URL_USGS, null)
+                .decode(text, text.length);
+
+        assertEquals(2, earthquakes.size());
+        assertEquals("A, Alaska", earthquakes.get(0).getPrimaryLocation());
+        assertEquals(1639267147640L, earthquakes.get(0).getTimeMillis());
+        assertTrue(Double.isNaN(earthquakes.get(0).getDepth()));
+        assertEquals(10.0, earthquakes.get(1).getLatitude(), 0.0);
+        assertEquals(-150.0, earthquakes.get(1).getLongitude(), 0.0);
+    }
+
+    @Test
+    public void listInAnotherFormat_isRequestedAsTheNextFormat() {
+        EarthquakeDecoder geoJson = new GeoJsonDecoder();
+        EarthquakeDecoder[] lists = {new FdsnTextDecoder(EVENT_URL_USGS, DETAIL_URL_USGS),
+                new CsvDecoder(EVENT_URL_USGS, DETAIL_URL_USGS)};
+        EarthquakeQuery list = new EarthquakeQuery(4.5, ORDER_BY_TIME, 0L, 1000L, 100, true);
+
+        // A csv response is not read as an empty "text" list, nor the other way round.
+        assertNull(lists[0].decode(mCsv, mCsv.length));
+        assertNull(lists[1].decode(mText, mText.length));
+
+        assertEquals(lists[0], NetworkUtils.selectDecoder(list, geoJson, lists, 0));
+        assertEquals(lists[1], NetworkUtils.selectDecoder(list, geoJson, lists, 1));
+        assertEquals(geoJson, NetworkUtils.selectDecoder(list, geoJson, lists, 2));
+    }
+}
@@ -0,0 +1,238 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link EarthquakeExporter} writes CSV and GeoJSON one earthquake at a time, reports its
+ * progress and stops once cancelled.
+ */
+public class EarthquakeExporterTest implements NetworkUtilsConstants {
+
+    // 2021-12-11T00:00:00Z.
+    private static final long START = 1639180800000L;
+
+    // Number of earthquakes of the large export.
+    private static final int LARGE_COUNT = 100_000;
+
+    // Longest text written at once, as a whole row is never built.
+    private static final int MAX_WRITE = 512;
+
+    /**
+     * Discards what is written, keeping only its length and the longest write.
+     */
+    private static class CountingWriter extends Writer {
+
+        long chars;
+
+        int longestWrite;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chars += length;
+            longestWrite = Math.max(longestWrite, length);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            chars += length;
+            longestWrite = Math.max(longestWrite, length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Records the progress reported.
+     */
+    private static class ProgressRecorder implements EarthquakeExporter.ExportListener {
+
+        final List<Integer> progress = new ArrayList<>();
+
+        final List<Integer> finished = new ArrayList<>();
+
+        @Override
+        public void onProgress(int exported, int total) {
+            progress.add(exported);
+        }
+
+        @Override
+        public void onFinished(int exported, boolean complete) {
+            finished.add(exported);
+        }
+    }
+
+    private static Earthquake makeEarthquake(int i) {
+        Earthquake earthquake = new Earthquake();
+        earthquake.setId("us7000" + i);
+        earthquake.setMagnitude((i % 80) / 10.0);
+        earthquake.setTimeMillis(START + i * 1000L);
+        earthquake.setLatitude(-60 + (i % 1200) / 10.0);
+        earthquake.setLongitude(-179.5 + (i % 3590) / 10.0);
+        earthquake.setDepth((i % 700) + 0.5);
+        earthquake.setOffset("5 km N of");
+        earthquake.setPrimaryLocation("Town " + (i % 97) + ", Alaska");
+        earthquake.setUrl(EVENT_URL_USGS + "us7000" + i);
+        earthquake.setSource(PROVIDER_USGS);
+        return earthquake;
+    }
+
+    /**
+     * @return Earthquakes created as they are read, so none of them is held.
+     */
+    private static List<Earthquake> makeLargeList() {
+        return new AbstractList<Earthquake>() {
+            @Override
+            public Earthquake get(int index) {
+                return makeEarthquake(index);
+            }
+
+            @Override
+            public int size() {
+                return LARGE_COUNT;
+            }
+        };
+    }
+
+    @Test
+    public void csv_quotesFieldsHoldingSeparators() throws IOException {
+        Earthquake plain = makeEarthquake(0);
+        Earthquake quoted = makeEarthquake(1);
+        quoted.setOffset(JSONUtilConstants.DEFAULT_OFFSET);
+        quoted.setPrimaryLocation("Near \"the\" coast, Chile");
+
+        StringWriter writer = new StringWriter();
+        int exported = EarthquakeExporter.write(Arrays.asList(plain, quoted),
+                EarthquakeExporter.FORMAT_CSV, writer, new AtomicBoolean(),
+                new ProgressRecorder());
+
+        String[] lines = writer.toString().split("\n");
+        assertEquals(2, exported);
+        assertEquals(3, lines.length);
+        assertEquals("time,latitude,longitude,depth,mag,place,id,source,tsunami,url", lines[0]);
+        assertEquals("2021-12-11T00:00:00.000Z,-60.0,-179.5,0.5,0.0,\"5 km N of Town 0, Alaska\","
+                + "us70000,USGS,0," + EVENT_URL_USGS + "us70000", lines[1]);
+        assertTrue(lines[2].contains(",\"Near \"\"the\"\" coast, Chile\",us70001,"));
+    }
+
+    @Test
+    public void geoJson_writesAFeatureCollection() throws IOException {
+        Earthquake earthquake = makeEarthquake(2);
+        earthquake.setPrimaryLocation("Back\\slash \"quoted\"");
+
+        StringWriter writer = new StringWriter();
+        EarthquakeExporter.write(Arrays.asList(makeEarthquake(1), earthquake),
+                EarthquakeExporter.FORMAT_GEOJSON, writer, new AtomicBoolean(),
+                new ProgressRecorder());
+
+        String json = writer.toString();
+        assertTrue(json.startsWith("{\"type\":\"FeatureCollection\",\"features\":[\n{"));
+        assertTrue(json.endsWith("}]}\n"));
+        assertTrue(json.contains("\"place\":\"5 km N of Back\\\\slash \\\"quoted\\\"\""));
+        assertTrue(json.contains("\"coordinates\":[-179.3,-59.8,2.5]},\"id\":\"us70002\"}"));
+        assertEquals(2, json.split("\"type\":\"Feature\"").length - 1);
+    }
+
+    @Test
+    public void missingDepth_isEmptyInCsvAndNullInGeoJson() throws IOException {
+        Earthquake earthquake = makeEarthquake(0);
+        earthquake.setDepth(JSONUtilConstants.FALLBACK_DOUBLE);
+
+        StringWriter csv = new StringWriter();
+        EarthquakeExporter.write(Arrays.asList(earthquake), EarthquakeExporter.FORMAT_CSV, csv,
+                new AtomicBoolean(), new ProgressRecorder());
+        StringWriter geoJson = new StringWriter();
+        EarthquakeExporter.write(Arrays.asList(earthquake), EarthquakeExporter.FORMAT_GEOJSON,
+                geoJson, new AtomicBoolean(), new ProgressRecorder());
+
+        assertTrue(csv.toString().contains("\n2021-12-11T00:00:00.000Z,-60.0,-179.5,,0.0,"));
+        assertTrue(geoJson.toString().contains("\"coordinates\":[-179.5,-60.0,null]}"));
+        assertFalse(csv.toString().contains("NaN"));
+        assertFalse(geoJson.toString().contains("NaN"));
+    }
+
+    @Test
+    public void largeExport_isStreamedWithProgress() throws IOException {
+        CountingWriter writer = new CountingWriter();
+        ProgressRecorder recorder = new ProgressRecorder();
+
+        int exported = EarthquakeExporter.write(makeLargeList(),
+                EarthquakeExporter.FORMAT_GEOJSON, writer, new AtomicBoolean(), recorder);
+
+        assertEquals(LARGE_COUNT, exported);
+        assertTrue("Wrote " + writer.longestWrite + " chars at once",
+                writer.longestWrite <= MAX_WRITE);
+        assertTrue(writer.chars > LARGE_COUNT * 100L);
+
+        // Progress only grows, from nothing to every earthquake.
+        assertEquals(0, (int) recorder.progress.get(0));
+        assertEquals(LARGE_COUNT, (int) recorder.progress.get(recorder.progress.size() - 1));
+        for (int i = 1; i < recorder.progress.size(); i++) {
+            assertTrue(recorder.progress.get(i) >= recorder.progress.get(i - 1));
+        }
+    }
+
+    @Test
+    public void cancelledExport_stopsBeforeTheNextEarthquake() throws IOException {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CountingWriter writer = new CountingWriter();
+
+        int exported = EarthquakeExporter.write(makeLargeList(), EarthquakeExporter.FORMAT_CSV,
+                writer, cancelled, new ProgressRecorder() {
+                    @Override
+                    public void onProgress(int exported, int total) {
+                        if (exported >= 1_000) {
+                            cancelled.set(true);
+                        }
+                    }
+                });
+
+        assertTrue(exported >= 1_000 && exported < 2_000);
+    }
+
+    @Test
+    public void listenerAttachedAgain_isToldTheProgressSoFar() {
+        ProgressRecorder first = new ProgressRecorder();
+        EarthquakeExporter.Export export = new EarthquakeExporter.Export(1_000, first);
+        export.report(256);
+
+        // Activity recreated on a configuration change detaches its listener for a while.
+        export.setListener(null);
+        export.report(512);
+        ProgressRecorder second = new ProgressRecorder();
+        export.setListener(second);
+        export.report(768);
+
+        assertEquals(Arrays.asList(256), first.progress);
+        assertEquals(Arrays.asList(512, 768), second.progress);
+        assertFalse(export.isCancelled());
+
+        // End reached while detached is told once attached again.
+        export.setListener(null);
+        export.finish(1_000, true);
+        ProgressRecorder third = new ProgressRecorder();
+        export.setListener(third);
+        assertEquals(Arrays.asList(1_000), third.finished);
+        assertTrue(second.finished.isEmpty());
+    }
+}
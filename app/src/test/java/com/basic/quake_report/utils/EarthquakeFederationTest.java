@@ -0,0 +1,124 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link EarthquakeFederation} runs the waiting requests of the list ahead of those of
+ * bulk work, whatever order they were made in.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EarthquakeFederationTest implements NetworkUtilsConstants {
+
+    // Longest a test waits for a request.
+    private static final long TIMEOUT_SECONDS = 5L;
+
+    // Limit of the request holding every thread of the federation.
+    private static final int LIMIT_IN_FLIGHT = 1;
+
+    // Limit of the bulk request queued behind it.
+    private static final int LIMIT_BULK = 2;
+
+    /**
+     * Stands in for an event service whose responses are held back by latches.
+     */
+    private static class GatedProvider implements EarthquakeProvider {
+
+        // Released once the first request may respond.
+        private final CountDownLatch mInFlight;
+
+        // Released once bulk requests may respond.
+        private final CountDownLatch mBulk;
+
+        // Counted down as the first request arrives.
+        private final CountDownLatch mStarted;
+
+        GatedProvider(CountDownLatch inFlight, CountDownLatch bulk, CountDownLatch started) {
+            mInFlight = inFlight;
+            mBulk = bulk;
+            mStarted = started;
+        }
+
+        @Override
+        public String getName() {
+            return PROVIDER_USGS;
+        }
+
+        @Override
+        public ArrayList<Earthquake> getEarthquakes(EarthquakeQuery query,
+                                                    EarthquakeChunkListener listener) {
+            try {
+                if (query.getLimit() == LIMIT_IN_FLIGHT) {
+                    mStarted.countDown();
+                    mInFlight.await();
+                } else if (query.getLimit() == LIMIT_BULK) {
+                    mBulk.await();
+                }
+            } catch (InterruptedException e) {
+                return null;
+            }
+            return new ArrayList<>();
+        }
+    }
+
+    private static EarthquakeQuery query(int limit) {
+        return new EarthquakeQuery(4.5, ORDER_BY_TIME, 0L, 1000L, limit);
+    }
+
+    @Test
+    public void visibleRequests_runAheadOfQueuedBulkOnes() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch bulk = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        EarthquakeFederation federation = new EarthquakeFederation(
+                Arrays.<EarthquakeProvider>asList(new GatedProvider(inFlight, bulk, started),
+                        new GatedProvider(inFlight, bulk, started)));
+        BackgroundScheduler scheduler = new BackgroundScheduler(4, 1_000L);
+
+        // Backfill requests hold every thread of the federation.
+        scheduler.execute(BackgroundScheduler.LANE_BACKFILL, null,
+                () -> federation.getEarthquakes(query(LIMIT_IN_FLIGHT)));
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // A profile refresh queues its requests first.
+        Future<?> refresh = scheduler.submit(BackgroundScheduler.LANE_PREFETCH, null,
+                () -> federation.getEarthquakes(query(LIMIT_BULK)));
+        while (scheduler.getRunningCount(BackgroundScheduler.LANE_PREFETCH) == 0) {
+            Thread.sleep(1L);
+        }
+        Thread.sleep(100L);
+
+        // Threads free up once the list queued its requests too.
+        new Thread(() -> {
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.countDown();
+        }).start();
+
+        // The list runs on a Loader's thread, and would wait for the held bulk requests if
+        // it queued behind them.
+        long start = System.nanoTime();
+        assertNotNull(federation.getEarthquakes(query(100)));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS));
+
+        bulk.countDown();
+        refresh.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(0, scheduler.getQueueDepth(BackgroundScheduler.LANE_PREFETCH));
+    }
+}
@@ -0,0 +1,181 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks {@link EarthquakeQueryEngine} answers contained queries exactly as a download would,
+ * and declines the ones it may not hold every earthquake of.
+ */
+public class EarthquakeQueryEngineTest implements NetworkUtilsConstants {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    // 2021-12-11T00:00:00Z.
+    private static final long START = 1639180800000L;
+
+    private static final long END = START + 30 * DAY;
+
+    private static final int LIMIT = 20_000;
+
+    // Number of earthquakes in the loaded result.
+    private static final int EVENT_COUNT = 15_000;
+
+    /**
+     * @return Earthquakes of the range with magnitudes of one decimal, many of them equal.
+     */
+    private static List<Earthquake> earthquakes(int count, double minMagnitude) {
+        Random random = new Random(7);
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Earthquake earthquake = new Earthquake();
+            earthquake.setId("ev" + i);
+            earthquake.setTimeMillis(START + (long) (random.nextDouble() * (END - START)));
+            earthquake.setMagnitude(minMagnitude + random.nextInt(60) / 10.0);
+            earthquakes.add(earthquake);
+        }
+        return earthquakes;
+    }
+
+    private static EarthquakeQuery query(double minMagnitude, String orderBy) {
+        return new EarthquakeQuery(minMagnitude, orderBy, START, END, LIMIT);
+    }
+
+    /**
+     * @return What the event services would answer: filtered, stably ordered and limited.
+     */
+    private static List<Earthquake> expected(List<Earthquake> all, EarthquakeQuery query) {
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (Earthquake earthquake : all) {
+            if (earthquake.getMagnitude() >= query.getMinMagnitude()) {
+                earthquakes.add(earthquake);
+            }
+        }
+        if (query.isOrderedByTime()) {
+            Collections.sort(earthquakes, (first, second) ->
+                    Long.compare(second.getTimeMillis(), first.getTimeMillis()));
+        } else {
+            Collections.sort(earthquakes, (first, second) -> {
+                int byMagnitude = Double.compare(second.getMagnitude(), first.getMagnitude());
+                return byMagnitude != 0 ? byMagnitude :
+                        Long.compare(second.getTimeMillis(), first.getTimeMillis());
+            });
+        }
+        return earthquakes.size() > query.getLimit() ?
+                new ArrayList<>(earthquakes.subList(0, query.getLimit())) : earthquakes;
+    }
+
+    private static void assertSameEarthquakes(List<Earthquake> expected,
+                                              List<Earthquake> actual) {
+        assertNotNull(actual);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            // Equal times may come in any order, anything else must match.
+            assertEquals(expected.get(i).getTimeMillis(), actual.get(i).getTimeMillis());
+            assertEquals(expected.get(i).getMagnitude(), actual.get(i).getMagnitude(), 0.0);
+        }
+    }
+
+    @Test
+    public void containedQueries_matchTheDownloadedResult() {
+        List<Earthquake> all = earthquakes(EVENT_COUNT, 2.0);
+        EarthquakeQuery loaded = query(2.0, ORDER_BY_TIME);
+        EarthquakeQueryEngine engine = EarthquakeQueryEngine.index(loaded, expected(all, loaded));
+        assertNotNull(engine);
+
+        for (String orderBy : new String[]{ORDER_BY_TIME, ORDER_BY_MAGNITUDE}) {
+            for (double minMagnitude = 2.0; minMagnitude <= 8.0; minMagnitude += 0.5) {
+                EarthquakeQuery query = query(minMagnitude, orderBy);
+                assertSameEarthquakes(expected(all, query), engine.query(query));
+            }
+        }
+    }
+
+    @Test
+    public void widerOrOtherRangeQueries_areDeclined() {
+        List<Earthquake> all = earthquakes(1_000, 4.0);
+        EarthquakeQuery loaded = query(4.0, ORDER_BY_MAGNITUDE);
+        EarthquakeQueryEngine engine = EarthquakeQueryEngine.index(loaded, expected(all, loaded));
+        assertNotNull(engine);
+
+        assertNull(engine.query(query(3.5, ORDER_BY_MAGNITUDE)));
+        assertNull(engine.query(new EarthquakeQuery(5.0, ORDER_BY_TIME, START + DAY, END,
+                LIMIT)));
+    }
+
+    @Test
+    public void resultCutByTheLimit_onlyAnswersAboveItsSmallestMagnitude() {
+        List<Earthquake> all = earthquakes(3_000, 2.0);
+        EarthquakeQuery byTime = new EarthquakeQuery(2.0, ORDER_BY_TIME, START, END, 1_000);
+        EarthquakeQuery byMagnitude = new EarthquakeQuery(2.0, ORDER_BY_MAGNITUDE, START, END,
+                1_000);
+
+        // The most recent earthquakes say nothing about the older ones.
+        assertNull(EarthquakeQueryEngine.index(byTime, expected(all, byTime)));
+
+        List<Earthquake> largest = expected(all, byMagnitude);
+        double smallest = largest.get(largest.size() - 1).getMagnitude();
+        EarthquakeQueryEngine engine = EarthquakeQueryEngine.index(byMagnitude, largest);
+        assertNotNull(engine);
+
+        assertNull(engine.query(new EarthquakeQuery(smallest, ORDER_BY_MAGNITUDE, START, END,
+                1_000)));
+        EarthquakeQuery above = new EarthquakeQuery(smallest + 0.1, ORDER_BY_TIME, START, END,
+                1_000);
+        assertSameEarthquakes(expected(all, above), engine.query(above));
+    }
+
+    @Test
+    public void load_keepsTheWidestResultOfARange() {
+        List<Earthquake> all = earthquakes(1_000, 2.0);
+        EarthquakeQuery wide = query(2.0, ORDER_BY_TIME);
+        EarthquakeQuery narrow = query(5.0, ORDER_BY_TIME);
+
+        EarthquakeQueryEngine.load(wide, expected(all, wide));
+        EarthquakeQueryEngine.load(narrow, expected(all, narrow));
+
+        List<Earthquake> answer = EarthquakeQueryEngine.answer(query(3.0, ORDER_BY_MAGNITUDE));
+        assertSameEarthquakes(expected(all, query(3.0, ORDER_BY_MAGNITUDE)), answer);
+    }
+
+    @Test
+    public void openRange_isDeclinedOnceStale() {
+        long now = System.currentTimeMillis();
+        EarthquakeQuery today = new EarthquakeQuery(2.0, ORDER_BY_TIME, now - DAY, now + DAY,
+                LIMIT);
+        EarthquakeQueryEngine.load(today, Collections.<Earthquake>emptyList());
+
+        EarthquakeQuery narrow = new EarthquakeQuery(5.0, ORDER_BY_MAGNITUDE, now - DAY,
+                now + DAY, LIMIT);
+        assertNotNull(EarthquakeQueryEngine.answer(narrow, now));
+        assertNull(EarthquakeQueryEngine.answer(narrow,
+                now + EarthquakeResultCache.OPEN_RANGE_TTL_MILLIS + 1_000L));
+    }
+
+    @Test
+    public void invalidate_dropsTheResultLackingAnAddedEarthquake() {
+        List<Earthquake> all = earthquakes(1_000, 2.0);
+        EarthquakeQuery wide = query(2.0, ORDER_BY_TIME);
+        EarthquakeQueryEngine.load(wide, expected(all, wide));
+
+        // Already held, e.g. downloaded again for a higher min. mag.
+        EarthquakeQueryEngine.invalidate(all.subList(0, 10));
+        assertNotNull(EarthquakeQueryEngine.answer(query(3.0, ORDER_BY_TIME)));
+
+        // Published since the result was loaded.
+        List<Earthquake> published = earthquakes(1, 4.0);
+        published.get(0).setId("published");
+        EarthquakeQueryEngine.invalidate(published);
+        assertNull(EarthquakeQueryEngine.answer(query(3.0, ORDER_BY_TIME)));
+    }
+}
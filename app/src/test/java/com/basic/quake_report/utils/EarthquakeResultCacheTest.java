@@ -0,0 +1,216 @@
+package com.basic.quake_report.utils;
+
+import android.content.ComponentCallbacks2;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link EarthquakeResultCache} stops showing a result once earthquakes it lacks were
+ * published, rather than for the rest of the day its query keeps its key.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EarthquakeResultCacheTest implements NetworkUtilsConstants {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    /**
+     * Stands in for the event services with the earthquakes published so far.
+     */
+    private static class PublishingProvider implements EarthquakeProvider {
+
+        // Earthquakes published so far.
+        final List<Earthquake> published = Collections.synchronizedList(
+                new ArrayList<Earthquake>());
+
+        // Whether each request asked for only the fields shown by the list.
+        final List<Boolean> listOnly = Collections.synchronizedList(new ArrayList<Boolean>());
+
+        @Override
+        public String getName() {
+            return PROVIDER_USGS;
+        }
+
+        @Override
+        public ArrayList<Earthquake> getEarthquakes(EarthquakeQuery query,
+                                                    EarthquakeChunkListener listener) {
+            listOnly.add(query.isListOnly());
+            ArrayList<Earthquake> earthquakes = new ArrayList<>();
+            synchronized (published) {
+                for (Earthquake earthquake : published) {
+                    if (earthquake.getMagnitude() >= query.getMinMagnitude() &&
+                            earthquake.getTimeMillis() >= query.getStartMillis() &&
+                            earthquake.getTimeMillis() < query.getEndMillis()) {
+                        earthquakes.add(earthquake);
+                    }
+                }
+            }
+            return earthquakes;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        // Later tests get the real event services and nothing held.
+        EarthquakeFederation.setDefault(null);
+        EarthquakeRepository.setFullEventsRequired(false);
+        EarthquakeResultCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    private static Earthquake earthquake(String id, long time, double magnitude) {
+        Earthquake earthquake = new Earthquake();
+        earthquake.setId(id);
+        earthquake.setTimeMillis(time);
+        earthquake.setMagnitude(magnitude);
+        earthquake.setLatitude(10.0);
+        earthquake.setLongitude(20.0);
+        return earthquake;
+    }
+
+    private static PublishingProvider publish() {
+        PublishingProvider provider = new PublishingProvider();
+        EarthquakeFederation.setDefault(new EarthquakeFederation(
+                Collections.<EarthquakeProvider>singletonList(provider)));
+        return provider;
+    }
+
+    /**
+     * @return A query of the past day up to tomorrow, as the list asks for today's range.
+     */
+    private static EarthquakeQuery openQuery(long now, double minMagnitude, String orderBy) {
+        return new EarthquakeQuery(minMagnitude, orderBy, now - DAY, now + DAY, 100);
+    }
+
+    /**
+     * Loads the earthquakes of "query" as the list does, from the cache when held.
+     */
+    private static List<Earthquake> load(EarthquakeQuery query, long now) {
+        List<Earthquake> earthquakes = EarthquakeResultCache.get(query, now);
+        if (earthquakes == null) {
+            earthquakes = EarthquakeRepository.getEarthquakes(query);
+            EarthquakeResultCache.put(query, earthquakes, now);
+        }
+        return earthquakes;
+    }
+
+    private static List<String> ids(List<Earthquake> earthquakes) {
+        List<String> ids = new ArrayList<>();
+        for (Earthquake earthquake : earthquakes) {
+            ids.add(earthquake.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void openRange_isLoadedAgainOnceItsResultIsStale() {
+        PublishingProvider provider = publish();
+        long now = System.currentTimeMillis();
+        EarthquakeQuery query = openQuery(now, 7.1, ORDER_BY_TIME);
+        provider.published.add(earthquake("old", now - 3 * 60 * MINUTE, 7.5));
+
+        assertEquals(Collections.singletonList("old"), ids(load(query, now)));
+
+        // Published after the list was loaded.
+        provider.published.add(earthquake("new", now - MINUTE, 7.5));
+
+        // Shown again straight away, the held result is fresh.
+        assertEquals(Collections.singletonList("old"), ids(load(query, now + MINUTE)));
+
+        // Loaded anew with the new rows once the result goes stale.
+        List<Earthquake> reloaded =
+                load(query, now + EarthquakeResultCache.OPEN_RANGE_TTL_MILLIS);
+        assertEquals(2, reloaded.size());
+        assertEquals("new", reloaded.get(0).getId());
+        assertEquals("old", reloaded.get(1).getId());
+    }
+
+    @Test
+    public void earthquakesAddedByAnotherQuery_dropTheResultsLackingThem() {
+        PublishingProvider provider = publish();
+        long now = System.currentTimeMillis();
+        EarthquakeQuery query = openQuery(now, 7.2, ORDER_BY_TIME);
+        provider.published.add(earthquake("old", now - 3 * 60 * MINUTE, 7.5));
+
+        assertEquals(Collections.singletonList("old"), ids(load(query, now)));
+
+        // A refresh of the same range in another order adds the earthquake published since.
+        provider.published.add(earthquake("new", now - MINUTE, 7.5));
+        EarthquakeRepository.getEarthquakes(openQuery(now, 7.2, ORDER_BY_MAGNITUDE));
+
+        // Loaded anew before the result would go stale.
+        List<Earthquake> reloaded = load(query, now + MINUTE);
+        assertEquals(2, reloaded.size());
+        assertEquals("new", reloaded.get(0).getId());
+    }
+
+    @Test
+    public void isFresh_keepsResultsOfPublishedRanges() {
+        long now = System.currentTimeMillis();
+        long stale = now + EarthquakeResultCache.OPEN_RANGE_TTL_MILLIS;
+        EarthquakeQuery today = openQuery(now, 4.5, ORDER_BY_TIME);
+        EarthquakeQuery lastMonth = new EarthquakeQuery(4.5, ORDER_BY_TIME, now - 40 * DAY,
+                now - 10 * DAY, 100);
+
+        assertTrue(EarthquakeResultCache.isFresh(today, now, now + MINUTE));
+        assertFalse(EarthquakeResultCache.isFresh(today, now, stale));
+        assertTrue(EarthquakeResultCache.isFresh(lastMonth, now, stale + 30 * DAY));
+    }
+
+    @Test
+    public void isAffected_onlyByEarthquakesTheQueryAsksFor() {
+        long now = System.currentTimeMillis();
+        EarthquakeQuery query = openQuery(now, 4.5, ORDER_BY_TIME);
+
+        assertTrue(EarthquakeResultCache.isAffected(query, 4.5,
+                Collections.singletonList(earthquake("in", now, 5.0))));
+        assertFalse(EarthquakeResultCache.isAffected(query, 4.5,
+                Collections.singletonList(earthquake("earlier", now - 2 * DAY, 5.0))));
+
+        // Held for another min. mag., which the result is not answered from.
+        assertFalse(EarthquakeResultCache.isAffected(query, 2.5,
+                Collections.singletonList(earthquake("in", now, 5.0))));
+    }
+
+    @Test
+    public void listSpans_areDownloadedAgainOnceEveryFieldIsRequired() {
+        PublishingProvider provider = publish();
+        long now = System.currentTimeMillis();
+
+        // Range published long ago, which is answered from its held spans once downloaded.
+        EarthquakeQuery query = new EarthquakeQuery(7.3, ORDER_BY_TIME, now - 3 * DAY,
+                now - DAY, 100, true);
+        provider.published.add(earthquake("old", now - 2 * DAY, 7.5));
+
+        assertEquals(Collections.singletonList("old"),
+                ids(EarthquakeRepository.getEarthquakes(query)));
+        assertEquals(Collections.singletonList(true), provider.listOnly);
+
+        // A tsunami rule needs a flag the list formats lack.
+        EarthquakeRepository.setFullEventsRequired(true);
+        provider.listOnly.clear();
+        assertEquals(Collections.singletonList("old"),
+                ids(EarthquakeRepository.getEarthquakes(query)));
+        assertEquals(Collections.singletonList(false), provider.listOnly);
+
+        // Results of the list are not shown for a query needing every field.
+        EarthquakeResultCache.put(query, Collections.singletonList(earthquake("old",
+                now - 2 * DAY, 7.5)), now);
+        assertNull(EarthquakeResultCache.get(new EarthquakeQuery(7.3, ORDER_BY_TIME,
+                now - 3 * DAY, now - DAY, 100, false), now));
+    }
+}
@@ -0,0 +1,218 @@
+package com.basic.quake_report.utils;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.basic.quake_report.Earthquake;
+import com.basic.quake_report.EarthquakeAdapter;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares showing 20k earthquakes from a memory-mapped {@link EarthquakeSnapshot} with
+ * re-parsing their GeoJSON.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EarthquakeSnapshotBenchmarkTest {
+
+    // Number of earthquakes in the data set.
+    private static final int EVENT_COUNT = 20_000;
+
+    // Rows bound to fill the first screen.
+    private static final int SCREENFUL = 20;
+
+    // Longest the first screenful may take from the snapshot, whatever the number of earthquakes.
+    private static final double SNAPSHOT_BUDGET_MS = 2.0;
+
+    // Runs discarded while the JIT warms up, then runs measured.
+    private static final int WARM_UP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    private static final String QUERY_KEY = "minmagnitude=0.0&orderby=time";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private Context mContext;
+
+    private String mGeoJson;
+
+    private File mSnapshot;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = ApplicationProvider.getApplicationContext();
+        mGeoJson = makeGeoJson(EVENT_COUNT);
+
+        List<Earthquake> earthquakes = JSONUtils.getEarthquakes(mGeoJson);
+        EarthquakeAdapter.prepareEarthquakeData(mContext, earthquakes);
+
+        mSnapshot = mFolder.newFile("earthquakes.snapshot");
+        assertTrue(EarthquakeSnapshot.write(mSnapshot, QUERY_KEY, earthquakes));
+    }
+
+    /**
+     * @return A USGS-like GeoJSON response of "count" earthquakes.
+     */
+    private static String makeGeoJson(int count) {
+        StringBuilder builder = new StringBuilder("{\"type\":\"FeatureCollection\",\"features\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"type\":\"Feature\",\"properties\":{\"mag\":")
+                    .append((i % 80) / 10.0)
+                    .append(",\"place\":\"").append(i % 500).append(" km SSW of Town ")
+                    .append(i % 97)
+                    .append(", Alaska\",\"time\":").append(1639180800000L + i * 1000L)
+                    .append(",\"url\":\"https://earthquake.usgs.gov/earthquakes/eventpage/ak")
+                    .append(i)
+                    .append("\",\"detail\":\"https://earthquake.usgs.gov/fdsnws/event/1/query?")
+                    .append("eventid=ak").append(i).append("&format=geojson\"")
+                    .append("},\"geometry\":{\"type\":\"Point\",\"coordinates\":[")
+                    .append(-150 + (i % 100) / 10.0).append(',').append(60 + (i % 50) / 10.0)
+                    .append(",10.5]},\"id\":\"ak").append(i).append("\"}");
+        }
+        return builder.append("]}").toString();
+    }
+
+    /**
+     * @return Median of the measured runs in milliseconds.
+     */
+    private static double median(double[] runs) {
+        double[] sorted = runs.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Time until the first screenful is ready when the data set is parsed from GeoJSON.
+     */
+    private double timeJsonReparse() {
+        long start = System.nanoTime();
+        ArrayList<Earthquake> earthquakes = JSONUtils.getEarthquakes(mGeoJson);
+        EarthquakeAdapter.prepareEarthquakeData(mContext, earthquakes);
+        for (int i = 0; i < SCREENFUL; i++) {
+            earthquakes.get(i);
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    /**
+     * Time until the first screenful is ready when the data set is mapped from the snapshot.
+     */
+    private double timeSnapshotOpen() {
+        long start = System.nanoTime();
+        List<Earthquake> earthquakes = EarthquakeSnapshot.open(mSnapshot, QUERY_KEY);
+        for (int i = 0; i < SCREENFUL; i++) {
+            earthquakes.get(i);
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    @Test
+    public void snapshot_showsFirstScreenfulFasterThanJson() {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            timeJsonReparse();
+            timeSnapshotOpen();
+        }
+
+        double[] json = new double[MEASURED_RUNS];
+        double[] snapshot = new double[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            json[i] = timeJsonReparse();
+            snapshot[i] = timeSnapshotOpen();
+        }
+
+        String message = "Snapshot took " + median(snapshot) + " ms, JSON " + median(json) +
+                " ms";
+        assertTrue(message, median(snapshot) <= SNAPSHOT_BUDGET_MS);
+        assertTrue(message, median(snapshot) * 10 < median(json));
+    }
+
+    @Test
+    public void snapshot_readsBackEveryField() {
+        List<Earthquake> parsed = JSONUtils.getEarthquakes(mGeoJson);
+        EarthquakeAdapter.prepareEarthquakeData(mContext, parsed);
+        EarthquakeSnapshot.SnapshotList mapped = EarthquakeSnapshot.open(mSnapshot, QUERY_KEY);
+
+        assertNotNull(mapped);
+        assertEquals(parsed.size(), mapped.size());
+        for (int i = 0; i < parsed.size(); i += 997) {
+            Earthquake expected = parsed.get(i);
+            Earthquake actual = mapped.get(i);
+            assertEquals(expected.getMagnitude(), mapped.getMagnitude(i), 0.0);
+            assertEquals(expected.getTimeMillis(), mapped.getTimeMillis(i));
+            assertEquals(expected.getMagnitudeText(), actual.getMagnitudeText());
+            assertEquals(expected.getMagnitudeColor(), actual.getMagnitudeColor());
+            assertEquals(expected.getDisplayOffset(), actual.getDisplayOffset());
+            assertEquals(expected.getPrimaryLocation(), actual.getPrimaryLocation());
+            assertEquals(expected.getDate(), actual.getDate());
+            assertEquals(expected.getTime(), actual.getTime());
+            assertEquals(expected.getUrl(), actual.getUrl());
+            assertEquals(expected.getDetailUrl(), actual.getDetailUrl());
+            assertEquals(expected.getLatitude(), actual.getLatitude(), 0.0);
+            assertEquals(expected.getLongitude(), actual.getLongitude(), 0.0);
+        }
+    }
+
+    @Test
+    public void snapshotOfAnotherQuery_isIgnored() {
+        assertNull(EarthquakeSnapshot.open(mSnapshot, "minmagnitude=5.0&orderby=time"));
+    }
+
+    @Test
+    public void snapshotOfAnotherQuery_isKept() {
+        EarthquakeSnapshot.open(mSnapshot, "minmagnitude=5.0&orderby=time");
+        assertTrue(mSnapshot.exists());
+    }
+
+    @Test
+    public void truncatedSnapshot_isDeleted() throws Exception {
+        try (RandomAccessFile file = new RandomAccessFile(mSnapshot, "rw")) {
+            file.setLength(file.length() / 2);
+        }
+
+        assertNull(EarthquakeSnapshot.open(mSnapshot, QUERY_KEY));
+        assertFalse(mSnapshot.exists());
+    }
+
+    @Test
+    public void snapshotPointingPastItsEnd_isDeletedOnceDecoded() throws Exception {
+        // Header is 7 ints, and the strings of a record follow its 44 bytes of numbers.
+        int record = 7 * 4 + 5 * (44 + 10 * 8);
+        try (RandomAccessFile file = new RandomAccessFile(mSnapshot, "rw")) {
+            file.seek(record + 44 + 3 * 8);
+            file.writeInt(Integer.MAX_VALUE - 4);
+        }
+
+        // Records are only checked as they are decoded.
+        List<Earthquake> earthquakes = EarthquakeSnapshot.open(mSnapshot, QUERY_KEY);
+        assertNotNull(earthquakes);
+        assertNotNull(earthquakes.get(4).getPrimaryLocation());
+        assertTrue(mSnapshot.exists());
+
+        // Location of the corrupt record lies past the end of the file.
+        assertNull(earthquakes.get(5).getPrimaryLocation());
+        assertNotNull(earthquakes.get(5).getDate());
+        assertFalse(mSnapshot.exists());
+    }
+}
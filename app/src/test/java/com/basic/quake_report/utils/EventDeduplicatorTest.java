@@ -0,0 +1,88 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks reports of several agencies are collapsed by {@link EventDeduplicator}.
+ */
+public class EventDeduplicatorTest {
+
+    private static final long TIME_TOLERANCE_MS = 30_000L;
+    private static final double DISTANCE_TOLERANCE_KM = 100.0;
+    private static final double MAGNITUDE_TOLERANCE = 0.5;
+
+    // Origin time of the reports, 2021-12-11T00:00:00Z.
+    private static final long TIME = 1639180800000L;
+
+    private static Earthquake report(String source, long time, double latitude,
+                                     double longitude, double magnitude) {
+        Earthquake earthquake = new Earthquake();
+        earthquake.setSource(source);
+        earthquake.setTimeMillis(time);
+        earthquake.setLatitude(latitude);
+        earthquake.setLongitude(longitude);
+        earthquake.setMagnitude(magnitude);
+        return earthquake;
+    }
+
+    private static ArrayList<Earthquake> deduplicate(Earthquake... reports) {
+        return EventDeduplicator.deduplicate(Arrays.asList(reports), TIME_TOLERANCE_MS,
+                DISTANCE_TOLERANCE_KM, MAGNITUDE_TOLERANCE);
+    }
+
+    @Test
+    public void sameEarthquakeOfTwoAgencies_keepsPreferredReport() {
+        Earthquake usgs = report("USGS", TIME, 38.30, 142.37, 6.1);
+        Earthquake emsc = report("EMSC", TIME + 4_000L, 38.45, 142.20, 6.3);
+
+        // EMSC listed after USGS, yet reported earlier in time.
+        ArrayList<Earthquake> unique = deduplicate(usgs,
+                report("EMSC", TIME - 3_600_000L, 10.0, 10.0, 4.0), emsc);
+
+        assertEquals(2, unique.size());
+        assertSame(usgs, unique.get(0));
+        assertEquals("USGS, EMSC", usgs.getSource());
+    }
+
+    @Test
+    public void preferredReportArrivingLaterInTime_replacesKeptOne() {
+        Earthquake usgs = report("USGS", TIME + 10_000L, 38.30, 142.37, 6.1);
+        Earthquake emsc = report("EMSC", TIME, 38.30, 142.37, 6.1);
+
+        ArrayList<Earthquake> unique = deduplicate(usgs, emsc);
+
+        assertEquals(1, unique.size());
+        assertSame(usgs, unique.get(0));
+    }
+
+    @Test
+    public void reportsOfSameAgency_areNeverCollapsed() {
+        ArrayList<Earthquake> unique = deduplicate(
+                report("USGS", TIME, 38.30, 142.37, 4.1),
+                report("USGS", TIME + 5_000L, 38.31, 142.38, 4.0));
+
+        assertEquals(2, unique.size());
+    }
+
+    @Test
+    public void reportsOutsideTolerances_areKept() {
+        ArrayList<Earthquake> unique = deduplicate(
+                report("USGS", TIME, 38.30, 142.37, 6.1),
+                // Too late.
+                report("EMSC", TIME + 60_000L, 38.30, 142.37, 6.1),
+                // Too far.
+                report("GEOFON", TIME, 40.30, 142.37, 6.1),
+                // Magnitude too different.
+                report("EMSC", TIME, 38.30, 142.37, 5.0));
+
+        assertEquals(4, unique.size());
+    }
+}
@@ -0,0 +1,210 @@
+package com.basic.quake_report.utils;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the {@link HistoryBackfill} keeps to the request rate, sizes its chunks to the
+ * earthquakes they hold, resumes from its checkpoint, and that the history it stores answers
+ * {@link EarthquakeRepository}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HistoryBackfillTest implements NetworkUtilsConstants {
+
+    // Length of an hour in milliseconds.
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    // Length of a day in milliseconds.
+    private static final long DAY = 24 * HOUR;
+
+    // Earthquakes of the catalog, one every 6 hours.
+    private static final long SPACING = 6 * HOUR;
+
+    /**
+     * Stands in for the event services, remembering every query it receives.
+     */
+    private static class CatalogProvider implements EarthquakeProvider {
+
+        // Queries received so far.
+        final List<EarthquakeQuery> queries = Collections.synchronizedList(
+                new ArrayList<EarthquakeQuery>());
+
+        // Set after the first query, or null to keep going.
+        AtomicBoolean stopAfterFirst;
+
+        @Override
+        public String getName() {
+            return PROVIDER_USGS;
+        }
+
+        @Override
+        public ArrayList<Earthquake> getEarthquakes(EarthquakeQuery query,
+                                                    EarthquakeChunkListener listener) {
+            queries.add(query);
+            if (stopAfterFirst != null) {
+                stopAfterFirst.set(true);
+            }
+
+            // Most recent first, as the event service orders them by time.
+            ArrayList<Earthquake> earthquakes = new ArrayList<>();
+            long time = (query.getEndMillis() - 1) / SPACING * SPACING;
+            for (; time >= query.getStartMillis(); time -= SPACING) {
+                Earthquake earthquake = new Earthquake();
+                earthquake.setId("ev" + time);
+                earthquake.setTimeMillis(time);
+                earthquake.setMagnitude(query.getMinMagnitude());
+                earthquake.setLatitude(35.0);
+                earthquake.setLongitude(139.0);
+                earthquake.setDepth(10.0);
+                earthquake.setOffset("5 km N of");
+                earthquake.setPrimaryLocation("Town");
+                earthquakes.add(earthquake);
+            }
+            return earthquakes;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        // Later tests get the real event services and no stored history.
+        EarthquakeFederation.setDefault(null);
+        EarthquakeRepository.setHistoryDirectory(null);
+        HistoryBackfill.cancel(ApplicationProvider.getApplicationContext());
+    }
+
+    private static CatalogProvider publish() {
+        CatalogProvider provider = new CatalogProvider();
+        EarthquakeFederation.setDefault(new EarthquakeFederation(
+                Collections.<EarthquakeProvider>singletonList(provider)));
+        return provider;
+    }
+
+    /**
+     * Starts a backfill of the 60 days up to "end" anywhere, as fast as it goes.
+     */
+    private static void start(Context context, double minMagnitude, long end) {
+        HistoryBackfill.start(context, new BackfillPlan(minMagnitude, Double.NaN, Double.NaN,
+                Double.NaN, end - 60 * DAY, end, 3_600_000, Long.MAX_VALUE));
+    }
+
+    /**
+     * @return Start of the oldest chunk stored, as checkpointed.
+     */
+    private static long getCursor(Context context) {
+        return context.getSharedPreferences("history_backfill", Context.MODE_PRIVATE)
+                .getLong("cursor", -1L);
+    }
+
+    @Test
+    public void firstRequest_doesNotWait() {
+        assertEquals(0L, HistoryBackfill.getWaitMillis(1_000_000L, 0L, 60));
+    }
+
+    @Test
+    public void nextRequest_waitsForTheRestOfTheInterval() {
+        // 60 requests an hour are a minute apart.
+        long last = 10 * HOUR;
+        assertEquals(45_000L, HistoryBackfill.getWaitMillis(last + 15_000L, last, 60));
+        assertEquals(0L, HistoryBackfill.getWaitMillis(last + 60_000L, last, 60));
+    }
+
+    @Test
+    public void clockTurnedBack_waitsAtMostOneInterval() {
+        // Last request looks to be in the future after the clock changed.
+        long last = 10 * HOUR;
+        assertEquals(HOUR, HistoryBackfill.getWaitMillis(last - DAY, last, 1));
+    }
+
+    @Test
+    public void sparseChunk_doubles() {
+        assertEquals(60 * DAY, HistoryBackfill.getNextChunkMillis(30 * DAY, 120));
+    }
+
+    @Test
+    public void denseChunk_keepsItsLength() {
+        assertEquals(30 * DAY, HistoryBackfill.getNextChunkMillis(30 * DAY, 12_000));
+    }
+
+    @Test
+    public void chunk_neverExceedsAYear() {
+        assertEquals(365 * DAY, HistoryBackfill.getNextChunkMillis(300 * DAY, 0));
+    }
+
+    @Test
+    public void storedChunk_isCheckpointed() {
+        Context context = ApplicationProvider.getApplicationContext();
+        CatalogProvider provider = publish();
+        long end = System.currentTimeMillis() / DAY * DAY - 10 * DAY;
+        start(context, 6.1, end);
+
+        // Stopped as the first chunk gets downloaded, like a job whose process dies after it.
+        provider.stopAfterFirst = new AtomicBoolean();
+        assertEquals(HistoryBackfill.RETRY,
+                HistoryBackfill.run(context, provider.stopAfterFirst));
+
+        // First chunk is the 30 days up to the end, stored before the cursor moved past it.
+        assertEquals(1, provider.queries.size());
+        assertEquals(end - 30 * DAY, getCursor(context));
+        assertTrue(new File(HistoryBackfill.getDirectory(context),
+                (end - 30 * DAY) + "-" + end + ".snapshot").isFile());
+    }
+
+    @Test
+    public void restartedJob_resumesFromTheCheckpointWithoutRefetching() {
+        Context context = ApplicationProvider.getApplicationContext();
+        CatalogProvider provider = publish();
+        long end = System.currentTimeMillis() / DAY * DAY - 10 * DAY;
+        start(context, 6.2, end);
+
+        provider.stopAfterFirst = new AtomicBoolean();
+        HistoryBackfill.run(context, provider.stopAfterFirst);
+
+        // Job runs again with nothing but what got checkpointed.
+        provider.stopAfterFirst = null;
+        assertEquals(HistoryBackfill.FINISHED, HistoryBackfill.run(context, new AtomicBoolean()));
+
+        // Second chunk doubled, and starts where the first one stopped.
+        assertEquals(2, provider.queries.size());
+        assertEquals(end, provider.queries.get(0).getEndMillis());
+        assertEquals(end - 30 * DAY, provider.queries.get(1).getEndMillis());
+        assertEquals(end - 60 * DAY, provider.queries.get(1).getStartMillis());
+        assertEquals(end - 60 * DAY, getCursor(context));
+    }
+
+    @Test
+    public void storedHistory_answersTheRepositoryWithoutDownloading() {
+        Context context = ApplicationProvider.getApplicationContext();
+        CatalogProvider provider = publish();
+        long end = System.currentTimeMillis() / DAY * DAY - 10 * DAY;
+        start(context, 6.3, end);
+        assertEquals(HistoryBackfill.FINISHED, HistoryBackfill.run(context, new AtomicBoolean()));
+        HistoryBackfill.install(context);
+        provider.queries.clear();
+
+        // 20 days of the history, 4 earthquakes a day.
+        List<Earthquake> earthquakes = EarthquakeRepository.getEarthquakes(new EarthquakeQuery(
+                6.3, ORDER_BY_TIME, end - 40 * DAY, end - 20 * DAY, 1000));
+        assertNotNull(earthquakes);
+        assertEquals(80, earthquakes.size());
+        assertEquals(end - 20 * DAY - SPACING, earthquakes.get(0).getTimeMillis());
+        assertEquals(0, provider.queries.size());
+    }
+}
@@ -0,0 +1,195 @@
+package com.basic.quake_report.utils;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link IndexedGeoJsonList} finds every feature of a "geojson" response in one scan,
+ * and decodes a row as {@link JSONUtils#getEarthquakes(String)} would once it is asked for.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class IndexedGeoJsonListTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // 2021-12-11T00:00:00Z.
+    private static final long START = 1639180800000L;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+    }
+
+    private static String makeFeature(String id, String magnitude, long time, String place) {
+        return "{\"type\":\"Feature\",\"properties\":{\"mag\":" + magnitude + ",\"place\":\"" +
+                place + "\",\"time\":" + time + ",\"url\":\"https://earthquake.usgs.gov/" + id +
+                "\",\"tsunami\":0,\"sig\":312},\"geometry\":{\"type\":\"Point\"," +
+                "\"coordinates\":[-150.44,61.2,30.5]},\"id\":\"" + id + "\"}";
+    }
+
+    /**
+     * @return A response whose metadata and places hold brackets, which the scan must skip.
+     */
+    private static String makeResponse() {
+        return "{\"type\":\"FeatureCollection\",\"metadata\":{\"title\":\"[M 2.5+] {\\\"}\"," +
+                "\"count\":3},\"features\":[\n" +
+                makeFeature("us1", "4.56", START, "10 km N of Town {A}, Alaska") + ",\n" +
+                makeFeature("us2", "null", START - 1000L, "Fiji [region]") + ",\n" +
+                makeFeature("us3", "6.1", START - 2000L, "Chile") +
+                "\n],\"bbox\":[-180,-90,0,180,90,700]}";
+    }
+
+    private IndexedGeoJsonList index(String response) {
+        byte[] bytes = response.getBytes(UTF_8);
+        return IndexedGeoJsonList.index(bytes, bytes.length, "us", mContext);
+    }
+
+    @Test
+    public void index_findsEveryFeature() {
+        IndexedGeoJsonList earthquakes = index(makeResponse());
+
+        assertNotNull(earthquakes);
+        assertEquals(3, earthquakes.size());
+        assertEquals(4.6, earthquakes.getMagnitude(0), 0.0);
+        assertEquals(JSONUtilConstants.FALLBACK_MAG, earthquakes.getMagnitude(1), 0.0);
+        assertEquals(START - 2000L, earthquakes.getTimeMillis(2));
+    }
+
+    @Test
+    public void get_decodesAsTheWholeResponseWould() {
+        IndexedGeoJsonList earthquakes = index(makeResponse());
+        List<Earthquake> decoded = JSONUtils.getEarthquakes(makeResponse());
+
+        assertNotNull(decoded);
+        for (int i = 0; i < decoded.size(); i++) {
+            Earthquake earthquake = earthquakes.get(i);
+            assertEquals(decoded.get(i).getId(), earthquake.getId());
+            assertEquals(decoded.get(i).getMagnitude(), earthquake.getMagnitude(), 0.0);
+            assertEquals(decoded.get(i).getPrimaryLocation(), earthquake.getPrimaryLocation());
+            assertEquals(decoded.get(i).getDate(), earthquake.getDate());
+            assertEquals(earthquakes.getMagnitude(i), earthquake.getMagnitude(), 0.0);
+            assertEquals(earthquakes.getTimeMillis(i), earthquake.getTimeMillis());
+            assertEquals("us", earthquake.getSource());
+            assertNotNull(earthquake.getMagnitudeText());
+        }
+    }
+
+    @Test
+    public void get_keepsTheRowsDecodedLast() {
+        IndexedGeoJsonList earthquakes = index(makeResponse());
+
+        assertSame(earthquakes.get(0), earthquakes.get(0));
+        assertSame(earthquakes.get(0), earthquakes.peek(0));
+
+        // Rows only peeked at are not kept.
+        assertNotSame(earthquakes.peek(2), earthquakes.peek(2));
+    }
+
+    @Test
+    public void manyFeatures_growTheIndex() {
+        StringBuilder response = new StringBuilder("{\"features\":[");
+        for (int i = 0; i < 500; i++) {
+            if (i > 0) {
+                response.append(',');
+            }
+            response.append(makeFeature("us" + i, String.valueOf((i % 80) / 10.0),
+                    START - i, "Place " + i));
+        }
+        response.append("]}");
+
+        IndexedGeoJsonList earthquakes = index(response.toString());
+        assertNotNull(earthquakes);
+        assertEquals(500, earthquakes.size());
+        assertEquals(START - 499, earthquakes.getTimeMillis(499));
+        assertEquals("us499", earthquakes.get(499).getId());
+    }
+
+    @Test
+    public void featureStream_handsEveryFeatureAsItArrives() {
+        StringBuilder response = new StringBuilder("{\"metadata\":{\"title\":\"[\\\"\"},");
+        response.append("\"features\":[");
+        for (int i = 0; i < 600; i++) {
+            if (i > 0) {
+                response.append(',');
+            }
+            response.append(makeFeature("us" + i, "4.5", START - i, "Place {" + i + "]"));
+        }
+        response.append("],\"bbox\":[-180,-90,0,180,90,700]}");
+        byte[] bytes = response.toString().getBytes(UTF_8);
+
+        // Arrives in reads cutting features anywhere, the bytes given back being dropped.
+        IndexedGeoJsonList.FeatureStream features = new IndexedGeoJsonList.FeatureStream("us");
+        List<List<Earthquake>> chunks = new ArrayList<>();
+        byte[] buffer = new byte[bytes.length];
+        int length = 0;
+        int maxHeld = 0;
+        for (int received = 0; received < bytes.length; ) {
+            int read = Math.min(bytes.length - received, 97);
+            System.arraycopy(bytes, received, buffer, length, read);
+            received += read;
+            length += read;
+            maxHeld = Math.max(maxHeld, length);
+
+            int consumed = features.scan(buffer, length, chunks::add);
+            System.arraycopy(buffer, consumed, buffer, 0, length - consumed);
+            length -= consumed;
+        }
+
+        assertTrue(features.isComplete());
+        assertTrue("Held " + maxHeld + " bytes", maxHeld < 2 * bytes.length / 600 + 97);
+        int i = 0;
+        for (List<Earthquake> chunk : chunks) {
+            for (Earthquake earthquake : chunk) {
+                assertEquals("us" + i, earthquake.getId());
+                assertEquals("Place {" + i + "]", earthquake.getPrimaryLocation());
+                assertEquals(312, earthquake.getSignificance());
+                assertEquals("us", earthquake.getSource());
+                assertNull(earthquake.getMagnitudeText());
+                i++;
+            }
+        }
+        assertEquals(600, i);
+    }
+
+    @Test
+    public void featureStream_tellsAnIncompleteResponse() {
+        byte[] bytes = makeResponse().getBytes(UTF_8);
+        IndexedGeoJsonList.FeatureStream features = new IndexedGeoJsonList.FeatureStream("us");
+        List<Earthquake> earthquakes = new ArrayList<>();
+        features.scan(bytes, bytes.length - 1, earthquakes::addAll);
+
+        assertEquals(3, earthquakes.size());
+        assertFalse(features.isComplete());
+    }
+
+    @Test
+    public void incompleteResponse_isNotIndexed() {
+        String response = makeResponse();
+
+        assertNull(index(response.substring(0, response.length() - 1)));
+        assertNull(index("[]"));
+        assertNull(index(""));
+    }
+}
@@ -0,0 +1,135 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks {@link SectionIndex} finds the days and magnitude bands of a list, and maps every
+ * position to its section as a linear scan would.
+ */
+public class SectionIndexTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    // 2021-12-11T00:00:00Z.
+    private static final long START = 1639180800000L;
+
+    private static Earthquake makeEarthquake(long timeMillis, double magnitude) {
+        Earthquake earthquake = new Earthquake();
+        earthquake.setTimeMillis(timeMillis);
+        earthquake.setMagnitude(magnitude);
+        return earthquake;
+    }
+
+    /**
+     * @return "days" days of earthquakes, newest first, one every 5 hours.
+     */
+    private static List<Earthquake> makeDays(int days) {
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (long time = START + days * 24 * HOUR - 1; time >= START; time -= 5 * HOUR) {
+            earthquakes.add(makeEarthquake(time, 4.5));
+        }
+        return earthquakes;
+    }
+
+    @Test
+    public void byDay_startsASectionOnEveryDay() {
+        SectionIndex index = new SectionIndex(SectionIndex.BY_DAY, TimeZone.getTimeZone("UTC"));
+        index.append(makeDays(3));
+
+        assertEquals(3, index.getSectionCount());
+        assertEquals("Dec 13, 2021", index.getLabel(0));
+        assertEquals("Dec 11, 2021", index.getLabel(2));
+        assertEquals(0, index.getPositionForSection(0));
+    }
+
+    @Test
+    public void byDay_followsTheTimeZone() {
+        // 2021-12-11T23:00:00Z is already Dec 12 in Tokyo.
+        List<Earthquake> earthquakes = new ArrayList<>();
+        earthquakes.add(makeEarthquake(START + 23 * HOUR, 4.5));
+        earthquakes.add(makeEarthquake(START + 10 * HOUR, 4.5));
+
+        SectionIndex utc = new SectionIndex(SectionIndex.BY_DAY, TimeZone.getTimeZone("UTC"));
+        utc.append(earthquakes);
+        SectionIndex tokyo = new SectionIndex(SectionIndex.BY_DAY,
+                TimeZone.getTimeZone("Asia/Tokyo"));
+        tokyo.append(earthquakes);
+
+        assertEquals(1, utc.getSectionCount());
+        assertEquals(2, tokyo.getSectionCount());
+    }
+
+    @Test
+    public void byMagnitude_startsASectionOnEveryWholeMagnitude() {
+        List<Earthquake> earthquakes = new ArrayList<>();
+        double[] magnitudes = {7.1, 6.9, 6.0, 5.5, 5.4, 2.0};
+        for (double magnitude : magnitudes) {
+            earthquakes.add(makeEarthquake(START, magnitude));
+        }
+
+        SectionIndex index = new SectionIndex(SectionIndex.BY_MAGNITUDE);
+        index.append(earthquakes);
+
+        assertEquals(4, index.getSectionCount());
+        assertEquals("M 6+", index.getLabel(1));
+        assertEquals(1, index.getPositionForSection(1));
+        assertEquals(3, index.getPositionForSection(2));
+        assertEquals(5, index.getPositionForSection(3));
+    }
+
+    @Test
+    public void getSectionForPosition_matchesALinearScan() {
+        List<Earthquake> earthquakes = makeDays(40);
+        SectionIndex index = new SectionIndex(SectionIndex.BY_DAY, TimeZone.getTimeZone("UTC"));
+        index.append(earthquakes);
+
+        int section = -1;
+        for (int position = 0; position < earthquakes.size(); position++) {
+            if (index.isSectionStart(position)) {
+                section++;
+                assertEquals(position, index.getPositionForSection(section));
+            }
+            assertEquals(section, index.getSectionForPosition(position));
+        }
+        assertEquals(40, section + 1);
+    }
+
+    @Test
+    public void append_onlyIndexesTheNewRows() {
+        List<Earthquake> earthquakes = makeDays(4);
+        List<Earthquake> shown = new ArrayList<>(earthquakes.subList(0, 7));
+        SectionIndex index = new SectionIndex(SectionIndex.BY_DAY, TimeZone.getTimeZone("UTC"));
+        index.append(shown);
+
+        // Rows decoded later join the last section or start new ones.
+        shown.addAll(earthquakes.subList(7, earthquakes.size()));
+        index.append(shown);
+
+        SectionIndex whole = new SectionIndex(SectionIndex.BY_DAY, TimeZone.getTimeZone("UTC"));
+        whole.append(earthquakes);
+        assertEquals(whole.getSectionCount(), index.getSectionCount());
+        for (int section = 0; section < whole.getSectionCount(); section++) {
+            assertEquals(whole.getPositionForSection(section),
+                    index.getPositionForSection(section));
+            assertEquals(whole.getLabel(section), index.getLabel(section));
+        }
+    }
+
+    @Test
+    public void emptyList_hasNoSections() {
+        SectionIndex index = new SectionIndex(SectionIndex.BY_DAY);
+        index.append(new ArrayList<Earthquake>());
+
+        assertEquals(0, index.getSectionCount());
+        assertEquals(0, index.getSectionForPosition(0));
+        assertEquals(0, index.getSections().length);
+    }
+}
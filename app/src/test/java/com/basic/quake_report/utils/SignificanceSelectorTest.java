@@ -0,0 +1,103 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link SignificanceSelector} selects what a full sort would, while holding a bounded
+ * number of earthquakes.
+ */
+public class SignificanceSelectorTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    // 2021-12-11T00:00:00Z.
+    private static final long START = 1639180800000L;
+
+    // Number of earthquakes streamed, about 30 days of M2.5+.
+    private static final int EVENT_COUNT = 20_000;
+
+    private static final int TOP_COUNT = 50;
+
+    private static Earthquake makeEarthquake(long timeMillis, double magnitude, int significance) {
+        Earthquake earthquake = new Earthquake();
+        earthquake.setTimeMillis(timeMillis);
+        earthquake.setMagnitude(magnitude);
+        earthquake.setSignificance(significance);
+        return earthquake;
+    }
+
+    /**
+     * @return Earthquakes of 30 days in time order, some with a USGS "sig".
+     */
+    private static List<Earthquake> makeStream(Random random) {
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            double magnitude = Math.round((2.5 + 5 * Math.pow(random.nextDouble(), 4)) * 10) / 10.0;
+            int significance = random.nextInt(4) == 0 ? random.nextInt(2000) : 0;
+            earthquakes.add(makeEarthquake(START + i * (30 * DAY / EVENT_COUNT), magnitude,
+                    significance));
+        }
+        return earthquakes;
+    }
+
+    /**
+     * @return The top "count" of "earthquakes" by a full sort.
+     */
+    private static List<Earthquake> sortTop(List<Earthquake> earthquakes, int count) {
+        List<Earthquake> sorted = new ArrayList<>(earthquakes);
+        Collections.sort(sorted, new Comparator<Earthquake>() {
+            @Override
+            public int compare(Earthquake first, Earthquake second) {
+                int bySignificance = Integer.compare(
+                        SignificanceSelector.significanceOf(second),
+                        SignificanceSelector.significanceOf(first));
+                if (bySignificance != 0) {
+                    return bySignificance;
+                }
+                int byMagnitude = Double.compare(second.getMagnitude(), first.getMagnitude());
+                return byMagnitude != 0 ? byMagnitude :
+                        Long.compare(second.getTimeMillis(), first.getTimeMillis());
+            }
+        });
+        return new ArrayList<>(sorted.subList(0, Math.min(count, sorted.size())));
+    }
+
+    private static void assertSameEarthquakes(List<Earthquake> expected, List<Earthquake> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame("Rank " + i, expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void significanceOf_prefersTheUsgsSig() {
+        assertEquals(650, SignificanceSelector.significanceOf(makeEarthquake(START, 6.5, 0)));
+        assertEquals(912, SignificanceSelector.significanceOf(makeEarthquake(START, 4.1, 912)));
+    }
+
+    @Test
+    public void streamedSelection_matchesAFullSort() {
+        List<Earthquake> earthquakes = makeStream(new Random(7));
+
+        // Fed in chunks, as a download is decoded.
+        SignificanceSelector selector = new SignificanceSelector(TOP_COUNT);
+        for (int from = 0; from < earthquakes.size(); from += 1000) {
+            selector.onChunk(earthquakes.subList(from, Math.min(earthquakes.size(), from + 1000)));
+            assertTrue(selector.getHeldCount() <= TOP_COUNT);
+        }
+
+        assertSameEarthquakes(sortTop(earthquakes, TOP_COUNT), selector.getTop());
+    }
+}
@@ -0,0 +1,284 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks {@link SummaryFeedRouter} only routes queries a summary feed holds every earthquake
+ * of, and that the feed filtered locally, joined to the unsettled part from the event service,
+ * answers them exactly as the event service would.
+ */
+public class SummaryFeedRouterTest implements NetworkUtilsConstants {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    // 2021-12-11T00:00:00Z.
+    private static final long START = 1639180800000L;
+
+    // 2021-12-11T23:40:00Z, late in the day so the day's range nearly fills the past day.
+    private static final long NOW = START + DAY - 20 * MINUTE;
+
+    // Feeds are generated up to 15 minutes before they are downloaded.
+    private static final long GENERATED = NOW - 15 * MINUTE;
+
+    // Number of earthquakes in the catalog.
+    private static final int EVENT_COUNT = 20_000;
+
+    /**
+     * @return Earthquakes of the 40 days before now, some of them after the feeds were
+     * generated, a tenth of them around Tokyo, with magnitudes of one decimal from -0.5 to 7.4.
+     */
+    private static List<Earthquake> catalog() {
+        Random random = new Random(11);
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            Earthquake earthquake = new Earthquake();
+            earthquake.setId("ev" + i);
+            earthquake.setTimeMillis(NOW - (long) (random.nextDouble() * 40 * DAY));
+            earthquake.setMagnitude(-0.5 + random.nextInt(80) / 10.0);
+            if (i % 10 == 0) {
+                earthquake.setLatitude(35.7 + 8 * (random.nextDouble() - 0.5));
+                earthquake.setLongitude(139.7 + 8 * (random.nextDouble() - 0.5));
+            } else {
+                earthquake.setLatitude(180 * random.nextDouble() - 90);
+                earthquake.setLongitude(360 * random.nextDouble() - 180);
+            }
+            earthquakes.add(earthquake);
+        }
+        return earthquakes;
+    }
+
+    /**
+     * @return A query of the list, of the whole UTC days up to today.
+     */
+    private static EarthquakeQuery listQuery(int days, double minMagnitude, String orderBy,
+                                             int limit, boolean regional) {
+        long end = START + DAY;
+        return query(end - days * DAY, end, minMagnitude, orderBy, limit, regional);
+    }
+
+    /**
+     * @return The part of a query of the list a feed downloaded at "nowMillis" may answer.
+     */
+    private static EarthquakeQuery settledQuery(int days, double minMagnitude, String orderBy,
+                                                int limit, boolean regional, long nowMillis) {
+        return SummaryFeedRouter.getSettledPart(
+                listQuery(days, minMagnitude, orderBy, limit, regional), nowMillis);
+    }
+
+    private static EarthquakeQuery query(long start, long end, double minMagnitude,
+                                         String orderBy, int limit, boolean regional) {
+        return regional ?
+                new EarthquakeQuery(minMagnitude, orderBy, start, end, limit, false, 35.7,
+                        139.7, 300.0) :
+                new EarthquakeQuery(minMagnitude, orderBy, start, end, limit);
+    }
+
+    /**
+     * @return Earthquakes of the catalog the feed named "feed" holds, none of them after it was
+     * generated.
+     */
+    private static List<Earthquake> feed(List<Earthquake> catalog, String feed) {
+        String level = feed.substring(0, feed.indexOf('_'));
+        String period = feed.substring(feed.indexOf('_') + 1);
+
+        double minMagnitude = level.equals("all") ? Double.NEGATIVE_INFINITY :
+                Double.parseDouble(level);
+        long length = period.equals("hour") ? 60 * MINUTE : period.equals("day") ? DAY :
+                period.equals("week") ? 7 * DAY : 30 * DAY;
+
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (Earthquake earthquake : catalog) {
+            if (earthquake.getMagnitude() >= minMagnitude &&
+                    earthquake.getTimeMillis() >= GENERATED - length &&
+                    earthquake.getTimeMillis() <= GENERATED) {
+                earthquakes.add(earthquake);
+            }
+        }
+
+        // Feeds list the most recent first.
+        Collections.sort(earthquakes, (first, second) ->
+                Long.compare(second.getTimeMillis(), first.getTimeMillis()));
+        return earthquakes;
+    }
+
+    /**
+     * @return What the event service would answer: filtered to the second, within the circle,
+     * ordered and limited.
+     */
+    private static List<Earthquake> direct(List<Earthquake> catalog, EarthquakeQuery query) {
+        long start = query.getStartMillis() / 1000 * 1000;
+        long end = query.getEndMillis() / 1000 * 1000;
+
+        List<Earthquake> earthquakes = new ArrayList<>();
+        for (Earthquake earthquake : catalog) {
+            if (earthquake.getMagnitude() < query.getMinMagnitude() ||
+                    earthquake.getTimeMillis() < start || earthquake.getTimeMillis() > end) {
+                continue;
+            }
+            if (query.isRegional() && angleDegrees(query.getLatitude(), query.getLongitude(),
+                    earthquake.getLatitude(), earthquake.getLongitude()) >
+                    query.getMaxRadiusKm() / 111.2) {
+                continue;
+            }
+            earthquakes.add(earthquake);
+        }
+
+        if (query.isOrderedByTime()) {
+            Collections.sort(earthquakes, (first, second) ->
+                    Long.compare(second.getTimeMillis(), first.getTimeMillis()));
+        } else {
+            Collections.sort(earthquakes, (first, second) -> {
+                int byMagnitude = Double.compare(second.getMagnitude(), first.getMagnitude());
+                return byMagnitude != 0 ? byMagnitude :
+                        Long.compare(second.getTimeMillis(), first.getTimeMillis());
+            });
+        }
+        return earthquakes.size() > query.getLimit() ?
+                earthquakes.subList(0, query.getLimit()) : earthquakes;
+    }
+
+    /**
+     * @return Angle between two points, by the spherical law of cosines.
+     */
+    private static double angleDegrees(double latitude1, double longitude1, double latitude2,
+                                       double longitude2) {
+        double cos = Math.sin(Math.toRadians(latitude1)) * Math.sin(Math.toRadians(latitude2)) +
+                Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) *
+                        Math.cos(Math.toRadians(longitude2 - longitude1));
+        return Math.toDegrees(Math.acos(Math.max(-1.0, Math.min(1.0, cos))));
+    }
+
+    /**
+     * @return What the router answers "query" with: the feed its settled part is routed to,
+     * joined to what the event service answers for the rest, or null if it is not routed.
+     */
+    private static List<Earthquake> routed(List<Earthquake> catalog, EarthquakeQuery query) {
+        EarthquakeQuery settledPart = SummaryFeedRouter.getSettledPart(query, NOW);
+        if (settledPart == null) {
+            return null;
+        }
+        String feed = SummaryFeedRouter.getFeed(settledPart, NOW);
+        if (feed == null) {
+            return null;
+        }
+
+        List<Earthquake> settled = SummaryFeedRouter.filter(feed(catalog, feed), settledPart);
+        EarthquakeQuery unsettledPart = SummaryFeedRouter.getUnsettledPart(query, NOW);
+        return unsettledPart == null ? settled : SummaryFeedRouter.merge(settled, settledPart,
+                direct(catalog, unsettledPart), query);
+    }
+
+    private static void assertSameEarthquakes(List<Earthquake> expected,
+                                              List<Earthquake> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+        }
+    }
+
+    @Test
+    public void getFeed_picksTheSmallestFeedHoldingTheQuery() {
+        assertEquals("all_hour", SummaryFeedRouter.getFeed(
+                query(NOW - 40 * MINUTE, GENERATED, 0.0, ORDER_BY_TIME, 100, false), NOW));
+        assertEquals("2.5_day", SummaryFeedRouter.getFeed(
+                settledQuery(1, 3.0, ORDER_BY_TIME, 100, false, NOW), NOW));
+        assertEquals("1.0_day", SummaryFeedRouter.getFeed(
+                settledQuery(1, 1.0, ORDER_BY_TIME, 100, false, NOW), NOW));
+        assertEquals("4.5_week", SummaryFeedRouter.getFeed(
+                settledQuery(7, 4.5, ORDER_BY_MAGNITUDE, 100, false, NOW), NOW));
+        assertEquals("2.5_week", SummaryFeedRouter.getFeed(
+                settledQuery(7, 2.5, ORDER_BY_TIME, 100, true, NOW), NOW));
+        assertEquals("4.5_month", SummaryFeedRouter.getFeed(
+                settledQuery(30, 6.0, ORDER_BY_TIME, 100, false, NOW), NOW));
+
+        // Today's range starts before a past day's feed generated a while ago does.
+        long later = START + DAY - 5 * MINUTE;
+        assertEquals("2.5_week", SummaryFeedRouter.getFeed(
+                settledQuery(1, 2.5, ORDER_BY_TIME, 100, false, later), later));
+    }
+
+    @Test
+    public void getFeed_leavesTheRestToTheEventService() {
+        // Ending after the feeds were generated.
+        assertNull(SummaryFeedRouter.getFeed(listQuery(1, 4.5, ORDER_BY_TIME, 100, false), NOW));
+        assertNull(SummaryFeedRouter.getFeed(
+                query(NOW - 40 * MINUTE, NOW, 0.0, ORDER_BY_TIME, 100, false), NOW));
+
+        // Longer than any feed.
+        assertNull(SummaryFeedRouter.getFeed(
+                settledQuery(90, 4.5, ORDER_BY_TIME, 100, false, NOW), NOW));
+
+        // Levels whose feeds of the period are too large.
+        assertNull(SummaryFeedRouter.getFeed(
+                settledQuery(7, 1.0, ORDER_BY_TIME, 100, false, NOW), NOW));
+        assertNull(SummaryFeedRouter.getFeed(
+                settledQuery(30, 4.0, ORDER_BY_TIME, 100, false, NOW), NOW));
+        long later = START + DAY - 5 * MINUTE;
+        assertNull(SummaryFeedRouter.getFeed(
+                settledQuery(1, 1.0, ORDER_BY_TIME, 100, false, later), later));
+    }
+
+    @Test
+    public void unsettledEnd_isNotRoutedAgain() {
+        // Repository asks the event service again for the end of its range not settled yet.
+        long settled = NOW - 2 * 60 * MINUTE;
+        EarthquakeQuery unsettledEnd = query(settled, NOW, 0.0, ORDER_BY_TIME, EVENT_COUNT, false);
+
+        assertNull(SummaryFeedRouter.getSettledPart(unsettledEnd, NOW));
+        assertNull(routed(catalog(), unsettledEnd));
+    }
+
+    @Test
+    public void routedQueries_answerAsTheEventServiceWould() {
+        List<Earthquake> catalog = catalog();
+        int routed = 0;
+
+        for (int days : new int[]{1, 7, 30}) {
+            for (double minMagnitude : new double[]{-1.0, 0.0, 1.0, 2.5, 3.2, 4.5, 6.0}) {
+                for (String orderBy : new String[]{ORDER_BY_TIME, ORDER_BY_MAGNITUDE}) {
+                    for (int limit : new int[]{10, EVENT_COUNT}) {
+                        for (boolean regional : new boolean[]{false, true}) {
+                            EarthquakeQuery query = listQuery(days, minMagnitude, orderBy,
+                                    limit, regional);
+                            List<Earthquake> answer = routed(catalog, query);
+                            if (answer == null) {
+                                continue;
+                            }
+
+                            routed++;
+                            assertSameEarthquakes(direct(catalog, query), answer);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Past hours, and days ago whose range ends before now.
+        for (EarthquakeQuery query : new EarthquakeQuery[]{
+                query(NOW - 6 * 60 * MINUTE + 500L, NOW, 0.0, ORDER_BY_TIME, EVENT_COUNT,
+                        false),
+                query(START - 3 * DAY, START - 2 * DAY, 2.5, ORDER_BY_MAGNITUDE, 50, false),
+                query(START - 20 * DAY, START - 19 * DAY, 5.0, ORDER_BY_TIME, 50, true)}) {
+            List<Earthquake> answer = routed(catalog, query);
+            assertNotNull(answer);
+
+            routed++;
+            assertSameEarthquakes(direct(catalog, query), answer);
+        }
+
+        assertEquals(107, routed);
+    }
+}
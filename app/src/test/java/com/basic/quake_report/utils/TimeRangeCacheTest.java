@@ -0,0 +1,106 @@
+package com.basic.quake_report.utils;
+
+import com.basic.quake_report.Earthquake;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks {@link TimeRangeCache} only reports the spans of a range not downloaded yet.
+ */
+public class TimeRangeCacheTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    // 2021-12-11T00:00:00Z.
+    private static final long START = 1639180800000L;
+
+    private static final double FLOOR = 4.0;
+
+    private static Earthquake earthquake(String id, long time) {
+        Earthquake earthquake = new Earthquake();
+        earthquake.setId(id);
+        earthquake.setTimeMillis(time);
+        return earthquake;
+    }
+
+    @Test
+    public void emptyCache_hasTheWholeRangeAsGap() {
+        List<long[]> gaps = new TimeRangeCache().getGaps(FLOOR, START, START + 30 * DAY);
+
+        assertEquals(1, gaps.size());
+        assertArrayEquals(new long[]{START, START + 30 * DAY}, gaps.get(0));
+    }
+
+    @Test
+    public void slidingThirtyDaysForwardByOneDay_leavesOneDayGap() {
+        TimeRangeCache cache = new TimeRangeCache();
+        cache.add(FLOOR, START, START + 30 * DAY, Collections.<Earthquake>emptyList());
+
+        List<long[]> gaps = cache.getGaps(FLOOR, START + DAY, START + 31 * DAY);
+
+        assertEquals(1, gaps.size());
+        assertArrayEquals(new long[]{START + 30 * DAY, START + 31 * DAY}, gaps.get(0));
+    }
+
+    @Test
+    public void wideningAroundHeldSpans_leavesOnlyTheGapsBetweenThem() {
+        TimeRangeCache cache = new TimeRangeCache();
+        cache.add(FLOOR, START + 2 * DAY, START + 4 * DAY, Collections.<Earthquake>emptyList());
+        cache.add(FLOOR, START + 6 * DAY, START + 8 * DAY, Collections.<Earthquake>emptyList());
+
+        List<long[]> gaps = cache.getGaps(FLOOR, START, START + 10 * DAY);
+
+        assertEquals(3, gaps.size());
+        assertArrayEquals(new long[]{START, START + 2 * DAY}, gaps.get(0));
+        assertArrayEquals(new long[]{START + 4 * DAY, START + 6 * DAY}, gaps.get(1));
+        assertArrayEquals(new long[]{START + 8 * DAY, START + 10 * DAY}, gaps.get(2));
+    }
+
+    @Test
+    public void touchingSpans_areMerged() {
+        TimeRangeCache cache = new TimeRangeCache();
+        cache.add(FLOOR, START, START + DAY, Collections.<Earthquake>emptyList());
+        cache.add(FLOOR, START + 2 * DAY, START + 3 * DAY, Collections.<Earthquake>emptyList());
+        cache.add(FLOOR, START + DAY, START + 2 * DAY, Collections.<Earthquake>emptyList());
+
+        assertEquals(0, cache.getGaps(FLOOR, START, START + 3 * DAY).size());
+    }
+
+    @Test
+    public void otherFloors_areNotCovered() {
+        TimeRangeCache cache = new TimeRangeCache();
+        cache.add(FLOOR, START, START + DAY, Collections.<Earthquake>emptyList());
+
+        assertEquals(1, cache.getGaps(2.0, START, START + DAY).size());
+    }
+
+    @Test
+    public void get_returnsEarthquakesOfTheRangeOnceAndOldestFirst() {
+        TimeRangeCache cache = new TimeRangeCache();
+        List<Earthquake> first = new ArrayList<>();
+        first.add(earthquake("b", START + 2 * DAY + 5));
+        first.add(earthquake("a", START + DAY + 5));
+        cache.add(FLOOR, START, START + 3 * DAY, first);
+
+        // Span boundaries are requested twice, so "b" comes back.
+        List<Earthquake> second = new ArrayList<>();
+        second.add(earthquake("c", START + 3 * DAY + 5));
+        second.add(earthquake("b", START + 2 * DAY + 5));
+        cache.add(FLOOR, START + 2 * DAY, START + 4 * DAY, second);
+
+        List<Earthquake> earthquakes = cache.get(FLOOR, START + DAY, START + 4 * DAY);
+
+        assertEquals(3, earthquakes.size());
+        assertEquals("a", earthquakes.get(0).getId());
+        assertEquals("b", earthquakes.get(1).getId());
+        assertEquals("c", earthquakes.get(2).getId());
+        assertEquals(1, cache.get(FLOOR, START + 2 * DAY, START + 3 * DAY).size());
+    }
+}